@@ -25,6 +25,28 @@ public interface FilterFactoryContext {
      */
     FilterDispatchExecutor filterDispatchExecutor();
 
+    /**
+     * Returns the name of the virtual cluster whose filter chain the filter belongs to.
+     * Filter factories can use this, for example, to tag the metrics of their initialization data,
+     * which is shared by the filters of one virtual cluster.
+     * The name is available in the context passed to {@link FilterFactory#initialize(FilterFactoryContext, Object)}.
+     * @return the virtual cluster name
+     * @throws IllegalStateException if the virtual cluster is not known in this context.
+     */
+    default String virtualClusterName() {
+        throw new IllegalStateException("no virtual cluster name available in this context");
+    }
+
+    /**
+     * Returns the name of the filter definition being initialized, as declared in the configuration.
+     * The name is available in the context passed to {@link FilterFactory#initialize(FilterFactoryContext, Object)}.
+     * @return the filter name
+     * @throws IllegalStateException if the filter definition is not known in this context.
+     */
+    default String filterName() {
+        throw new IllegalStateException("no filter name available in this context");
+    }
+
     /**
      * Gets a plugin instance for the given plugin type and name
      *
@@ -0,0 +1,34 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.proxy.filter;
+
+/**
+ * What the proxy should do with a frame that has been passed to a {@link FrameFilter}.
+ */
+public enum FrameAction {
+
+    /**
+     * Pass the frame, unchanged, to the next filter in the chain.
+     */
+    FORWARD,
+
+    /**
+     * Pass the frame, unchanged, to the next filter in the chain, and then close the connection.
+     */
+    FORWARD_AND_CLOSE,
+
+    /**
+     * Discard the frame. For a request this means the broker never receives it,
+     * so the client will not receive a response to it unless the request does not expect one.
+     */
+    DROP,
+
+    /**
+     * Discard the frame and close the connection.
+     */
+    CLOSE
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.proxy.filter;
+
+/**
+ * <p>A Filter that observes every request and response frame without requiring it to be decoded,
+ * for example to meter, audit or rate limit the traffic on a connection.</p>
+ *
+ * <p>A {@code FrameFilter} is only given the fields which are known without decoding a frame
+ * (see {@link FrameView}), and can only forward it unchanged, drop it, or close the connection
+ * (see {@link FrameAction}). In exchange, it never causes a frame to be decoded: a frame that no other filter
+ * in the chain wants to handle is passed between the client and the broker as the bytes which were received.</p>
+ *
+ * <p>When a Filter implements {@code FrameFilter} it must not also implement {@link RequestFilter}, {@link ResponseFilter},
+ * or any of the message-specific {@code *RequestFilter} and {@code *ResponseFilter} interfaces.</p>
+ *
+ * <p>The methods of this interface are called synchronously, on the same thread as the other methods of the filter
+ * (see {@link io.kroxylicious.proxy.filter Thread Safety}). They must not block.</p>
+ */
+public interface FrameFilter extends Filter {
+
+    /**
+     * Handle a request frame flowing from the client towards the broker.
+     *
+     * @param frame a view of the request
+     * @param context the context
+     * @return what to do with the request
+     */
+    default FrameAction onRequestFrame(FrameView frame, FrameFilterContext context) {
+        return FrameAction.FORWARD;
+    }
+
+    /**
+     * Handle a response frame flowing from the broker towards the client.
+     *
+     * @param frame a view of the response
+     * @param context the context
+     * @return what to do with the response
+     */
+    default FrameAction onResponseFrame(FrameView frame, FrameFilterContext context) {
+        return FrameAction.FORWARD;
+    }
+}
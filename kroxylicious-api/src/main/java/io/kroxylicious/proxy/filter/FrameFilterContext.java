@@ -0,0 +1,41 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.proxy.filter;
+
+import io.kroxylicious.proxy.authentication.Subject;
+
+/**
+ * The context passed to a {@link FrameFilter}.
+ */
+public interface FrameFilterContext {
+
+    /**
+     * A description of the downstream/client channel.
+     * @return A description of this channel (typically used for logging).
+     */
+    String channelDescriptor();
+
+    /**
+     * An id which uniquely identifies the connection with the client in both time and space.
+     * @return the ID allocated to this client session.
+     * @see FilterContext#sessionId()
+     */
+    String sessionId();
+
+    /**
+     * Returns the name of the virtual cluster the client is connected to.
+     * @return the virtual cluster name
+     */
+    String getVirtualClusterName();
+
+    /**
+     * Returns the client's authenticated subject.
+     * @return the authenticated subject
+     * @see FilterContext#authenticatedSubject()
+     */
+    Subject authenticatedSubject();
+}
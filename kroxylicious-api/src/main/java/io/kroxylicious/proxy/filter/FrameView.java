@@ -0,0 +1,52 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.proxy.filter;
+
+import java.nio.ByteBuffer;
+import java.util.Optional;
+
+import org.apache.kafka.common.protocol.ApiKeys;
+
+/**
+ * <p>A view of a request or response frame which is passed to a {@link FrameFilter}.
+ * It exposes the fields which are known without decoding the frame.</p>
+ *
+ * <p>A view is only valid for the duration of the call it is passed to.
+ * Filters must not retain it, or its {@link #buffer()}, after that call returns.</p>
+ */
+public interface FrameView {
+
+    /**
+     * Returns the API key of the frame.
+     * Frames whose API key is not known to the proxy are forwarded without being passed to a {@link FrameFilter}.
+     * @return the API key
+     */
+    ApiKeys apiKey();
+
+    /**
+     * Returns the API version of the frame.
+     * @return the API version
+     */
+    short apiVersion();
+
+    /**
+     * Returns the correlation id of the frame, as it is known to this filter.
+     * @return the correlation id
+     */
+    int correlationId();
+
+    /**
+     * <p>Returns a read-only buffer containing the encoded header and body of the frame,
+     * but not the size which prefixes the frame on the wire.
+     * The buffer's {@link ByteBuffer#remaining()} is therefore the size of the frame.</p>
+     *
+     * <p>The buffer is empty when the frame has been decoded because another filter in the chain
+     * wants to handle it. Its encoded form may then no longer be known, because a filter may have changed it.</p>
+     * @return the buffer, or empty if the frame has been decoded.
+     */
+    Optional<ByteBuffer> buffer();
+}
@@ -12,6 +12,8 @@
  * They can inherit multiple interfaces if necessary.
  * For filters which needs to intercept most or all of the protocol it is more convenient to inherit
  * {@link io.kroxylicious.proxy.filter.RequestFilter} and/or {@link io.kroxylicious.proxy.filter.ResponseFilter}.</p>
+ * <p>Filters which only need to know the API key, version or size of each message, and which never need to change
+ * a message, can instead inherit {@link io.kroxylicious.proxy.filter.FrameFilter}, which never causes a message to be decoded.</p>
  *
  * <h2 id='assumptions'>Important facts about the Kafka protocol</h2>
  *
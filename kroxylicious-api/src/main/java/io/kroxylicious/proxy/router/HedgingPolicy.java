@@ -0,0 +1,118 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.proxy.router;
+
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.Objects;
+import java.util.Set;
+
+import org.apache.kafka.common.protocol.ApiKeys;
+
+/**
+ * Policy governing hedged requests sent via
+ * {@link RouterContext#sendHedgedRequest}.
+ *
+ * <p>A router opts in to hedging by calling
+ * {@link RouterFactoryContext#enableHedging} during
+ * {@link RouterFactory#initialize}. When the primary node has not
+ * replied within the {@code latencyPercentile} of recently observed
+ * reply latencies for the same route and API key (but never sooner than
+ * {@code minimumDelay}), the runtime sends a duplicate of the request to
+ * the alternate node. The first reply wins and the other is discarded.</p>
+ *
+ * <p>Hedges are drawn from a budget shared by all connections through
+ * the router level. Each hedgeable request adds
+ * {@code maxExtraRequestRatio} of a hedge to the budget, so the number
+ * of extra requests sent upstream never exceeds that fraction of the
+ * hedgeable requests.</p>
+ *
+ * <p>Only idempotent, read-only API keys may be hedged (see
+ * {@link #HEDGEABLE_API_KEYS}).</p>
+ *
+ * @param latencyPercentile the percentile, in the open interval (0, 1), of observed
+ *        reply latency after which a hedge is sent, e.g. {@code 0.95}
+ * @param maxExtraRequestRatio the maximum ratio, in the interval (0, 1], of hedges to
+ *        hedgeable requests, e.g. {@code 0.05}
+ * @param minimumDelay the lower bound on the delay before a hedge is sent
+ * @param apiKeys the API keys that may be hedged, a subset of {@link #HEDGEABLE_API_KEYS}
+ */
+public record HedgingPolicy(double latencyPercentile,
+                            double maxExtraRequestRatio,
+                            Duration minimumDelay,
+                            Set<ApiKeys> apiKeys) {
+
+    /**
+     * API keys whose requests are idempotent and read-only, and therefore
+     * safe to send more than once.
+     */
+    public static final Set<ApiKeys> HEDGEABLE_API_KEYS = Set.copyOf(EnumSet.of(
+            ApiKeys.METADATA,
+            ApiKeys.LIST_OFFSETS,
+            ApiKeys.OFFSET_FETCH,
+            ApiKeys.OFFSET_FOR_LEADER_EPOCH,
+            ApiKeys.LIST_GROUPS,
+            ApiKeys.LIST_TRANSACTIONS,
+            ApiKeys.LIST_PARTITION_REASSIGNMENTS,
+            ApiKeys.DESCRIBE_GROUPS,
+            ApiKeys.DESCRIBE_ACLS,
+            ApiKeys.DESCRIBE_CONFIGS,
+            ApiKeys.DESCRIBE_LOG_DIRS,
+            ApiKeys.DESCRIBE_CLIENT_QUOTAS,
+            ApiKeys.DESCRIBE_USER_SCRAM_CREDENTIALS,
+            ApiKeys.DESCRIBE_CLUSTER,
+            ApiKeys.DESCRIBE_PRODUCERS,
+            ApiKeys.DESCRIBE_TRANSACTIONS,
+            ApiKeys.DESCRIBE_TOPIC_PARTITIONS,
+            ApiKeys.CONSUMER_GROUP_DESCRIBE,
+            ApiKeys.SHARE_GROUP_DESCRIBE,
+            ApiKeys.STREAMS_GROUP_DESCRIBE,
+            ApiKeys.DESCRIBE_SHARE_GROUP_OFFSETS));
+
+    /**
+     * Validates the policy and defensive-copies the API key set.
+     */
+    public HedgingPolicy {
+        if (!(latencyPercentile > 0.0 && latencyPercentile < 1.0)) {
+            throw new IllegalArgumentException("latencyPercentile must be in the interval (0, 1), got " + latencyPercentile);
+        }
+        if (!(maxExtraRequestRatio > 0.0 && maxExtraRequestRatio <= 1.0)) {
+            throw new IllegalArgumentException("maxExtraRequestRatio must be in the interval (0, 1], got " + maxExtraRequestRatio);
+        }
+        Objects.requireNonNull(minimumDelay, "minimumDelay");
+        if (minimumDelay.isNegative()) {
+            throw new IllegalArgumentException("minimumDelay must not be negative, got " + minimumDelay);
+        }
+        apiKeys = Set.copyOf(Objects.requireNonNull(apiKeys, "apiKeys"));
+        if (!HEDGEABLE_API_KEYS.containsAll(apiKeys)) {
+            var unsafe = EnumSet.noneOf(ApiKeys.class);
+            unsafe.addAll(apiKeys);
+            unsafe.removeAll(HEDGEABLE_API_KEYS);
+            throw new IllegalArgumentException("API keys " + unsafe + " are not idempotent reads and cannot be hedged");
+        }
+    }
+
+    /**
+     * Returns a policy that hedges all {@link #HEDGEABLE_API_KEYS} after the
+     * 95th percentile of observed latency, with at most 5% extra requests.
+     *
+     * @return the default policy
+     */
+    public static HedgingPolicy defaultPolicy() {
+        return new HedgingPolicy(0.95, 0.05, Duration.ofMillis(1), HEDGEABLE_API_KEYS);
+    }
+
+    /**
+     * Returns true if requests with the given API key may be hedged under this policy.
+     *
+     * @param apiKey the API key
+     * @return true if the API key is hedged
+     */
+    public boolean appliesTo(ApiKeys apiKey) {
+        return apiKeys.contains(apiKey);
+    }
+}
@@ -132,6 +132,36 @@ public interface RouterContext {
                                             RequestHeaderData header,
                                             ApiMessage request);
 
+    /**
+     * Sends an idempotent, read-only request to a primary broker, hedging
+     * it to an equivalent alternate broker if the primary is slow.
+     *
+     * <p>If the router enabled hedging via
+     * {@link RouterFactoryContext#enableHedging} and the request's API key
+     * is covered by the {@link HedgingPolicy}, the runtime sends the
+     * request to {@code primary}. If no reply has arrived once the
+     * policy's latency percentile has elapsed, and the hedge budget
+     * allows, a duplicate is sent to {@code alternate}. The returned
+     * stage completes with whichever reply arrives first; the other
+     * reply is discarded. The stage completes exceptionally only if
+     * every request that was sent fails.</p>
+     *
+     * <p>Otherwise this behaves exactly like
+     * {@link #sendRequest(VirtualNode, RequestHeaderData, ApiMessage)
+     * sendRequest(primary, header, request)}.</p>
+     *
+     * @param primary the virtual node of the preferred broker
+     * @param alternate the virtual node of a broker able to give an
+     *        equivalent answer
+     * @param header the request header
+     * @param request the request body
+     * @return a stage that completes with the first response from either broker
+     */
+    CompletionStage<ApiMessage> sendHedgedRequest(VirtualNode primary,
+                                                  VirtualNode alternate,
+                                                  RequestHeaderData header,
+                                                  ApiMessage request);
+
     /**
      * Returns the unique identifier for the current proxy session.
      *
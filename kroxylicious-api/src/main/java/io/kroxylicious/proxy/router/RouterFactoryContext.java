@@ -101,4 +101,18 @@ public interface RouterFactoryContext {
      * check.</p>
      */
     void allowSharedClusterTargets();
+
+    /**
+     * Opts this router level in to hedging of requests sent via
+     * {@link RouterContext#sendHedgedRequest}.
+     *
+     * <p>Latency histograms and the hedge budget are shared by all
+     * router instances created by this factory. Routers that do not
+     * call this method during {@link RouterFactory#initialize} never
+     * hedge; {@code sendHedgedRequest} then only sends to the primary
+     * node.</p>
+     *
+     * @param policy the hedging policy
+     */
+    void enableHedging(HedgingPolicy policy);
 }
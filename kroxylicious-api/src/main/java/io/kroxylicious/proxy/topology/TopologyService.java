@@ -172,12 +172,32 @@ public interface TopologyService {
      * provides. If this returns empty, the router can fall back to
      * the leader from {@link PartitionLeaders}.</p>
      *
+     * <p>Different routes can expose topics with the same name. If more
+     * than one route has a topic with this name cached, this returns
+     * empty; use {@link #partitionInfo(String, String, int)} instead.</p>
+     *
      * @param topicName the topic name
      * @param partitionIndex the partition index
      * @return the partition info, or empty if not cached
      */
     Optional<PartitionInfo> partitionInfo(String topicName, int partitionIndex);
 
+    /**
+     * Returns full partition info (leader, replicas, ISR) for a
+     * topic-partition reached through the given route, or empty if not cached.
+     *
+     * <p>The default implementation ignores the route, and delegates
+     * to {@link #partitionInfo(String, int)}.</p>
+     *
+     * @param route the route the topic is reached through
+     * @param topicName the topic name
+     * @param partitionIndex the partition index
+     * @return the partition info, or empty if not cached
+     */
+    default Optional<PartitionInfo> partitionInfo(String route, String topicName, int partitionIndex) {
+        return partitionInfo(topicName, partitionIndex);
+    }
+
     /**
      * Returns broker metadata (host, port, rack) for a virtual node,
      * or empty if not cached.
@@ -0,0 +1,66 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.proxy.router;
+
+import java.time.Duration;
+import java.util.Set;
+
+import org.apache.kafka.common.protocol.ApiKeys;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HedgingPolicyTest {
+
+    @Test
+    void defaultPolicyHedgesReadOnlyApis() {
+        var policy = HedgingPolicy.defaultPolicy();
+        assertThat(policy.appliesTo(ApiKeys.METADATA)).isTrue();
+        assertThat(policy.appliesTo(ApiKeys.LIST_OFFSETS)).isTrue();
+        assertThat(policy.appliesTo(ApiKeys.DESCRIBE_CONFIGS)).isTrue();
+        assertThat(policy.appliesTo(ApiKeys.PRODUCE)).isFalse();
+        assertThat(policy.appliesTo(ApiKeys.FETCH)).isFalse();
+    }
+
+    @Test
+    void shouldRejectNonIdempotentApiKeys() {
+        Set<ApiKeys> apiKeys = Set.of(ApiKeys.METADATA, ApiKeys.PRODUCE);
+        Duration minimumDelay = Duration.ZERO;
+        assertThatThrownBy(() -> new HedgingPolicy(0.95, 0.05, minimumDelay, apiKeys))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("PRODUCE");
+    }
+
+    @ParameterizedTest
+    @ValueSource(doubles = { 0.0, 1.0, -0.5, Double.NaN })
+    void shouldRejectInvalidPercentile(double percentile) {
+        Duration minimumDelay = Duration.ZERO;
+        Set<ApiKeys> apiKeys = Set.of(ApiKeys.METADATA);
+        assertThatThrownBy(() -> new HedgingPolicy(percentile, 0.05, minimumDelay, apiKeys))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @ParameterizedTest
+    @ValueSource(doubles = { 0.0, 1.1, Double.NaN })
+    void shouldRejectInvalidRatio(double ratio) {
+        Duration minimumDelay = Duration.ZERO;
+        Set<ApiKeys> apiKeys = Set.of(ApiKeys.METADATA);
+        assertThatThrownBy(() -> new HedgingPolicy(0.95, ratio, minimumDelay, apiKeys))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldRejectNegativeMinimumDelay() {
+        Duration minimumDelay = Duration.ofMillis(-1);
+        Set<ApiKeys> apiKeys = Set.of(ApiKeys.METADATA);
+        assertThatThrownBy(() -> new HedgingPolicy(0.95, 0.05, minimumDelay, apiKeys))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
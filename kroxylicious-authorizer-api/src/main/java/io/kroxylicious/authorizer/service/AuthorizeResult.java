@@ -6,18 +6,34 @@
 
 package io.kroxylicious.authorizer.service;
 
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.Collection;
-import java.util.HashMap;
+import java.util.EnumMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.RandomAccess;
+import java.util.Set;
+import java.util.function.BiConsumer;
 import java.util.function.Function;
-import java.util.stream.Collectors;
 
 import io.kroxylicious.proxy.authentication.Subject;
 
+import edu.umd.cs.findbugs.annotations.Nullable;
+
 /**
- * Represents the outcome of a call to {@link Authorizer#authorize(io.kroxylicious.proxy.authentication.Subject, List)}.
+ * <p>Represents the outcome of a call to {@link Authorizer#authorize(io.kroxylicious.proxy.authentication.Subject, List)}.</p>
+ *
+ * <p>A result can be built either from lists of the allowed and denied actions, or, more compactly for an
+ * {@link Authorizer}, from the list of actions that were authorized and a {@link BitSet} of the indices of those
+ * which are allowed (see {@link #of(Subject, List, BitSet)}).
+ * Once a result is large enough for it to matter, {@link #decision(ResourceType, String)} looks actions up in a
+ * hash set of the allowed actions rather than searching them.</p>
+ *
  * @param subject The subject.
  * @param allowed The allowed actions.
  * @param denied The denied actions.
@@ -27,6 +43,12 @@ public record AuthorizeResult(
                               List<Action> allowed,
                               List<Action> denied) {
 
+    /**
+     * The number of allowed actions above which decisions are looked up in a hash set of the allowed actions,
+     * rather than by searching the actions.
+     */
+    private static final int LINEAR_SEARCH_MAX_ACTIONS = 8;
+
     /**
      * It is the instantiator's responsibility to ensure that {@code allowed} and {@code denied} are disjoint.
      * @param subject The subject.
@@ -38,10 +60,55 @@ public record AuthorizeResult(
                            List<Action> allowed,
                            List<Action> denied) {
         this.subject = Objects.requireNonNull(subject);
-        this.allowed = List.copyOf(Objects.requireNonNull(allowed));
+        this.allowed = AllowedActions.copyOf(Objects.requireNonNull(allowed));
         this.denied = List.copyOf(Objects.requireNonNull(denied));
     }
 
+    /**
+     * Returns the result of authorizing the given {@code actions}, where the action at index {@code i}
+     * of {@code actions} is allowed if, and only if, bit {@code i} of {@code allowedIndices} is set.
+     * @param subject The subject.
+     * @param actions The actions which were authorized.
+     * @param allowedIndices The indices of the allowed actions.
+     * @return The result.
+     */
+    public static AuthorizeResult of(Subject subject, List<Action> actions, BitSet allowedIndices) {
+        Objects.requireNonNull(subject);
+        Objects.requireNonNull(actions);
+        if (allowedIndices.length() > actions.size()) {
+            throw new IllegalArgumentException("allowedIndices has bits set beyond the end of actions");
+        }
+        int numAllowed = allowedIndices.cardinality();
+        var allowed = new Action[numAllowed];
+        var denied = new Action[actions.size() - numAllowed];
+        int a = 0;
+        int d = 0;
+        for (int i = 0; i < actions.size(); i++) {
+            Action action = Objects.requireNonNull(actions.get(i));
+            if (allowedIndices.get(i)) {
+                allowed[a++] = action;
+            }
+            else {
+                denied[d++] = action;
+            }
+        }
+        return new AuthorizeResult(subject, new AllowedActions(allowed), List.of(denied));
+    }
+
+    /**
+     * Passes each of the authorized actions, and the decision about it, to the given {@code consumer}.
+     * The {@link #allowed()} actions are passed first, followed by the {@link #denied()} actions.
+     * @param consumer The consumer.
+     */
+    public void forEachDecision(BiConsumer<? super Action, ? super Decision> consumer) {
+        for (Action action : allowed) {
+            consumer.accept(action, Decision.ALLOW);
+        }
+        for (Action action : denied) {
+            consumer.accept(action, Decision.DENY);
+        }
+    }
+
     /**
      * Returns a list of the names of all the resources which the {@link #subject()}
      * is allowed to perform the given {@code operation} on.
@@ -49,10 +116,7 @@ public record AuthorizeResult(
      * @return The names of the allowed resources.
      */
     public List<String> allowed(ResourceType<?> operation) {
-        return allowed().stream()
-                .filter(a -> a.operation().equals(operation))
-                .map(Action::resourceName)
-                .toList();
+        return resourceNames(allowed, operation);
     }
 
     /**
@@ -62,10 +126,20 @@ public record AuthorizeResult(
      * @return The names of the denied resources.
      */
     public List<String> denied(ResourceType<?> operation) {
-        return denied().stream()
-                .filter(a -> a.operation().equals(operation))
-                .map(Action::resourceName)
-                .toList();
+        return resourceNames(denied, operation);
+    }
+
+    private static List<String> resourceNames(List<Action> actions, ResourceType<?> operation) {
+        List<String> names = null;
+        for (Action action : actions) {
+            if (action.operation().equals(operation)) {
+                if (names == null) {
+                    names = new ArrayList<>();
+                }
+                names.add(action.resourceName());
+            }
+        }
+        return names == null ? List.of() : List.copyOf(names);
     }
 
     /**
@@ -75,10 +149,11 @@ public record AuthorizeResult(
      * @param resourceName The name of the resource that the operation would be performed on.
      * @return The decision.
      */
-    public Decision decision(ResourceType<?> operation, String resourceName) {
-        return allowed().stream()
-                .anyMatch(a -> a.operation().equals(operation)
-                        && a.resourceName().equals(resourceName)) ? Decision.ALLOW : Decision.DENY;
+    public Decision decision(ResourceType<?> operation, @Nullable String resourceName) {
+        if (resourceName == null) {
+            return Decision.DENY;
+        }
+        return allowed.contains(new Action(operation, resourceName)) ? Decision.ALLOW : Decision.DENY;
     }
 
     /**
@@ -92,13 +167,64 @@ public record AuthorizeResult(
      * @param <T> The type of item.
      */
     public <T> Map<Decision, List<T>> partition(Collection<T> items, ResourceType<?> operation, Function<T, String> toName) {
-        HashMap<Decision, List<T>> byDecision = items.stream().collect(Collectors.groupingBy(
-                item -> decision(operation, toName.apply(item)),
-                HashMap::new,
-                Collectors.toList()));
-        byDecision.putIfAbsent(Decision.ALLOW, List.of());
-        byDecision.putIfAbsent(Decision.DENY, List.of());
+        List<T> allowedItems = new ArrayList<>(items.size());
+        List<T> deniedItems = new ArrayList<>();
+        for (T item : items) {
+            (decision(operation, toName.apply(item)) == Decision.ALLOW ? allowedItems : deniedItems).add(item);
+        }
+        var byDecision = new EnumMap<Decision, List<T>>(Decision.class);
+        byDecision.put(Decision.ALLOW, allowedItems);
+        byDecision.put(Decision.DENY, deniedItems);
         return byDecision;
     }
 
+    /**
+     * The immutable list of the allowed actions, which builds a hash set of them the first time it is searched
+     * when it holds more than {@link #LINEAR_SEARCH_MAX_ACTIONS} actions.
+     */
+    private static final class AllowedActions extends AbstractList<Action> implements RandomAccess {
+
+        private final Action[] actions;
+        // Built lazily. Racing threads may each build an equal set, which is harmless, and the volatile
+        // write publishes a fully built set.
+        private volatile @Nullable Set<Action> index;
+
+        private AllowedActions(Action[] actions) {
+            this.actions = actions;
+        }
+
+        static AllowedActions copyOf(List<Action> actions) {
+            if (actions instanceof AllowedActions allowedActions) {
+                return allowedActions;
+            }
+            var copy = actions.toArray(new Action[0]);
+            for (Action action : copy) {
+                Objects.requireNonNull(action);
+            }
+            return new AllowedActions(copy);
+        }
+
+        @Override
+        public Action get(int index) {
+            return actions[index];
+        }
+
+        @Override
+        public int size() {
+            return actions.length;
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (actions.length <= LINEAR_SEARCH_MAX_ACTIONS) {
+                return super.contains(o);
+            }
+            Set<Action> result = index;
+            if (result == null) {
+                result = new HashSet<>(Arrays.asList(actions));
+                index = result;
+            }
+            return result.contains(o);
+        }
+    }
 }
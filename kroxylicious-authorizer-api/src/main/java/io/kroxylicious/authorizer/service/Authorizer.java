@@ -27,6 +27,8 @@ public interface Authorizer {
      * Determines whether the given {@code subject} is allowed to perform the given {@code actions}.
      * The implementation must ensure that the returned authorization partitions all the given {@code actions}
      * between {@link AuthorizeResult#allowed()} and {@link AuthorizeResult#denied()}.
+     * Implementations which decide the actions as a batch can return the compact result built by
+     * {@link AuthorizeResult#of(Subject, List, java.util.BitSet)}, rather than building lists of the allowed and denied actions.
      * @param subject The subject.
      * @param actions The actions.
      * @return The outcome. The returned stage should fail with an {@link AuthorizerException} if the authorizer was not able to
@@ -46,4 +48,19 @@ public interface Authorizer {
      */
     Optional<Set<Class<? extends ResourceType<?>>>> supportedResourceTypes();
 
+    /**
+     * <p>Returns the generation of the access control policy backing this authorizer.
+     * An access control policy enforcement point which caches the decisions of this authorizer
+     * must discard them when the generation changes.</p>
+     *
+     * <p>Implementations whose policy can change after they have been built, for example by reloading it
+     * from a file, must return a different generation after each change.
+     * The default implementation returns 0, which is correct for implementations whose policy never changes.</p>
+     *
+     * @return the generation of the access control policy.
+     */
+    default long generation() {
+        return 0L;
+    }
+
 }
@@ -6,8 +6,11 @@
 
 package io.kroxylicious.authorizer.service;
 
+import java.util.BitSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.stream.IntStream;
 
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
@@ -78,4 +81,113 @@ class AuthorizeResultTest {
                         Decision.DENY, List.of(new Widget("foo"), new Widget("bar"), new Widget("baz"))));
     }
 
-}
\ No newline at end of file
+    @Test
+    void shouldBuildFromAllowedIndices() {
+        // Given
+        var allowedIndices = new BitSet();
+        allowedIndices.set(0);
+        allowedIndices.set(2);
+
+        // When
+        AuthorizeResult fromIndices = AuthorizeResult.of(subject, List.of(foo, bar, baz), allowedIndices);
+
+        // Then
+        Assertions.assertThat(fromIndices).isEqualTo(result);
+        Assertions.assertThat(fromIndices.allowed()).isEqualTo(List.of(foo, baz));
+        Assertions.assertThat(fromIndices.denied()).isEqualTo(List.of(bar));
+        Assertions.assertThat(fromIndices.denied(TestResource.SQUIDGE)).isEqualTo(List.of("bar"));
+        Assertions.assertThat(fromIndices.decision(TestResource.TESSELLATE, "baz")).isEqualTo(Decision.ALLOW);
+    }
+
+    @Test
+    void shouldNotShareAllowedIndices() {
+        // Given
+        var allowedIndices = new BitSet();
+        allowedIndices.set(0);
+        AuthorizeResult fromIndices = AuthorizeResult.of(subject, List.of(foo, bar), allowedIndices);
+
+        // When
+        allowedIndices.set(1);
+
+        // Then
+        Assertions.assertThat(fromIndices.denied()).isEqualTo(List.of(bar));
+    }
+
+    @Test
+    void shouldRejectAllowedIndicesBeyondActions() {
+        var allowedIndices = new BitSet();
+        allowedIndices.set(2);
+        List<Action> actions = List.of(foo, bar);
+        Assertions.assertThatThrownBy(() -> AuthorizeResult.of(subject, actions, allowedIndices))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldReturnDecisionsForManyActions() {
+        // Given
+        List<Action> actions = IntStream.range(0, 500)
+                .mapToObj(i -> new Action(TestResource.SQUIDGE, "topic-" + i))
+                .toList();
+        var allowedIndices = new BitSet();
+        for (int i = 0; i < actions.size(); i += 2) {
+            allowedIndices.set(i);
+        }
+
+        // When
+        AuthorizeResult many = AuthorizeResult.of(subject, actions, allowedIndices);
+
+        // Then
+        Assertions.assertThat(many.decision(TestResource.SQUIDGE, "topic-10")).isEqualTo(Decision.ALLOW);
+        Assertions.assertThat(many.decision(TestResource.SQUIDGE, "topic-11")).isEqualTo(Decision.DENY);
+        Assertions.assertThat(many.decision(TestResource.TESSELLATE, "topic-10")).isEqualTo(Decision.DENY);
+        Assertions.assertThat(many.partition(actions, TestResource.SQUIDGE, Action::resourceName).get(Decision.ALLOW)).hasSize(250);
+    }
+
+    @Test
+    void shouldRemainARecord() {
+        // Given
+        var allowedIndices = new BitSet();
+        allowedIndices.set(0);
+        AuthorizeResult fromIndices = AuthorizeResult.of(subject, List.of(foo, bar), allowedIndices);
+
+        // When/Then
+        Assertions.assertThat(fromIndices).isInstanceOf(Record.class);
+        if (fromIndices instanceof AuthorizeResult(var s, var allowed, var denied)) {
+            Assertions.assertThat(s).isEqualTo(subject);
+            Assertions.assertThat(allowed).containsExactly(foo);
+            Assertions.assertThat(denied).containsExactly(bar);
+        }
+        Assertions.assertThat(fromIndices).hasSameHashCodeAs(new AuthorizeResult(subject, List.of(foo), List.of(bar)));
+    }
+
+    @Test
+    void shouldReturnDecisionsForManyAllowedActionsIncludingDuplicates() {
+        // Given
+        List<Action> allowed = IntStream.range(0, 20)
+                .mapToObj(i -> new Action(TestResource.SQUIDGE, "topic-" + (i % 10)))
+                .toList();
+
+        // When
+        var many = new AuthorizeResult(subject, allowed, List.of());
+
+        // Then
+        Assertions.assertThat(many.decision(TestResource.SQUIDGE, "topic-9")).isEqualTo(Decision.ALLOW);
+        Assertions.assertThat(many.decision(TestResource.SQUIDGE, "topic-10")).isEqualTo(Decision.DENY);
+        Assertions.assertThatThrownBy(() -> many.allowed().add(foo)).isInstanceOf(UnsupportedOperationException.class);
+    }
+
+    @Test
+    void shouldVisitEachDecision() {
+        // Given
+        Map<Action, Decision> visited = new LinkedHashMap<>();
+
+        // When
+        result.forEachDecision(visited::put);
+
+        // Then
+        Assertions.assertThat(visited).containsExactly(
+                Map.entry(foo, Decision.ALLOW),
+                Map.entry(baz, Decision.ALLOW),
+                Map.entry(bar, Decision.DENY));
+    }
+}
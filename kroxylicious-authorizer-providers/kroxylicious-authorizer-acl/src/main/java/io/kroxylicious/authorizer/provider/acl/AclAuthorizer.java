@@ -7,9 +7,12 @@
 package io.kroxylicious.authorizer.provider.acl;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.EnumSet;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
@@ -22,13 +25,9 @@ import com.google.re2j.Pattern;
 import io.kroxylicious.authorizer.service.Action;
 import io.kroxylicious.authorizer.service.AuthorizeResult;
 import io.kroxylicious.authorizer.service.Authorizer;
-import io.kroxylicious.authorizer.service.Decision;
 import io.kroxylicious.authorizer.service.ResourceType;
 import io.kroxylicious.proxy.authentication.Principal;
 import io.kroxylicious.proxy.authentication.Subject;
-import io.kroxylicious.proxy.tag.VisibleForTesting;
-
-import edu.umd.cs.findbugs.annotations.Nullable;
 
 /**
  * <p>An implementation of {@link Authorizer} in terms of a list of rules defining <em>who</em> can do <em>what</em>
@@ -52,15 +51,24 @@ import edu.umd.cs.findbugs.annotations.Nullable;
  */
 public class AclAuthorizer implements Authorizer {
 
-    record ResourceGrants(
-                          @Nullable TypeNameMap<ResourceType<?>, EnumSet<? extends ResourceType<?>>> nameMatches,
-                          @Nullable TypePatternMatch patternMatches) {}
+    /**
+     * The number of actions above which a batch is searched for duplicate actions, so that each is decided only once.
+     */
+    private static final int DEDUPLICATION_MIN_ACTIONS = 8;
+
+    private final CompiledRules denyRules;
 
-    private final TypeNameMap<Principal, ResourceGrants> denyPerPrincipal = new TypeNameMap<>();
+    private final CompiledRules allowRules;
 
-    private final TypeNameMap<Principal, ResourceGrants> allowPerPrincipal = new TypeNameMap<>();
+    private final Set<Class<? extends ResourceType<?>>> usedResourceTypes;
 
-    private final Set<Class<? extends ResourceType<?>>> usedResourceTypes = new HashSet<>();
+    private AclAuthorizer(CompiledRules denyRules,
+                          CompiledRules allowRules,
+                          Set<Class<? extends ResourceType<?>>> usedResourceTypes) {
+        this.denyRules = denyRules;
+        this.allowRules = allowRules;
+        this.usedResourceTypes = Set.copyOf(usedResourceTypes);
+    }
 
     static Builder builder() {
         return new Builder();
@@ -140,7 +148,7 @@ public class AclAuthorizer implements Authorizer {
 
         public Builder onResourceWithNameEqualTo(String resourceName) {
             for (var principalMatcher : principalMatchers) {
-                builder.aclAuthorizer.internalAllowOrDeny(isAllowRule,
+                builder.internalAllowOrDeny(isAllowRule,
                         principalMatcher,
                         new ResourceMatcherNameEquals<>(operationsClass, resourceName),
                         operations);
@@ -151,7 +159,7 @@ public class AclAuthorizer implements Authorizer {
         public Builder onResourcesWithNameIn(Set<String> resourceNames) {
             for (var principalMatcher : principalMatchers) {
                 for (String resourceName : resourceNames) {
-                    builder.aclAuthorizer.internalAllowOrDeny(isAllowRule,
+                    builder.internalAllowOrDeny(isAllowRule,
                             principalMatcher,
                             new ResourceMatcherNameEquals<>(operationsClass, resourceName),
                             operations);
@@ -162,7 +170,7 @@ public class AclAuthorizer implements Authorizer {
 
         public Builder onResourcesWithNameStartingWith(String resourceNamePrefix) {
             for (var principalMatcher : principalMatchers) {
-                builder.aclAuthorizer.internalAllowOrDeny(isAllowRule,
+                builder.internalAllowOrDeny(isAllowRule,
                         principalMatcher,
                         new ResourceMatcherNameStarts<>(operationsClass, resourceNamePrefix),
                         operations);
@@ -172,7 +180,7 @@ public class AclAuthorizer implements Authorizer {
 
         public Builder onResourcesWithNameMatching(String resourceNameRegex) {
             for (var principalMatcher : principalMatchers) {
-                builder.aclAuthorizer.internalAllowOrDeny(isAllowRule,
+                builder.internalAllowOrDeny(isAllowRule,
                         principalMatcher,
                         new ResourceMatcherNameMatches<>(operationsClass, Pattern.compile(resourceNameRegex)),
                         operations);
@@ -182,7 +190,7 @@ public class AclAuthorizer implements Authorizer {
 
         public Builder onAllResources() {
             for (var principalMatcher : principalMatchers) {
-                builder.aclAuthorizer.internalAllowOrDeny(isAllowRule,
+                builder.internalAllowOrDeny(isAllowRule,
                         principalMatcher,
                         new ResourceMatcherAnyOfType<>(operationsClass),
                         operations);
@@ -226,7 +234,9 @@ public class AclAuthorizer implements Authorizer {
     }
 
     public static class Builder {
-        AclAuthorizer aclAuthorizer = new AclAuthorizer();
+        private final List<CompiledRules.Rule> denyRules = new ArrayList<>();
+        private final List<CompiledRules.Rule> allowRules = new ArrayList<>();
+        private final Set<Class<? extends ResourceType<?>>> usedResourceTypes = new HashSet<>();
 
         public SubjectSelectorBuilder allow() {
             return new SubjectSelectorBuilder(this, true);
@@ -236,166 +246,87 @@ public class AclAuthorizer implements Authorizer {
             return new SubjectSelectorBuilder(this, false);
         }
 
+        /**
+         * Compiles the rules added so far into an authorizer.
+         * @return The authorizer
+         */
         public AclAuthorizer build() {
-            return aclAuthorizer;
-        }
-    }
-
-    private <O extends Enum<O> & ResourceType<O>> void internalAllowOrDeny(boolean isAllowRule,
-                                                                           OrderedKey<Principal> principalMatcher,
-                                                                           Key<O> resourceMatcher,
-                                                                           Set<O> operations) {
-        usedResourceTypes.add(resourceMatcher.type());
-        internalAllowOrDeny(isAllowRule ? allowPerPrincipal : denyPerPrincipal,
-                principalMatcher,
-                resourceMatcher,
-                operations);
-    }
-
-    @SuppressWarnings("rawtypes")
-    @VisibleForTesting
-    <O extends Enum<O> & ResourceType<O>> void internalAllowOrDeny(
-                                                                   TypeNameMap<Principal, ResourceGrants> allowPerPrincipal,
-                                                                   OrderedKey<Principal> principalMatcher,
-                                                                   Key<O> resourceMatcher,
-                                                                   Set<O> operations) {
-        var es = EnumSet.copyOf(operations);
-        for (var op : es) {
-            es.addAll(op.implies());
-        }
-        ResourceGrants compute = allowPerPrincipal.addApply(principalMatcher,
-                g -> {
-                    if (g == null) {
-                        return new ResourceGrants(resourceMatcher instanceof ResourceMatcherNameMatches ? null : new TypeNameMap<>(),
-                                resourceMatcher instanceof ResourceMatcherNameMatches ? new TypePatternMatch() : null);
-                    }
-                    else if (g.patternMatches() == null && resourceMatcher instanceof ResourceMatcherNameMatches) {
-                        return new ResourceGrants(g.nameMatches(), new TypePatternMatch());
-                    }
-                    else if (g.nameMatches() == null && !(resourceMatcher instanceof ResourceMatcherNameMatches)) {
-                        return new ResourceGrants(new TypeNameMap<>(), g.patternMatches());
-                    }
-                    return g;
-                });
-
-        if (resourceMatcher instanceof ResourceMatcherNameMatches resourceNameMatch) {
-            Objects.requireNonNull(compute.patternMatches()).add(resourceNameMatch,
-                    es);
-        }
-        else if (resourceMatcher instanceof OrderedKey orderedKey) {
-            Objects.requireNonNull(compute.nameMatches()).addApply(orderedKey,
-                    v -> {
-                        if (v == null) {
-                            return es;
-                        }
-                        es.addAll((EnumSet) v);
-                        return es;
-                    });
+            return new AclAuthorizer(CompiledRules.compile(denyRules),
+                    CompiledRules.compile(allowRules),
+                    usedResourceTypes);
         }
-    }
 
-    private static @Nullable Decision authorizeInternal(
-                                                        TypeNameMap<Principal, ResourceGrants> allowPerPrincipal,
-                                                        Subject subject,
-                                                        Action action,
-                                                        Decision whenFound,
-                                                        @Nullable Decision whenNotFound) {
-        assert whenFound != whenNotFound;
-        for (var p : subject.principals()) {
-            for (var matcher : principalMatchers(p)) {
-                var grant = allowPerPrincipal.matchingOperations(matcher);
-                if (grant != null) {
-                    Decision foundDecision = decision(action, grant, whenFound);
-                    if (foundDecision != null) {
-                        return foundDecision;
-                    }
-                }
+        private <O extends Enum<O> & ResourceType<O>> void internalAllowOrDeny(boolean isAllowRule,
+                                                                               OrderedKey<Principal> principalMatcher,
+                                                                               Key<O> resourceMatcher,
+                                                                               Set<O> operations) {
+            usedResourceTypes.add(resourceMatcher.type());
+            var es = EnumSet.copyOf(operations);
+            for (var op : es) {
+                es.addAll(op.implies());
             }
+            (isAllowRule ? allowRules : denyRules).add(new CompiledRules.Rule(principalMatcher, resourceMatcher, es));
         }
-        return whenNotFound;
-    }
-
-    @SuppressWarnings("unchecked")
-    private static List<OrderedKey<Principal>> principalMatchers(Principal p) {
-        return List.of(
-                (OrderedKey<Principal>) new ResourceMatcherNameEquals<>(p.getClass(), p.name()),
-                (OrderedKey<Principal>) new ResourceMatcherAnyOfType<>(p.getClass()),
-                (OrderedKey<Principal>) new ResourceMatcherNameStarts<>(p.getClass(), p.name()));
     }
 
-    @SuppressWarnings("unchecked")
-    private static List<OrderedKey<?>> resourceMatchers(Action action) {
-        return List.of(
-                (OrderedKey<?>) new ResourceMatcherNameEquals<>(action.resourceTypeClass(), action.resourceName()),
-                (OrderedKey<?>) new ResourceMatcherAnyOfType<>(action.resourceTypeClass()),
-                (OrderedKey<?>) new ResourceMatcherNameStarts<>(action.resourceTypeClass(), action.resourceName()));
-    }
-
-    @Nullable
-    private static Decision decision(Action action,
-                                     ResourceGrants grants,
-                                     Decision whenFound) {
-        Set<? extends ResourceType<?>> operations;
-        var typeNameMap = grants.nameMatches();
-        ResourceType<?> resourceType = action.operation();
-        if (typeNameMap != null) {
-            for (var matcher : resourceMatchers(action)) {
-                operations = typeNameMap.matchingOperations((OrderedKey) matcher);
-                if (isFound(operations, resourceType)) {
-                    return whenFound;
-                }
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The actions are decided as a batch: an action which occurs more than once is only decided once, and
+     * the rules for the subject's principals are found once for the whole batch (see {@link CompiledRules#matchAll}).</p>
+     */
+    @Override
+    public CompletionStage<AuthorizeResult> authorize(Subject subject, List<Action> actions) {
+        int[] firstIndices = firstIndices(actions);
+        BitSet candidates = new BitSet(actions.size());
+        for (int i = 0; i < actions.size(); i++) {
+            if (firstIndices[i] == i) {
+                candidates.set(i);
             }
         }
-        var patternMatch = grants.patternMatches();
-        if (patternMatch != null) {
-            operations = patternMatch.matchingOperations((Class) action.resourceTypeClass(), action.resourceName());
-            if (isFound(operations, resourceType)) {
-                return whenFound;
+        BitSet denied = new BitSet(actions.size());
+        denyRules.matchAll(subject, actions, candidates, denied);
+        candidates.andNot(denied);
+        BitSet allowed = new BitSet(actions.size());
+        allowRules.matchAll(subject, actions, candidates, allowed);
+        for (int i = 0; i < actions.size(); i++) {
+            if (firstIndices[i] != i && allowed.get(firstIndices[i])) {
+                allowed.set(i);
             }
         }
-        return null;
+        return CompletableFuture.completedStage(AuthorizeResult.of(subject, actions, allowed));
     }
 
     /**
-     * Return true iff the given set of operations allow the given action.
+     * Returns, for each action, the index of its first occurrence in the given list.
+     * Small batches are not worth searching for duplicates, so each of their actions is treated as distinct.
      */
-    private static boolean isFound(@Nullable Set<? extends ResourceType<?>> operations,
-                                   ResourceType<?> op) {
-        return operations != null && operations.contains(op);
-    }
-
-    @Override
-    public CompletionStage<AuthorizeResult> authorize(Subject subject, List<Action> actions) {
-        List<Action> allowedActions = new ArrayList<>();
-        List<Action> deniedActions = new ArrayList<>();
-        for (var action : actions) {
-            @Nullable
-            Decision decision = authorizeInternal(this.denyPerPrincipal, subject, action, Decision.DENY, null);
-            if (decision == Decision.DENY) {
-                deniedActions.add(action);
-            }
-            else {
-                decision = authorizeInternal(this.allowPerPrincipal, subject, action, Decision.ALLOW, Decision.DENY);
-                if (decision == Decision.DENY) {
-                    deniedActions.add(action);
-                }
-                else {
-                    allowedActions.add(action);
-                }
+    private static int[] firstIndices(List<Action> actions) {
+        int[] firstIndices = new int[actions.size()];
+        if (actions.size() <= DEDUPLICATION_MIN_ACTIONS) {
+            for (int i = 0; i < firstIndices.length; i++) {
+                firstIndices[i] = i;
             }
+            return firstIndices;
+        }
+        Map<Action, Integer> seen = HashMap.newHashMap(actions.size());
+        for (int i = 0; i < firstIndices.length; i++) {
+            Integer first = seen.putIfAbsent(actions.get(i), i);
+            firstIndices[i] = first == null ? i : first;
         }
-        return CompletableFuture.completedStage(new AuthorizeResult(subject, allowedActions, deniedActions));
+        return firstIndices;
     }
 
     @Override
     public Optional<Set<Class<? extends ResourceType<?>>>> supportedResourceTypes() {
-        return Optional.of(Set.copyOf(usedResourceTypes));
+        return Optional.of(usedResourceTypes);
     }
 
     @Override
     public String toString() {
         return "AclAuthorizer{" +
-                "perPrincipal=" + allowPerPrincipal +
+                "allowRules=" + allowRules +
+                ", denyRules=" + denyRules +
                 '}';
     }
 }
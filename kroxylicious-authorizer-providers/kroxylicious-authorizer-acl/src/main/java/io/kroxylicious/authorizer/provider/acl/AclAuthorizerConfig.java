@@ -6,5 +6,35 @@
 
 package io.kroxylicious.authorizer.provider.acl;
 
+import java.time.Duration;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+/**
+ * The configuration for the {@link AclAuthorizerService}.
+ * @param aclFile The path of the file containing the ACL rules.
+ * @param reloadIntervalSeconds How often, in seconds, the file is checked for changes,
+ * or null if the rules are only loaded when the service is initialized.
+ */
 public record AclAuthorizerConfig(
-                                  String aclFile) {}
+                                  String aclFile,
+                                  @Nullable Integer reloadIntervalSeconds) {
+
+    public AclAuthorizerConfig {
+        if (reloadIntervalSeconds != null && reloadIntervalSeconds <= 0) {
+            throw new IllegalArgumentException("reloadIntervalSeconds must be greater than zero");
+        }
+    }
+
+    public AclAuthorizerConfig(String aclFile) {
+        this(aclFile, null);
+    }
+
+    /**
+     * Returns how often the ACL file is checked for changes.
+     * @return The interval between checks, or null if the file is not reloaded.
+     */
+    public @Nullable Duration reloadInterval() {
+        return reloadIntervalSeconds == null ? null : Duration.ofSeconds(reloadIntervalSeconds);
+    }
+}
@@ -0,0 +1,52 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.authorizer.provider.acl;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+
+import static io.micrometer.core.instrument.Metrics.globalRegistry;
+
+public class AclAuthorizerMetrics {
+
+    /**
+     * Prevent construction of utility class
+     */
+    private AclAuthorizerMetrics() {
+        // private constructor
+    }
+
+    public static final String OUTCOME_LABEL = "outcome";
+
+    // Base Metric Names
+    private static final String RULES_RELOADS = "kroxylicious_authorizer_acl_rules_reloads";
+    private static final String RULES_RELOAD_TIME = "kroxylicious_authorizer_acl_rules_reload_time";
+
+    public static Counter rulesReloadSuccessCounter() {
+        return rulesReloadsCounter("success");
+    }
+
+    public static Counter rulesReloadFailureCounter() {
+        return rulesReloadsCounter("failure");
+    }
+
+    private static Counter rulesReloadsCounter(String outcome) {
+        return Counter
+                .builder(RULES_RELOADS)
+                .description("A count of the attempts to reload a changed ACL rules file, by whether the new rules were put in force (success) "
+                        + "or the previous rules were kept (failure).")
+                .tag(OUTCOME_LABEL, outcome)
+                .register(globalRegistry);
+    }
+
+    public static Timer rulesReloadTimer() {
+        return Timer
+                .builder(RULES_RELOAD_TIME)
+                .description("The time taken to read, parse and compile a changed ACL rules file.")
+                .register(globalRegistry);
+    }
+}
@@ -47,15 +47,23 @@ import edu.umd.cs.findbugs.annotations.Nullable;
 @Plugin(configType = AclAuthorizerConfig.class)
 public class AclAuthorizerService implements AuthorizerService<AclAuthorizerConfig> {
 
-    private @Nullable AclAuthorizer aclAuthorizer;
+    private @Nullable ReloadableAclAuthorizer aclAuthorizer;
+    private @Nullable AclRulesFileWatcher watcher;
 
     @Override
     public void initialize(@Nullable AclAuthorizerConfig config1) {
         var config = Plugins.requireConfig(this, config1);
-        var fileName = config.aclFile();
+        var file = Path.of(config.aclFile());
         try {
-            var stream = CharStreams.fromPath(Path.of(fileName));
-            this.aclAuthorizer = parse(stream);
+            // Read the file's state before its content, so a change made while it is being parsed is not missed
+            var loaded = AclRulesFileWatcher.FileState.of(file);
+            var stream = CharStreams.fromPath(file);
+            this.aclAuthorizer = new ReloadableAclAuthorizer(parse(stream));
+            var reloadInterval = config.reloadInterval();
+            if (reloadInterval != null) {
+                this.watcher = new AclRulesFileWatcher(file, aclAuthorizer, loaded);
+                this.watcher.start(reloadInterval);
+            }
         }
         catch (java.io.IOException e) {
             throw new UncheckedIOException(e);
@@ -67,6 +75,13 @@ public class AclAuthorizerService implements AuthorizerService<AclAuthorizerConf
         return Objects.requireNonNull(aclAuthorizer);
     }
 
+    @Override
+    public void close() {
+        if (watcher != null) {
+            watcher.close();
+        }
+    }
+
     interface ErrorCollector {
 
         int numErrors();
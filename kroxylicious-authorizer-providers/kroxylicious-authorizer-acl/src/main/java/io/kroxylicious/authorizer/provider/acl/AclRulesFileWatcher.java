@@ -0,0 +1,175 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.authorizer.provider.acl;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+
+import io.kroxylicious.proxy.tag.VisibleForTesting;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+/**
+ * <p>Periodically checks an ACL rules file for changes. When the file has changed it is parsed and compiled
+ * on the watcher's own thread, and the result replaces the rules of a {@link ReloadableAclAuthorizer}
+ * without disturbing the connections which are using it.</p>
+ *
+ * <p>A changed file is only reloaded once its last modified time and size are the same on two consecutive checks,
+ * so that a file which is still being written is not parsed part way through.</p>
+ *
+ * <p>If the changed file cannot be read, or contains errors, the existing rules remain in force
+ * and the file is not parsed again until it next changes.</p>
+ */
+class AclRulesFileWatcher implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(AclRulesFileWatcher.class);
+
+    /**
+     * The attributes of the rules file used to detect that it has changed.
+     * @param lastModified The last modified time
+     * @param size The size, in bytes
+     */
+    record FileState(FileTime lastModified, long size) {
+        static FileState of(Path file) throws IOException {
+            var attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            return new FileState(attributes.lastModifiedTime(), attributes.size());
+        }
+    }
+
+    private final Path file;
+    private final ReloadableAclAuthorizer authorizer;
+    private final Counter reloadSuccesses;
+    private final Counter reloadFailures;
+    private final Timer reloadTimer;
+    private FileState lastSeen;
+    private @Nullable FileState changed;
+    private @Nullable ScheduledExecutorService executor;
+
+    /**
+     * Creates a watcher.
+     * @param file The rules file
+     * @param authorizer The authorizer whose rules will be replaced when the file changes
+     * @param loaded The state of the file when the authorizer's current rules were loaded from it
+     */
+    AclRulesFileWatcher(Path file,
+                        ReloadableAclAuthorizer authorizer,
+                        FileState loaded) {
+        this(file, authorizer, loaded,
+                AclAuthorizerMetrics.rulesReloadSuccessCounter(),
+                AclAuthorizerMetrics.rulesReloadFailureCounter(),
+                AclAuthorizerMetrics.rulesReloadTimer());
+    }
+
+    @VisibleForTesting
+    AclRulesFileWatcher(Path file,
+                        ReloadableAclAuthorizer authorizer,
+                        FileState loaded,
+                        Counter reloadSuccesses,
+                        Counter reloadFailures,
+                        Timer reloadTimer) {
+        this.file = file;
+        this.authorizer = authorizer;
+        this.lastSeen = loaded;
+        this.reloadSuccesses = reloadSuccesses;
+        this.reloadFailures = reloadFailures;
+        this.reloadTimer = reloadTimer;
+    }
+
+    /**
+     * Starts checking the file for changes.
+     * @param interval The interval between checks
+     */
+    synchronized void start(Duration interval) {
+        if (executor != null) {
+            throw new IllegalStateException("Already started");
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            var thread = new Thread(r, "acl-rules-file-watcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = interval.toMillis();
+        var unused = executor.scheduleWithFixedDelay(this::checkForChanges, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Reloads the rules if the file has changed since it was last seen, and has not changed since the previous check.
+     * @return true if the rules were replaced.
+     */
+    @VisibleForTesting
+    boolean checkForChanges() {
+        FileState current;
+        try {
+            current = FileState.of(file);
+        }
+        catch (IOException e) {
+            // the file may be briefly absent while it is being replaced
+            LOGGER.atDebug()
+                    .addKeyValue("file", file)
+                    .addKeyValue("error", e.getMessage())
+                    .log("Unable to check ACL rules file for changes");
+            return false;
+        }
+        if (current.equals(lastSeen)) {
+            changed = null;
+            return false;
+        }
+        if (!current.equals(changed)) {
+            // the file may still be being written, so wait for it to be the same on the next check
+            changed = current;
+            return false;
+        }
+        changed = null;
+        lastSeen = current;
+        return reload();
+    }
+
+    private boolean reload() {
+        long start = System.nanoTime();
+        try {
+            AclAuthorizer rules = AclAuthorizerService.parse(CharStreams.fromPath(file));
+            authorizer.replace(rules);
+            reloadTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            reloadSuccesses.increment();
+            LOGGER.atInfo()
+                    .addKeyValue("file", file)
+                    .addKeyValue("generation", authorizer.generation())
+                    .log("Reloaded ACL rules");
+            return true;
+        }
+        catch (IOException | RuntimeException e) {
+            reloadTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            reloadFailures.increment();
+            LOGGER.atWarn()
+                    .addKeyValue("file", file)
+                    .addKeyValue("error", e.getMessage())
+                    .log("Unable to reload changed ACL rules file; the previous rules remain in force");
+            return false;
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+}
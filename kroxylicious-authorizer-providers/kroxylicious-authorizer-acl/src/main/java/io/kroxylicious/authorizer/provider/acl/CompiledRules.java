@@ -0,0 +1,363 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.authorizer.provider.acl;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import com.google.re2j.Pattern;
+
+import io.kroxylicious.authorizer.service.Action;
+import io.kroxylicious.authorizer.service.ResourceType;
+import io.kroxylicious.proxy.authentication.Principal;
+import io.kroxylicious.proxy.authentication.Subject;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+/**
+ * <p>An immutable set of either allow or deny rules, compiled for lookup.</p>
+ *
+ * <p>Rules are indexed first by the type of principal and then by the type of resource.
+ * At each level exact names are held in hash maps, and name prefixes in a {@link NameTrie}, so that a lookup
+ * costs time proportional to the length of the names involved, rather than to the number of rules.
+ * The regular expressions for each operation on a resource type are merged into a single alternation,
+ * so that each lookup runs at most one automaton, however many regular expressions there are.
+ * Apart from regular expression matching, lookups do not allocate.</p>
+ *
+ * <p>A batch of actions can be matched with {@link #matchAll(Subject, List, BitSet, BitSet)}, which finds the
+ * rules for the subject's principals once for the whole batch, and the rules for each type of resource once
+ * for each run of actions on that type, rather than once per action.</p>
+ */
+final class CompiledRules {
+
+    /**
+     * A single rule, as added to the builder.
+     * @param principal The principal matcher
+     * @param resource The resource matcher
+     * @param operations The operations, including those they imply
+     */
+    record Rule(OrderedKey<Principal> principal,
+                Key<?> resource,
+                EnumSet<?> operations) {
+        Rule {
+            Objects.requireNonNull(principal);
+            Objects.requireNonNull(resource);
+            Objects.requireNonNull(operations);
+        }
+    }
+
+    private final Map<Class<?>, PrincipalRules> byPrincipalType;
+    private final int numRules;
+
+    private CompiledRules(Map<Class<?>, PrincipalRules> byPrincipalType, int numRules) {
+        this.byPrincipalType = byPrincipalType;
+        this.numRules = numRules;
+    }
+
+    /**
+     * Compiles the given rules.
+     * @param rules The rules
+     * @return The compiled rules
+     */
+    static CompiledRules compile(List<Rule> rules) {
+        Map<Class<?>, PrincipalRulesBuilder> builders = new HashMap<>();
+        for (Rule rule : rules) {
+            builders.computeIfAbsent(rule.principal().type(), t -> new PrincipalRulesBuilder())
+                    .grants(rule.principal())
+                    .add(rule.resource(), rule.operations());
+        }
+        return new CompiledRules(builders.entrySet().stream()
+                .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, e -> e.getValue().build())),
+                rules.size());
+    }
+
+    /**
+     * Tests whether any rule matches one of the principals of the given subject, and the given action.
+     * @param subject The subject
+     * @param action The action
+     * @return true if a rule matches
+     */
+    boolean matches(Subject subject, Action action) {
+        for (Principal principal : subject.principals()) {
+            PrincipalRules principalRules = byPrincipalType.get(principal.getClass());
+            if (principalRules != null && principalRules.matches(principal.name(), action)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * For each of the given {@code actions} whose index is set in {@code candidates}, tests whether any rule matches
+     * one of the principals of the given subject, and the action, setting the action's index in {@code matched} if so.
+     * @param subject The subject
+     * @param actions The actions
+     * @param candidates The indices of the actions to test
+     * @param matched The indices of the actions which a rule matches
+     */
+    void matchAll(Subject subject, List<Action> actions, BitSet candidates, BitSet matched) {
+        List<Grants> grants = new ArrayList<>();
+        for (Principal principal : subject.principals()) {
+            PrincipalRules principalRules = byPrincipalType.get(principal.getClass());
+            if (principalRules != null) {
+                principalRules.collectGrants(principal.name(), grants);
+            }
+        }
+        if (grants.isEmpty()) {
+            return;
+        }
+        @Nullable
+        Class<?> resourceType = null;
+        List<ResourceRules> resourceRules = List.of();
+        for (int i = candidates.nextSetBit(0); i >= 0; i = candidates.nextSetBit(i + 1)) {
+            Action action = actions.get(i);
+            if (action.resourceTypeClass() != resourceType) {
+                resourceType = action.resourceTypeClass();
+                resourceRules = resourceRules(grants, resourceType);
+            }
+            for (ResourceRules rules : resourceRules) {
+                if (rules.matches(action.operation(), action.resourceName())) {
+                    matched.set(i);
+                    break;
+                }
+            }
+        }
+    }
+
+    private static List<ResourceRules> resourceRules(List<Grants> grants, Class<?> resourceType) {
+        List<ResourceRules> result = new ArrayList<>(grants.size());
+        for (Grants grant : grants) {
+            ResourceRules rules = grant.byResourceType.get(resourceType);
+            if (rules != null) {
+                result.add(rules);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "CompiledRules{" +
+                "principalTypes=" + byPrincipalType.keySet() +
+                ", numRules=" + numRules +
+                '}';
+    }
+
+    /**
+     * The rules for one type of principal.
+     */
+    private static final class PrincipalRules {
+        private final Map<String, Grants> byName;
+        private final @Nullable Grants anyName;
+        private final NameTrie<Grants> byPrefix;
+
+        private PrincipalRules(Map<String, Grants> byName, @Nullable Grants anyName, NameTrie<Grants> byPrefix) {
+            this.byName = byName;
+            this.anyName = anyName;
+            this.byPrefix = byPrefix;
+        }
+
+        boolean matches(String principalName, Action action) {
+            Grants grants = byName.get(principalName);
+            if (grants != null && grants.matches(action)) {
+                return true;
+            }
+            if (anyName != null && anyName.matches(action)) {
+                return true;
+            }
+            return byPrefix.anyPrefixOf(principalName, Grants::matches, action);
+        }
+
+        void collectGrants(String principalName, List<Grants> grants) {
+            Grants named = byName.get(principalName);
+            if (named != null) {
+                grants.add(named);
+            }
+            if (anyName != null) {
+                grants.add(anyName);
+            }
+            byPrefix.forEachPrefixOf(principalName, grants::add);
+        }
+    }
+
+    /**
+     * The resources, and operations on them, granted (or denied) to a principal matcher.
+     */
+    private static final class Grants {
+        private final Map<Class<?>, ResourceRules> byResourceType;
+
+        private Grants(Map<Class<?>, ResourceRules> byResourceType) {
+            this.byResourceType = byResourceType;
+        }
+
+        boolean matches(Action action) {
+            ResourceRules resourceRules = byResourceType.get(action.resourceTypeClass());
+            return resourceRules != null && resourceRules.matches(action.operation(), action.resourceName());
+        }
+    }
+
+    /**
+     * The operations granted (or denied) on one type of resource.
+     */
+    private static final class ResourceRules {
+        private final Map<String, Set<?>> byName;
+        private final @Nullable Set<?> anyName;
+        private final NameTrie<Set<?>> byPrefix;
+        /** The merged regular expressions, indexed by the ordinal of the operation they grant, or null if there are none */
+        private final @Nullable Pattern[] patternsByOperation;
+
+        private ResourceRules(Map<String, Set<?>> byName,
+                              @Nullable Set<?> anyName,
+                              NameTrie<Set<?>> byPrefix,
+                              @Nullable Pattern[] patternsByOperation) {
+            this.byName = byName;
+            this.anyName = anyName;
+            this.byPrefix = byPrefix;
+            this.patternsByOperation = patternsByOperation;
+        }
+
+        boolean matches(ResourceType<?> operation, String resourceName) {
+            Set<?> operations = byName.get(resourceName);
+            if (operations != null && operations.contains(operation)) {
+                return true;
+            }
+            if (anyName != null && anyName.contains(operation)) {
+                return true;
+            }
+            if (byPrefix.anyPrefixOf(resourceName, Set::contains, operation)) {
+                return true;
+            }
+            if (patternsByOperation != null) {
+                Pattern pattern = patternsByOperation[((Enum<?>) operation).ordinal()];
+                return pattern != null && pattern.matches(resourceName);
+            }
+            return false;
+        }
+    }
+
+    private static final class PrincipalRulesBuilder {
+        private final Map<String, GrantsBuilder> byName = new HashMap<>();
+        private @Nullable GrantsBuilder anyName;
+        private final Map<String, GrantsBuilder> byPrefix = new HashMap<>();
+
+        GrantsBuilder grants(OrderedKey<Principal> principalMatcher) {
+            if (principalMatcher instanceof ResourceMatcherNameEquals<Principal> equals) {
+                return byName.computeIfAbsent(equals.operand(), n -> new GrantsBuilder());
+            }
+            else if (principalMatcher instanceof ResourceMatcherNameStarts<Principal> starts) {
+                return byPrefix.computeIfAbsent(starts.prefix(), n -> new GrantsBuilder());
+            }
+            else {
+                if (anyName == null) {
+                    anyName = new GrantsBuilder();
+                }
+                return anyName;
+            }
+        }
+
+        PrincipalRules build() {
+            return new PrincipalRules(buildAll(byName),
+                    anyName == null ? null : anyName.build(),
+                    NameTrie.of(buildAll(byPrefix)));
+        }
+
+        private static Map<String, Grants> buildAll(Map<String, GrantsBuilder> builders) {
+            return builders.entrySet().stream()
+                    .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, e -> e.getValue().build()));
+        }
+    }
+
+    private static final class GrantsBuilder {
+        private final Map<Class<?>, ResourceRulesBuilder> byResourceType = new HashMap<>();
+
+        void add(Key<?> resourceMatcher, EnumSet<?> operations) {
+            byResourceType.computeIfAbsent(resourceMatcher.type(), ResourceRulesBuilder::new)
+                    .add(resourceMatcher, operations);
+        }
+
+        Grants build() {
+            return new Grants(byResourceType.entrySet().stream()
+                    .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, e -> e.getValue().build())));
+        }
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private static final class ResourceRulesBuilder {
+        private final Class<?> resourceType;
+        private final Map<String, EnumSet> byName = new HashMap<>();
+        private @Nullable EnumSet anyName;
+        private final Map<String, EnumSet> byPrefix = new HashMap<>();
+        private final Map<String, EnumSet> byRegex = new LinkedHashMap<>();
+
+        ResourceRulesBuilder(Class<?> resourceType) {
+            this.resourceType = resourceType;
+        }
+
+        void add(Key<?> resourceMatcher, EnumSet<?> operations) {
+            if (resourceMatcher instanceof ResourceMatcherNameEquals<?> equals) {
+                merge(byName, equals.operand(), operations);
+            }
+            else if (resourceMatcher instanceof ResourceMatcherNameStarts<?> starts) {
+                merge(byPrefix, starts.prefix(), operations);
+            }
+            else if (resourceMatcher instanceof ResourceMatcherNameMatches<?> matches) {
+                merge(byRegex, matches.pattern().pattern(), operations);
+            }
+            else if (anyName == null) {
+                anyName = EnumSet.copyOf(operations);
+            }
+            else {
+                anyName.addAll(operations);
+            }
+        }
+
+        private static void merge(Map<String, EnumSet> map, String name, EnumSet<?> operations) {
+            map.merge(name, EnumSet.copyOf(operations), (existing, added) -> {
+                existing.addAll(added);
+                return existing;
+            });
+        }
+
+        ResourceRules build() {
+            return new ResourceRules(Map.copyOf((Map) byName),
+                    anyName,
+                    NameTrie.of((Map) byPrefix),
+                    mergedPatterns());
+        }
+
+        /**
+         * Merges the regular expressions granting each operation into a single pattern which matches a name
+         * when any of them would match it.
+         */
+        private @Nullable Pattern[] mergedPatterns() {
+            if (byRegex.isEmpty()) {
+                return null;
+            }
+            Object[] operations = resourceType.getEnumConstants();
+            Pattern[] patterns = new Pattern[operations.length];
+            for (int ordinal = 0; ordinal < operations.length; ordinal++) {
+                Object operation = operations[ordinal];
+                String alternation = byRegex.entrySet().stream()
+                        .filter(e -> e.getValue().contains(operation))
+                        .map(e -> "(?:" + e.getKey() + ")")
+                        .collect(Collectors.joining("|"));
+                if (!alternation.isEmpty()) {
+                    patterns[ordinal] = Pattern.compile(alternation);
+                }
+            }
+            return patterns;
+        }
+    }
+}
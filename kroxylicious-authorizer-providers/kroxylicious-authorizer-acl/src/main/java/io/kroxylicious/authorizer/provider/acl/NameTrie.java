@@ -0,0 +1,130 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.authorizer.provider.acl;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+import java.util.function.BiPredicate;
+import java.util.function.Consumer;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+/**
+ * An immutable trie of name prefixes, which finds <em>every</em> prefix of a name without allocating.
+ * The children of each node are held in a sorted array which is binary searched.
+ * @param <V> The type of value associated with each prefix.
+ */
+final class NameTrie<V> {
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private static final NameTrie<?> EMPTY = new NameTrie<>(new Node<>(new char[0], new Node[0], null));
+
+    private static final class Node<V> {
+        private final char[] labels;
+        private final Node<V>[] children;
+        private final @Nullable V value;
+
+        private Node(char[] labels, Node<V>[] children, @Nullable V value) {
+            this.labels = labels;
+            this.children = children;
+            this.value = value;
+        }
+
+        private @Nullable Node<V> child(char label) {
+            int index = Arrays.binarySearch(labels, label);
+            return index < 0 ? null : children[index];
+        }
+    }
+
+    private final Node<V> root;
+
+    private NameTrie(Node<V> root) {
+        this.root = root;
+    }
+
+    /**
+     * Returns a trie of the given prefixes.
+     * @param prefixes The prefixes, and their values
+     * @return The trie
+     * @param <V> The type of value
+     */
+    @SuppressWarnings("unchecked")
+    static <V> NameTrie<V> of(Map<String, V> prefixes) {
+        if (prefixes.isEmpty()) {
+            return (NameTrie<V>) EMPTY;
+        }
+        var root = new MutableNode<V>();
+        prefixes.forEach((prefix, value) -> {
+            var node = root;
+            for (int i = 0; i < prefix.length(); i++) {
+                node = node.children.computeIfAbsent(prefix.charAt(i), c -> new MutableNode<>());
+            }
+            node.value = Objects.requireNonNull(value);
+        });
+        return new NameTrie<>(root.freeze());
+    }
+
+    /**
+     * Tests whether the value of any prefix of the given name satisfies the given predicate.
+     * The prefixes are tested shortest first, and the empty prefix is a prefix of every name.
+     * Using a non-capturing predicate, with any state it needs passed as the {@code argument},
+     * means that the test does not allocate.
+     * @param name The name
+     * @param predicate The predicate
+     * @param argument The argument passed to the predicate
+     * @return true if the value of any prefix of the name satisfies the predicate.
+     * @param <A> The type of the argument
+     */
+    <A> boolean anyPrefixOf(String name, BiPredicate<? super V, ? super A> predicate, A argument) {
+        Node<V> node = root;
+        for (int i = 0; node != null; i++) {
+            V value = node.value;
+            if (value != null && predicate.test(value, argument)) {
+                return true;
+            }
+            node = i < name.length() ? node.child(name.charAt(i)) : null;
+        }
+        return false;
+    }
+
+    /**
+     * Passes the value of each prefix of the given name to the given consumer, shortest first.
+     * The empty prefix is a prefix of every name.
+     * @param name The name
+     * @param consumer The consumer
+     */
+    void forEachPrefixOf(String name, Consumer<? super V> consumer) {
+        Node<V> node = root;
+        for (int i = 0; node != null; i++) {
+            V value = node.value;
+            if (value != null) {
+                consumer.accept(value);
+            }
+            node = i < name.length() ? node.child(name.charAt(i)) : null;
+        }
+    }
+
+    private static final class MutableNode<V> {
+        private final TreeMap<Character, MutableNode<V>> children = new TreeMap<>();
+        private @Nullable V value;
+
+        @SuppressWarnings("unchecked")
+        private Node<V> freeze() {
+            char[] labels = new char[children.size()];
+            Node<V>[] frozen = new Node[children.size()];
+            int i = 0;
+            for (var entry : children.entrySet()) {
+                labels[i] = entry.getKey();
+                frozen[i] = entry.getValue().freeze();
+                i++;
+            }
+            return new Node<>(labels, frozen, value);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.authorizer.provider.acl;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletionStage;
+
+import io.kroxylicious.authorizer.service.Action;
+import io.kroxylicious.authorizer.service.AuthorizeResult;
+import io.kroxylicious.authorizer.service.Authorizer;
+import io.kroxylicious.authorizer.service.ResourceType;
+import io.kroxylicious.proxy.authentication.Subject;
+
+/**
+ * <p>An {@link Authorizer} whose ACL rules can be replaced while it is in use.</p>
+ *
+ * <p>Each call to {@link #authorize(Subject, List)} is decided entirely by either the old or the new rules.
+ * Each replacement increments the {@link #generation()}, so that enforcement points which cache
+ * decisions know to discard them.</p>
+ */
+class ReloadableAclAuthorizer implements Authorizer {
+
+    private record Rules(AclAuthorizer authorizer, long generation) {}
+
+    private volatile Rules rules;
+
+    ReloadableAclAuthorizer(AclAuthorizer authorizer) {
+        this.rules = new Rules(authorizer, 0L);
+    }
+
+    /**
+     * Replaces the rules used for subsequent authorizations.
+     * @param authorizer The new rules
+     */
+    synchronized void replace(AclAuthorizer authorizer) {
+        this.rules = new Rules(authorizer, rules.generation() + 1);
+    }
+
+    AclAuthorizer current() {
+        return rules.authorizer();
+    }
+
+    @Override
+    public CompletionStage<AuthorizeResult> authorize(Subject subject, List<Action> actions) {
+        return rules.authorizer().authorize(subject, actions);
+    }
+
+    @Override
+    public Optional<Set<Class<? extends ResourceType<?>>>> supportedResourceTypes() {
+        return rules.authorizer().supportedResourceTypes();
+    }
+
+    @Override
+    public long generation() {
+        return rules.generation();
+    }
+
+    @Override
+    public String toString() {
+        Rules current = rules;
+        return "ReloadableAclAuthorizer{" +
+                "generation=" + current.generation() +
+                ", authorizer=" + current.authorizer() +
+                '}';
+    }
+}
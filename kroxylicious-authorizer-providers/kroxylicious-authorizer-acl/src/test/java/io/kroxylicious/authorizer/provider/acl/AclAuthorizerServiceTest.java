@@ -730,4 +730,16 @@ class AclAuthorizerServiceTest {
         assertThat(decision(authz, new User("Alice"), FakeTopicResource.READ, "bar"))
                 .isEqualTo(Decision.ALLOW);
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldRejectNonPositiveReloadInterval() {
+        assertThatThrownBy(() -> new AclAuthorizerConfig("acl-rules.txt", 0))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldNotReloadByDefault() {
+        assertThat(new AclAuthorizerConfig("acl-rules.txt").reloadInterval()).isNull();
+        assertThat(new AclAuthorizerConfig("acl-rules.txt", 30).reloadInterval()).hasSeconds(30);
+    }
+}
@@ -7,6 +7,7 @@
 package io.kroxylicious.authorizer.provider.acl;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.EnumSet;
 import java.util.List;
 import java.util.Set;
@@ -196,6 +197,45 @@ class AclAuthorizerTest {
         }
     }
 
+    @Test
+    void builderOverlappingResourceNamePrefixes() {
+        // Given
+        var authz = AclAuthorizer.builder()
+                .allow()
+                .subjectsHavingPrincipal(User.class)
+                .withNameEqualTo("bob")
+                .operations(Set.of(FakeTopicResource.READ))
+                .onResourcesWithNameStartingWith("my-")
+                .allow()
+                .subjectsHavingPrincipal(User.class)
+                .withNameEqualTo("bob")
+                .operations(Set.of(FakeTopicResource.WRITE))
+                .onResourcesWithNameStartingWith("my-topic")
+                .deny()
+                .subjectsHavingPrincipal(User.class)
+                .withNameStartingWith("b")
+                .operations(Set.of(FakeTopicResource.READ))
+                .onResourcesWithNameStartingWith("my-secret")
+                .build();
+
+        Subject bob = new Subject(Set.of(new User("bob")));
+
+        // When
+        AuthorizeResult authorize = getAuthorization(authz, bob, List.of(
+                new Action(FakeTopicResource.READ, "my-topic-1"),
+                new Action(FakeTopicResource.WRITE, "my-topic-1"),
+                new Action(FakeTopicResource.WRITE, "my-other"),
+                new Action(FakeTopicResource.READ, "my-secret-1")));
+
+        // Then
+        assertThat(authorize.allowed()).isEqualTo(List.of(
+                new Action(FakeTopicResource.READ, "my-topic-1"),
+                new Action(FakeTopicResource.WRITE, "my-topic-1")));
+        assertThat(authorize.denied()).isEqualTo(List.of(
+                new Action(FakeTopicResource.WRITE, "my-other"),
+                new Action(FakeTopicResource.READ, "my-secret-1")));
+    }
+
     @Test
     void builderAllOperationsAndResourceNameAnyAndPrincipalNameEqual() {
         // Given
@@ -275,6 +315,42 @@ class AclAuthorizerTest {
         }
     }
 
+    @Test
+    void shouldDecideLargeBatchWithDuplicateActionsAsIndividualActions() {
+        // Given
+        var authz = AclAuthorizer.builder()
+                .allow()
+                .subjectsHavingPrincipal(User.class)
+                .withNameEqualTo("bob")
+                .operations(Set.of(FakeTopicResource.READ))
+                .onResourcesWithNameStartingWith("my-")
+                .deny()
+                .subjectsHavingPrincipal(User.class)
+                .withNameEqualTo("bob")
+                .operations(Set.of(FakeTopicResource.READ))
+                .onResourceWithNameEqualTo("my-secret")
+                .build();
+        Subject bob = new Subject(Set.of(new User("bob")));
+        List<Action> actions = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            actions.add(new Action(FakeTopicResource.READ, "my-topic"));
+            actions.add(new Action(FakeTopicResource.READ, "my-secret"));
+            actions.add(new Action(FakeTopicResource.READ, "your-topic-" + i));
+        }
+
+        // When
+        AuthorizeResult authorize = getAuthorization(authz, bob, actions);
+
+        // Then
+        for (Action action : actions) {
+            AuthorizeResult individual = getAuthorization(authz, bob, List.of(action));
+            assertThat(authorize.decision(action.operation(), action.resourceName()))
+                    .isEqualTo(individual.decision(action.operation(), action.resourceName()));
+        }
+        assertThat(authorize.allowed()).hasSize(20).containsOnly(new Action(FakeTopicResource.READ, "my-topic"));
+        assertThat(authorize.denied()).hasSize(40);
+    }
+
     private static AuthorizeResult getAuthorization(AclAuthorizer authz, Subject alice, List<Action> op) {
         CompletionStage<AuthorizeResult> authorizationStage = authz.authorize(alice,
                 op);
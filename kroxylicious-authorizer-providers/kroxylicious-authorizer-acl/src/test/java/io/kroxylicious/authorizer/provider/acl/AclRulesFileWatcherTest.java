@@ -0,0 +1,183 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.authorizer.provider.acl;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.util.List;
+
+import org.antlr.v4.runtime.CharStreams;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import io.kroxylicious.authorizer.provider.acl.allow.FakeTopicResource;
+import io.kroxylicious.authorizer.service.Action;
+import io.kroxylicious.authorizer.service.Decision;
+import io.kroxylicious.proxy.authentication.Subject;
+import io.kroxylicious.proxy.authentication.User;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AclRulesFileWatcherTest {
+
+    private static final String ALLOW_ALICE = """
+            from io.kroxylicious.authorizer.provider.acl.allow import FakeTopicResource as Topic;
+            allow User with name = "Alice" to READ Topic with name = "foo";
+            otherwise deny;
+            """;
+
+    private static final String ALLOW_BOB = """
+            from io.kroxylicious.authorizer.provider.acl.allow import FakeTopicResource as Topic;
+            allow User with name = "Bob" to READ Topic with name = "foo";
+            otherwise deny;
+            """;
+
+    private static final Action READ_FOO = new Action(FakeTopicResource.READ, "foo");
+
+    @TempDir
+    Path tempDir;
+
+    private Path rulesFile;
+    private ReloadableAclAuthorizer authorizer;
+    private Counter successes;
+    private Counter failures;
+    private Timer timer;
+    private AclRulesFileWatcher watcher;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        rulesFile = tempDir.resolve("acl-rules.txt");
+        write(ALLOW_ALICE, 1);
+        authorizer = new ReloadableAclAuthorizer(AclAuthorizerService.parse(CharStreams.fromPath(rulesFile)));
+        var registry = new SimpleMeterRegistry();
+        successes = registry.counter("successes");
+        failures = registry.counter("failures");
+        timer = registry.timer("timer");
+        watcher = new AclRulesFileWatcher(rulesFile, authorizer, AclRulesFileWatcher.FileState.of(rulesFile), successes, failures, timer);
+    }
+
+    private void write(String rules, long epochSecond) throws IOException {
+        Files.writeString(rulesFile, rules);
+        Files.setLastModifiedTime(rulesFile, FileTime.from(Instant.ofEpochSecond(epochSecond)));
+    }
+
+    private Decision decision(String userName) {
+        return authorizer.authorize(new Subject(new User(userName)), List.of(READ_FOO))
+                .toCompletableFuture().join()
+                .decision(FakeTopicResource.READ, "foo");
+    }
+
+    @Test
+    void shouldNotReloadUnchangedFile() {
+        assertThat(watcher.checkForChanges()).isFalse();
+        assertThat(authorizer.generation()).isZero();
+        assertThat(timer.count()).isZero();
+    }
+
+    @Test
+    void shouldReplaceRulesWhenFileChanges() throws IOException {
+        // Given
+        write(ALLOW_BOB, 2);
+        assertThat(watcher.checkForChanges())
+                .describedAs("a changed file should not be reloaded until it is the same on two checks")
+                .isFalse();
+
+        // When
+        boolean reloaded = watcher.checkForChanges();
+
+        // Then
+        assertThat(reloaded).isTrue();
+        assertThat(authorizer.generation()).isEqualTo(1L);
+        assertThat(decision("Alice")).isEqualTo(Decision.DENY);
+        assertThat(decision("Bob")).isEqualTo(Decision.ALLOW);
+        assertThat(successes.count()).isEqualTo(1.0);
+        assertThat(timer.count()).isEqualTo(1L);
+        assertThat(watcher.checkForChanges()).isFalse();
+    }
+
+    @Test
+    void shouldKeepPreviousRulesWhenChangedFileIsInvalid() throws IOException {
+        // Given
+        AclAuthorizer previous = authorizer.current();
+        write("allow nonsense;", 2);
+        watcher.checkForChanges();
+
+        // When
+        boolean reloaded = watcher.checkForChanges();
+
+        // Then
+        assertThat(reloaded).isFalse();
+        assertThat(authorizer.current()).isSameAs(previous);
+        assertThat(authorizer.generation()).isZero();
+        assertThat(decision("Alice")).isEqualTo(Decision.ALLOW);
+        assertThat(failures.count()).isEqualTo(1.0);
+        assertThat(watcher.checkForChanges())
+                .describedAs("an invalid file should not be parsed again until it changes")
+                .isFalse();
+        assertThat(failures.count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void shouldReloadWhenInvalidFileIsFixed() throws IOException {
+        // Given
+        write("allow nonsense;", 2);
+        watcher.checkForChanges();
+        watcher.checkForChanges();
+        write(ALLOW_BOB, 3);
+        watcher.checkForChanges();
+
+        // When
+        boolean reloaded = watcher.checkForChanges();
+
+        // Then
+        assertThat(reloaded).isTrue();
+        assertThat(decision("Bob")).isEqualTo(Decision.ALLOW);
+    }
+
+    @Test
+    void shouldNotReloadFileWhileItIsBeingWritten() throws IOException {
+        // Given
+        write(ALLOW_BOB.substring(0, ALLOW_BOB.length() / 2), 2);
+        assertThat(watcher.checkForChanges()).isFalse();
+        write(ALLOW_BOB, 3);
+
+        // When
+        boolean reloadedWhileWriting = watcher.checkForChanges();
+        boolean reloadedWhenWritten = watcher.checkForChanges();
+
+        // Then
+        assertThat(reloadedWhileWriting).isFalse();
+        assertThat(reloadedWhenWritten).isTrue();
+        assertThat(decision("Bob")).isEqualTo(Decision.ALLOW);
+        assertThat(failures.count())
+                .describedAs("the truncated file should never have been parsed")
+                .isZero();
+        assertThat(authorizer.generation()).isEqualTo(1L);
+    }
+
+    @Test
+    void shouldKeepPreviousRulesWhenFileIsMissing() throws IOException {
+        // Given
+        Files.delete(rulesFile);
+
+        // When
+        boolean reloaded = watcher.checkForChanges();
+
+        // Then
+        assertThat(reloaded).isFalse();
+        assertThat(decision("Alice")).isEqualTo(Decision.ALLOW);
+        assertThat(failures.count()).isZero();
+    }
+}
@@ -0,0 +1,150 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.authorizer.provider.acl;
+
+import java.util.BitSet;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+import com.google.re2j.Pattern;
+
+import io.kroxylicious.authorizer.provider.acl.allow.FakeClusterResource;
+import io.kroxylicious.authorizer.provider.acl.allow.FakeTopicResource;
+import io.kroxylicious.authorizer.service.Action;
+import io.kroxylicious.proxy.authentication.Principal;
+import io.kroxylicious.proxy.authentication.Subject;
+import io.kroxylicious.proxy.authentication.User;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CompiledRulesTest {
+
+    private static final Subject BOB = new Subject(Set.of(new User("bob")));
+    private static final OrderedKey<Principal> ANY_USER = new ResourceMatcherAnyOfType<>(User.class);
+
+    private static CompiledRules.Rule rule(OrderedKey<Principal> principal, Key<?> resource, EnumSet<?> operations) {
+        return new CompiledRules.Rule(principal, resource, operations);
+    }
+
+    private static ResourceMatcherNameMatches<FakeTopicResource> topicsMatching(String regex) {
+        return new ResourceMatcherNameMatches<>(FakeTopicResource.class, Pattern.compile(regex));
+    }
+
+    @Test
+    void shouldMatchAnyOfMergedPatterns() {
+        var rules = CompiledRules.compile(List.of(
+                rule(ANY_USER, topicsMatching("baz*"), EnumSet.of(FakeTopicResource.CREATE)),
+                rule(ANY_USER, topicsMatching("baz*"), EnumSet.of(FakeTopicResource.ALTER)),
+                rule(ANY_USER, topicsMatching("bazz"), EnumSet.of(FakeTopicResource.DESCRIBE)),
+                rule(ANY_USER, new ResourceMatcherNameMatches<>(FakeClusterResource.class, Pattern.compile("foo*")), EnumSet.of(FakeClusterResource.CONNECT))));
+
+        assertThat(rules.matches(BOB, new Action(FakeTopicResource.CREATE, "absent"))).isFalse();
+        assertThat(rules.matches(BOB, new Action(FakeTopicResource.CREATE, "ba"))).isTrue();
+        assertThat(rules.matches(BOB, new Action(FakeTopicResource.ALTER, "baz"))).isTrue();
+        assertThat(rules.matches(BOB, new Action(FakeTopicResource.DESCRIBE, "baz"))).isFalse();
+        assertThat(rules.matches(BOB, new Action(FakeTopicResource.CREATE, "bazz"))).isTrue();
+        assertThat(rules.matches(BOB, new Action(FakeTopicResource.DESCRIBE, "bazz"))).isTrue();
+        assertThat(rules.matches(BOB, new Action(FakeTopicResource.READ, "bazz"))).isFalse();
+
+        assertThat(rules.matches(BOB, new Action(FakeClusterResource.CONNECT, "absent"))).isFalse();
+        assertThat(rules.matches(BOB, new Action(FakeClusterResource.CONNECT, "fo"))).isTrue();
+        assertThat(rules.matches(BOB, new Action(FakeClusterResource.CONNECT, "fooo"))).isTrue();
+    }
+
+    @Test
+    void shouldRequireMergedPatternsToMatchWholeName() {
+        var rules = CompiledRules.compile(List.of(
+                rule(ANY_USER, topicsMatching("a|b"), EnumSet.of(FakeTopicResource.READ)),
+                rule(ANY_USER, topicsMatching("c"), EnumSet.of(FakeTopicResource.READ))));
+
+        assertThat(rules.matches(BOB, new Action(FakeTopicResource.READ, "a"))).isTrue();
+        assertThat(rules.matches(BOB, new Action(FakeTopicResource.READ, "c"))).isTrue();
+        assertThat(rules.matches(BOB, new Action(FakeTopicResource.READ, "ab"))).isFalse();
+        assertThat(rules.matches(BOB, new Action(FakeTopicResource.READ, "bc"))).isFalse();
+    }
+
+    @Test
+    void shouldMatchEveryResourcePrefix() {
+        var rules = CompiledRules.compile(List.of(
+                rule(ANY_USER, new ResourceMatcherNameStarts<>(FakeTopicResource.class, "my-"), EnumSet.of(FakeTopicResource.READ)),
+                rule(ANY_USER, new ResourceMatcherNameStarts<>(FakeTopicResource.class, "my-topic"), EnumSet.of(FakeTopicResource.WRITE))));
+
+        assertThat(rules.matches(BOB, new Action(FakeTopicResource.READ, "my-topic-1"))).isTrue();
+        assertThat(rules.matches(BOB, new Action(FakeTopicResource.WRITE, "my-topic-1"))).isTrue();
+        assertThat(rules.matches(BOB, new Action(FakeTopicResource.READ, "my-other"))).isTrue();
+        assertThat(rules.matches(BOB, new Action(FakeTopicResource.WRITE, "my-other"))).isFalse();
+        assertThat(rules.matches(BOB, new Action(FakeTopicResource.READ, "your-topic"))).isFalse();
+    }
+
+    @Test
+    void shouldMatchEveryPrincipalPrefix() {
+        var rules = CompiledRules.compile(List.of(
+                rule(new ResourceMatcherNameStarts<>(User.class, "b"), new ResourceMatcherNameEquals<>(FakeTopicResource.class, "t1"),
+                        EnumSet.of(FakeTopicResource.READ)),
+                rule(new ResourceMatcherNameStarts<>(User.class, "bo"), new ResourceMatcherNameEquals<>(FakeTopicResource.class, "t2"),
+                        EnumSet.of(FakeTopicResource.READ))));
+
+        assertThat(rules.matches(BOB, new Action(FakeTopicResource.READ, "t1"))).isTrue();
+        assertThat(rules.matches(BOB, new Action(FakeTopicResource.READ, "t2"))).isTrue();
+        assertThat(rules.matches(new Subject(Set.of(new User("ben"))), new Action(FakeTopicResource.READ, "t2"))).isFalse();
+    }
+
+    @Test
+    void shouldNotMatchPrincipalOfOtherType() {
+        var rules = CompiledRules.compile(List.of(
+                rule(new ResourceMatcherAnyOfType<>(RolePrincipal.class), new ResourceMatcherAnyOfType<>(FakeTopicResource.class),
+                        EnumSet.allOf(FakeTopicResource.class))));
+
+        assertThat(rules.matches(BOB, new Action(FakeTopicResource.READ, "t1"))).isFalse();
+        assertThat(rules.matches(new Subject(Set.of(new User("alice"), new RolePrincipal("admins"))), new Action(FakeTopicResource.READ, "t1"))).isTrue();
+    }
+
+    @Test
+    void shouldMatchAllCandidatesAsIndividualMatchesWould() {
+        var rules = CompiledRules.compile(List.of(
+                rule(new ResourceMatcherNameEquals<>(User.class, "bob"), new ResourceMatcherNameEquals<>(FakeTopicResource.class, "t1"),
+                        EnumSet.of(FakeTopicResource.READ)),
+                rule(new ResourceMatcherNameStarts<>(User.class, "b"), new ResourceMatcherNameStarts<>(FakeTopicResource.class, "my-"),
+                        EnumSet.of(FakeTopicResource.WRITE)),
+                rule(ANY_USER, new ResourceMatcherAnyOfType<>(FakeClusterResource.class), EnumSet.of(FakeClusterResource.CONNECT))));
+        List<Action> actions = List.of(
+                new Action(FakeTopicResource.READ, "t1"),
+                new Action(FakeTopicResource.READ, "t2"),
+                new Action(FakeClusterResource.CONNECT, ""),
+                new Action(FakeTopicResource.WRITE, "my-topic"),
+                new Action(FakeTopicResource.READ, "my-topic"),
+                new Action(FakeTopicResource.WRITE, "my-other"));
+        var candidates = new BitSet();
+        candidates.set(0, actions.size());
+        candidates.clear(5);
+
+        var matched = new BitSet();
+        rules.matchAll(BOB, actions, candidates, matched);
+
+        assertThat(matched.stream().toArray()).containsExactly(0, 2, 3);
+        for (int i = 0; i < 5; i++) {
+            assertThat(matched.get(i)).isEqualTo(rules.matches(BOB, actions.get(i)));
+        }
+    }
+
+    @Test
+    void shouldMatchNoCandidatesForSubjectWithoutRules() {
+        var rules = CompiledRules.compile(List.of(
+                rule(new ResourceMatcherAnyOfType<>(RolePrincipal.class), new ResourceMatcherAnyOfType<>(FakeTopicResource.class),
+                        EnumSet.allOf(FakeTopicResource.class))));
+        var candidates = new BitSet();
+        candidates.set(0);
+
+        var matched = new BitSet();
+        rules.matchAll(BOB, List.of(new Action(FakeTopicResource.READ, "t1")), candidates, matched);
+
+        assertThat(matched.isEmpty()).isTrue();
+    }
+}
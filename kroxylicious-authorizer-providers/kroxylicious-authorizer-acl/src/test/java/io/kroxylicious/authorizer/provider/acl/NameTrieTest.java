@@ -0,0 +1,74 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.authorizer.provider.acl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class NameTrieTest {
+
+    private static List<Integer> prefixValues(NameTrie<Integer> trie, String name) {
+        List<Integer> values = new ArrayList<>();
+        trie.anyPrefixOf(name, (value, list) -> {
+            list.add(value);
+            return false;
+        }, values);
+        return values;
+    }
+
+    @Test
+    void testEmpty() {
+        var trie = NameTrie.<Integer> of(Map.of());
+        assertThat(prefixValues(trie, "")).isEmpty();
+        assertThat(prefixValues(trie, "foo")).isEmpty();
+    }
+
+    @Test
+    void testSinglePrefix() {
+        var trie = NameTrie.of(Map.of("foo", 2));
+        assertThat(prefixValues(trie, "foo")).containsExactly(2);
+        assertThat(prefixValues(trie, "fooo")).containsExactly(2);
+        assertThat(prefixValues(trie, "fo")).isEmpty();
+        assertThat(prefixValues(trie, "bar")).isEmpty();
+    }
+
+    @Test
+    void testEmptyPrefixIsPrefixOfEveryName() {
+        var trie = NameTrie.of(Map.of("", 1));
+        assertThat(prefixValues(trie, "")).containsExactly(1);
+        assertThat(prefixValues(trie, "foo")).containsExactly(1);
+    }
+
+    @Test
+    void testFindsEveryPrefixShortestFirst() {
+        var trie = NameTrie.of(Map.of("f", 1, "foo", 3, "foo-bar", 7, "fox", 10));
+        assertThat(prefixValues(trie, "foo-bar-baz")).containsExactly(1, 3, 7);
+        assertThat(prefixValues(trie, "foo-baz")).containsExactly(1, 3);
+        assertThat(prefixValues(trie, "fox")).containsExactly(1, 10);
+        assertThat(prefixValues(trie, "fa")).containsExactly(1);
+    }
+
+    @Test
+    void testStopsAtFirstPrefixSatisfyingPredicate() {
+        var trie = NameTrie.of(Map.of("a", 1, "ab", 2, "abc", 3));
+        assertThat(trie.anyPrefixOf("abcd", (value, min) -> value >= min, 2)).isTrue();
+        assertThat(trie.anyPrefixOf("ab", (value, min) -> value >= min, 3)).isFalse();
+    }
+
+    @Test
+    void testVisitsEveryPrefixShortestFirst() {
+        var trie = NameTrie.of(Map.of("", 0, "f", 1, "foo", 3, "fox", 10));
+        List<Integer> values = new ArrayList<>();
+        trie.forEachPrefixOf("foo-bar", values::add);
+        assertThat(values).containsExactly(0, 1, 3);
+    }
+}
@@ -34,6 +34,7 @@ public class Authorization implements FilterFactory<AuthorizationConfig, Authori
     private static final Logger LOGGER = LoggerFactory.getLogger(Authorization.class);
 
     private @Nullable AuthorizerService<?> authorizerService = null;
+    private int decisionCacheMaxEntries = AuthorizationConfig.DEFAULT_DECISION_CACHE_MAX_ENTRIES;
 
     @SuppressWarnings({ "unchecked", "rawtypes" })
     @Override
@@ -42,6 +43,7 @@ public class Authorization implements FilterFactory<AuthorizationConfig, Authori
             throws PluginConfigurationException {
         LOGGER.atWarn().log("Authorization is an experimental Filter not yet recommended for production environments");
         var configuration = Plugins.requireConfig(this, authorizationConfig);
+        this.decisionCacheMaxEntries = configuration.decisionCacheMaxEntriesOrDefault();
         this.authorizerService = context.pluginInstance(AuthorizerService.class, configuration.authorizer());
         ((AuthorizerService) authorizerService).initialize(configuration.authorizerConfig());
 
@@ -64,7 +66,7 @@ public class Authorization implements FilterFactory<AuthorizationConfig, Authori
     @Override
     @SuppressWarnings("java:S2638") // Tightening UnknownNullness
     public Filter createFilter(FilterFactoryContext context, @NonNull Authorizer authorizer) {
-        return new AuthorizationFilter(authorizer);
+        return new AuthorizationFilter(authorizer, decisionCacheMaxEntries);
     }
 
     @Override
@@ -12,13 +12,37 @@ import io.kroxylicious.authorizer.service.AuthorizerService;
 import io.kroxylicious.proxy.plugin.PluginImplConfig;
 import io.kroxylicious.proxy.plugin.PluginImplName;
 
+import edu.umd.cs.findbugs.annotations.Nullable;
+
 /**
  * The configuration for the {@link Authorization} service.
  * @param authorizer The class name of the {@link AuthorizerService} implementation to use.
  * @param authorizerConfig The configuration object for the given {@link AuthorizerService}.
+ * @param decisionCacheMaxEntries The maximum number of authorization decisions cached by each connection,
+ * or null for the default. Zero disables the cache.
  */
 public record AuthorizationConfig(
                                   @JsonProperty(required = true) @PluginImplName(AuthorizerService.class) String authorizer,
-                                  @PluginImplConfig(implNameProperty = "authorizer") Object authorizerConfig) {
+                                  @PluginImplConfig(implNameProperty = "authorizer") Object authorizerConfig,
+                                  @JsonProperty @Nullable Integer decisionCacheMaxEntries) {
+
+    static final int DEFAULT_DECISION_CACHE_MAX_ENTRIES = 1000;
+
+    public AuthorizationConfig {
+        if (decisionCacheMaxEntries != null && decisionCacheMaxEntries < 0) {
+            throw new IllegalArgumentException("decisionCacheMaxEntries must be greater than or equal to zero");
+        }
+    }
+
+    public AuthorizationConfig(String authorizer, Object authorizerConfig) {
+        this(authorizer, authorizerConfig, null);
+    }
 
+    /**
+     * Returns the maximum number of authorization decisions cached by each connection.
+     * @return The maximum number of decisions cached, or 0 if decisions are not cached.
+     */
+    public int decisionCacheMaxEntriesOrDefault() {
+        return decisionCacheMaxEntries == null ? DEFAULT_DECISION_CACHE_MAX_ENTRIES : decisionCacheMaxEntries;
+    }
 }
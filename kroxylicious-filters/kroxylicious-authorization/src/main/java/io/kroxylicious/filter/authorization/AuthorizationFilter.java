@@ -8,14 +8,14 @@
 package io.kroxylicious.filter.authorization;
 
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collections;
 import java.util.EnumMap;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
 
 import org.apache.kafka.common.message.ApiVersionsRequestData;
 import org.apache.kafka.common.message.ApiVersionsResponseData;
@@ -30,6 +30,9 @@ import org.slf4j.LoggerFactory;
 import io.kroxylicious.authorizer.service.Action;
 import io.kroxylicious.authorizer.service.AuthorizeResult;
 import io.kroxylicious.authorizer.service.Authorizer;
+import io.kroxylicious.authorizer.service.Decision;
+import io.kroxylicious.authorizer.service.ResourceType;
+import io.kroxylicious.proxy.authentication.Subject;
 import io.kroxylicious.proxy.filter.FilterContext;
 import io.kroxylicious.proxy.filter.RequestFilter;
 import io.kroxylicious.proxy.filter.RequestFilterResult;
@@ -150,9 +153,21 @@ public class AuthorizationFilter implements RequestFilter, ResponseFilter {
     private final Map<Integer, InflightState<?>> inflightState;
     private short useMetadataVersion = -1;
     private final Authorizer authorizer;
+    private final @Nullable DecisionCache decisionCache;
 
     public AuthorizationFilter(Authorizer authorizer) {
+        this(authorizer, AuthorizationConfig.DEFAULT_DECISION_CACHE_MAX_ENTRIES);
+    }
+
+    /**
+     * @param authorizer The authorizer
+     * @param decisionCacheMaxEntries The maximum number of decisions to cache for this connection, or 0 to not cache decisions
+     */
+    public AuthorizationFilter(Authorizer authorizer, int decisionCacheMaxEntries) {
         this.authorizer = authorizer;
+        this.decisionCache = decisionCacheMaxEntries > 0
+                ? new DecisionCache(decisionCacheMaxEntries, AuthorizationMetrics.decisionCacheHitsCounter(), AuthorizationMetrics.decisionCacheMissesCounter())
+                : null;
         this.inflightState = new HashMap<>(10);
         if (apiEnforcement.get(ApiKeys.PRODUCE).minSupportedVersion() != 3) {
             // sanity check, see https://issues.apache.org/jira/browse/KAFKA-18659
@@ -162,47 +177,92 @@ public class AuthorizationFilter implements RequestFilter, ResponseFilter {
     }
 
     CompletionStage<AuthorizeResult> authorization(FilterContext context, List<Action> actions) {
-        var actionsPartitionedByAuthorizerSupport = authorizer.supportedResourceTypes()
-                .map(supportedTypes -> actions.stream().collect(Collectors.partitioningBy(
-                        action -> action.resourceTypeClass() == ClusterResource.class
-                                || supportedTypes.contains(action.resourceTypeClass()))))
-                .orElse(Map.of(Boolean.TRUE, actions));
-        var actionsWithSupportedResourceTypes = actionsPartitionedByAuthorizerSupport.getOrDefault(Boolean.TRUE, List.of());
-        var actionsWithUnsupportedResourceTypes = actionsPartitionedByAuthorizerSupport.getOrDefault(Boolean.FALSE, List.of());
-        return authorizer.authorize(context.authenticatedSubject(),
+        Subject subject = context.authenticatedSubject();
+        long generation = authorizer.generation();
+        if (decisionCache != null) {
+            AuthorizeResult cached = decisionCache.lookup(subject, generation, actions);
+            if (cached != null) {
+                logDecision(cached, actions);
+                return CompletableFuture.completedStage(cached);
+            }
+        }
+        BitSet unsupported = unsupportedResourceTypes(actions);
+        if (unsupported.isEmpty()) {
+            return authorizer.authorize(subject, actions)
+                    .thenApply(authz -> {
+                        logDecision(authz, actions);
+                        if (decisionCache != null) {
+                            decisionCache.put(generation, authz);
+                        }
+                        return authz;
+                    });
+        }
+        List<Action> actionsWithSupportedResourceTypes = new ArrayList<>(actions.size() - unsupported.cardinality());
+        for (int i = unsupported.nextClearBit(0); i < actions.size(); i = unsupported.nextClearBit(i + 1)) {
+            actionsWithSupportedResourceTypes.add(actions.get(i));
+        }
+        return authorizer.authorize(subject,
                 actionsWithSupportedResourceTypes)
                 .thenApply(authz -> {
-                    if (!authz.denied().isEmpty()) {
-                        LOGGER.atInfo()
-                                .addKeyValue("deniedActions", authz.denied())
-                                .addKeyValue("subject", authz.subject())
-                                .log("Authorization DENY decision");
-                    }
-                    else if (!authz.allowed().isEmpty()) {
-                        LOGGER.atDebug()
-                                .addKeyValue("allowedActions", authz.allowed())
-                                .addKeyValue("subject", authz.subject())
-                                .log("Authorization ALLOW decision");
+                    logDecision(authz, actions);
+                    LOGGER.atDebug()
+                            .addKeyValue("unsupportedActions", () -> unsupported.stream().mapToObj(actions::get).toList())
+                            .addKeyValue("subject", authz.subject())
+                            .addKeyValue("authorizerClass", authorizer.getClass().getName())
+                            .log("Authorization ALLOW decision for unsupported resource types");
+                    BitSet allowed = (BitSet) unsupported.clone();
+                    for (int i = unsupported.nextClearBit(0); i < actions.size(); i = unsupported.nextClearBit(i + 1)) {
+                        Action action = actions.get(i);
+                        if (authz.decision(action.operation(), action.resourceName()) == Decision.ALLOW) {
+                            allowed.set(i);
+                        }
                     }
-                    else if (actions.isEmpty()) {
-                        LOGGER.atDebug()
-                                .addKeyValue("subject", authz.subject())
-                                .log("Authorization ALLOW decision with no authorizable actions");
+                    AuthorizeResult result = AuthorizeResult.of(authz.subject(), actions, allowed);
+                    if (decisionCache != null) {
+                        decisionCache.put(generation, result);
                     }
-                    if (!actionsWithUnsupportedResourceTypes.isEmpty()) {
-                        LOGGER.atDebug()
-                                .addKeyValue("unsupportedActions", actionsWithUnsupportedResourceTypes)
-                                .addKeyValue("subject", authz.subject())
-                                .addKeyValue("authorizerClass", authorizer.getClass().getName())
-                                .log("Authorization ALLOW decision for unsupported resource types");
-                        authz = new AuthorizeResult(authz.subject(),
-                                Stream.concat(authz.allowed().stream(), actionsWithUnsupportedResourceTypes.stream()).collect(Collectors.toUnmodifiableList()),
-                                authz.denied());
-                    }
-                    return authz;
+                    return result;
                 });
     }
 
+    /**
+     * Returns the indices of those actions on types of resource which the authorizer cannot make decisions about.
+     * Such actions are allowed.
+     */
+    private BitSet unsupportedResourceTypes(List<Action> actions) {
+        BitSet unsupported = new BitSet(actions.size());
+        var supportedTypes = authorizer.supportedResourceTypes();
+        if (supportedTypes.isPresent()) {
+            for (int i = 0; i < actions.size(); i++) {
+                Class<? extends ResourceType<?>> resourceType = actions.get(i).resourceTypeClass();
+                if (resourceType != ClusterResource.class && !supportedTypes.get().contains(resourceType)) {
+                    unsupported.set(i);
+                }
+            }
+        }
+        return unsupported;
+    }
+
+    private static void logDecision(AuthorizeResult authz, List<Action> actions) {
+        if (!authz.denied().isEmpty()) {
+            LOGGER.atInfo()
+                    .addKeyValue("deniedActions", authz.denied())
+                    .addKeyValue("subject", authz.subject())
+                    .log("Authorization DENY decision");
+        }
+        else if (!authz.allowed().isEmpty()) {
+            LOGGER.atDebug()
+                    .addKeyValue("allowedActions", authz::allowed)
+                    .addKeyValue("subject", authz.subject())
+                    .log("Authorization ALLOW decision");
+        }
+        else if (actions.isEmpty()) {
+            LOGGER.atDebug()
+                    .addKeyValue("subject", authz.subject())
+                    .log("Authorization ALLOW decision with no authorizable actions");
+        }
+    }
+
     static void nonAuthorizableRequest(FilterContext context) {
         LOGGER.atDebug()
                 .addKeyValue("subject", context.authenticatedSubject())
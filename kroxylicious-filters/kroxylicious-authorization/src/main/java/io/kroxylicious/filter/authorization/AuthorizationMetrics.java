@@ -0,0 +1,43 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.filter.authorization;
+
+import io.micrometer.core.instrument.Counter;
+
+import static io.micrometer.core.instrument.Metrics.globalRegistry;
+
+public class AuthorizationMetrics {
+
+    /**
+     * Prevent construction of utility class
+     */
+    private AuthorizationMetrics() {
+        // private constructor
+    }
+
+    public static final String OUTCOME_LABEL = "outcome";
+
+    // Base Metric Names
+    private static final String DECISION_CACHE_LOOKUPS = "kroxylicious_filter_authorization_decision_cache_lookups";
+
+    public static Counter decisionCacheHitsCounter() {
+        return decisionCacheLookupsCounter("hit");
+    }
+
+    public static Counter decisionCacheMissesCounter() {
+        return decisionCacheLookupsCounter("miss");
+    }
+
+    private static Counter decisionCacheLookupsCounter(String outcome) {
+        return Counter
+                .builder(DECISION_CACHE_LOOKUPS)
+                .description("A count of the requests whose actions were all authorized from the filter's decision cache (hit), "
+                        + "or which needed a call to the authorizer (miss).")
+                .tag(OUTCOME_LABEL, outcome)
+                .register(globalRegistry);
+    }
+}
@@ -0,0 +1,104 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.filter.authorization;
+
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.micrometer.core.instrument.Counter;
+
+import io.kroxylicious.authorizer.service.Action;
+import io.kroxylicious.authorizer.service.AuthorizeResult;
+import io.kroxylicious.authorizer.service.Authorizer;
+import io.kroxylicious.authorizer.service.Decision;
+import io.kroxylicious.proxy.authentication.Subject;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+/**
+ * <p>A bounded cache of the decisions made for the subject of a single connection, so that requests
+ * whose actions have all been authorized before do not need to call the {@link Authorizer}.</p>
+ *
+ * <p>The cached decisions are discarded when the subject changes (for example, on reauthentication),
+ * or when the {@link Authorizer#generation()} of the access control policy changes.
+ * When full, the least recently used decision is evicted.</p>
+ */
+class DecisionCache {
+
+    private final Map<Action, Decision> decisions;
+    private final Counter hits;
+    private final Counter misses;
+    private @Nullable Subject subject;
+    private long generation;
+
+    DecisionCache(int maxEntries, Counter hits, Counter misses) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be greater than zero");
+        }
+        this.decisions = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Action, Decision> eldest) {
+                return size() > maxEntries;
+            }
+        };
+        this.hits = hits;
+        this.misses = misses;
+    }
+
+    /**
+     * Returns the result of authorizing the given actions, if the decisions for all of them are cached.
+     * @param subject The subject
+     * @param generation The current generation of the authorizer's policy
+     * @param actions The actions
+     * @return The result, or null if any decision was not cached.
+     */
+    synchronized @Nullable AuthorizeResult lookup(Subject subject, long generation, List<Action> actions) {
+        if (!isCurrent(subject, generation)) {
+            decisions.clear();
+            this.subject = subject;
+            this.generation = generation;
+            misses.increment();
+            return null;
+        }
+        BitSet allowed = new BitSet(actions.size());
+        for (int i = 0; i < actions.size(); i++) {
+            Decision decision = decisions.get(actions.get(i));
+            if (decision == null) {
+                misses.increment();
+                return null;
+            }
+            if (decision == Decision.ALLOW) {
+                allowed.set(i);
+            }
+        }
+        hits.increment();
+        return AuthorizeResult.of(subject, actions, allowed);
+    }
+
+    /**
+     * Caches the decisions in the given result, unless the subject or generation have changed since it was looked up.
+     * @param generation The generation of the authorizer's policy when the result was looked up
+     * @param result The result
+     */
+    synchronized void put(long generation, AuthorizeResult result) {
+        if (!isCurrent(result.subject(), generation)) {
+            return;
+        }
+        result.forEachDecision(decisions::put);
+    }
+
+    private boolean isCurrent(Subject subject, long generation) {
+        return this.generation == generation
+                && subject.equals(this.subject);
+    }
+
+    synchronized int numDecisions() {
+        return decisions.size();
+    }
+}
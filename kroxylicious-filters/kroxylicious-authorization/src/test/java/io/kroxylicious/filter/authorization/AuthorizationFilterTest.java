@@ -149,6 +149,82 @@ class AuthorizationFilterTest {
         });
     }
 
+    @Test
+    void shouldNotCallAuthorizerWhenAllDecisionsAreCached() {
+        // given
+        Subject subject = new Subject(new User("alice"));
+        Authorizer mockAuthorizer = Mockito.mock(Authorizer.class);
+        Action allowedAction = new Action(TopicResource.WRITE, "resourceA");
+        Action deniedAction = new Action(TopicResource.WRITE, "resourceB");
+        List<Action> actions = List.of(allowedAction, deniedAction);
+        AuthorizeResult result = new AuthorizeResult(subject, List.of(allowedAction), List.of(deniedAction));
+        when(mockAuthorizer.authorize(subject, actions)).thenReturn(CompletableFuture.completedFuture(result));
+        when(mockAuthorizer.supportedResourceTypes()).thenReturn(Optional.of(Set.of(TopicResource.class)));
+        AuthorizationFilter filter = new AuthorizationFilter(mockAuthorizer);
+        FilterContext filterContext = Mockito.mock(FilterContext.class);
+        when(filterContext.authenticatedSubject()).thenReturn(subject);
+        assertThat(filter.authorization(filterContext, actions)).succeedsWithin(Duration.ZERO);
+
+        // when
+        CompletionStage<AuthorizeResult> authorization = filter.authorization(filterContext, List.of(deniedAction, allowedAction));
+
+        // then
+        assertThat(authorization).succeedsWithin(Duration.ZERO).satisfies(authorizeResult -> {
+            assertThat(authorizeResult.allowed()).containsExactly(allowedAction);
+            assertThat(authorizeResult.denied()).containsExactly(deniedAction);
+        });
+        Mockito.verify(mockAuthorizer, Mockito.times(1)).authorize(Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    void shouldCallAuthorizerWhenGenerationChanges() {
+        // given
+        Subject subject = new Subject(new User("alice"));
+        Authorizer mockAuthorizer = Mockito.mock(Authorizer.class);
+        Action action = new Action(TopicResource.WRITE, "resourceA");
+        when(mockAuthorizer.authorize(subject, List.of(action)))
+                .thenReturn(CompletableFuture.completedFuture(new AuthorizeResult(subject, List.of(action), List.of())))
+                .thenReturn(CompletableFuture.completedFuture(new AuthorizeResult(subject, List.of(), List.of(action))));
+        when(mockAuthorizer.supportedResourceTypes()).thenReturn(Optional.of(Set.of(TopicResource.class)));
+        when(mockAuthorizer.generation()).thenReturn(1L);
+        AuthorizationFilter filter = new AuthorizationFilter(mockAuthorizer);
+        FilterContext filterContext = Mockito.mock(FilterContext.class);
+        when(filterContext.authenticatedSubject()).thenReturn(subject);
+        assertThat(filter.authorization(filterContext, List.of(action))).succeedsWithin(Duration.ZERO);
+        when(mockAuthorizer.generation()).thenReturn(2L);
+
+        // when
+        CompletionStage<AuthorizeResult> authorization = filter.authorization(filterContext, List.of(action));
+
+        // then
+        assertThat(authorization).succeedsWithin(Duration.ZERO).satisfies(authorizeResult -> {
+            assertThat(authorizeResult.allowed()).isEmpty();
+            assertThat(authorizeResult.denied()).containsExactly(action);
+        });
+        Mockito.verify(mockAuthorizer, Mockito.times(2)).authorize(Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    void shouldCallAuthorizerForEveryRequestWhenDecisionCacheDisabled() {
+        // given
+        Subject subject = new Subject(new User("alice"));
+        Authorizer mockAuthorizer = Mockito.mock(Authorizer.class);
+        Action action = new Action(TopicResource.WRITE, "resourceA");
+        when(mockAuthorizer.authorize(subject, List.of(action)))
+                .thenReturn(CompletableFuture.completedFuture(new AuthorizeResult(subject, List.of(action), List.of())));
+        when(mockAuthorizer.supportedResourceTypes()).thenReturn(Optional.of(Set.of(TopicResource.class)));
+        AuthorizationFilter filter = new AuthorizationFilter(mockAuthorizer, 0);
+        FilterContext filterContext = Mockito.mock(FilterContext.class);
+        when(filterContext.authenticatedSubject()).thenReturn(subject);
+
+        // when
+        assertThat(filter.authorization(filterContext, List.of(action))).succeedsWithin(Duration.ZERO);
+        assertThat(filter.authorization(filterContext, List.of(action))).succeedsWithin(Duration.ZERO);
+
+        // then
+        Mockito.verify(mockAuthorizer, Mockito.times(2)).authorize(Mockito.any(), Mockito.any());
+    }
+
     @ParameterizedTest
     @MethodSource
     void authorization(ScenarioDefinition definition) {
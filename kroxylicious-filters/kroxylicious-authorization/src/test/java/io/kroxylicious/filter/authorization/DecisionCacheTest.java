@@ -0,0 +1,123 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.filter.authorization;
+
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import io.kroxylicious.authorizer.service.Action;
+import io.kroxylicious.authorizer.service.AuthorizeResult;
+import io.kroxylicious.proxy.authentication.Subject;
+import io.kroxylicious.proxy.authentication.User;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DecisionCacheTest {
+
+    private static final Subject ALICE = new Subject(new User("alice"));
+    private static final Subject BOB = new Subject(new User("bob"));
+    private static final Action READ_A = new Action(TopicResource.READ, "a");
+    private static final Action READ_B = new Action(TopicResource.READ, "b");
+    private static final Action READ_C = new Action(TopicResource.READ, "c");
+
+    private Counter hits;
+    private Counter misses;
+
+    @BeforeEach
+    void setUp() {
+        var registry = new SimpleMeterRegistry();
+        hits = registry.counter("hits");
+        misses = registry.counter("misses");
+    }
+
+    @Test
+    void shouldRejectNonPositiveMaxEntries() {
+        assertThatThrownBy(() -> new DecisionCache(0, hits, misses))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldHitWhenAllDecisionsCached() {
+        // Given
+        var cache = new DecisionCache(10, hits, misses);
+        assertThat(cache.lookup(ALICE, 0, List.of(READ_A, READ_B))).isNull();
+        cache.put(0, new AuthorizeResult(ALICE, List.of(READ_A), List.of(READ_B)));
+
+        // When
+        AuthorizeResult result = cache.lookup(ALICE, 0, List.of(READ_B, READ_A));
+
+        // Then
+        assertThat(result).isNotNull();
+        assertThat(result.allowed()).containsExactly(READ_A);
+        assertThat(result.denied()).containsExactly(READ_B);
+        assertThat(hits.count()).isEqualTo(1.0);
+        assertThat(misses.count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void shouldMissWhenAnyDecisionNotCached() {
+        var cache = new DecisionCache(10, hits, misses);
+        cache.lookup(ALICE, 0, List.of(READ_A));
+        cache.put(0, new AuthorizeResult(ALICE, List.of(READ_A), List.of()));
+
+        assertThat(cache.lookup(ALICE, 0, List.of(READ_A, READ_C))).isNull();
+        assertThat(misses.count()).isEqualTo(2.0);
+    }
+
+    @Test
+    void shouldDiscardDecisionsWhenSubjectChanges() {
+        var cache = new DecisionCache(10, hits, misses);
+        cache.lookup(ALICE, 0, List.of(READ_A));
+        cache.put(0, new AuthorizeResult(ALICE, List.of(READ_A), List.of()));
+
+        assertThat(cache.lookup(BOB, 0, List.of(READ_A))).isNull();
+        assertThat(cache.numDecisions()).isZero();
+    }
+
+    @Test
+    void shouldDiscardDecisionsWhenGenerationChanges() {
+        var cache = new DecisionCache(10, hits, misses);
+        cache.lookup(ALICE, 0, List.of(READ_A));
+        cache.put(0, new AuthorizeResult(ALICE, List.of(READ_A), List.of()));
+
+        assertThat(cache.lookup(ALICE, 1, List.of(READ_A))).isNull();
+        assertThat(cache.numDecisions()).isZero();
+    }
+
+    @Test
+    void shouldNotCacheDecisionsFromStaleGeneration() {
+        var cache = new DecisionCache(10, hits, misses);
+        cache.lookup(ALICE, 1, List.of(READ_A));
+
+        cache.put(0, new AuthorizeResult(ALICE, List.of(READ_A), List.of()));
+
+        assertThat(cache.numDecisions()).isZero();
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedDecision() {
+        // Given
+        var cache = new DecisionCache(2, hits, misses);
+        cache.lookup(ALICE, 0, List.of());
+        cache.put(0, new AuthorizeResult(ALICE, List.of(READ_A, READ_B), List.of()));
+        assertThat(cache.lookup(ALICE, 0, List.of(READ_A))).isNotNull();
+
+        // When
+        cache.put(0, new AuthorizeResult(ALICE, List.of(READ_C), List.of()));
+
+        // Then
+        assertThat(cache.numDecisions()).isEqualTo(2);
+        assertThat(cache.lookup(ALICE, 0, List.of(READ_A, READ_C))).isNotNull();
+        assertThat(cache.lookup(ALICE, 0, List.of(READ_B))).isNull();
+    }
+}
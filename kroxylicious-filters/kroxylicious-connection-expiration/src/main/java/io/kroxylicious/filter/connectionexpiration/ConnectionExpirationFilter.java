@@ -35,17 +35,40 @@ import io.kroxylicious.proxy.filter.RequestFilterResult;
  * <p>
  * On the next request after the deadline has passed, the filter forwards the request but
  * signals that the connection should be closed afterwards.
+ * <p>
+ * Until the deadline has passed, {@link #shouldHandleRequest(ApiKeys, short)} returns false,
+ * so this filter never causes a request to be decoded: a connection that has not expired is forwarded
+ * as opaquely as it would be without this filter. Checking the deadline costs a read of the clock per request.
  */
 public class ConnectionExpirationFilter implements RequestFilter {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(ConnectionExpirationFilter.class);
 
     private final Instant deadline;
+    private final long deadlineMillis;
     private final Clock clock;
+    private boolean expired;
 
     ConnectionExpirationFilter(Duration effectiveMaxAge, Clock clock) {
         this.clock = clock;
         this.deadline = clock.instant().plus(effectiveMaxAge);
+        this.deadlineMillis = deadline.toEpochMilli();
+    }
+
+    /**
+     * Returns true once the deadline has passed, so that the next request is decoded and passed to
+     * {@link #onRequest(ApiKeys, short, RequestHeaderData, ApiMessage, FilterContext)}.
+     * Once the deadline has passed, this method returns true even if the clock is later set back.
+     * @param apiKey the api key of the message
+     * @param apiVersion the api version of the message
+     * @return true if the connection has expired
+     */
+    @Override
+    public boolean shouldHandleRequest(ApiKeys apiKey, short apiVersion) {
+        if (!expired && clock.millis() > deadlineMillis) {
+            expired = true;
+        }
+        return expired;
     }
 
     @Override
@@ -54,7 +77,7 @@ public class ConnectionExpirationFilter implements RequestFilter {
                                                           RequestHeaderData header,
                                                           ApiMessage request,
                                                           FilterContext context) {
-        if (clock.instant().isAfter(deadline)) {
+        if (shouldHandleRequest(apiKey, apiVersion)) {
             LOGGER.atInfo()
                     .addKeyValue("sessionId", context.sessionId())
                     .addKeyValue("deadline", deadline)
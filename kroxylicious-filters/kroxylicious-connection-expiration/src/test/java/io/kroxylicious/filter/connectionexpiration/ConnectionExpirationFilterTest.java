@@ -88,4 +88,42 @@ class ConnectionExpirationFilterTest {
         assertThat(result).succeedsWithin(Duration.ZERO).satisfies(r -> MockFilterContextAssert.assertThat(r).isForwardRequest()
                 .isCloseConnection());
     }
+
+    @Test
+    void shouldNotRequestDecodingBeforeDeadline() {
+        MutableClock mutableClock = MutableClock.of(NOW, ZONE);
+        ConnectionExpirationFilter filter = new ConnectionExpirationFilter(Duration.ofMinutes(5), mutableClock);
+        mutableClock.set(NOW.plus(Duration.ofMinutes(5)));
+
+        assertThat(filter.shouldHandleRequest(ApiKeys.PRODUCE, ApiKeys.PRODUCE.latestVersion())).isFalse();
+        assertThat(filter.shouldHandleRequest(ApiKeys.FETCH, ApiKeys.FETCH.latestVersion())).isFalse();
+    }
+
+    @Test
+    void shouldRequestDecodingOfAnyRequestAfterDeadline() {
+        MutableClock mutableClock = MutableClock.of(NOW, ZONE);
+        ConnectionExpirationFilter filter = new ConnectionExpirationFilter(Duration.ofMinutes(5), mutableClock);
+        mutableClock.set(NOW.plus(Duration.ofMinutes(5)).plusMillis(1));
+
+        assertThat(filter.shouldHandleRequest(ApiKeys.PRODUCE, ApiKeys.PRODUCE.latestVersion())).isTrue();
+        assertThat(filter.shouldHandleRequest(ApiKeys.FETCH, ApiKeys.FETCH.latestVersion())).isTrue();
+    }
+
+    @Test
+    void shouldRemainExpiredWhenClockIsSetBack() {
+        MutableClock mutableClock = MutableClock.of(NOW, ZONE);
+        ConnectionExpirationFilter filter = new ConnectionExpirationFilter(Duration.ofMinutes(5), mutableClock);
+        mutableClock.set(NOW.plus(Duration.ofMinutes(6)));
+        assertThat(filter.shouldHandleRequest(ApiKeys.PRODUCE, ApiKeys.PRODUCE.latestVersion())).isTrue();
+        mutableClock.set(NOW);
+
+        RequestHeaderData header = new RequestHeaderData();
+        ApiVersionsRequestData request = new ApiVersionsRequestData();
+        MockFilterContext context = MockFilterContext.builder(header, request).build();
+
+        var result = filter.onRequest(ApiKeys.API_VERSIONS, (short) 0, header, request, context);
+
+        assertThat(result).succeedsWithin(Duration.ZERO).satisfies(r -> MockFilterContextAssert.assertThat(r).isForwardRequest()
+                .isCloseConnection());
+    }
 }
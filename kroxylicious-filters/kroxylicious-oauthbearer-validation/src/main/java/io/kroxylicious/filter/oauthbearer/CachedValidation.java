@@ -0,0 +1,15 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.filter.oauthbearer;
+
+/**
+ * The outcome of successfully validating an OAUTHBEARER token, which can be reused by later
+ * authentications presenting the same token until it expires.
+ * @param authorizationId The authorization id established by the token
+ * @param expiresAtMs The time at which the token expires, in milliseconds since the epoch
+ */
+record CachedValidation(String authorizationId, long expiresAtMs) {}
@@ -17,7 +17,10 @@ import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -29,9 +32,13 @@ import org.apache.kafka.common.security.oauthbearer.OAuthBearerValidatorCallback
 import org.apache.kafka.common.security.oauthbearer.internals.OAuthBearerSaslServerProvider;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
 import com.github.benmanes.caffeine.cache.LoadingCache;
 
+import io.kroxylicious.filter.oauthbearer.jwks.JwksCachingJwtValidator;
+import io.kroxylicious.filter.oauthbearer.jwks.JwksKeyCache;
 import io.kroxylicious.filter.oauthbearer.sasl.ExponentialJitterBackoffStrategy;
 import io.kroxylicious.proxy.filter.FilterFactory;
 import io.kroxylicious.proxy.filter.FilterFactoryContext;
@@ -60,6 +67,12 @@ public class OauthBearerValidation implements FilterFactory<OauthBearerValidatio
         OAuthBearerSaslServerProvider.initialize();
     }
 
+    /**
+     * The maximum number of authentications which may be waiting for a validation worker thread.
+     * Authentications beyond this are failed rather than queued without bound.
+     */
+    private static final int MAX_PENDING_VALIDATIONS = 10_000;
+
     private final Deque<Runnable> oauthSystemPropertyCleanupTasks = new ConcurrentLinkedDeque<>();
 
     @SuppressWarnings("unused")
@@ -77,10 +90,11 @@ public class OauthBearerValidation implements FilterFactory<OauthBearerValidatio
     @SuppressFBWarnings("PREDICTABLE_RANDOM") // Pseudorandomness sufficient for generating backoff jitter; not security relevant
     public SharedOauthBearerValidationContext initialize(FilterFactoryContext context, @Nullable Config config) throws PluginConfigurationException {
         var cfg = Plugins.requireConfig(this, config);
-        setAllowedSaslOauthbearerSysPropIfNecessary(cfg.jwksEndpointUrl().toString());
         Config configWithDefaults = initConfigWithDefaults(cfg);
+        JwksKeyCache jwksKeyCache = createJwksKeyCacheIfNecessary(configWithDefaults);
+        setAllowedSaslOauthbearerSysPropIfNecessary(cfg.jwksEndpointUrl().toString());
         oauthHandler.configure(
-                createSaslConfigMap(configWithDefaults),
+                createSaslConfigMap(configWithDefaults, jwksKeyCache),
                 OAUTHBEARER_MECHANISM,
                 createDefaultJaasConfig());
         LoadingCache<String, AtomicInteger> rateLimiter = Caffeine.newBuilder()
@@ -89,7 +103,52 @@ public class OauthBearerValidation implements FilterFactory<OauthBearerValidatio
                 .build(key -> new AtomicInteger(0));
         ExponentialJitterBackoffStrategy backoffStrategy = new ExponentialJitterBackoffStrategy(Duration.ofMillis(500), Duration.ofSeconds(5), 2d,
                 ThreadLocalRandom.current());
-        return new SharedOauthBearerValidationContext(configWithDefaults, backoffStrategy, rateLimiter, oauthHandler);
+        Cache<String, CachedValidation> validatedTokens = Caffeine.newBuilder()
+                .expireAfter(Expiry
+                        .creating((String key, CachedValidation validation) -> Duration.ofMillis(Math.max(0L, validation.expiresAtMs() - System.currentTimeMillis()))))
+                .maximumSize(Objects.requireNonNull(configWithDefaults.validatedTokenCacheMaxSize()))
+                .build();
+        return new SharedOauthBearerValidationContext(configWithDefaults, backoffStrategy, rateLimiter, oauthHandler,
+                createValidationExecutor(Objects.requireNonNull(configWithDefaults.validationThreads())), validatedTokens, jwksKeyCache);
+    }
+
+    /**
+     * Creates and starts the JWKS key cache shared by the filter instances, if the {@link JwksCachingJwtValidator}
+     * has been chosen as the validator. Kafka's own validator is used unless that validator is configured.
+     * @param config The configuration, with defaults applied
+     * @return the started cache, or null if the validator does not use one.
+     * @throws PluginConfigurationException if the {@link JwksCachingJwtValidator} is configured with a JWKS endpoint that is not HTTP(S).
+     */
+    @SuppressWarnings("java:S2245") // Pseudorandomness sufficient for generating backoff jitter; not security relevant
+    @SuppressFBWarnings("PREDICTABLE_RANDOM") // Pseudorandomness sufficient for generating backoff jitter; not security relevant
+    private static @Nullable JwksKeyCache createJwksKeyCacheIfNecessary(Config config) {
+        if (!JwksCachingJwtValidator.class.getName().equals(config.jwtValidatorClass())) {
+            return null;
+        }
+        String scheme = config.jwksEndpointUrl().getScheme();
+        if (!"http".equalsIgnoreCase(scheme) && !"https".equalsIgnoreCase(scheme)) {
+            throw new PluginConfigurationException(JwksCachingJwtValidator.class.getName() + " requires an http or https jwksEndpointUrl, but was given "
+                    + config.jwksEndpointUrl());
+        }
+        Duration retryBackoff = Duration.ofMillis(Math.max(1L, Objects.requireNonNull(config.jwksEndpointRetryBackoffMs())));
+        Duration retryBackoffMax = Duration.ofMillis(Math.max(retryBackoff.toMillis(), Objects.requireNonNull(config.jwksEndpointRetryBackoffMaxMs())));
+        var jwksKeyCache = new JwksKeyCache(config.jwksEndpointUrl(),
+                Duration.ofMillis(Objects.requireNonNull(config.jwksEndpointRefreshMs())),
+                retryBackoff,
+                new ExponentialJitterBackoffStrategy(retryBackoff, retryBackoffMax, 2d, ThreadLocalRandom.current()));
+        jwksKeyCache.start();
+        return jwksKeyCache;
+    }
+
+    private static ExecutorService createValidationExecutor(int threads) {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(MAX_PENDING_VALIDATIONS),
+                r -> {
+                    var thread = new Thread(r, "oauthbearer-validation-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
     }
 
     private void setAllowedSaslOauthbearerSysPropIfNecessary(String jwkUrl) {
@@ -131,6 +190,12 @@ public class OauthBearerValidation implements FilterFactory<OauthBearerValidatio
 
     @Override
     public void close(SharedOauthBearerValidationContext sharedContext) {
+        if (sharedContext != null) {
+            sharedContext.validationExecutor().shutdownNow();
+            if (sharedContext.jwksKeyCache() != null) {
+                sharedContext.jwksKeyCache().close();
+            }
+        }
         oauthHandler.close();
         while (!oauthSystemPropertyCleanupTasks.isEmpty()) {
             oauthSystemPropertyCleanupTasks.pop().run();
@@ -149,9 +214,28 @@ public class OauthBearerValidation implements FilterFactory<OauthBearerValidatio
                          @JsonProperty @Nullable Long authenticateCacheMaxSize,
                          @JsonProperty @Nullable String expectedAudience,
                          @JsonProperty @Nullable String expectedIssuer,
-                         @JsonProperty @Nullable String jwtValidatorClass) {}
+                         @JsonProperty @Nullable String jwtValidatorClass,
+                         @JsonProperty @Nullable Long validatedTokenCacheMaxSize,
+                         @JsonProperty @Nullable Integer validationThreads) {
 
-    private Map<String, ?> createSaslConfigMap(Config config) {
+        @SuppressWarnings("java:S107") // retains the constructor from before validatedTokenCacheMaxSize and validationThreads were added
+        public Config(URI jwksEndpointUrl,
+                      @Nullable Long jwksEndpointRefreshMs,
+                      @Nullable Long jwksEndpointRetryBackoffMs,
+                      @Nullable Long jwksEndpointRetryBackoffMaxMs,
+                      @Nullable String scopeClaimName,
+                      @Nullable String subClaimName,
+                      @Nullable Long authenticateBackOffMaxMs,
+                      @Nullable Long authenticateCacheMaxSize,
+                      @Nullable String expectedAudience,
+                      @Nullable String expectedIssuer,
+                      @Nullable String jwtValidatorClass) {
+            this(jwksEndpointUrl, jwksEndpointRefreshMs, jwksEndpointRetryBackoffMs, jwksEndpointRetryBackoffMaxMs, scopeClaimName, subClaimName,
+                    authenticateBackOffMaxMs, authenticateCacheMaxSize, expectedAudience, expectedIssuer, jwtValidatorClass, null, null);
+        }
+    }
+
+    private Map<String, ?> createSaslConfigMap(Config config, @Nullable JwksKeyCache jwksKeyCache) {
         Map<String, Object> saslConfig = new HashMap<>();
         saslConfig.put(SaslConfigs.SASL_OAUTHBEARER_JWKS_ENDPOINT_URL, config.jwksEndpointUrl().toString());
         saslConfig.put(SaslConfigs.SASL_OAUTHBEARER_JWKS_ENDPOINT_REFRESH_MS, config.jwksEndpointRefreshMs());
@@ -170,6 +254,9 @@ public class OauthBearerValidation implements FilterFactory<OauthBearerValidatio
         if (config.expectedIssuer() != null) {
             saslConfig.put(SaslConfigs.SASL_OAUTHBEARER_EXPECTED_ISSUER, config.expectedIssuer());
         }
+        if (jwksKeyCache != null) {
+            saslConfig.put(JwksKeyCache.CONFIG_KEY, jwksKeyCache);
+        }
         return saslConfig;
     }
 
@@ -189,7 +276,9 @@ public class OauthBearerValidation implements FilterFactory<OauthBearerValidatio
                 defaultIfNullOrNonPositive(config.authenticateCacheMaxSize(), 1000L),
                 defaultIfNullOrEmpty(config.expectedAudience(), null),
                 defaultIfNullOrEmpty(config.expectedIssuer(), null),
-                defaultIfNullOrEmpty(config.jwtValidatorClass(), BrokerJwtValidator.class.getName()));
+                defaultIfNullOrEmpty(config.jwtValidatorClass(), BrokerJwtValidator.class.getName()),
+                defaultIfNullOrNonPositive(config.validatedTokenCacheMaxSize(), 1000L),
+                config.validationThreads() != null && config.validationThreads() > 0 ? config.validationThreads() : Runtime.getRuntime().availableProcessors());
     }
 
     private @Nullable Long defaultIfNullOrNegative(@Nullable Long value, @Nullable Long defaultValue) {
@@ -15,7 +15,8 @@ import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Supplier;
@@ -35,12 +36,17 @@ import org.apache.kafka.common.security.oauthbearer.OAuthBearerValidatorCallback
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.LoadingCache;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+
 import io.kroxylicious.filter.oauthbearer.sasl.BackoffStrategy;
 import io.kroxylicious.proxy.authentication.Subject;
 import io.kroxylicious.proxy.authentication.User;
 import io.kroxylicious.proxy.filter.FilterContext;
+import io.kroxylicious.proxy.filter.FilterDispatchExecutor;
 import io.kroxylicious.proxy.filter.RequestFilterResult;
 import io.kroxylicious.proxy.filter.ResponseFilterResult;
 import io.kroxylicious.proxy.filter.SaslAuthenticateRequestFilter;
@@ -61,25 +67,49 @@ import static org.apache.kafka.common.security.oauthbearer.OAuthBearerLoginModul
  * <p>
  * If the token is not validated, then the request is short-circuited.
  * It reduces resource consumption on the cluster when a client sends too many invalid SASL requests.
+ * <p>
+ * Tokens are validated on a shared pool of validation threads, rather than on the filter dispatch thread,
+ * so that signature verification does not hold up the other connections on the same event loop.
+ * The outcome of a validation is handed back to the filter dispatch thread before the filter's state,
+ * or the filter context, is touched.
+ * Tokens which have been validated successfully are remembered until they expire, so that clients
+ * presenting the same token again, for example when reconnecting, are not validated again.
  */
 public class OauthBearerValidationFilter
         implements SaslHandshakeRequestFilter, SaslAuthenticateRequestFilter,
         SaslAuthenticateResponseFilter {
 
     private static final Logger LOGGER = LoggerFactory.getLogger(OauthBearerValidationFilter.class);
-    private final ScheduledExecutorService executorService;
+
+    /**
+     * The SASL negotiated property under which Kafka's OAUTHBEARER SASL server exposes the token's expiry time.
+     * Kafka only defines it in a non-public class, so it is repeated here.
+     */
+    @VisibleForTesting
+    static final String CREDENTIAL_LIFETIME_MS_SASL_NEGOTIATED_PROPERTY_KEY = "CREDENTIAL.LIFETIME.MS";
+    private final FilterDispatchExecutor dispatchExecutor;
     private final BackoffStrategy strategy;
     private final LoadingCache<String, AtomicInteger> rateLimiter;
     private final OAuthBearerValidatorCallbackHandler oauthHandler;
+    private final Executor validationExecutor;
+    private final Cache<String, CachedValidation> validatedTokens;
+    private final Counter validatedTokenCacheHits;
+    private final Counter validatedTokenCacheMisses;
+    private final Timer validationTimer;
     private @Nullable SaslServer saslServer;
     private boolean validateAuthentication = true;
     private @Nullable String authorizationId;
 
-    public OauthBearerValidationFilter(ScheduledExecutorService executorService, SharedOauthBearerValidationContext sharedContext) {
-        this.executorService = executorService;
+    public OauthBearerValidationFilter(FilterDispatchExecutor dispatchExecutor, SharedOauthBearerValidationContext sharedContext) {
+        this.dispatchExecutor = dispatchExecutor;
         this.strategy = sharedContext.backoffStrategy();
         this.rateLimiter = sharedContext.rateLimiter();
         this.oauthHandler = sharedContext.oauthHandler();
+        this.validationExecutor = sharedContext.validationExecutor();
+        this.validatedTokens = sharedContext.validatedTokens();
+        this.validatedTokenCacheHits = OauthBearerValidationMetrics.validatedTokenCacheHitsCounter();
+        this.validatedTokenCacheMisses = OauthBearerValidationMetrics.validatedTokenCacheMissesCounter();
+        this.validationTimer = OauthBearerValidationMetrics.validationTimer();
     }
 
     /**
@@ -141,8 +171,11 @@ public class OauthBearerValidationFilter
             }
             this.saslServer = null;
 
-            return authenticate(server, request.authBytes())
-                    .thenCompose(bytes -> context.forwardRequest(header, request))
+            return dispatchExecutor.completeOnFilterDispatchThread(authenticate(server, request.authBytes()))
+                    .thenCompose(id -> {
+                        this.authorizationId = id;
+                        return context.forwardRequest(header, request);
+                    })
                     .exceptionallyCompose(e -> {
                         if (e.getCause() instanceof SaslAuthenticationException cause) {
                             SaslAuthenticateResponseData failedResponse = new SaslAuthenticateResponseData()
@@ -200,7 +233,11 @@ public class OauthBearerValidationFilter
         return context.forwardResponse(header, response);
     }
 
-    private CompletionStage<byte[]> authenticate(SaslServer server, byte[] authBytes) {
+    /**
+     * Authenticates the client with the given SASL server, possibly on another thread.
+     * @return A stage completed with the client's authorization id, which may be completed on any thread.
+     */
+    private CompletionStage<String> authenticate(SaslServer server, byte[] authBytes) {
         String rateLimiterKey;
         try {
             rateLimiterKey = createCacheKey(authBytes);
@@ -208,15 +245,20 @@ public class OauthBearerValidationFilter
         catch (NoSuchAlgorithmException e) {
             return CompletableFuture.failedStage(e);
         }
-        Duration delay = strategy.getDelay(rateLimiter.get(rateLimiterKey).get());
-        return schedule(() -> {
+        CachedValidation validated = validatedTokens.getIfPresent(rateLimiterKey);
+        if (validated != null && validated.expiresAtMs() > System.currentTimeMillis()) {
+            validatedTokenCacheHits.increment();
             try {
-                return CompletableFuture.completedStage(doAuthenticate(server, authBytes));
+                server.dispose();
             }
-            catch (Exception e) {
+            catch (SaslException e) {
                 return CompletableFuture.failedStage(e);
             }
-        }, delay)
+            return CompletableFuture.completedStage(validated.authorizationId());
+        }
+        validatedTokenCacheMisses.increment();
+        Duration delay = strategy.getDelay(rateLimiter.get(rateLimiterKey).get());
+        return schedule(() -> validate(server, authBytes, rateLimiterKey), delay)
                 .whenComplete((bytes, e) -> {
                     if (e != null) {
                         rateLimiter.get(rateLimiterKey).incrementAndGet();
@@ -227,15 +269,47 @@ public class OauthBearerValidationFilter
                 });
     }
 
-    private byte[] doAuthenticate(SaslServer server, byte[] authBytes) throws SaslException {
+    private CompletionStage<String> validate(SaslServer server, byte[] authBytes, String cacheKey) {
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                long start = System.nanoTime();
+                try {
+                    return doAuthenticate(server, authBytes, cacheKey);
+                }
+                catch (SaslException e) {
+                    throw new CompletionException(e);
+                }
+                finally {
+                    validationTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                }
+            }, validationExecutor);
+        }
+        catch (RejectedExecutionException e) {
+            LOGGER.atWarn()
+                    .addKeyValue("error", e.getMessage())
+                    .log("OAUTHBEARER token validation rejected because too many validations are pending");
+            return CompletableFuture.failedStage(e);
+        }
+    }
+
+    /**
+     * Validates the token on a validation thread, so must not touch the filter's state.
+     * @return The client's authorization id
+     */
+    private @Nullable String doAuthenticate(SaslServer server, byte[] authBytes, String cacheKey) throws SaslException {
         try {
             byte[] bytes = server.evaluateResponse(authBytes);
             if (!server.isComplete()) {
                 // at this step bytes would be a jsonResponseError from SASL server
                 throw new SaslAuthenticationException("SASL failed : " + new String(bytes, StandardCharsets.UTF_8));
             }
-            this.authorizationId = server.getAuthorizationID();
-            return bytes;
+            String id = server.getAuthorizationID();
+            if (id != null
+                    && server.getNegotiatedProperty(CREDENTIAL_LIFETIME_MS_SASL_NEGOTIATED_PROPERTY_KEY) instanceof Long expiresAtMs
+                    && expiresAtMs > System.currentTimeMillis()) {
+                validatedTokens.put(cacheKey, new CachedValidation(id, expiresAtMs));
+            }
+            return id;
         }
         finally {
             server.dispose();
@@ -248,7 +322,7 @@ public class OauthBearerValidationFilter
             return operation.get();
         }
         CompletableFuture<A> future = new CompletableFuture<>();
-        executorService.schedule(() -> {
+        var unused = dispatchExecutor.schedule(() -> {
             operation.get().whenComplete((a, throwable) -> {
                 if (throwable != null) {
                     future.completeExceptionally(throwable);
@@ -0,0 +1,52 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.filter.oauthbearer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Timer;
+
+import static io.micrometer.core.instrument.Metrics.globalRegistry;
+
+public class OauthBearerValidationMetrics {
+
+    /**
+     * Prevent construction of utility class
+     */
+    private OauthBearerValidationMetrics() {
+        // private constructor
+    }
+
+    public static final String OUTCOME_LABEL = "outcome";
+
+    // Base Metric Names
+    private static final String VALIDATED_TOKEN_CACHE_LOOKUPS = "kroxylicious_filter_oauthbearer_validation_validated_token_cache_lookups";
+    private static final String VALIDATION_TIME = "kroxylicious_filter_oauthbearer_validation_validation_time";
+
+    public static Counter validatedTokenCacheHitsCounter() {
+        return validatedTokenCacheLookupsCounter("hit");
+    }
+
+    public static Counter validatedTokenCacheMissesCounter() {
+        return validatedTokenCacheLookupsCounter("miss");
+    }
+
+    private static Counter validatedTokenCacheLookupsCounter(String outcome) {
+        return Counter
+                .builder(VALIDATED_TOKEN_CACHE_LOOKUPS)
+                .description("A count of the authentications whose token had already been validated and had not expired (hit), "
+                        + "or which needed the token to be validated (miss).")
+                .tag(OUTCOME_LABEL, outcome)
+                .register(globalRegistry);
+    }
+
+    public static Timer validationTimer() {
+        return Timer
+                .builder(VALIDATION_TIME)
+                .description("The time taken by a validation worker thread to validate an OAUTHBEARER token.")
+                .register(globalRegistry);
+    }
+}
@@ -6,16 +6,24 @@
 
 package io.kroxylicious.filter.oauthbearer;
 
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.kafka.common.security.oauthbearer.OAuthBearerValidatorCallbackHandler;
 
+import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.LoadingCache;
 
+import io.kroxylicious.filter.oauthbearer.jwks.JwksKeyCache;
 import io.kroxylicious.filter.oauthbearer.sasl.BackoffStrategy;
 
+import edu.umd.cs.findbugs.annotations.Nullable;
+
 public record SharedOauthBearerValidationContext(
                                                  OauthBearerValidation.Config config,
                                                  BackoffStrategy backoffStrategy,
                                                  LoadingCache<String, AtomicInteger> rateLimiter,
-                                                 OAuthBearerValidatorCallbackHandler oauthHandler) {}
+                                                 OAuthBearerValidatorCallbackHandler oauthHandler,
+                                                 ExecutorService validationExecutor,
+                                                 Cache<String, CachedValidation> validatedTokens,
+                                                 @Nullable JwksKeyCache jwksKeyCache) {}
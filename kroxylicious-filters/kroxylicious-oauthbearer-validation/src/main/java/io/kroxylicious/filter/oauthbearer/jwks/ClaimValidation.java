@@ -0,0 +1,121 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.filter.oauthbearer.jwks;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.common.security.oauthbearer.JwtValidatorException;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+/**
+ * The claim rules applied by {@link JwksCachingJwtValidator}, which are the same as those Kafka's
+ * {@link org.apache.kafka.common.security.oauthbearer.BrokerJwtValidator BrokerJwtValidator} applies.
+ */
+final class ClaimValidation {
+
+    private ClaimValidation() {
+    }
+
+    /**
+     * Validates the name of a claim given in configuration.
+     * @param configName The name of the configuration property.
+     * @param claimName The claim name given for it.
+     * @return The claim name, trimmed.
+     * @throws ConfigException If the claim name is null, empty or only whitespace.
+     */
+    static String claimNameOverride(String configName, @Nullable String claimName) {
+        try {
+            return nonBlank(configName, claimName);
+        }
+        catch (JwtValidatorException e) {
+            throw new ConfigException(configName, claimName, e.getMessage());
+        }
+    }
+
+    /**
+     * Validates the scopes of a token.
+     * @param claimName The name of the scope claim.
+     * @param scopes The scopes, or null if the token has none.
+     * @return The scopes, each trimmed.
+     * @throws JwtValidatorException If any scope is null, empty or only whitespace, or a scope is repeated.
+     */
+    static Set<String> scopes(String claimName, @Nullable Collection<String> scopes) throws JwtValidatorException {
+        if (scopes == null) {
+            return Set.of();
+        }
+        Set<String> validated = new HashSet<>();
+        for (String scope : scopes) {
+            String trimmed = nonBlank(claimName, scope);
+            if (!validated.add(trimmed)) {
+                throw new JwtValidatorException("%s value must not contain duplicates - %s already present".formatted(claimName, trimmed));
+            }
+        }
+        return Collections.unmodifiableSet(validated);
+    }
+
+    /**
+     * Validates the expiration time of a token.
+     * @param claimName The name of the expiration claim.
+     * @param expirationMs The expiration time, in milliseconds since the epoch.
+     * @return The expiration time.
+     * @throws JwtValidatorException If the expiration time is missing or negative.
+     */
+    static long expiration(String claimName, @Nullable Long expirationMs) throws JwtValidatorException {
+        if (expirationMs == null) {
+            throw new JwtValidatorException("%s value must be non-null".formatted(claimName));
+        }
+        if (expirationMs < 0) {
+            throw new JwtValidatorException("%s value must be non-negative; value given was \"%s\"".formatted(claimName, expirationMs));
+        }
+        return expirationMs;
+    }
+
+    /**
+     * Validates the subject of a token.
+     * @param claimName The name of the subject claim.
+     * @param subject The subject.
+     * @return The subject, trimmed.
+     * @throws JwtValidatorException If the subject is null, empty or only whitespace.
+     */
+    static String subject(String claimName, @Nullable String subject) throws JwtValidatorException {
+        return nonBlank(claimName, subject);
+    }
+
+    /**
+     * Validates the issue time of a token.
+     * @param claimName The name of the issued-at claim.
+     * @param issuedAtMs The issue time, in milliseconds since the epoch, or null if the token has none.
+     * @return The issue time.
+     * @throws JwtValidatorException If the issue time is negative.
+     */
+    @Nullable
+    static Long issuedAt(String claimName, @Nullable Long issuedAtMs) throws JwtValidatorException {
+        if (issuedAtMs != null && issuedAtMs < 0) {
+            throw new JwtValidatorException("%s value must be null or non-negative; value given was \"%s\"".formatted(claimName, issuedAtMs));
+        }
+        return issuedAtMs;
+    }
+
+    private static String nonBlank(String name, @Nullable String value) throws JwtValidatorException {
+        if (value == null) {
+            throw new JwtValidatorException("%s value must be non-null".formatted(name));
+        }
+        if (value.isEmpty()) {
+            throw new JwtValidatorException("%s value must be non-empty".formatted(name));
+        }
+        String trimmed = value.trim();
+        if (trimmed.isEmpty()) {
+            throw new JwtValidatorException("%s value must not contain only whitespace".formatted(name));
+        }
+        return trimmed;
+    }
+}
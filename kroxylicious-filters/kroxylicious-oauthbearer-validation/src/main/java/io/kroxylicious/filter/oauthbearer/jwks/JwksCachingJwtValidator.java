@@ -0,0 +1,137 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.filter.oauthbearer.jwks;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.security.auth.login.AppConfigurationEntry;
+
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.common.config.SaslConfigs;
+import org.apache.kafka.common.security.oauthbearer.BrokerJwtValidator;
+import org.apache.kafka.common.security.oauthbearer.JwtValidator;
+import org.apache.kafka.common.security.oauthbearer.JwtValidatorException;
+import org.apache.kafka.common.security.oauthbearer.OAuthBearerToken;
+import org.jose4j.jwa.AlgorithmConstraints;
+import org.jose4j.jwt.JwtClaims;
+import org.jose4j.jwt.MalformedClaimException;
+import org.jose4j.jwt.NumericDate;
+import org.jose4j.jwt.consumer.InvalidJwtException;
+import org.jose4j.jwt.consumer.JwtConsumer;
+import org.jose4j.jwt.consumer.JwtConsumerBuilder;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+/**
+ * <p>A {@link JwtValidator} which verifies token signatures using the keys held in a {@link JwksKeyCache},
+ * rather than retrieving the JWKS itself.</p>
+ *
+ * <p>The claims are validated in the same way as Kafka's {@link BrokerJwtValidator}, using only Kafka's public API.
+ * The cache must be provided in the configuration under {@link JwksKeyCache#CONFIG_KEY}.</p>
+ */
+public class JwksCachingJwtValidator implements JwtValidator {
+
+    @FunctionalInterface
+    private interface ClaimSupplier<T> {
+        @Nullable
+        T get() throws MalformedClaimException;
+    }
+
+    private @Nullable JwtConsumer jwtConsumer;
+    private String scopeClaimName = SaslConfigs.DEFAULT_SASL_OAUTHBEARER_SCOPE_CLAIM_NAME;
+    private String subClaimName = SaslConfigs.DEFAULT_SASL_OAUTHBEARER_SUB_CLAIM_NAME;
+
+    @Override
+    public void configure(Map<String, ?> configs, String saslMechanism, List<AppConfigurationEntry> jaasConfigEntries) {
+        if (!(configs.get(JwksKeyCache.CONFIG_KEY) instanceof JwksKeyCache keyCache)) {
+            throw new ConfigException(JwksKeyCache.CONFIG_KEY + " must be a " + JwksKeyCache.class.getName());
+        }
+        int clockSkewSeconds = configs.get(SaslConfigs.SASL_OAUTHBEARER_CLOCK_SKEW_SECONDS) instanceof Number clockSkew
+                ? clockSkew.intValue()
+                : SaslConfigs.DEFAULT_SASL_OAUTHBEARER_CLOCK_SKEW_SECONDS;
+        if (configs.get(SaslConfigs.SASL_OAUTHBEARER_SCOPE_CLAIM_NAME) instanceof String scope) {
+            scopeClaimName = ClaimValidation.claimNameOverride(SaslConfigs.SASL_OAUTHBEARER_SCOPE_CLAIM_NAME, scope);
+        }
+        if (configs.get(SaslConfigs.SASL_OAUTHBEARER_SUB_CLAIM_NAME) instanceof String sub) {
+            subClaimName = ClaimValidation.claimNameOverride(SaslConfigs.SASL_OAUTHBEARER_SUB_CLAIM_NAME, sub);
+        }
+
+        JwtConsumerBuilder builder = new JwtConsumerBuilder()
+                .setAllowedClockSkewInSeconds(clockSkewSeconds);
+        if (configs.get(SaslConfigs.SASL_OAUTHBEARER_EXPECTED_AUDIENCE) instanceof Collection<?> audience && !audience.isEmpty()) {
+            builder.setExpectedAudience(audience.stream().map(String::valueOf).toArray(String[]::new));
+        }
+        if (configs.get(SaslConfigs.SASL_OAUTHBEARER_EXPECTED_ISSUER) instanceof String issuer) {
+            builder.setExpectedIssuer(issuer);
+        }
+        jwtConsumer = builder
+                .setJwsAlgorithmConstraints(AlgorithmConstraints.DISALLOW_NONE)
+                .setRequireExpirationTime()
+                .setRequireIssuedAt()
+                .setVerificationKeyResolver(keyCache)
+                .build();
+    }
+
+    @Override
+    public OAuthBearerToken validate(String accessToken) throws JwtValidatorException {
+        if (jwtConsumer == null) {
+            throw new IllegalStateException("JwksCachingJwtValidator has not been configured");
+        }
+        JwtClaims claims;
+        try {
+            claims = jwtConsumer.process(serializedJwt(accessToken)).getJwtClaims();
+        }
+        catch (InvalidJwtException e) {
+            throw new JwtValidatorException("Could not validate the access token: %s".formatted(e.getMessage()), e);
+        }
+
+        Object scopeRaw = getClaim(() -> claims.getClaimValue(scopeClaimName), scopeClaimName);
+        NumericDate expirationRaw = getClaim(claims::getExpirationTime, "exp");
+        String subRaw = getClaim(() -> claims.getStringClaimValue(subClaimName), subClaimName);
+        NumericDate issuedAtRaw = getClaim(claims::getIssuedAt, "iat");
+
+        Set<String> scopes = ClaimValidation.scopes(scopeClaimName, scopes(scopeRaw));
+        long expiration = ClaimValidation.expiration("exp", expirationRaw == null ? null : expirationRaw.getValueInMillis());
+        String sub = ClaimValidation.subject(subClaimName, subRaw);
+        Long issuedAt = ClaimValidation.issuedAt("iat", issuedAtRaw == null ? null : issuedAtRaw.getValueInMillis());
+        return new ValidatedToken(accessToken, scopes, expiration, sub, issuedAt);
+    }
+
+    private static String serializedJwt(@Nullable String accessToken) throws JwtValidatorException {
+        if (accessToken == null || accessToken.isBlank()) {
+            throw new JwtValidatorException("Empty JWT provided; expected three sections (header, payload, and signature)");
+        }
+        String token = accessToken.trim();
+        if (token.split("\\.", -1).length != 3) {
+            throw new JwtValidatorException("Malformed JWT provided; expected three sections (header, payload, and signature)");
+        }
+        return token;
+    }
+
+    private static Collection<String> scopes(@Nullable Object scopeRaw) {
+        if (scopeRaw instanceof String scope) {
+            return List.of(scope);
+        }
+        else if (scopeRaw instanceof Collection<?> scopes) {
+            return scopes.stream().map(String::valueOf).toList();
+        }
+        return Set.of();
+    }
+
+    @Nullable
+    private static <T> T getClaim(ClaimSupplier<T> supplier, String claimName) throws JwtValidatorException {
+        try {
+            return supplier.get();
+        }
+        catch (MalformedClaimException e) {
+            throw new JwtValidatorException("Could not extract the '%s' claim from the access token".formatted(claimName), e);
+        }
+    }
+}
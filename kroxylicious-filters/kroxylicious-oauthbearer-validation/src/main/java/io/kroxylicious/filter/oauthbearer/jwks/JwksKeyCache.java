@@ -0,0 +1,302 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.filter.oauthbearer.jwks;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.Key;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.jose4j.jwk.JsonWebKey;
+import org.jose4j.jwk.JsonWebKeySet;
+import org.jose4j.jwk.VerificationJwkSelector;
+import org.jose4j.jws.JsonWebSignature;
+import org.jose4j.jwx.JsonWebStructure;
+import org.jose4j.keys.resolvers.VerificationKeyResolver;
+import org.jose4j.lang.JoseException;
+import org.jose4j.lang.UnresolvableKeyException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.kroxylicious.filter.oauthbearer.sasl.BackoffStrategy;
+import io.kroxylicious.proxy.tag.VisibleForTesting;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+/**
+ * <p>A cache of the JSON Web Key Set (JWKS) published by an OAuth 2 authorization server, shared by all the
+ * filter instances created by one OauthBearerValidation filter definition.</p>
+ *
+ * <p>The key set is retrieved asynchronously and is refreshed in the background ahead of it becoming stale:
+ * after the configured refresh interval, or sooner if the endpoint's {@code Cache-Control: max-age} says so.
+ * If a retrieval fails the previous keys remain in use, and the retrieval is retried with an exponential backoff.</p>
+ *
+ * <p>When a token is signed with a key that is not in the cache, for example because the authorization server
+ * has just rotated its keys, the key set is retrieved once more before the token is rejected. Such retrievals
+ * happen at most once per retry backoff interval, so a stream of tokens with unknown key ids cannot
+ * flood the endpoint. Because {@link #resolveKey(JsonWebSignature, List)} may wait for that retrieval,
+ * it must only be called on a validation worker thread, never on a filter dispatch thread.</p>
+ */
+public class JwksKeyCache implements VerificationKeyResolver, AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(JwksKeyCache.class);
+
+    /**
+     * The key under which the cache is passed to {@link JwksCachingJwtValidator} in the SASL configuration.
+     */
+    public static final String CONFIG_KEY = "io.kroxylicious.filter.oauthbearer.jwks.key.cache";
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(10);
+    private static final Pattern MAX_AGE = Pattern.compile("max-age=(\\d+)");
+
+    /**
+     * The fraction of the {@code max-age} after which the key set is refreshed,
+     * so that the refreshed keys are in place before the cached ones are stale.
+     */
+    private static final double REFRESH_AHEAD_FACTOR = 0.8;
+
+    private record Retrieved(List<JsonWebKey> keys, @Nullable Duration maxAge) {}
+
+    private final URI endpoint;
+    private final Duration refreshInterval;
+    private final long minUnknownKeyRefreshIntervalNanos;
+    private final BackoffStrategy backoffStrategy;
+    private final HttpClient httpClient;
+    private final ScheduledExecutorService scheduler;
+    private final AtomicReference<CompletableFuture<List<JsonWebKey>>> inFlight = new AtomicReference<>();
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile List<JsonWebKey> keys = List.of();
+    private volatile long lastRefreshNanos;
+    private @Nullable ScheduledFuture<?> nextRefresh;
+    private boolean closed;
+
+    /**
+     * Creates a cache. No keys are retrieved until the cache is {@link #start() started}.
+     * @param endpoint The HTTP(S) URL of the JWKS endpoint
+     * @param refreshInterval The maximum interval between retrievals of the key set
+     * @param retryBackoff The minimum interval between retrievals prompted by tokens signed with an unknown key
+     * @param backoffStrategy The backoff between retries of failed retrievals
+     */
+    public JwksKeyCache(URI endpoint,
+                        Duration refreshInterval,
+                        Duration retryBackoff,
+                        BackoffStrategy backoffStrategy) {
+        this.endpoint = endpoint;
+        this.refreshInterval = refreshInterval;
+        this.minUnknownKeyRefreshIntervalNanos = retryBackoff.toNanos();
+        this.backoffStrategy = backoffStrategy;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(REQUEST_TIMEOUT)
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            var thread = new Thread(r, "jwks-key-cache-refresh");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.lastRefreshNanos = System.nanoTime() - minUnknownKeyRefreshIntervalNanos;
+    }
+
+    /**
+     * Starts the initial retrieval of the key set. This method does not wait for it to complete.
+     */
+    public void start() {
+        // failures are logged and retried by the refresh itself
+        var unused = refresh();
+    }
+
+    /**
+     * Returns the keys currently in the cache.
+     * @return the keys
+     */
+    @VisibleForTesting
+    List<JsonWebKey> keys() {
+        return keys;
+    }
+
+    /**
+     * Retrieves the key set, unless a retrieval is already in progress.
+     * @return a future completed with the retrieved keys, or exceptionally if the retrieval fails.
+     */
+    @VisibleForTesting
+    CompletableFuture<List<JsonWebKey>> refresh() {
+        var refresh = new CompletableFuture<List<JsonWebKey>>();
+        var existing = inFlight.compareAndExchange(null, refresh);
+        if (existing != null) {
+            return existing;
+        }
+        lastRefreshNanos = System.nanoTime();
+        var request = HttpRequest.newBuilder(endpoint)
+                .timeout(REQUEST_TIMEOUT)
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+        try {
+            var unused = httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                    .thenApply(this::parse)
+                    .whenComplete((retrieved, error) -> onRefreshComplete(refresh, retrieved, error));
+        }
+        catch (RuntimeException e) {
+            onRefreshComplete(refresh, null, e);
+        }
+        return refresh;
+    }
+
+    private Retrieved parse(HttpResponse<String> response) {
+        if (response.statusCode() != 200) {
+            throw new CompletionException(new IOException("JWKS endpoint responded with HTTP status " + response.statusCode()));
+        }
+        try {
+            List<JsonWebKey> retrieved = List.copyOf(new JsonWebKeySet(response.body()).getJsonWebKeys());
+            Duration maxAge = response.headers().firstValue("Cache-Control")
+                    .map(MAX_AGE::matcher)
+                    .filter(Matcher::find)
+                    .map(matcher -> Duration.ofSeconds(Long.parseLong(matcher.group(1))))
+                    .orElse(null);
+            return new Retrieved(retrieved, maxAge);
+        }
+        catch (JoseException | NumberFormatException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private void onRefreshComplete(CompletableFuture<List<JsonWebKey>> refresh, @Nullable Retrieved retrieved, @Nullable Throwable error) {
+        Duration delay;
+        if (retrieved != null) {
+            consecutiveFailures.set(0);
+            keys = retrieved.keys();
+            delay = refreshAheadDelay(retrieved.maxAge());
+            LOGGER.atDebug()
+                    .addKeyValue("endpoint", endpoint)
+                    .addKeyValue("keys", retrieved.keys().size())
+                    .log("Retrieved JWKS");
+        }
+        else {
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            delay = backoffStrategy.getDelay(consecutiveFailures.incrementAndGet());
+            LOGGER.atWarn()
+                    .addKeyValue("endpoint", endpoint)
+                    .addKeyValue("retryDelayMs", delay.toMillis())
+                    .addKeyValue("error", cause == null ? null : cause.toString())
+                    .log("Unable to retrieve JWKS; the previously retrieved keys remain in use");
+        }
+        // clear the in-flight retrieval before completing it, so a waiter that still cannot find its key may start another
+        inFlight.set(null);
+        scheduleRefresh(delay);
+        if (retrieved != null) {
+            refresh.complete(retrieved.keys());
+        }
+        else {
+            refresh.completeExceptionally(error == null ? new IOException("Unable to retrieve JWKS") : error);
+        }
+    }
+
+    private Duration refreshAheadDelay(@Nullable Duration maxAge) {
+        if (maxAge == null) {
+            return refreshInterval;
+        }
+        Duration refreshAhead = Duration.ofMillis((long) (maxAge.toMillis() * REFRESH_AHEAD_FACTOR));
+        return refreshAhead.compareTo(refreshInterval) < 0 ? refreshAhead : refreshInterval;
+    }
+
+    private synchronized void scheduleRefresh(Duration delay) {
+        if (closed) {
+            return;
+        }
+        if (nextRefresh != null) {
+            nextRefresh.cancel(false);
+        }
+        try {
+            // the refresh's own outcome is handled by onRefreshComplete, and the scheduled future is cancelled on close
+            nextRefresh = scheduler.schedule(() -> {
+                var unused = refresh();
+            }, delay.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        catch (RejectedExecutionException e) {
+            // the cache is being closed
+            nextRefresh = null;
+        }
+    }
+
+    @Override
+    public Key resolveKey(JsonWebSignature jws, List<JsonWebStructure> nestingContext) throws UnresolvableKeyException {
+        Key key = select(jws, keys);
+        if (key != null) {
+            return key;
+        }
+        // Either the keys have not been retrieved yet, or the authorization server has rotated its keys since they were.
+        CompletableFuture<List<JsonWebKey>> pending = inFlight.get();
+        if (pending == null && System.nanoTime() - lastRefreshNanos >= minUnknownKeyRefreshIntervalNanos) {
+            pending = refresh();
+        }
+        if (pending != null) {
+            try {
+                key = select(jws, pending.get(REQUEST_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS));
+            }
+            catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new UnresolvableKeyException("Interrupted while retrieving JWKS from " + endpoint, e);
+            }
+            catch (ExecutionException | TimeoutException e) {
+                throw new UnresolvableKeyException("Unable to retrieve JWKS from " + endpoint, e);
+            }
+        }
+        if (key == null) {
+            throw new UnresolvableKeyException("No key in the JWKS retrieved from %s matches the key id '%s' of the token"
+                    .formatted(endpoint, jws.getKeyIdHeaderValue()));
+        }
+        return key;
+    }
+
+    private @Nullable Key select(JsonWebSignature jws, List<JsonWebKey> candidates) throws UnresolvableKeyException {
+        if (candidates.isEmpty()) {
+            return null;
+        }
+        try {
+            JsonWebKey selected = new VerificationJwkSelector().select(jws, candidates);
+            return selected == null ? null : selected.getKey();
+        }
+        catch (JoseException e) {
+            throw new UnresolvableKeyException("Unable to select a key from the JWKS retrieved from " + endpoint, e);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        closed = true;
+        if (nextRefresh != null) {
+            nextRefresh.cancel(false);
+        }
+        scheduler.shutdownNow();
+        httpClient.shutdownNow();
+    }
+
+    @Override
+    public String toString() {
+        return "JwksKeyCache{" +
+                "endpoint=" + endpoint +
+                ", keys=" + keys.size() +
+                '}';
+    }
+}
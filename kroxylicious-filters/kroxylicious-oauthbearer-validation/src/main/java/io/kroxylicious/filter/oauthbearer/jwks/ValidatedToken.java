@@ -0,0 +1,38 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.filter.oauthbearer.jwks;
+
+import java.util.Set;
+
+import org.apache.kafka.common.security.oauthbearer.OAuthBearerToken;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+/**
+ * An access token that {@link JwksCachingJwtValidator} has validated.
+ * @param value The access token.
+ * @param scope The token's scopes.
+ * @param lifetimeMs The token's expiration time, in milliseconds since the epoch.
+ * @param principalName The token's subject.
+ * @param startTimeMs The token's issue time, in milliseconds since the epoch, or null if the token has none.
+ */
+record ValidatedToken(String value,
+                      Set<String> scope,
+                      long lifetimeMs,
+                      String principalName,
+                      @Nullable Long startTimeMs)
+        implements OAuthBearerToken {
+
+    @Override
+    public String toString() {
+        // the token value is a credential, so is left out
+        return "ValidatedToken[scope=" + scope
+                + ", lifetimeMs=" + lifetimeMs
+                + ", principalName=" + principalName
+                + ", startTimeMs=" + startTimeMs + "]";
+    }
+}
@@ -9,7 +9,11 @@ package io.kroxylicious.filter.oauthbearer;
 import java.nio.charset.StandardCharsets;
 import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
-import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.security.sasl.Sasl;
@@ -31,12 +35,16 @@ import org.mockito.Mock;
 import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.LoadingCache;
 
 import io.kroxylicious.filter.oauthbearer.sasl.BackoffStrategy;
 import io.kroxylicious.proxy.authentication.Subject;
 import io.kroxylicious.proxy.authentication.User;
 import io.kroxylicious.proxy.filter.FilterContext;
+import io.kroxylicious.proxy.filter.FilterDispatchExecutor;
+import io.kroxylicious.proxy.filter.RequestFilterResult;
 import io.kroxylicious.proxy.filter.RequestFilterResultBuilder;
 import io.kroxylicious.proxy.filter.filterresultbuilder.CloseOrTerminalStage;
 import io.kroxylicious.proxy.filter.filterresultbuilder.TerminalStage;
@@ -49,15 +57,19 @@ import static org.apache.kafka.common.security.oauthbearer.OAuthBearerLoginModul
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
 import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.assertArg;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mock.Strictness.LENIENT;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
@@ -76,8 +88,8 @@ class OauthBearerValidationFilterTest {
     @Mock
     private SharedOauthBearerValidationContext sharedContext;
 
-    @Mock
-    private ScheduledExecutorService executor;
+    @Mock(strictness = LENIENT)
+    private FilterDispatchExecutor executor;
 
     @Mock
     private LoadingCache<String, AtomicInteger> rateLimiter;
@@ -91,13 +103,28 @@ class OauthBearerValidationFilterTest {
     @Mock
     private SaslServer saslServer;
 
+    @Mock(strictness = LENIENT)
+    private ExecutorService validationExecutor;
+
+    private Cache<String, CachedValidation> validatedTokens;
+
     private OauthBearerValidationFilter filter;
 
     @BeforeEach
     void init() {
+        validatedTokens = Caffeine.newBuilder().build();
+        // run validations synchronously, so that the tests can observe their outcomes
+        doAnswer(invocation -> {
+            invocation.<Runnable> getArgument(0).run();
+            return null;
+        }).when(validationExecutor).execute(any());
         when(sharedContext.rateLimiter()).thenReturn(rateLimiter);
         when(sharedContext.oauthHandler()).thenReturn(oauthHandler);
         when(sharedContext.backoffStrategy()).thenReturn(strategy);
+        when(sharedContext.validationExecutor()).thenReturn(validationExecutor);
+        when(sharedContext.validatedTokens()).thenReturn(validatedTokens);
+        // and complete them on the calling thread, as if it were the filter dispatch thread
+        when(executor.completeOnFilterDispatchThread(any())).thenAnswer(invocation -> invocation.getArgument(0));
         filter = new OauthBearerValidationFilter(executor, sharedContext);
     }
 
@@ -130,7 +157,7 @@ class OauthBearerValidationFilterTest {
         // then
         verify(context).forwardRequest(any(RequestHeaderData.class), eq(givenHandshakeRequest));
         verify(context).forwardRequest(any(RequestHeaderData.class), eq(givenAuthenticateRequest));
-        verifyNoInteractions(executor);
+        verify(executor, never()).schedule(any(Runnable.class), anyLong(), any());
     }
 
     @Test
@@ -354,6 +381,56 @@ class OauthBearerValidationFilterTest {
         verify(context).clientSaslAuthenticationFailure(OAUTHBEARER_MECHANISM, null, saslException);
     }
 
+    @Test
+    void mustNotifyValidationFailureOnFilterDispatchThread() throws Exception {
+        // given
+        ExecutorService worker = Executors.newSingleThreadExecutor(r -> new Thread(r, "validation-worker"));
+        ExecutorService dispatchThread = Executors.newSingleThreadExecutor(r -> new Thread(r, "filter-dispatch"));
+        try {
+            doAnswer(invocation -> {
+                worker.execute(invocation.getArgument(0));
+                return null;
+            }).when(validationExecutor).execute(any());
+            when(executor.completeOnFilterDispatchThread(any())).thenAnswer(invocation -> invocation.<CompletionStage<?>> getArgument(0)
+                    .whenCompleteAsync((value, error) -> {
+                    }, dispatchThread));
+            byte[] givenBytes = "just_to_compare".getBytes(StandardCharsets.UTF_8);
+            SaslAuthenticateRequestData givenAuthenticateRequest = new SaslAuthenticateRequestData().setAuthBytes(givenBytes);
+            SaslAuthenticationException authenticationFailed = new SaslAuthenticationException("Authentication failed");
+            when(saslServer.evaluateResponse(givenBytes)).thenThrow(authenticationFailed);
+            when(rateLimiter.get(OauthBearerValidationFilter.createCacheKey(givenBytes))).thenReturn(new AtomicInteger(0));
+            when(strategy.getDelay(0)).thenReturn(Duration.ZERO);
+            var terminalStage = mock(TerminalStage.class);
+            when(terminalStage.completed()).thenReturn(CompletableFuture.completedFuture(mock(RequestFilterResult.class)));
+            var closeOrTerminalStage = mock(CloseOrTerminalStage.class);
+            when(closeOrTerminalStage.withCloseConnection()).thenReturn(terminalStage);
+            when(builder.shortCircuitResponse(any())).thenReturn(closeOrTerminalStage);
+            when(context.requestFilterResultBuilder()).thenReturn(builder);
+            try (MockedStatic<Sasl> dummy = mockStatic(Sasl.class)) {
+                dummy.when(() -> Sasl.createSaslServer(OAUTHBEARER_MECHANISM, "kafka", null, null, oauthHandler))
+                        .thenReturn(saslServer);
+                filter.onSaslHandshakeRequest(SaslHandshakeRequestData.HIGHEST_SUPPORTED_VERSION, new RequestHeaderData(),
+                        new SaslHandshakeRequestData().setMechanism(OAUTHBEARER_MECHANISM), context);
+            }
+            var notifiedOn = new CompletableFuture<String>();
+            doAnswer(invocation -> notifiedOn.complete(Thread.currentThread().getName()))
+                    .when(context).clientSaslAuthenticationFailure(any(), any(), any());
+
+            // when
+            var result = filter.onSaslAuthenticateRequest(SaslAuthenticateRequestData.HIGHEST_SUPPORTED_VERSION, new RequestHeaderData(),
+                    givenAuthenticateRequest, context);
+
+            // then
+            assertThat(result).succeedsWithin(Duration.ofSeconds(5));
+            assertThat(notifiedOn).isCompletedWithValue("filter-dispatch");
+            verify(saslServer).evaluateResponse(givenBytes);
+        }
+        finally {
+            worker.shutdownNow();
+            dispatchThread.shutdownNow();
+        }
+    }
+
     @SuppressWarnings("unchecked")
     private void mockBuilder() {
         var closeOrTerminalStage = mock(CloseOrTerminalStage.class);
@@ -375,4 +452,102 @@ class OauthBearerValidationFilterTest {
             filter.onSaslHandshakeRequest(SaslHandshakeRequestData.HIGHEST_SUPPORTED_VERSION, new RequestHeaderData(), givenHandshakeRequest, context);
         }
     }
+
+    @Test
+    void mustValidateTokenOnValidationExecutor() throws Exception {
+        // given
+        byte[] givenBytes = "just_to_compare".getBytes(StandardCharsets.UTF_8);
+        SaslAuthenticateRequestData givenAuthenticateRequest = new SaslAuthenticateRequestData().setAuthBytes(givenBytes);
+        doNothing().when(validationExecutor).execute(any());
+        expectSaslHandshakeWithoutValidation(givenBytes);
+
+        // when
+        filter.onSaslAuthenticateRequest(SaslAuthenticateRequestData.HIGHEST_SUPPORTED_VERSION, new RequestHeaderData(), givenAuthenticateRequest, context);
+
+        // then
+        verify(validationExecutor).execute(any());
+        verify(saslServer, times(0)).evaluateResponse(any());
+        verify(context, times(0)).forwardRequest(any(RequestHeaderData.class), eq(givenAuthenticateRequest));
+    }
+
+    @Test
+    void mustShortCircuitWhenValidationIsRejected() throws Exception {
+        // given
+        byte[] givenBytes = "just_to_compare".getBytes(StandardCharsets.UTF_8);
+        SaslAuthenticateRequestData givenAuthenticateRequest = new SaslAuthenticateRequestData().setAuthBytes(givenBytes);
+        RejectedExecutionException rejected = new RejectedExecutionException("queue full");
+        doThrow(rejected).when(validationExecutor).execute(any());
+        mockBuilder();
+        expectSaslHandshakeWithoutValidation(givenBytes);
+
+        // when
+        filter.onSaslAuthenticateRequest(SaslAuthenticateRequestData.HIGHEST_SUPPORTED_VERSION, new RequestHeaderData(), givenAuthenticateRequest, context);
+
+        // then
+        verify(builder).shortCircuitResponse(assertArg(actualResponse -> {
+            assertThat(actualResponse).isInstanceOf(SaslAuthenticateResponseData.class);
+            assertThat(((SaslAuthenticateResponseData) actualResponse).errorCode()).isEqualTo(UNKNOWN_SERVER_ERROR.code());
+        }));
+        verify(context).clientSaslAuthenticationFailure(OAUTHBEARER_MECHANISM, null, rejected);
+    }
+
+    @Test
+    void mustNotValidateAgainTokenWhichHasAlreadyBeenValidated() throws Exception {
+        // given
+        byte[] givenBytes = "just_to_compare".getBytes(StandardCharsets.UTF_8);
+        SaslAuthenticateRequestData givenAuthenticateRequest = new SaslAuthenticateRequestData().setAuthBytes(givenBytes);
+        SaslAuthenticateResponseData givenAuthenticateResponse = new SaslAuthenticateResponseData();
+        when(saslServer.getAuthorizationID()).thenReturn(AUTHORIZED_ID);
+        when(saslServer.getNegotiatedProperty(OauthBearerValidationFilter.CREDENTIAL_LIFETIME_MS_SASL_NEGOTIATED_PROPERTY_KEY))
+                .thenReturn(System.currentTimeMillis() + 60_000L);
+        expectValidSaslHandshake(givenBytes);
+        filter.onSaslAuthenticateRequest(SaslAuthenticateRequestData.HIGHEST_SUPPORTED_VERSION, new RequestHeaderData(), givenAuthenticateRequest, context);
+
+        // when
+        var secondFilter = new OauthBearerValidationFilter(executor, sharedContext);
+        handshake(secondFilter);
+        secondFilter.onSaslAuthenticateRequest(SaslAuthenticateRequestData.HIGHEST_SUPPORTED_VERSION, new RequestHeaderData(), givenAuthenticateRequest, context);
+        secondFilter.onSaslAuthenticateResponse(SaslAuthenticateResponseData.HIGHEST_SUPPORTED_VERSION, new ResponseHeaderData(), givenAuthenticateResponse, context);
+
+        // then
+        verify(saslServer, times(1)).evaluateResponse(givenBytes);
+        verify(context, times(2)).forwardRequest(any(RequestHeaderData.class), eq(givenAuthenticateRequest));
+        verify(context).clientSaslAuthenticationSuccess(OAUTHBEARER_MECHANISM, new Subject(new User(AUTHORIZED_ID)));
+    }
+
+    @Test
+    void mustValidateAgainTokenWhichHasExpired() throws Exception {
+        // given
+        byte[] givenBytes = "just_to_compare".getBytes(StandardCharsets.UTF_8);
+        SaslAuthenticateRequestData givenAuthenticateRequest = new SaslAuthenticateRequestData().setAuthBytes(givenBytes);
+        when(saslServer.getAuthorizationID()).thenReturn(AUTHORIZED_ID);
+        when(saslServer.getNegotiatedProperty(OauthBearerValidationFilter.CREDENTIAL_LIFETIME_MS_SASL_NEGOTIATED_PROPERTY_KEY))
+                .thenReturn(System.currentTimeMillis() - 1L);
+        expectValidSaslHandshake(givenBytes);
+        filter.onSaslAuthenticateRequest(SaslAuthenticateRequestData.HIGHEST_SUPPORTED_VERSION, new RequestHeaderData(), givenAuthenticateRequest, context);
+
+        // when
+        var secondFilter = new OauthBearerValidationFilter(executor, sharedContext);
+        handshake(secondFilter);
+        secondFilter.onSaslAuthenticateRequest(SaslAuthenticateRequestData.HIGHEST_SUPPORTED_VERSION, new RequestHeaderData(), givenAuthenticateRequest, context);
+
+        // then
+        verify(saslServer, times(2)).evaluateResponse(givenBytes);
+    }
+
+    private void expectSaslHandshakeWithoutValidation(byte[] givenBytes) throws NoSuchAlgorithmException {
+        String digest = OauthBearerValidationFilter.createCacheKey(givenBytes);
+        when(rateLimiter.get(digest)).thenReturn(new AtomicInteger(0));
+        when(strategy.getDelay(0)).thenReturn(Duration.ZERO);
+        handshake(filter);
+    }
+
+    private void handshake(OauthBearerValidationFilter target) {
+        try (MockedStatic<Sasl> dummy = mockStatic(Sasl.class)) {
+            dummy.when(() -> Sasl.createSaslServer(OAUTHBEARER_MECHANISM, "kafka", null, null, oauthHandler))
+                    .thenReturn(saslServer);
+            target.onSaslHandshakeRequest(SaslHandshakeRequestData.HIGHEST_SUPPORTED_VERSION, new RequestHeaderData(),
+                    new SaslHandshakeRequestData().setMechanism(OAUTHBEARER_MECHANISM), context);
+        }
+    }
 }
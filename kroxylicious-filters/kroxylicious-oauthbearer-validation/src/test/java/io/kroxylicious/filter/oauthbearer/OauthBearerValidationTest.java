@@ -30,11 +30,17 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.dataformat.yaml.YAMLFactory;
 
 import io.kroxylicious.filter.oauthbearer.OauthBearerValidation.Config;
+import io.kroxylicious.filter.oauthbearer.jwks.JwksCachingJwtValidator;
+import io.kroxylicious.filter.oauthbearer.jwks.JwksKeyCache;
 import io.kroxylicious.proxy.filter.FilterDispatchExecutor;
 import io.kroxylicious.proxy.filter.FilterFactoryContext;
+import io.kroxylicious.proxy.plugin.PluginConfigurationException;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
 
 import static io.kroxylicious.filter.oauthbearer.OauthBearerValidation.ALLOWED_SASL_OAUTHBEARER_URLS_CONFIG;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.assertArg;
 import static org.mockito.ArgumentMatchers.eq;
@@ -134,6 +140,61 @@ class OauthBearerValidationTest {
                 anyList());
         assertThat(filter).isNotNull();
         assertThat(config.authenticateBackOffMaxMs()).isEqualTo(10000);
+        assertThat(sharedContext.jwksKeyCache()).isNull();
+        oauthBearerValidation.close(sharedContext);
+    }
+
+    @Test
+    void mustShareJwksKeyCacheWhenCachingValidatorConfigured() {
+        // given
+        OauthBearerValidation oauthBearerValidation = new OauthBearerValidation(callbackHandler);
+        Config config = defaultConfig(URI.create("https://jwks.endpoint"), JwksCachingJwtValidator.class.getName());
+
+        // when
+        SharedOauthBearerValidationContext sharedContext = oauthBearerValidation.initialize(ffc, config);
+
+        // then
+        verify(callbackHandler).configure(
+                assertArg(configMap -> {
+                    assertThat(configMap.get(SaslConfigs.SASL_OAUTHBEARER_JWT_VALIDATOR_CLASS)).isEqualTo(JwksCachingJwtValidator.class.getName());
+                    assertThat(configMap.get(JwksKeyCache.CONFIG_KEY)).isNotNull().isSameAs(sharedContext.jwksKeyCache());
+                }),
+                eq("OAUTHBEARER"),
+                anyList());
+        oauthBearerValidation.close(sharedContext);
+    }
+
+    @Test
+    void mustRejectCachingValidatorForFileJwks() {
+        // given
+        OauthBearerValidation oauthBearerValidation = new OauthBearerValidation(callbackHandler);
+        Config config = defaultConfig(URI.create("file:///etc/jwks.json"), JwksCachingJwtValidator.class.getName());
+
+        // when/then
+        assertThatThrownBy(() -> oauthBearerValidation.initialize(ffc, config))
+                .isInstanceOf(PluginConfigurationException.class)
+                .hasMessageContaining("http or https");
+        assertThat(System.getProperty(ALLOWED_SASL_OAUTHBEARER_URLS_CONFIG)).isNull();
+    }
+
+    @Test
+    void mustDefaultToKafkaValidatorForFileJwks() {
+        // given
+        OauthBearerValidation oauthBearerValidation = new OauthBearerValidation(callbackHandler);
+
+        // when
+        SharedOauthBearerValidationContext sharedContext = oauthBearerValidation.initialize(ffc, defaultConfig(URI.create("file:///etc/jwks.json")));
+
+        // then
+        verify(callbackHandler).configure(
+                assertArg(configMap -> {
+                    assertThat(configMap.get(SaslConfigs.SASL_OAUTHBEARER_JWT_VALIDATOR_CLASS)).isEqualTo(BrokerJwtValidator.class.getName());
+                    assertThat(configMap).doesNotContainKey(JwksKeyCache.CONFIG_KEY);
+                }),
+                eq("OAUTHBEARER"),
+                anyList());
+        assertThat(sharedContext.jwksKeyCache()).isNull();
+        oauthBearerValidation.close(sharedContext);
     }
 
     @Test
@@ -218,12 +279,17 @@ class OauthBearerValidationTest {
                     assertThat(configMap.get(SaslConfigs.SASL_OAUTHBEARER_SCOPE_CLAIM_NAME)).isEqualTo(SaslConfigs.DEFAULT_SASL_OAUTHBEARER_SCOPE_CLAIM_NAME);
                     assertThat(configMap.get(SaslConfigs.SASL_OAUTHBEARER_SUB_CLAIM_NAME)).isEqualTo(SaslConfigs.DEFAULT_SASL_OAUTHBEARER_SUB_CLAIM_NAME);
                     assertThat(configMap.get(SaslConfigs.SASL_OAUTHBEARER_JWT_VALIDATOR_CLASS)).isEqualTo(BrokerJwtValidator.class.getName());
+                    assertThat(configMap).doesNotContainKey(JwksKeyCache.CONFIG_KEY);
                 }),
                 eq("OAUTHBEARER"),
                 anyList());
         assertThat(filter).isNotNull();
         assertThat(sharedContext.config().authenticateBackOffMaxMs()).isEqualTo(60000);
         assertThat(sharedContext.config().authenticateCacheMaxSize()).isEqualTo(1000);
+        assertThat(sharedContext.config().validatedTokenCacheMaxSize()).isEqualTo(1000);
+        assertThat(sharedContext.config().validationThreads()).isEqualTo(Runtime.getRuntime().availableProcessors());
+        oauthBearerValidation.close(sharedContext);
+        assertThat(sharedContext.validationExecutor().isShutdown()).isTrue();
     }
 
     private Config defaultConfig() {
@@ -231,6 +297,10 @@ class OauthBearerValidationTest {
     }
 
     private Config defaultConfig(URI jwksEndpointUrl) {
+        return defaultConfig(jwksEndpointUrl, null);
+    }
+
+    private Config defaultConfig(URI jwksEndpointUrl, @Nullable String jwtValidatorClass) {
         return new Config(
                 jwksEndpointUrl,
                 null,
@@ -242,6 +312,6 @@ class OauthBearerValidationTest {
                 null,
                 null,
                 null,
-                null);
+                jwtValidatorClass);
     }
 }
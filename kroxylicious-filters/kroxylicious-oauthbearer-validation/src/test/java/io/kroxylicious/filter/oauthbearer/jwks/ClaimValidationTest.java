@@ -0,0 +1,116 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.filter.oauthbearer.jwks;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.common.config.SaslConfigs;
+import org.apache.kafka.common.security.oauthbearer.JwtValidatorException;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.NullSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ClaimValidationTest {
+
+    @Test
+    void shouldTrimClaimNameOverride() {
+        assertThat(ClaimValidation.claimNameOverride(SaslConfigs.SASL_OAUTHBEARER_SUB_CLAIM_NAME, " user ")).isEqualTo("user");
+    }
+
+    @ParameterizedTest
+    @NullSource
+    @ValueSource(strings = { "", "  " })
+    void shouldRejectBlankClaimNameOverride(String claimName) {
+        assertThatThrownBy(() -> ClaimValidation.claimNameOverride(SaslConfigs.SASL_OAUTHBEARER_SUB_CLAIM_NAME, claimName))
+                .isInstanceOf(ConfigException.class)
+                .hasMessageContaining(SaslConfigs.SASL_OAUTHBEARER_SUB_CLAIM_NAME);
+    }
+
+    @Test
+    void shouldTrimScopes() throws Exception {
+        assertThat(ClaimValidation.scopes("scope", List.of(" read", "write "))).containsExactlyInAnyOrder("read", "write");
+    }
+
+    @Test
+    void shouldAcceptMissingScopes() throws Exception {
+        assertThat(ClaimValidation.scopes("scope", null)).isEmpty();
+    }
+
+    @ParameterizedTest
+    @NullSource
+    @ValueSource(strings = { "", "  " })
+    void shouldRejectBlankScope(String scope) {
+        var scopes = Arrays.asList("read", scope);
+        assertThatThrownBy(() -> ClaimValidation.scopes("scope", scopes))
+                .isInstanceOf(JwtValidatorException.class)
+                .hasMessageStartingWith("scope value must");
+    }
+
+    @Test
+    void shouldRejectDuplicateScopes() {
+        var scopes = List.of("read", " read");
+        assertThatThrownBy(() -> ClaimValidation.scopes("scope", scopes))
+                .isInstanceOf(JwtValidatorException.class)
+                .hasMessage("scope value must not contain duplicates - read already present");
+    }
+
+    @Test
+    void shouldAcceptExpiration() throws Exception {
+        assertThat(ClaimValidation.expiration("exp", 1000L)).isEqualTo(1000L);
+    }
+
+    @Test
+    void shouldRejectMissingExpiration() {
+        assertThatThrownBy(() -> ClaimValidation.expiration("exp", null))
+                .isInstanceOf(JwtValidatorException.class)
+                .hasMessage("exp value must be non-null");
+    }
+
+    @Test
+    void shouldRejectNegativeExpiration() {
+        assertThatThrownBy(() -> ClaimValidation.expiration("exp", -1L))
+                .isInstanceOf(JwtValidatorException.class)
+                .hasMessage("exp value must be non-negative; value given was \"-1\"");
+    }
+
+    @Test
+    void shouldTrimSubject() throws Exception {
+        assertThat(ClaimValidation.subject("sub", " alice ")).isEqualTo("alice");
+    }
+
+    @ParameterizedTest
+    @NullSource
+    @ValueSource(strings = { "", "  " })
+    void shouldRejectBlankSubject(String subject) {
+        assertThatThrownBy(() -> ClaimValidation.subject("sub", subject))
+                .isInstanceOf(JwtValidatorException.class)
+                .hasMessageStartingWith("sub value must");
+    }
+
+    @Test
+    void shouldAcceptIssuedAt() throws Exception {
+        assertThat(ClaimValidation.issuedAt("iat", 1000L)).isEqualTo(1000L);
+    }
+
+    @Test
+    void shouldAcceptMissingIssuedAt() throws Exception {
+        assertThat(ClaimValidation.issuedAt("iat", null)).isNull();
+    }
+
+    @Test
+    void shouldRejectNegativeIssuedAt() {
+        assertThatThrownBy(() -> ClaimValidation.issuedAt("iat", -1L))
+                .isInstanceOf(JwtValidatorException.class)
+                .hasMessage("iat value must be null or non-negative; value given was \"-1\"");
+    }
+}
@@ -0,0 +1,279 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.filter.oauthbearer.jwks;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.apache.kafka.common.config.ConfigException;
+import org.apache.kafka.common.config.SaslConfigs;
+import org.apache.kafka.common.security.oauthbearer.JwtValidatorException;
+import org.apache.kafka.common.security.oauthbearer.OAuthBearerToken;
+import org.jose4j.jwk.RsaJsonWebKey;
+import org.jose4j.jws.AlgorithmIdentifiers;
+import org.jose4j.jws.JsonWebSignature;
+import org.jose4j.jwt.JwtClaims;
+import org.jose4j.lang.JoseException;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+
+import io.kroxylicious.filter.oauthbearer.sasl.ExponentialJitterBackoffStrategy;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.apache.kafka.common.security.oauthbearer.OAuthBearerLoginModule.OAUTHBEARER_MECHANISM;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class JwksCachingJwtValidatorTest {
+
+    private static final String ISSUER = "https://issuer.example";
+
+    private static WireMockServer server;
+    private static RsaJsonWebKey signingKey;
+    private static RsaJsonWebKey unpublishedKey;
+
+    private JwksKeyCache cache;
+    private Map<String, Object> configs;
+
+    @BeforeAll
+    static void beforeAll() throws JoseException {
+        server = new WireMockServer(wireMockConfig().dynamicPort());
+        server.start();
+        signingKey = JwksKeyCacheTest.rsaKey("signing");
+        unpublishedKey = JwksKeyCacheTest.rsaKey("unpublished");
+        server.stubFor(get(urlEqualTo("/jwks")).willReturn(aResponse()
+                .withHeader("Content-Type", "application/json")
+                .withBody(JwksKeyCacheTest.jwks(signingKey))));
+    }
+
+    @AfterAll
+    static void afterAll() {
+        server.stop();
+    }
+
+    @BeforeEach
+    void beforeEach() {
+        cache = new JwksKeyCache(URI.create(server.baseUrl() + "/jwks"),
+                Duration.ofHours(1),
+                Duration.ofHours(1),
+                new ExponentialJitterBackoffStrategy(Duration.ofMillis(50), Duration.ofMillis(200), 2d, new Random()));
+        cache.start();
+        configs = new HashMap<>();
+        configs.put(JwksKeyCache.CONFIG_KEY, cache);
+        configs.put(SaslConfigs.SASL_OAUTHBEARER_EXPECTED_ISSUER, ISSUER);
+    }
+
+    @AfterEach
+    void afterEach() {
+        cache.close();
+    }
+
+    private JwksCachingJwtValidator validator() {
+        var validator = new JwksCachingJwtValidator();
+        validator.configure(configs, OAUTHBEARER_MECHANISM, List.of());
+        return validator;
+    }
+
+    private static String token(RsaJsonWebKey key, String issuer) throws JoseException {
+        return token(key, claims(issuer));
+    }
+
+    private static JwtClaims claims(String issuer) {
+        var claims = new JwtClaims();
+        claims.setIssuer(issuer);
+        claims.setSubject("alice");
+        claims.setClaim("scope", "read write");
+        claims.setIssuedAtToNow();
+        claims.setExpirationTimeMinutesInTheFuture(5);
+        return claims;
+    }
+
+    private static String token(RsaJsonWebKey key, JwtClaims claims) throws JoseException {
+        var jws = new JsonWebSignature();
+        jws.setPayload(claims.toJson());
+        jws.setKey(key.getPrivateKey());
+        jws.setKeyIdHeaderValue(key.getKeyId());
+        jws.setAlgorithmHeaderValue(AlgorithmIdentifiers.RSA_USING_SHA256);
+        return jws.getCompactSerialization();
+    }
+
+    @Test
+    void shouldAcceptTokenSignedWithPublishedKey() throws Exception {
+        // Given
+        var validator = validator();
+        String accessToken = token(signingKey, ISSUER);
+
+        // When
+        OAuthBearerToken token = validator.validate(accessToken);
+
+        // Then
+        assertThat(token.principalName()).isEqualTo("alice");
+        assertThat(token.value()).isEqualTo(accessToken);
+        assertThat(token.scope()).containsExactly("read write");
+        assertThat(token.lifetimeMs()).isGreaterThan(System.currentTimeMillis());
+        assertThat(token.startTimeMs()).isNotNull();
+    }
+
+    @Test
+    void shouldRejectTokenSignedWithUnpublishedKey() throws Exception {
+        // Given
+        var validator = validator();
+        String accessToken = token(unpublishedKey, ISSUER);
+
+        // When/Then
+        assertThatThrownBy(() -> validator.validate(accessToken))
+                .isInstanceOf(JwtValidatorException.class)
+                .hasMessageContaining("Could not validate the access token");
+    }
+
+    @Test
+    void shouldRejectTokenFromUnexpectedIssuer() throws Exception {
+        // Given
+        var validator = validator();
+        String accessToken = token(signingKey, "https://other.example");
+
+        // When/Then
+        assertThatThrownBy(() -> validator.validate(accessToken))
+                .isInstanceOf(JwtValidatorException.class);
+    }
+
+    @Test
+    void shouldAcceptTokenForExpectedAudience() throws Exception {
+        // Given
+        configs.put(SaslConfigs.SASL_OAUTHBEARER_EXPECTED_AUDIENCE, List.of("kafka", "proxy"));
+        var validator = validator();
+        var claims = claims(ISSUER);
+        claims.setAudience("proxy");
+        String accessToken = token(signingKey, claims);
+
+        // When
+        OAuthBearerToken token = validator.validate(accessToken);
+
+        // Then
+        assertThat(token.principalName()).isEqualTo("alice");
+    }
+
+    @Test
+    void shouldRejectTokenForUnexpectedAudience() throws Exception {
+        // Given
+        configs.put(SaslConfigs.SASL_OAUTHBEARER_EXPECTED_AUDIENCE, List.of("kafka"));
+        var validator = validator();
+        var claims = claims(ISSUER);
+        claims.setAudience("other");
+        String accessToken = token(signingKey, claims);
+
+        // When/Then
+        assertThatThrownBy(() -> validator.validate(accessToken))
+                .isInstanceOf(JwtValidatorException.class)
+                .hasMessageContaining("Audience");
+    }
+
+    @Test
+    void shouldRejectTokenWithoutAudienceWhenOneIsExpected() throws Exception {
+        // Given
+        configs.put(SaslConfigs.SASL_OAUTHBEARER_EXPECTED_AUDIENCE, List.of("kafka"));
+        var validator = validator();
+        String accessToken = token(signingKey, ISSUER);
+
+        // When/Then
+        assertThatThrownBy(() -> validator.validate(accessToken))
+                .isInstanceOf(JwtValidatorException.class)
+                .hasMessageContaining("Audience");
+    }
+
+    @Test
+    void shouldRejectExpiredToken() throws Exception {
+        // Given
+        var validator = validator();
+        var claims = claims(ISSUER);
+        claims.setExpirationTimeMinutesInTheFuture(-10);
+        String accessToken = token(signingKey, claims);
+
+        // When/Then
+        assertThatThrownBy(() -> validator.validate(accessToken))
+                .isInstanceOf(JwtValidatorException.class)
+                .hasMessageContaining("no longer valid");
+    }
+
+    @Test
+    void shouldRejectTokenWithoutExpiration() throws Exception {
+        // Given
+        var validator = validator();
+        var claims = claims(ISSUER);
+        claims.unsetClaim("exp");
+        String accessToken = token(signingKey, claims);
+
+        // When/Then
+        assertThatThrownBy(() -> validator.validate(accessToken))
+                .isInstanceOf(JwtValidatorException.class)
+                .hasMessageContaining("Expiration Time");
+    }
+
+    @Test
+    void shouldRejectTokenNotYetValid() throws Exception {
+        // Given
+        var validator = validator();
+        var claims = claims(ISSUER);
+        claims.setNotBeforeMinutesInThePast(-3);
+        String accessToken = token(signingKey, claims);
+
+        // When/Then
+        assertThatThrownBy(() -> validator.validate(accessToken))
+                .isInstanceOf(JwtValidatorException.class)
+                .hasMessageContaining("not yet valid");
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "", "  ", "header.payload", "header.payload.signature.extra" })
+    void shouldRejectMalformedToken(String accessToken) {
+        // Given
+        var validator = validator();
+
+        // When/Then
+        assertThatThrownBy(() -> validator.validate(accessToken))
+                .isInstanceOf(JwtValidatorException.class)
+                .hasMessageContaining("expected three sections");
+    }
+
+    @Test
+    void shouldNotIncludeTokenValueInToString() throws Exception {
+        // Given
+        var validator = validator();
+        String accessToken = token(signingKey, ISSUER);
+
+        // When
+        OAuthBearerToken token = validator.validate(accessToken);
+
+        // Then
+        assertThat(token.toString()).contains("alice").doesNotContain(accessToken);
+    }
+
+    @Test
+    void shouldRequireKeyCache() {
+        // Given
+        var validator = new JwksCachingJwtValidator();
+        Map<String, Object> withoutCache = Map.of();
+
+        // When/Then
+        assertThatThrownBy(() -> validator.configure(withoutCache, OAUTHBEARER_MECHANISM, List.of()))
+                .isInstanceOf(ConfigException.class);
+    }
+}
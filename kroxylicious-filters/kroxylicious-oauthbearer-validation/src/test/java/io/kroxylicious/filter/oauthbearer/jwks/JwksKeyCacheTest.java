@@ -0,0 +1,257 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.filter.oauthbearer.jwks;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.List;
+import java.util.Random;
+
+import org.jose4j.jwk.JsonWebKey;
+import org.jose4j.jwk.JsonWebKeySet;
+import org.jose4j.jwk.RsaJsonWebKey;
+import org.jose4j.jwk.RsaJwkGenerator;
+import org.jose4j.jws.AlgorithmIdentifiers;
+import org.jose4j.jws.JsonWebSignature;
+import org.jose4j.lang.JoseException;
+import org.jose4j.lang.UnresolvableKeyException;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.github.tomakehurst.wiremock.WireMockServer;
+
+import io.kroxylicious.filter.oauthbearer.sasl.ExponentialJitterBackoffStrategy;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.aResponse;
+import static com.github.tomakehurst.wiremock.client.WireMock.get;
+import static com.github.tomakehurst.wiremock.client.WireMock.getRequestedFor;
+import static com.github.tomakehurst.wiremock.client.WireMock.urlEqualTo;
+import static com.github.tomakehurst.wiremock.core.WireMockConfiguration.wireMockConfig;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.awaitility.Awaitility.await;
+
+class JwksKeyCacheTest {
+
+    private static final String JWKS_PATH = "/jwks";
+    private static final Duration ONE_HOUR = Duration.ofHours(1);
+
+    private static WireMockServer server;
+    private static RsaJsonWebKey firstKey;
+    private static RsaJsonWebKey secondKey;
+
+    private JwksKeyCache cache;
+
+    @BeforeAll
+    static void beforeAll() throws JoseException {
+        server = new WireMockServer(wireMockConfig().dynamicPort());
+        server.start();
+        firstKey = rsaKey("first");
+        secondKey = rsaKey("second");
+    }
+
+    @AfterAll
+    static void afterAll() {
+        server.stop();
+    }
+
+    @BeforeEach
+    void beforeEach() {
+        server.resetAll();
+    }
+
+    @AfterEach
+    void afterEach() {
+        if (cache != null) {
+            cache.close();
+        }
+    }
+
+    static RsaJsonWebKey rsaKey(String keyId) throws JoseException {
+        RsaJsonWebKey key = RsaJwkGenerator.generateJwk(2048);
+        key.setKeyId(keyId);
+        key.setAlgorithm(AlgorithmIdentifiers.RSA_USING_SHA256);
+        key.setUse("sig");
+        return key;
+    }
+
+    static String jwks(JsonWebKey... keys) {
+        return new JsonWebKeySet(keys).toJson();
+    }
+
+    private static JsonWebSignature signedWith(String keyId) {
+        var jws = new JsonWebSignature();
+        jws.setAlgorithmHeaderValue(AlgorithmIdentifiers.RSA_USING_SHA256);
+        jws.setKeyIdHeaderValue(keyId);
+        return jws;
+    }
+
+    private static void serve(String body, String cacheControl) {
+        server.stubFor(get(urlEqualTo(JWKS_PATH)).willReturn(aResponse()
+                .withHeader("Content-Type", "application/json")
+                .withHeader("Cache-Control", cacheControl)
+                .withBody(body)));
+    }
+
+    private static void serve(JsonWebKey... keys) {
+        serve(jwks(keys), "no-store");
+    }
+
+    private static void failRetrievals() {
+        server.stubFor(get(urlEqualTo(JWKS_PATH)).willReturn(aResponse().withStatus(500)));
+    }
+
+    private static int retrievals() {
+        return server.countRequestsMatching(getRequestedFor(urlEqualTo(JWKS_PATH)).build()).getCount();
+    }
+
+    private JwksKeyCache cache(Duration refreshInterval, Duration retryBackoff) {
+        cache = new JwksKeyCache(URI.create(server.baseUrl() + JWKS_PATH),
+                refreshInterval,
+                retryBackoff,
+                new ExponentialJitterBackoffStrategy(Duration.ofMillis(50), Duration.ofMillis(200), 2d, new Random()));
+        return cache;
+    }
+
+    @Test
+    void shouldRetrieveKeysOnStart() throws Exception {
+        // Given
+        serve(firstKey);
+        var keyCache = cache(ONE_HOUR, ONE_HOUR);
+
+        // When
+        keyCache.start();
+
+        // Then
+        await().atMost(Duration.ofSeconds(10)).until(() -> keyCache.keys().size() == 1);
+        assertThat(keyCache.resolveKey(signedWith("first"), List.of())).isEqualTo(firstKey.getPublicKey());
+        assertThat(retrievals()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldWaitForInitialRetrieval() throws Exception {
+        // Given
+        serve(firstKey);
+        var keyCache = cache(ONE_HOUR, ONE_HOUR);
+
+        // When
+        var key = keyCache.resolveKey(signedWith("first"), List.of());
+
+        // Then
+        assertThat(key).isEqualTo(firstKey.getPublicKey());
+        assertThat(retrievals()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRetrieveKeysAgainForUnknownKeyId() throws Exception {
+        // Given
+        serve(firstKey);
+        var keyCache = cache(ONE_HOUR, Duration.ofMillis(1));
+        keyCache.refresh().join();
+        serve(firstKey, secondKey);
+        Thread.sleep(5);
+
+        // When
+        var key = keyCache.resolveKey(signedWith("second"), List.of());
+
+        // Then
+        assertThat(key).isEqualTo(secondKey.getPublicKey());
+        assertThat(retrievals()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldNotRetrieveKeysAgainForUnknownKeyIdWithinRetryBackoff() {
+        // Given
+        serve(firstKey);
+        var keyCache = cache(ONE_HOUR, ONE_HOUR);
+        keyCache.refresh().join();
+        JsonWebSignature unknown = signedWith("unknown");
+
+        // When/Then
+        assertThatThrownBy(() -> keyCache.resolveKey(unknown, List.of()))
+                .isInstanceOf(UnresolvableKeyException.class)
+                .hasMessageContaining("unknown");
+        assertThatThrownBy(() -> keyCache.resolveKey(unknown, List.of()))
+                .isInstanceOf(UnresolvableKeyException.class);
+        assertThat(retrievals()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldRefreshAheadOfMaxAge() {
+        // Given
+        serve(jwks(firstKey), "max-age=1");
+        var keyCache = cache(ONE_HOUR, ONE_HOUR);
+
+        // When
+        keyCache.start();
+
+        // Then
+        await().atMost(Duration.ofSeconds(10)).until(() -> retrievals() >= 3);
+    }
+
+    @Test
+    void shouldKeepKeysWhenRetrievalFails() throws Exception {
+        // Given
+        serve(firstKey);
+        var keyCache = cache(ONE_HOUR, ONE_HOUR);
+        keyCache.refresh().join();
+        failRetrievals();
+
+        // When
+        var refresh = keyCache.refresh();
+
+        // Then
+        assertThat(refresh).failsWithin(Duration.ofSeconds(10));
+        assertThat(keyCache.resolveKey(signedWith("first"), List.of())).isEqualTo(firstKey.getPublicKey());
+    }
+
+    @Test
+    void shouldRetryFailedRetrievalWithBackoff() {
+        // Given
+        failRetrievals();
+        var keyCache = cache(ONE_HOUR, ONE_HOUR);
+        keyCache.start();
+        await().atMost(Duration.ofSeconds(10)).until(() -> retrievals() >= 2);
+
+        // When
+        serve(firstKey);
+
+        // Then
+        await().atMost(Duration.ofSeconds(10)).until(() -> keyCache.keys().size() == 1);
+    }
+
+    @Test
+    void shouldRejectMalformedKeySet() {
+        // Given
+        serve("not a key set", "no-store");
+        var keyCache = cache(ONE_HOUR, ONE_HOUR);
+        JsonWebSignature signature = signedWith("first");
+
+        // When/Then
+        assertThatThrownBy(() -> keyCache.resolveKey(signature, List.of()))
+                .isInstanceOf(UnresolvableKeyException.class)
+                .hasMessageContaining("Unable to retrieve JWKS");
+        assertThat(keyCache.keys()).isEmpty();
+    }
+
+    @Test
+    void shouldStopRefreshingWhenClosed() {
+        // Given
+        serve(jwks(firstKey), "max-age=1");
+        var keyCache = cache(ONE_HOUR, ONE_HOUR);
+        keyCache.refresh().join();
+
+        // When
+        keyCache.close();
+
+        // Then
+        await().during(Duration.ofSeconds(2)).atMost(Duration.ofSeconds(3)).until(() -> retrievals() == 1);
+    }
+}
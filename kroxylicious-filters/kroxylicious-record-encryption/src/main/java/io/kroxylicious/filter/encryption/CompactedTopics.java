@@ -0,0 +1,137 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.filter.encryption;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import org.apache.kafka.common.config.ConfigResource;
+import org.apache.kafka.common.config.TopicConfig;
+import org.apache.kafka.common.message.DescribeConfigsRequestData;
+import org.apache.kafka.common.message.DescribeConfigsRequestData.DescribeConfigsResource;
+import org.apache.kafka.common.message.DescribeConfigsResponseData;
+import org.apache.kafka.common.message.DescribeConfigsResponseData.DescribeConfigsResourceResult;
+import org.apache.kafka.common.message.DescribeConfigsResponseData.DescribeConfigsResult;
+import org.apache.kafka.common.message.RequestHeaderData;
+import org.apache.kafka.common.protocol.ApiKeys;
+import org.apache.kafka.common.protocol.Errors;
+import org.slf4j.Logger;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import io.kroxylicious.proxy.filter.FilterContext;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import static org.slf4j.LoggerFactory.getLogger;
+
+/**
+ * Finds out which topics are compacted, so that records for them are not encrypted with a batch-granularity
+ * {@link io.kroxylicious.filter.encryption.config.EncryptionVersion EncryptionVersion}, which compaction would make undecryptable.
+ *
+ * <p>A topic's cleanup policy is described with a DESCRIBE_CONFIGS request sent on the connection of the
+ * filter that asks. A topic whose cleanup policy cannot be described, for example because the client is not
+ * authorized to describe its configs, is assumed to be compacted. The answers are cached for
+ * {@link #EXPIRE_AFTER_WRITE}, so a topic whose cleanup policy changes to compact may have batch-granularity records
+ * produced to it for that long. Instances are shared between filter instances, and are thread-safe.</p>
+ */
+class CompactedTopics {
+
+    private static final Logger LOGGER = getLogger(CompactedTopics.class);
+
+    static final Duration EXPIRE_AFTER_WRITE = Duration.ofMinutes(5);
+    static final int MAX_CACHE_SIZE = 100_000;
+    static final short DESCRIBE_CONFIGS_VERSION = 4;
+
+    private final Cache<String, Boolean> compacted = Caffeine.newBuilder()
+            .expireAfterWrite(EXPIRE_AFTER_WRITE)
+            .maximumSize(MAX_CACHE_SIZE)
+            .build();
+
+    /**
+     * Returns which of the given topics are compacted, or may be.
+     * @param topicNames The names of the topics.
+     * @param context The context of the filter that asks, used to describe topics that are not cached.
+     * @return A stage that completes, on the filter thread, with the names of the topics that are, or may be, compacted.
+     */
+    @NonNull
+    CompletionStage<Set<String>> compacted(@NonNull Set<String> topicNames, @NonNull FilterContext context) {
+        Set<String> result = new HashSet<>();
+        List<String> uncached = new ArrayList<>();
+        for (String topicName : topicNames) {
+            Boolean isCompacted = compacted.getIfPresent(topicName);
+            if (isCompacted == null) {
+                uncached.add(topicName);
+            }
+            else if (isCompacted) {
+                result.add(topicName);
+            }
+        }
+        if (uncached.isEmpty()) {
+            return CompletableFuture.completedFuture(result);
+        }
+        return describe(uncached, context).handle((response, error) -> {
+            if (error != null) {
+                LOGGER.atWarn()
+                        .addKeyValue("topicNames", uncached)
+                        .addKeyValue("error", error.getMessage())
+                        .log("Failed to describe the cleanup policy of topics, assuming they are compacted");
+            }
+            Map<String, Boolean> described = new HashMap<>();
+            if (response != null) {
+                for (DescribeConfigsResult topic : response.results()) {
+                    if (topic.errorCode() == Errors.NONE.code()) {
+                        described.put(topic.resourceName(), isCompacted(topic));
+                    }
+                }
+            }
+            for (String topicName : uncached) {
+                boolean isCompacted = described.getOrDefault(topicName, true);
+                compacted.put(topicName, isCompacted);
+                if (isCompacted) {
+                    result.add(topicName);
+                }
+            }
+            return result;
+        });
+    }
+
+    private static CompletionStage<DescribeConfigsResponseData> describe(List<String> topicNames, FilterContext context) {
+        var request = new DescribeConfigsRequestData();
+        for (String topicName : topicNames) {
+            request.resources().add(new DescribeConfigsResource()
+                    .setResourceType(ConfigResource.Type.TOPIC.id())
+                    .setResourceName(topicName)
+                    .setConfigurationKeys(List.of(TopicConfig.CLEANUP_POLICY_CONFIG)));
+        }
+        var header = new RequestHeaderData()
+                .setRequestApiKey(ApiKeys.DESCRIBE_CONFIGS.id)
+                .setRequestApiVersion(DESCRIBE_CONFIGS_VERSION);
+        return context.sendRequest(header, request);
+    }
+
+    private static boolean isCompacted(DescribeConfigsResult topic) {
+        for (DescribeConfigsResourceResult config : topic.configs()) {
+            if (TopicConfig.CLEANUP_POLICY_CONFIG.equals(config.name()) && config.value() != null) {
+                return Arrays.stream(config.value().split(","))
+                        .map(String::trim)
+                        .anyMatch(TopicConfig.CLEANUP_POLICY_COMPACT::equals);
+            }
+        }
+        // the broker did not report the policy, so assume the worst
+        return true;
+    }
+}
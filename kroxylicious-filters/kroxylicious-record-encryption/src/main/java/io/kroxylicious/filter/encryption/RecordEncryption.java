@@ -6,15 +6,27 @@
 
 package io.kroxylicious.filter.encryption;
 
+import java.nio.file.Path;
 import java.security.Provider;
+import java.time.Clock;
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -24,10 +36,15 @@ import javax.crypto.Cipher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
 import io.micrometer.core.instrument.Metrics;
 
+import io.kroxylicious.filter.encryption.common.CryptoExecutor;
 import io.kroxylicious.filter.encryption.common.FilterThreadExecutor;
 import io.kroxylicious.filter.encryption.config.CipherSpec;
+import io.kroxylicious.filter.encryption.config.CryptoExecutorConfig;
+import io.kroxylicious.filter.encryption.config.EdekSnapshotConfig;
 import io.kroxylicious.filter.encryption.config.EncryptionBufferConfig;
 import io.kroxylicious.filter.encryption.config.EncryptionConfigurationException;
 import io.kroxylicious.filter.encryption.config.KekSelectorService;
@@ -37,6 +54,8 @@ import io.kroxylicious.filter.encryption.config.TopicNameBasedKekSelector;
 import io.kroxylicious.filter.encryption.crypto.Encryption;
 import io.kroxylicious.filter.encryption.crypto.EncryptionResolver;
 import io.kroxylicious.filter.encryption.decrypt.DecryptionDekCache;
+import io.kroxylicious.filter.encryption.decrypt.EdekSnapshot;
+import io.kroxylicious.filter.encryption.decrypt.EdekSnapshotter;
 import io.kroxylicious.filter.encryption.decrypt.InBandDecryptionManager;
 import io.kroxylicious.filter.encryption.dek.CipherManager;
 import io.kroxylicious.filter.encryption.dek.CipherSpecResolver;
@@ -55,8 +74,10 @@ import io.kroxylicious.proxy.filter.FilterFactory;
 import io.kroxylicious.proxy.filter.FilterFactoryContext;
 import io.kroxylicious.proxy.plugin.Plugin;
 import io.kroxylicious.proxy.plugin.PluginConfigurationException;
+import io.kroxylicious.proxy.tag.VisibleForTesting;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 /**
@@ -118,7 +139,9 @@ public class RecordEncryption<K, E> implements FilterFactory<RecordEncryptionCon
         Objects.requireNonNull(configuration, "configuration must not be null");
         LOGGER.atDebug()
                 .addKeyValue("encryptionBuffer", configuration.encryptionBuffer())
-                .log("Record encryption buffer size configuration");
+                .addKeyValue("encryptionVersion", configuration.encryptionVersion())
+                .addKeyValue("encryptionDekStripes", configuration.encryptionDekStripes())
+                .log("Record encryption buffer size, version and DEK stripes configuration");
         checkCipherSuite();
         KmsService<Object, K, E> kmsPlugin = context.pluginInstance(KmsService.class, configuration.kms());
         kmsPlugin.initialize(configuration.kmsConfig());
@@ -128,10 +151,146 @@ public class RecordEncryption<K, E> implements FilterFactory<RecordEncryptionCon
         DekManager<K, E> dekManager = new DekManager<>(kms, dekConfig.maxEncryptionsPerDek());
 
         KmsCacheConfig cacheConfig = configuration.kmsCache();
+        int encryptionDekStripes = configuration.encryptionDekStripes();
         EncryptionDekCache<K, E> encryptionDekCache = new EncryptionDekCache<>(dekManager, null, EncryptionDekCache.NO_MAX_CACHE_SIZE,
-                cacheConfig.encryptionDekCacheRefreshAfterWriteDuration(), cacheConfig.encryptionDekCacheExpireAfterWriteDuration());
-        DecryptionDekCache<K, E> decryptionDekCache = new DecryptionDekCache<>(dekManager, null, DecryptionDekCache.NO_MAX_CACHE_SIZE);
-        return new SharedEncryptionContext<>(kms, kmsPlugin::close, configuration, dekManager, encryptionDekCache, decryptionDekCache);
+                cacheConfig.encryptionDekCacheRefreshAfterWriteDuration(), cacheConfig.encryptionDekCacheExpireAfterWriteDuration(),
+                encryptionDekStripes, RecordEncryptionMetrics.encryptionDeksGeneratedCounter(),
+                refreshAtRemainingEncryptions(dekConfig.maxEncryptionsPerDek(), configuration.encryptionDekRotationThreshold()));
+        RecordEncryptionMetrics.encryptionDekStripesGauge(encryptionDekStripes);
+        prewarmDeks(context, configuration, kms, encryptionDekCache);
+        EdekSnapshotConfig snapshotConfig = configuration.edekSnapshot();
+        EdekSnapshot<E> edekSnapshot = snapshotConfig.enabled()
+                ? new EdekSnapshot<>(edekSnapshotFile(Objects.requireNonNull(snapshotConfig.path()), context.virtualClusterName(), context.filterName()),
+                        kms.edekSerde(), snapshotConfig.maxEntries(), snapshotConfig.maxAge(), Clock.systemUTC())
+                : null;
+        DecryptionDekCache<K, E> decryptionDekCache = new DecryptionDekCache<>(dekManager, null, DecryptionDekCache.NO_MAX_CACHE_SIZE, edekSnapshot);
+        List<Meter> meters = new ArrayList<>();
+        EdekSnapshotter<K, E> edekSnapshotter = buildEdekSnapshotter(context, snapshotConfig, edekSnapshot, decryptionDekCache, meters);
+        return new SharedEncryptionContext<>(kms, kmsPlugin::close, configuration, dekManager, encryptionDekCache, decryptionDekCache,
+                buildCryptoExecutor(configuration.cryptoExecutor()), edekSnapshotter,
+                EncryptionResolver.ALL.fromName(configuration.encryptionVersion()).batchGranularity() ? new CompactedTopics() : null,
+                List.copyOf(meters));
+    }
+
+    /**
+     * The file holding the EDEK snapshot of one filter instance.
+     * This filter is initialized once per virtual cluster which uses it, so the virtual cluster and filter names are
+     * appended to the configured file name, which stops the instances sharing a configured path overwriting each other's snapshot.
+     */
+    @VisibleForTesting
+    static Path edekSnapshotFile(String configuredPath, String virtualClusterName, String filterName) {
+        Path configured = Path.of(configuredPath);
+        String suffix = (virtualClusterName + "-" + filterName).replaceAll("[^A-Za-z0-9._-]", "_");
+        return configured.resolveSibling(configured.getFileName() + "-" + suffix);
+    }
+
+    /**
+     * Starts warming the decryption DEK cache from the EDEK snapshot, if there is one, in the background.
+     * The snapshotter's meters, tagged with the virtual cluster and filter name, are added to {@code meters}.
+     */
+    private static <K, E> @Nullable EdekSnapshotter<K, E> buildEdekSnapshotter(FilterFactoryContext context,
+                                                                               EdekSnapshotConfig snapshotConfig,
+                                                                               @Nullable EdekSnapshot<E> edekSnapshot,
+                                                                               DecryptionDekCache<K, E> decryptionDekCache,
+                                                                               List<Meter> meters) {
+        if (edekSnapshot == null) {
+            return null;
+        }
+        LOGGER.atInfo()
+                .addKeyValue("path", edekSnapshot.file())
+                .addKeyValue("maxEntries", snapshotConfig.maxEntries())
+                .addKeyValue("maxAge", snapshotConfig.maxAge())
+                .log("Warming decryption DEK cache from EDEK snapshot");
+        String clusterName = context.virtualClusterName();
+        String filterName = context.filterName();
+        Counter warmedEdeks = RecordEncryptionMetrics.edekSnapshotWarmedEdeksCounter(clusterName, filterName, "success");
+        Counter failedEdeks = RecordEncryptionMetrics.edekSnapshotWarmedEdeksCounter(clusterName, filterName, "failure");
+        EdekSnapshotter<K, E> edekSnapshotter = new EdekSnapshotter<>(edekSnapshot, decryptionDekCache, snapshotConfig.writeInterval(),
+                warmedEdeks, failedEdeks);
+        meters.add(warmedEdeks);
+        meters.add(failedEdeks);
+        meters.add(RecordEncryptionMetrics.edekSnapshotEdeksGauge(clusterName, filterName, edekSnapshotter));
+        edekSnapshotter.start();
+        return edekSnapshotter;
+    }
+
+    @VisibleForTesting
+    static long refreshAtRemainingEncryptions(long maxEncryptionsPerDek, double rotationThreshold) {
+        if (rotationThreshold >= 1) {
+            return EncryptionDekCache.NO_PROACTIVE_REFRESH;
+        }
+        return maxEncryptionsPerDek - Math.round(maxEncryptionsPerDek * rotationThreshold);
+    }
+
+    /**
+     * Resolves the KEKs of the configured topics and generates DEKs for them in the background.
+     * Failures are logged, rather than failing initialisation, as the DEKs will be generated when they are first needed.
+     */
+    @SuppressWarnings("unchecked")
+    private static <K, E> void prewarmDeks(FilterFactoryContext context,
+                                           RecordEncryptionConfig configuration,
+                                           Kms<K, E> kms,
+                                           EncryptionDekCache<K, E> encryptionDekCache) {
+        Set<String> prewarmTopics = configuration.prewarmTopics();
+        if (prewarmTopics.isEmpty()) {
+            return;
+        }
+        KekSelectorService<Object, K> ksPlugin = context.pluginInstance(KekSelectorService.class, configuration.selector());
+        TopicNameBasedKekSelector<K> kekSelector = ksPlugin.buildSelector(kms, configuration.selectorConfig());
+        kekSelector.selectKek(prewarmTopics)
+                .thenCompose(selection -> {
+                    if (!selection.unresolvedTopicNames().isEmpty()) {
+                        LOGGER.atWarn()
+                                .addKeyValue("topicNames", selection.unresolvedTopicNames())
+                                .log("Could not resolve KEKs for topics to prewarm DEKs for");
+                    }
+                    return CompletableFuture.allOf(selection.topicNameToKekId().values().stream()
+                            .distinct()
+                            .map(kekId -> encryptionDekCache.prewarm(kekId).toCompletableFuture())
+                            .toArray(CompletableFuture[]::new));
+                })
+                .whenComplete((ignored, throwable) -> {
+                    if (throwable != null) {
+                        LOGGER.atWarn()
+                                .setCause(LOGGER.isDebugEnabled() ? throwable : null)
+                                .addKeyValue("error", throwable.getMessage())
+                                .log(LOGGER.isDebugEnabled()
+                                        ? "Failed to prewarm DEKs, they will be generated when first needed"
+                                        : "Failed to prewarm DEKs, they will be generated when first needed, increase log level to DEBUG for stacktrace");
+                    }
+                    else {
+                        LOGGER.atDebug()
+                                .addKeyValue("topicNames", prewarmTopics)
+                                .log("Prewarmed DEKs");
+                    }
+                });
+    }
+
+    /**
+     * Builds the pool of crypto worker threads, if one is configured. The pool's queue is bounded;
+     * once it is full, jobs are run on the submitting filter thread, as if there were no pool.
+     */
+    @Nullable
+    private static ExecutorService buildCryptoExecutor(CryptoExecutorConfig config) {
+        Integer threads = config.threads();
+        if (threads == null) {
+            return null;
+        }
+        LOGGER.atDebug()
+                .addKeyValue("cryptoExecutorConfig", config)
+                .log("Record encryption crypto executor configuration");
+        var threadCount = new AtomicInteger();
+        ThreadFactory threadFactory = r -> {
+            Thread cryptoThread = new Thread(r, "recordEncryptionCrypto-" + threadCount.incrementAndGet());
+            cryptoThread.setDaemon(true);
+            return cryptoThread;
+        };
+        // unlike CallerRunsPolicy, this also runs jobs submitted after shutdown, so their stages always complete
+        RejectedExecutionHandler runOnCaller = (job, rejectingExecutor) -> job.run();
+        var executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(config.queueCapacity()), threadFactory,
+                runOnCaller);
+        RecordEncryptionMetrics.cryptoQueueDepthGauge(executor);
+        return executor;
     }
 
     @NonNull
@@ -142,22 +301,37 @@ public class RecordEncryption<K, E> implements FilterFactory<RecordEncryptionCon
         ScheduledExecutorService filterThreadExecutor = context.filterDispatchExecutor();
         FilterThreadExecutor executor = new FilterThreadExecutor(filterThreadExecutor);
         EncryptionBufferConfig encryptionBufferConfig = sharedEncryptionContext.configuration().encryptionBuffer();
-        var encryptionManager = new InBandEncryptionManager<>(Encryption.V2,
+        ExecutorService cryptoExecutor = sharedEncryptionContext.cryptoExecutor();
+        CryptoExecutor encryptCryptoExecutor = cryptoExecutor == null ? null : new CryptoExecutor(cryptoExecutor, RecordEncryptionMetrics.cryptoJobTimer("encrypt"));
+        var encryptionManager = new InBandEncryptionManager<>(EncryptionResolver.ALL.fromName(sharedEncryptionContext.configuration().encryptionVersion()),
                 sharedEncryptionContext.dekManager().edekSerde(),
                 encryptionBufferConfig.minSizeBytes(),
                 encryptionBufferConfig.maxSizeBytes(),
                 sharedEncryptionContext.encryptionDekCache(),
-                executor);
+                executor,
+                encryptCryptoExecutor);
+        CompactedTopics compactedTopics = sharedEncryptionContext.compactedTopics();
+        // compaction would make batch-granularity records undecryptable, so records for compacted topics are encrypted with V2
+        var compactedTopicEncryptionManager = compactedTopics == null ? null
+                : new InBandEncryptionManager<>(Encryption.V2,
+                        sharedEncryptionContext.dekManager().edekSerde(),
+                        encryptionBufferConfig.minSizeBytes(),
+                        encryptionBufferConfig.maxSizeBytes(),
+                        sharedEncryptionContext.encryptionDekCache(),
+                        executor,
+                        encryptCryptoExecutor);
 
         var decryptionManager = new InBandDecryptionManager<>(EncryptionResolver.ALL,
                 sharedEncryptionContext.dekManager(),
                 sharedEncryptionContext.decryptionDekCache(),
-                executor);
+                executor,
+                cryptoExecutor == null ? null : new CryptoExecutor(cryptoExecutor, RecordEncryptionMetrics.cryptoJobTimer("decrypt")));
 
         RecordEncryptionConfig configuration = sharedEncryptionContext.configuration();
         KekSelectorService<Object, K> ksPlugin = context.pluginInstance(KekSelectorService.class, configuration.selector());
         TopicNameBasedKekSelector<K> kekSelector = ksPlugin.buildSelector(sharedEncryptionContext.kms(), configuration.selectorConfig());
-        return new RecordEncryptionFilter<>(encryptionManager, decryptionManager, kekSelector, executor, configuration.unresolvedKeyPolicy());
+        return new RecordEncryptionFilter<>(encryptionManager, decryptionManager, kekSelector, executor, configuration.unresolvedKeyPolicy(),
+                compactedTopics, compactedTopicEncryptionManager);
     }
 
     @NonNull
@@ -185,6 +359,15 @@ public class RecordEncryption<K, E> implements FilterFactory<RecordEncryptionCon
     @Override
     @SuppressWarnings("java:S2638") // Tightening UnknownNullness
     public void close(@NonNull SharedEncryptionContext<K, E> initializationData) {
+        EdekSnapshotter<K, E> edekSnapshotter = initializationData.edekSnapshotter();
+        if (edekSnapshotter != null) {
+            edekSnapshotter.close();
+        }
+        RecordEncryptionMetrics.remove(initializationData.meters());
         initializationData.kmsServiceCloser().run();
+        ExecutorService cryptoExecutor = initializationData.cryptoExecutor();
+        if (cryptoExecutor != null) {
+            cryptoExecutor.shutdown();
+        }
     }
 }
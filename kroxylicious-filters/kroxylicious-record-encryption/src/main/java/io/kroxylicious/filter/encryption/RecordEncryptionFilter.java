@@ -76,14 +76,31 @@ class RecordEncryptionFilter<K> implements ProduceRequestFilter, FetchResponseFi
     private final DecryptionManager decryptionManager;
     private final FilterThreadExecutor filterThreadExecutor;
     private final UnresolvedKeyPolicy unresolvedKeyPolicy;
+    private final @Nullable CompactedTopics compactedTopics;
+    private final @Nullable EncryptionManager<K> compactedTopicEncryptionManager;
 
     RecordEncryptionFilter(EncryptionManager<K> encryptionManager, DecryptionManager decryptionManager, TopicNameBasedKekSelector<K> kekSelector,
                            @NonNull FilterThreadExecutor filterThreadExecutor, UnresolvedKeyPolicy unresolvedKeyPolicy) {
+        this(encryptionManager, decryptionManager, kekSelector, filterThreadExecutor, unresolvedKeyPolicy, null, null);
+    }
+
+    /**
+     * @param compactedTopics Which topics are compacted, or null if the {@code encryptionManager} may encrypt records for any topic.
+     * @param compactedTopicEncryptionManager The encryption manager for compacted topics, required if {@code compactedTopics} is not null.
+     */
+    RecordEncryptionFilter(EncryptionManager<K> encryptionManager, DecryptionManager decryptionManager, TopicNameBasedKekSelector<K> kekSelector,
+                           @NonNull FilterThreadExecutor filterThreadExecutor, UnresolvedKeyPolicy unresolvedKeyPolicy,
+                           @Nullable CompactedTopics compactedTopics, @Nullable EncryptionManager<K> compactedTopicEncryptionManager) {
+        if (compactedTopics != null && compactedTopicEncryptionManager == null) {
+            throw new IllegalArgumentException("compactedTopicEncryptionManager is required with compactedTopics");
+        }
         this.kekSelector = kekSelector;
         this.encryptionManager = encryptionManager;
         this.decryptionManager = decryptionManager;
         this.filterThreadExecutor = filterThreadExecutor;
         this.unresolvedKeyPolicy = unresolvedKeyPolicy;
+        this.compactedTopics = compactedTopics;
+        this.compactedTopicEncryptionManager = compactedTopicEncryptionManager;
     }
 
     @Override
@@ -158,21 +175,24 @@ class RecordEncryptionFilter<K> implements ProduceRequestFilter, FetchResponseFi
 
                     generatePlainRecordsMetrics(plainRecordsTotal, unresolvedTopicNames, topicNameToData);
 
-                    var futures = kekSelection.topicNameToKekId().entrySet().stream().flatMap(e -> {
-                        String topicName = e.getKey();
-                        var kekId = e.getValue();
-                        TopicProduceData tpd = topicNameToData.get(topicName);
-                        return tpd.partitionData().stream().map(ppd -> {
-                            MemoryRecords records = (MemoryRecords) ppd.records();
-                            return encryptionManager.encrypt(topicName, ppd.index(), new EncryptionScheme<>(kekId, EnumSet.of(RecordField.RECORD_VALUE)), records,
-                                    context::createByteBufferOutputStream).thenApply(ppd::setRecords).thenApply(produceData -> {
-                                        encryptedRecordsTotal.withTags(RecordEncryptionMetrics.TOPIC_NAME, topicName)
-                                                .increment(RecordEncryptionUtil.totalRecordsInBatches((MemoryRecords) produceData.records()));
-                                        return null;
-                                    });
-                        });
-                    }).toList();
-                    return RecordEncryptionUtil.join(futures).thenApply(x -> request);
+                    return compactedTopics(kekSelection.topicNameToKekId().keySet(), context).thenCompose(compacted -> {
+                        var futures = kekSelection.topicNameToKekId().entrySet().stream().flatMap(e -> {
+                            String topicName = e.getKey();
+                            var kekId = e.getValue();
+                            TopicProduceData tpd = topicNameToData.get(topicName);
+                            EncryptionManager<K> topicEncryptionManager = compacted.contains(topicName) ? compactedTopicEncryptionManager : encryptionManager;
+                            return tpd.partitionData().stream().map(ppd -> {
+                                MemoryRecords records = (MemoryRecords) ppd.records();
+                                return topicEncryptionManager.encrypt(topicName, ppd.index(), new EncryptionScheme<>(kekId, EnumSet.of(RecordField.RECORD_VALUE)),
+                                        records, context::createByteBufferOutputStream).thenApply(ppd::setRecords).thenApply(produceData -> {
+                                            encryptedRecordsTotal.withTags(RecordEncryptionMetrics.TOPIC_NAME, topicName)
+                                                    .increment(RecordEncryptionUtil.totalRecordsInBatches((MemoryRecords) produceData.records()));
+                                            return null;
+                                        });
+                            });
+                        }).toList();
+                        return RecordEncryptionUtil.join(futures).thenApply(x -> request);
+                    });
                 }).exceptionallyCompose(throwable -> {
                     LOGGER.atWarn().addKeyValue("error", throwable.getMessage())
                             .setCause(LOGGER.isDebugEnabled() ? throwable : null)
@@ -181,6 +201,13 @@ class RecordEncryptionFilter<K> implements ProduceRequestFilter, FetchResponseFi
                 });
     }
 
+    private CompletionStage<Set<String>> compactedTopics(Set<String> topicNames, FilterContext context) {
+        if (compactedTopics == null || topicNames.isEmpty()) {
+            return CompletableFuture.completedFuture(Set.of());
+        }
+        return compactedTopics.compacted(topicNames, context);
+    }
+
     private static String getName(TopicProduceData topicProduceData, TopicNameMapping topicNameMapping) {
         if (topicProduceData.name() != null && !topicProduceData.name().isEmpty()) {
             return topicProduceData.name();
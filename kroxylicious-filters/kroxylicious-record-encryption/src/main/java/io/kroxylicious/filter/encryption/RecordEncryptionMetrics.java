@@ -6,8 +6,15 @@
 
 package io.kroxylicious.filter.encryption;
 
+import java.util.List;
+import java.util.concurrent.ThreadPoolExecutor;
+
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
 import io.micrometer.core.instrument.Meter;
+import io.micrometer.core.instrument.Timer;
+
+import io.kroxylicious.filter.encryption.decrypt.EdekSnapshotter;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
 
@@ -23,11 +30,20 @@ public class RecordEncryptionMetrics {
     }
 
     public static final String VIRTUAL_CLUSTER_LABEL = "virtual_cluster";
+    public static final String FILTER_NAME_LABEL = "filter_name";
     public static final String TOPIC_NAME = "topic_name";
+    public static final String OPERATION_LABEL = "operation";
+    public static final String OUTCOME_LABEL = "outcome";
 
     // Base Metric Names
     private static final String ENCRYPTED_RECORDS = "kroxylicious_filter_record_encryption_encrypted_records";
     private static final String PLAIN_RECORDS = "kroxylicious_filter_record_encryption_plain_records";
+    private static final String CRYPTO_QUEUE_DEPTH = "kroxylicious_filter_record_encryption_crypto_queue_depth";
+    private static final String CRYPTO_JOB_TIME = "kroxylicious_filter_record_encryption_crypto_job_time";
+    private static final String ENCRYPTION_DEK_STRIPES = "kroxylicious_filter_record_encryption_encryption_dek_stripes";
+    private static final String ENCRYPTION_DEKS_GENERATED = "kroxylicious_filter_record_encryption_encryption_deks_generated";
+    private static final String EDEK_SNAPSHOT_EDEKS = "kroxylicious_filter_record_encryption_edek_snapshot_edeks";
+    private static final String EDEK_SNAPSHOT_WARMED_EDEKS = "kroxylicious_filter_record_encryption_edek_snapshot_warmed_edeks";
 
     public static Meter.MeterProvider<Counter> encryptedRecordsCounter(String clusterName) {
         return buildCounterMeterProvider(ENCRYPTED_RECORDS, "A count of the number of records which the filter encrypted.",
@@ -39,6 +55,56 @@ public class RecordEncryptionMetrics {
                 clusterName);
     }
 
+    public static Gauge cryptoQueueDepthGauge(ThreadPoolExecutor cryptoExecutor) {
+        return Gauge
+                .builder(CRYPTO_QUEUE_DEPTH, cryptoExecutor, executor -> executor.getQueue().size())
+                .description("The number of record encryption and decryption jobs waiting for a crypto worker thread.")
+                .register(globalRegistry);
+    }
+
+    public static Timer cryptoJobTimer(String operation) {
+        return Timer
+                .builder(CRYPTO_JOB_TIME)
+                .description("The time taken by a crypto worker thread to encrypt or decrypt the records of a partition.")
+                .tag(OPERATION_LABEL, operation)
+                .register(globalRegistry);
+    }
+
+    public static Gauge encryptionDekStripesGauge(int stripes) {
+        return Gauge
+                .builder(ENCRYPTION_DEK_STRIPES, () -> stripes)
+                .description("The number of stripes the encryption DEK cache is divided into, each of which has its own DEK for a KEK.")
+                .register(globalRegistry);
+    }
+
+    public static Meter.MeterProvider<Counter> encryptionDeksGeneratedCounter() {
+        return Counter
+                .builder(ENCRYPTION_DEKS_GENERATED)
+                .description("A count of the DEKs generated for encryption, tagged with the stripe of the encryption DEK cache they were generated for.")
+                .withRegistry(globalRegistry);
+    }
+
+    public static Gauge edekSnapshotEdeksGauge(String clusterName, String filterName, EdekSnapshotter<?, ?> snapshotter) {
+        return Gauge.builder(EDEK_SNAPSHOT_EDEKS, snapshotter, EdekSnapshotter::snapshotEdeks)
+                .description("The number of EDEKs read from the EDEK snapshot when the proxy started.")
+                .tag(VIRTUAL_CLUSTER_LABEL, clusterName)
+                .tag(FILTER_NAME_LABEL, filterName)
+                .register(globalRegistry);
+    }
+
+    public static Counter edekSnapshotWarmedEdeksCounter(String clusterName, String filterName, String outcome) {
+        return Counter.builder(EDEK_SNAPSHOT_WARMED_EDEKS)
+                .description("A count of the EDEKs from the EDEK snapshot which were decrypted into the decryption DEK cache, tagged with the outcome.")
+                .tag(VIRTUAL_CLUSTER_LABEL, clusterName)
+                .tag(FILTER_NAME_LABEL, filterName)
+                .tag(OUTCOME_LABEL, outcome)
+                .register(globalRegistry);
+    }
+
+    public static void remove(List<Meter> meters) {
+        meters.forEach(globalRegistry::remove);
+    }
+
     @NonNull
     private static Meter.MeterProvider<Counter> buildCounterMeterProvider(String meterName,
                                                                           String description,
@@ -6,12 +6,20 @@
 
 package io.kroxylicious.filter.encryption;
 
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+import io.micrometer.core.instrument.Meter;
+
 import io.kroxylicious.filter.encryption.config.RecordEncryptionConfig;
 import io.kroxylicious.filter.encryption.decrypt.DecryptionDekCache;
+import io.kroxylicious.filter.encryption.decrypt.EdekSnapshotter;
 import io.kroxylicious.filter.encryption.dek.DekManager;
 import io.kroxylicious.filter.encryption.encrypt.EncryptionDekCache;
 import io.kroxylicious.kms.service.Kms;
 
+import edu.umd.cs.findbugs.annotations.Nullable;
+
 /**
  * Things which are shared between instances of the filter.
  * Because they're shared between filter instances, the things shared here must be thread-safe.
@@ -22,6 +30,10 @@ import io.kroxylicious.kms.service.Kms;
  * @param dekManager DEK manager
  * @param encryptionDekCache Encryption DEK Cache
  * @param decryptionDekCache Decryption DEK Cache
+ * @param cryptoExecutor Crypto worker threads, or null if records are encrypted and decrypted on the filter thread
+ * @param edekSnapshotter EDEK snapshotter, or null if EDEKs are not snapshotted
+ * @param compactedTopics Which topics are compacted, or null if the encryption version is not batch-granularity
+ * @param meters Meters which are specific to this filter definition, and which are removed when it is closed
  *
  * @param <K> The type of KEK id.
  * @param <E> The type of the encrypted DEK.
@@ -31,4 +43,8 @@ record SharedEncryptionContext<K, E>(Kms<K, E> kms,
                                      RecordEncryptionConfig configuration,
                                      DekManager<K, E> dekManager,
                                      EncryptionDekCache<K, E> encryptionDekCache,
-                                     DecryptionDekCache<K, E> decryptionDekCache) {}
+                                     DecryptionDekCache<K, E> decryptionDekCache,
+                                     @Nullable ExecutorService cryptoExecutor,
+                                     @Nullable EdekSnapshotter<K, E> edekSnapshotter,
+                                     @Nullable CompactedTopics compactedTopics,
+                                     List<Meter> meters) {}
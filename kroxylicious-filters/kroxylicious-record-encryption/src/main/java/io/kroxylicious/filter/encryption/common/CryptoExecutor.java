@@ -0,0 +1,72 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.filter.encryption.common;
+
+import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+import org.apache.kafka.common.utils.ByteBufferOutputStream;
+
+import io.micrometer.core.instrument.Timer;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+/**
+ * Runs the CPU-bound part of encrypting or decrypting the records of a partition on a pool of
+ * worker threads shared by the filter instances, so that a large produce or fetch does not stall
+ * the other connections served by the same filter thread.
+ * <p>
+ * A job must not touch filter state, nor allocate from the filter's buffer allocator, which is
+ * only safe to use on the filter thread. Callers should allocate the output buffer up front and
+ * use {@link FilterThreadExecutor#completingOnFilterThread(CompletionStage)} to switch back
+ * to the filter thread once the job is done.
+ */
+public class CryptoExecutor {
+    private final Executor executor;
+    private final Timer jobTimer;
+
+    /**
+     * @param executor the worker threads
+     * @param jobTimer records the time taken to run each job
+     */
+    public CryptoExecutor(@NonNull Executor executor, @NonNull Timer jobTimer) {
+        this.executor = Objects.requireNonNull(executor);
+        this.jobTimer = Objects.requireNonNull(jobTimer);
+    }
+
+    /**
+     * Runs the given job on a worker thread.
+     * @param job the job
+     * @return a stage that is completed with the job's result on the worker thread
+     * @param <T> result type
+     */
+    public <T> @NonNull CompletionStage<T> submit(@NonNull Supplier<T> job) {
+        return CompletableFuture.supplyAsync(() -> jobTimer.record(job), executor);
+    }
+
+    /**
+     * Returns a buffer allocator, for use by a job, which hands out the given buffer the
+     * first time it is called and a heap buffer on any later call.
+     * @param buffer a buffer allocated on the filter thread
+     * @return the allocator
+     */
+    public static @NonNull IntFunction<ByteBufferOutputStream> preallocated(@NonNull ByteBufferOutputStream buffer) {
+        Objects.requireNonNull(buffer);
+        var first = new boolean[]{ true };
+        return initialCapacity -> {
+            if (first[0]) {
+                first[0] = false;
+                return buffer;
+            }
+            return new ByteBufferOutputStream(initialCapacity);
+        };
+    }
+}
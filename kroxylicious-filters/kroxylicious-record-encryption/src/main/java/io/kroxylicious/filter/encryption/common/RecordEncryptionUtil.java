@@ -39,6 +39,19 @@ public class RecordEncryptionUtil {
         return totalRecords;
     }
 
+    /**
+     * Returns the number of batches in the given records which contain at least one record.
+     */
+    public static int totalNonEmptyBatches(@NonNull MemoryRecords records) {
+        int totalBatches = 0;
+        for (MutableRecordBatch batch : records.batches()) {
+            if (recordCount(batch) > 0) {
+                totalBatches++;
+            }
+        }
+        return totalBatches;
+    }
+
     private static int recordCount(@NonNull MutableRecordBatch batch) {
         Integer count = batch.countOrNull();
         if (count == null) {
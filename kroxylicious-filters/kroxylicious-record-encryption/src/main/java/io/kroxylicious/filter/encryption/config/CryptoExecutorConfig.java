@@ -0,0 +1,39 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.filter.encryption.config;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+/**
+ * Configuration for the optional pool of worker threads that records are encrypted and decrypted on.
+ * When no threads are configured, records are encrypted and decrypted on the filter thread.
+ *
+ * @param threads the number of crypto worker threads, or null if records should be encrypted and decrypted on the filter thread
+ * @param queueCapacity the maximum number of jobs that may wait for a worker thread; once the queue is full,
+ * jobs are run on the filter thread
+ */
+public record CryptoExecutorConfig(@Nullable Integer threads, int queueCapacity) {
+
+    public static final int DEFAULT_QUEUE_CAPACITY = 1024;
+
+    public CryptoExecutorConfig {
+        if (threads != null && threads <= 0) {
+            throw new IllegalArgumentException("threads must be greater than zero");
+        }
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("queueCapacity must be greater than zero");
+        }
+    }
+
+    /**
+     * Whether records are encrypted and decrypted on a pool of worker threads.
+     * @return true if a pool of worker threads is configured
+     */
+    public boolean enabled() {
+        return threads != null;
+    }
+}
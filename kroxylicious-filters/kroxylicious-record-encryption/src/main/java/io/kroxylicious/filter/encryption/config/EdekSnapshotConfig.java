@@ -0,0 +1,52 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.filter.encryption.config;
+
+import java.time.Duration;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+import static java.util.Objects.requireNonNullElse;
+
+/**
+ * Configuration for the optional snapshot of the encrypted DEKs recently seen on the decryption path,
+ * which is used to warm the decryption DEK cache when the proxy starts.
+ * When no path is configured, no snapshot is taken or loaded.
+ *
+ * @param path the path of the snapshot file, or null if snapshotting is disabled
+ * @param maxEntries the maximum number of EDEKs in the snapshot; the most recently seen are kept
+ * @param maxAge EDEKs which were last seen longer ago than this are neither written to, nor loaded from, the snapshot
+ * @param writeInterval the interval between writes of the snapshot
+ */
+public record EdekSnapshotConfig(@Nullable String path,
+                                 Integer maxEntries,
+                                 Duration maxAge,
+                                 Duration writeInterval) {
+
+    public EdekSnapshotConfig {
+        maxEntries = requireNonNullElse(maxEntries, 10_000);
+        maxAge = requireNonNullElse(maxAge, Duration.ofHours(6));
+        writeInterval = requireNonNullElse(writeInterval, Duration.ofMinutes(1));
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("maxEntries must be greater than zero");
+        }
+        if (maxAge.isNegative() || maxAge.isZero()) {
+            throw new IllegalArgumentException("maxAge must be positive");
+        }
+        if (writeInterval.isNegative() || writeInterval.isZero()) {
+            throw new IllegalArgumentException("writeInterval must be positive");
+        }
+    }
+
+    /**
+     * Whether EDEKs are snapshotted.
+     * @return true if a snapshot path is configured
+     */
+    public boolean enabled() {
+        return path != null;
+    }
+}
@@ -17,6 +17,23 @@ package io.kroxylicious.filter.encryption.config;
 public enum EncryptionVersion {
 
     V1_UNSUPPORTED,
-    V2;
+    V2,
+    /**
+     * Like {@link #V2}, except that all the record values (and, if encrypted, header values) of a batch are
+     * encrypted together, by a single cipher operation. The batch and its records keep their keys, offsets and
+     * timestamps in the clear, so the broker can still validate and index the batch, but the ciphertext is
+     * carried by the first record of the batch that has a value, so the others cannot be decrypted without it.
+     * Compaction could remove that record, so records produced to a topic whose cleanup policy includes
+     * {@code compact}, or whose cleanup policy cannot be described, are encrypted with {@link #V2} instead.
+     */
+    V3_BATCH,
+    /**
+     * Like {@link #V3_BATCH}, except that the plaintext of a batch is compressed, using the compression type the
+     * producer chose for the batch, before it is encrypted, and the batch is then written uncompressed.
+     * This avoids compressing incompressible ciphertext. Fetched batches are returned to the consumer uncompressed.
+     * Note that the size of the ciphertext then depends on how compressible the plaintext is.
+     * Records for compacted topics are encrypted with {@link #V2} instead, for the same reason as {@link #V3_BATCH}.
+     */
+    V4_BATCH_COMPRESSED;
 
 }
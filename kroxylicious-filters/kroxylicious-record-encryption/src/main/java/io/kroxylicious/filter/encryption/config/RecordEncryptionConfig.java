@@ -6,8 +6,13 @@
 
 package io.kroxylicious.filter.encryption.config;
 
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
 
@@ -56,6 +61,85 @@ public record RecordEncryptionConfig(@JsonProperty(required = true) @PluginImplN
 
     }
 
+    public CryptoExecutorConfig cryptoExecutor() {
+        Integer threads = getExperimentalInt("cryptoExecutorThreads");
+        Integer queueCapacity = getExperimentalIntOrElse("cryptoExecutorQueueCapacity", CryptoExecutorConfig.DEFAULT_QUEUE_CAPACITY);
+        return new CryptoExecutorConfig(threads, queueCapacity);
+    }
+
+    public EdekSnapshotConfig edekSnapshot() {
+        Object path = experimental.get("edekSnapshotPath");
+        Integer maxEntries = getExperimentalInt("edekSnapshotMaxEntries");
+        Long maxAgeSeconds = getExperimentalLong("edekSnapshotMaxAgeSeconds");
+        Long writeIntervalSeconds = getExperimentalLong("edekSnapshotWriteIntervalSeconds");
+        return new EdekSnapshotConfig(path == null ? null : String.valueOf(path),
+                maxEntries,
+                maxAgeSeconds == null ? null : Duration.ofSeconds(maxAgeSeconds),
+                writeIntervalSeconds == null ? null : Duration.ofSeconds(writeIntervalSeconds));
+    }
+
+    /**
+     * The encryption version used for records on the produce path.
+     * Records are always decrypted according to the version they were encrypted with.
+     * @return the encryption version, defaulting to {@link EncryptionVersion#V2}
+     */
+    public EncryptionVersion encryptionVersion() {
+        EncryptionVersion version = Optional.ofNullable(experimental.get("encryptionVersion")).map(value -> switch (value) {
+            case EncryptionVersion encryptionVersion -> encryptionVersion;
+            case String stringValue -> EncryptionVersion.valueOf(stringValue);
+            default -> throw new IllegalArgumentException("could not convert encryptionVersion with type " + value.getClass().getSimpleName() + " to EncryptionVersion");
+        }).orElse(EncryptionVersion.V2);
+        if (version == EncryptionVersion.V1_UNSUPPORTED) {
+            throw new IllegalArgumentException("encryptionVersion " + version + " cannot be used to encrypt records");
+        }
+        return version;
+    }
+
+    /**
+     * The number of stripes the encryption DEK cache is divided into. Each stripe has its own DEK for a KEK,
+     * and each filter thread encrypts with the DEKs of one stripe.
+     * @return the number of stripes, defaulting to 1
+     */
+    public int encryptionDekStripes() {
+        int stripes = getExperimentalIntOrElse("encryptionDekStripes", 1);
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("encryptionDekStripes must be greater than zero");
+        }
+        return stripes;
+    }
+
+    /**
+     * The fraction of a DEK's maximum number of encryptions after which a replacement DEK is generated in the background.
+     * A value of 1 means that DEKs are only replaced once they are exhausted, on the encryption path.
+     * @return the fraction, defaulting to 0.9
+     */
+    public double encryptionDekRotationThreshold() {
+        double threshold = Optional.ofNullable(experimental.get("encryptionDekRotationThreshold")).map(value -> switch (value) {
+            case Number number -> number.doubleValue();
+            case String stringValue -> Double.parseDouble(stringValue);
+            default -> throw new IllegalArgumentException(
+                    "could not convert encryptionDekRotationThreshold with type " + value.getClass().getSimpleName() + " to Double");
+        }).orElse(0.9);
+        if (!(threshold > 0 && threshold <= 1)) {
+            throw new IllegalArgumentException("encryptionDekRotationThreshold must be greater than 0 and at most 1");
+        }
+        return threshold;
+    }
+
+    /**
+     * The names of topics whose KEKs are resolved, and for which DEKs are generated, when the filter is initialised,
+     * rather than when records are first produced to them.
+     * @return the topic names, defaulting to none
+     */
+    public Set<String> prewarmTopics() {
+        return Optional.ofNullable(experimental.get("prewarmTopics")).map(value -> switch (value) {
+            case Collection<?> collection -> collection.stream().map(String::valueOf).collect(Collectors.toUnmodifiableSet());
+            case String stringValue -> Arrays.stream(stringValue.split(",")).map(String::strip).filter(topic -> !topic.isEmpty())
+                    .collect(Collectors.toUnmodifiableSet());
+            default -> throw new IllegalArgumentException("could not convert prewarmTopics with type " + value.getClass().getSimpleName() + " to a set of topic names");
+        }).orElse(Set.of());
+    }
+
     @Nullable
     private Integer getExperimentalInt(String property) {
         return getExperimentalIntOrElse(property, null);
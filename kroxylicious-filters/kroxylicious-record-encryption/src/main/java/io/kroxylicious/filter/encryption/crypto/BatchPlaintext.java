@@ -0,0 +1,170 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.filter.encryption.crypto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Set;
+
+import org.apache.kafka.common.KafkaException;
+import org.apache.kafka.common.compress.Compression;
+import org.apache.kafka.common.record.CompressionType;
+import org.apache.kafka.common.record.Record;
+import org.apache.kafka.common.record.RecordBatch;
+import org.apache.kafka.common.utils.BufferSupplier;
+import org.apache.kafka.common.utils.ByteBufferOutputStream;
+
+import io.kroxylicious.filter.encryption.common.EncryptionException;
+import io.kroxylicious.filter.encryption.config.RecordField;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+/**
+ * <p>The plaintext of a batch-granularity wrapper, which is the parcels of the records of the batch,
+ * one after another.</p>
+ *
+ * <p>If the {@link Encryption#compressedBatch() encryption compresses batches} the plaintext starts with
+ * the id of a {@link CompressionType}, followed by the parcels compressed with that compression type.
+ * The compression type is the one the producer used for the batch, so the batch itself can be written uncompressed.</p>
+ */
+public final class BatchPlaintext {
+
+    private static final int SNAPPY_BLOCK_SIZE = 32 * 1024;
+    /** The length prefix of a block, and the constant part of snappy's worst case expansion of it */
+    private static final int SNAPPY_BLOCK_OVERHEAD = 4 + 32;
+    /** An allowance for the headers and trailers of a compressed stream */
+    private static final int COMPRESSION_FRAME_OVERHEAD = 64;
+
+    private BatchPlaintext() {
+    }
+
+    /**
+     * Returns the size of the plaintext which {@link #write} would write for the given records of the given batch.
+     * This is exact unless the plaintext is compressed, in which case it is the greatest size the compressed
+     * plaintext could have, which is only reached by incompressible records.
+     * @param encryption The encryption
+     * @param recordFields The fields of the records to include in their parcels
+     * @param batch The batch
+     * @param records The records of the batch that have a value
+     * @return The size of the plaintext, or an upper bound on it
+     */
+    public static int sizeOf(@NonNull Encryption encryption,
+                             @NonNull Set<RecordField> recordFields,
+                             @NonNull RecordBatch batch,
+                             @NonNull List<Record> records) {
+        Parcel parcel = encryption.parcel();
+        int parcelsSize = 0;
+        for (Record kafkaRecord : records) {
+            parcelsSize += parcel.sizeOfParcel(recordFields, kafkaRecord);
+        }
+        if (!encryption.compressedBatch()) {
+            return parcelsSize;
+        }
+        // the compression type id
+        return 1 + (batch.compressionType() == CompressionType.NONE ? parcelsSize : maxCompressedSize(parcelsSize));
+    }
+
+    /**
+     * Returns an upper bound on the size of the given number of bytes once compressed with any of Kafka's compression types.
+     * Snappy has the largest worst case, which is its per-block framing plus a sixth of the input, and this
+     * bound exceeds the worst cases of deflate (gzip), lz4 and zstd.
+     */
+    private static int maxCompressedSize(int size) {
+        int blocks = size / SNAPPY_BLOCK_SIZE + 1;
+        return size + size / 6 + blocks * SNAPPY_BLOCK_OVERHEAD + COMPRESSION_FRAME_OVERHEAD;
+    }
+
+    /**
+     * Writes the plaintext for the given records of the given batch.
+     * @param encryption The encryption
+     * @param recordFields The fields of the records to include in their parcels
+     * @param batch The batch
+     * @param records The records of the batch that have a value
+     * @param buffer The buffer to write the plaintext to
+     * @throws BufferOverflowException if the buffer is too small
+     */
+    public static void write(@NonNull Encryption encryption,
+                             @NonNull Set<RecordField> recordFields,
+                             @NonNull RecordBatch batch,
+                             @NonNull List<Record> records,
+                             @NonNull ByteBuffer buffer) {
+        Parcel parcel = encryption.parcel();
+        if (!encryption.compressedBatch()) {
+            writeParcels(parcel, recordFields, records, buffer);
+            return;
+        }
+        CompressionType compressionType = batch.compressionType();
+        buffer.put((byte) compressionType.id);
+        if (compressionType == CompressionType.NONE) {
+            writeParcels(parcel, recordFields, records, buffer);
+            return;
+        }
+        int parcelsSize = 0;
+        for (Record kafkaRecord : records) {
+            parcelsSize += parcel.sizeOfParcel(recordFields, kafkaRecord);
+        }
+        ByteBuffer parcels = ByteBuffer.allocate(parcelsSize);
+        writeParcels(parcel, recordFields, records, parcels);
+
+        ByteBuffer compressed = buffer.slice();
+        var compressedStream = new ByteBufferOutputStream(compressed);
+        try (OutputStream out = Compression.of(compressionType).build().wrapForOutput(compressedStream, RecordBatch.MAGIC_VALUE_V2)) {
+            out.write(parcels.array(), 0, parcels.position());
+        }
+        catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (compressedStream.buffer().capacity() > compressed.capacity()) {
+            // the stream had to expand beyond the given buffer
+            throw new BufferOverflowException();
+        }
+        buffer.position(buffer.position() + compressedStream.position());
+    }
+
+    private static void writeParcels(@NonNull Parcel parcel,
+                                     @NonNull Set<RecordField> recordFields,
+                                     @NonNull List<Record> records,
+                                     @NonNull ByteBuffer buffer) {
+        for (Record kafkaRecord : records) {
+            parcel.writeParcel(recordFields, kafkaRecord, buffer);
+        }
+    }
+
+    /**
+     * Reads the plaintext of a batch, returning a buffer from which the parcel of each record can be read in turn.
+     * @param encryption The encryption
+     * @param plaintext The plaintext
+     * @return The parcels
+     */
+    public static @NonNull ByteBuffer read(@NonNull Encryption encryption,
+                                           @NonNull ByteBuffer plaintext) {
+        if (!encryption.compressedBatch()) {
+            return plaintext;
+        }
+        CompressionType compressionType;
+        try {
+            compressionType = CompressionType.forId(plaintext.get());
+        }
+        catch (IllegalArgumentException e) {
+            throw new EncryptionException("Unknown compression type in batch plaintext");
+        }
+        if (compressionType == CompressionType.NONE) {
+            return plaintext.slice();
+        }
+        try (InputStream in = Compression.of(compressionType).build().wrapForInput(plaintext, RecordBatch.MAGIC_VALUE_V2, BufferSupplier.NO_CACHING)) {
+            return ByteBuffer.wrap(in.readAllBytes());
+        }
+        catch (IOException | KafkaException e) {
+            throw new EncryptionException("Failed to decompress batch plaintext: " + e.getMessage());
+        }
+    }
+}
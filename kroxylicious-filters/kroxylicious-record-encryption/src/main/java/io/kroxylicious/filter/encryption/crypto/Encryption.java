@@ -23,39 +23,53 @@ import io.kroxylicious.filter.encryption.dek.CipherSpecResolver;
  */
 public class Encryption implements PersistedIdentifiable<EncryptionVersion> {
 
-    public static final Encryption V1 = new Encryption((byte) 1, EncryptionVersion.V1_UNSUPPORTED, WrapperV1.INSTANCE, ParcelV1.INSTANCE);
+    public static final Encryption V1 = new Encryption((byte) 1, EncryptionVersion.V1_UNSUPPORTED, WrapperV1.INSTANCE, ParcelV1.INSTANCE, false, false);
     public static final Encryption V2 = new Encryption((byte) 2, EncryptionVersion.V2,
             new WrapperV2(
                     CipherSpecResolver.of(CipherSpec.AES_256_GCM_128),
                     AadResolver.of(AadSpec.NONE)),
-            ParcelV1.INSTANCE);
+            ParcelV1.INSTANCE,
+            false,
+            false);
+    public static final Encryption V3 = new Encryption((byte) 3, EncryptionVersion.V3_BATCH,
+            new WrapperV2(
+                    CipherSpecResolver.of(CipherSpec.AES_256_GCM_128),
+                    AadResolver.of(AadSpec.NONE)),
+            ParcelV1.INSTANCE,
+            true,
+            false);
+    public static final Encryption V4 = new Encryption((byte) 4, EncryptionVersion.V4_BATCH_COMPRESSED,
+            new WrapperV2(
+                    CipherSpecResolver.of(CipherSpec.AES_256_GCM_128),
+                    AadResolver.of(AadSpec.NONE)),
+            ParcelV1.INSTANCE,
+            true,
+            true);
     /***
      * take extreme care when updating the implementations, because new versions are forever once released.
      * If you're adding a new version here you will also need to add it to {@link EncryptionResolver#ALL}.
      ***/
 
-    // TODO in 0.6.0
-    // public static Encryption V3 = new Encryption((byte) 2, EncryptionVersion.V2,
-    // new WrapperV2(
-    // CipherSpecResolver.of(CipherSpec.AES_256_GCM_128, CipherSpec.CHACHA20_POLY1305),
-    // AadResolver.of(AadSpec.NONE, AadSpec.BATCH_METADATA)
-    // ),
-    // ParcelV1.INSTANCE);
-
     private final byte id;
     private final EncryptionVersion version;
     private final Wrapper wrapper;
     private final Parcel parcel;
+    private final boolean batchGranularity;
+    private final boolean compressedBatch;
 
     private Encryption(
                        byte id,
                        EncryptionVersion version,
                        Wrapper wrapper,
-                       Parcel parcel) {
+                       Parcel parcel,
+                       boolean batchGranularity,
+                       boolean compressedBatch) {
         this.id = id;
         this.version = version;
         this.wrapper = wrapper;
         this.parcel = parcel;
+        this.batchGranularity = batchGranularity;
+        this.compressedBatch = compressedBatch;
     }
 
     @Override
@@ -75,4 +89,25 @@ public class Encryption implements PersistedIdentifiable<EncryptionVersion> {
     public Parcel parcel() {
         return parcel;
     }
+
+    /**
+     * Whether the records of a batch are encrypted together, as a single wrapper carried by the
+     * first record of the batch that has a value, rather than one wrapper per record.
+     * The other records that have a value are left with an empty value.
+     * @return true if the records of a batch are encrypted together
+     */
+    public boolean batchGranularity() {
+        return batchGranularity;
+    }
+
+    /**
+     * Whether the plaintext of a batch is compressed before it is encrypted, using the compression
+     * type of the batch, which is then written uncompressed. Only applies to encryptions with
+     * {@link #batchGranularity() batch granularity}.
+     * @return true if the plaintext of a batch is compressed
+     * @see BatchPlaintext
+     */
+    public boolean compressedBatch() {
+        return compressedBatch;
+    }
 }
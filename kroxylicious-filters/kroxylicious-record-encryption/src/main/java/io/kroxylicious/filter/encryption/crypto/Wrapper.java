@@ -10,6 +10,7 @@ import java.nio.ByteBuffer;
 import java.util.Set;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
 
 import org.apache.kafka.common.header.Header;
 import org.apache.kafka.common.record.Record;
@@ -53,6 +54,42 @@ public interface Wrapper extends PersistedIdentifiable<WrapperVersion> {
                           @NonNull Set<RecordField> recordFields,
                           @NonNull ByteBuffer buffer);
 
+    /**
+     * Returns the size of the wrapper which would be written for the given number of bytes of plaintext,
+     * so that a buffer of exactly the right size can be used.
+     */
+    <E> int sizeOfWrapper(
+                          @NonNull Serde<E> edekSerde,
+                          @NonNull E edek,
+                          @NonNull CipherManager cipherManager,
+                          int plaintextSize);
+
+    /**
+     * Writes a single wrapper for the records of a batch, for batch-granularity encryption.
+     * The plaintext is written by the given {@code plaintextWriter}, and is encrypted in place.
+     */
+    <E> void writeBatchWrapper(
+                               @NonNull Serde<E> edekSerde,
+                               @NonNull E edek,
+                               @NonNull String topicName,
+                               int partitionId,
+                               @NonNull RecordBatch batch,
+                               @NonNull Dek<E>.Encryptor encryptor,
+                               @NonNull Aad aadSpec,
+                               @NonNull Consumer<ByteBuffer> plaintextWriter,
+                               @NonNull ByteBuffer buffer);
+
+    /**
+     * Decrypts a wrapper written by {@link #writeBatchWrapper}, returning the plaintext, from which the
+     * parcel of each record can be read in turn.
+     */
+    <E> ByteBuffer readBatch(
+                             @NonNull String topicName,
+                             int partition,
+                             @NonNull RecordBatch batch,
+                             ByteBuffer wrapper,
+                             Dek<E>.Decryptor decryptor);
+
     <E> void read(
                   @NonNull Parcel parcel,
                   @NonNull String topicName,
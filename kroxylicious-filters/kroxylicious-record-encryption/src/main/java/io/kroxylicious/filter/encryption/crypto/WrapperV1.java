@@ -10,6 +10,7 @@ import java.nio.ByteBuffer;
 import java.util.Set;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
 
 import org.apache.kafka.common.header.Header;
 import org.apache.kafka.common.record.Record;
@@ -45,6 +46,23 @@ public class WrapperV1 implements Wrapper {
         throw unsupportedVersionException();
     }
 
+    @Override
+    public <E> int sizeOfWrapper(@NonNull Serde<E> edekSerde, @NonNull E edek, @NonNull CipherManager cipherManager, int plaintextSize) {
+        throw unsupportedVersionException();
+    }
+
+    @Override
+    public <E> void writeBatchWrapper(@NonNull Serde<E> edekSerde, @NonNull E edek, @NonNull String topicName, int partitionId, @NonNull RecordBatch batch,
+                                      @NonNull Dek<E>.Encryptor encryptor, @NonNull Aad aadSpec, @NonNull Consumer<ByteBuffer> plaintextWriter,
+                                      @NonNull ByteBuffer buffer) {
+        throw unsupportedVersionException();
+    }
+
+    @Override
+    public <E> ByteBuffer readBatch(@NonNull String topicName, int partition, @NonNull RecordBatch batch, ByteBuffer wrapper, Dek<E>.Decryptor decryptor) {
+        throw unsupportedVersionException();
+    }
+
     @Override
     public <E> void read(@NonNull Parcel parcel, @NonNull String topicName, int partition, @NonNull RecordBatch batch, @NonNull Record record,
                          ByteBuffer wrapper, Dek<E>.Decryptor decryptor, @NonNull BiConsumer<ByteBuffer, Header[]> consumer) {
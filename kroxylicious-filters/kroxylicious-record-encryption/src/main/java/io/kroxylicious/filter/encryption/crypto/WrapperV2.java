@@ -11,6 +11,7 @@ import java.nio.ByteBuffer;
 import java.util.Set;
 import java.util.function.BiConsumer;
 import java.util.function.BiFunction;
+import java.util.function.Consumer;
 
 import org.apache.kafka.common.header.Header;
 import org.apache.kafka.common.record.Record;
@@ -91,6 +92,52 @@ public class WrapperV2 implements Wrapper {
                                  @NonNull Set<RecordField> recordFields,
                                  @NonNull ByteBuffer buffer)
             throws BufferTooSmallException {
+        writeWrapper(edekSerde, edek, topicName, partitionId, batch, encryptor, aad, buffer,
+                parcelBuffer -> parcel.writeParcel(recordFields, kafkaRecord, parcelBuffer));
+    }
+
+    @Override
+    public <E> int sizeOfWrapper(@NonNull Serde<E> edekSerde,
+                                 @NonNull E edek,
+                                 @NonNull CipherManager cipherManager,
+                                 int plaintextSize) {
+        int paramsSize = cipherManager.constantParamsSize();
+        if (paramsSize == CipherManager.VARIABLE_SIZE_PARAMETERS) {
+            throw new EncryptionException("variable size cipher parameters not supported yet");
+        }
+        int edekSize = edekSerde.sizeOf(edek);
+        return 1 // cipher_id
+                + ByteUtils.sizeOfUnsignedVarint(edekSize) // edek_length
+                + edekSize // edek
+                + 1 // aad_id
+                + paramsSize // cipher_parameters
+                + cipherManager.ciphertextSize(plaintextSize); // parcel_ciphertext
+    }
+
+    @Override
+    public <E> void writeBatchWrapper(@NonNull Serde<E> edekSerde,
+                                      @NonNull E edek,
+                                      @NonNull String topicName,
+                                      int partitionId,
+                                      @NonNull RecordBatch batch,
+                                      @NonNull Dek<E>.Encryptor encryptor,
+                                      @NonNull Aad aad,
+                                      @NonNull Consumer<ByteBuffer> plaintextWriter,
+                                      @NonNull ByteBuffer buffer)
+            throws BufferTooSmallException {
+        writeWrapper(edekSerde, edek, topicName, partitionId, batch, encryptor, aad, buffer, plaintextWriter);
+    }
+
+    private <E> void writeWrapper(@NonNull Serde<E> edekSerde,
+                                  @NonNull E edek,
+                                  @NonNull String topicName,
+                                  int partitionId,
+                                  @NonNull RecordBatch batch,
+                                  @NonNull Dek<E>.Encryptor encryptor,
+                                  @NonNull Aad aad,
+                                  @NonNull ByteBuffer buffer,
+                                  @NonNull Consumer<ByteBuffer> parcelWriter)
+            throws BufferTooSmallException {
         try {
             CipherManager cipherManager = encryptor.cipherManager();
             buffer.put(cipherSpecResolver.toSerializedId(cipherManager));
@@ -106,7 +153,7 @@ public class WrapperV2 implements Wrapper {
 
             // Write the parcel of data that will be encrypted (the plaintext)
             var parcelBuffer = buffer.slice();
-            parcel.writeParcel(recordFields, kafkaRecord, parcelBuffer);
+            parcelWriter.accept(parcelBuffer);
             parcelBuffer.flip();
 
             // Overwrite the parcel with the cipher text
@@ -145,6 +192,15 @@ public class WrapperV2 implements Wrapper {
         return function.apply(cipherManager, edek);
     }
 
+    @Override
+    public <E> ByteBuffer readBatch(@NonNull String topicName,
+                                    int partition,
+                                    @NonNull RecordBatch batch,
+                                    ByteBuffer wrapper,
+                                    Dek<E>.Decryptor decryptor) {
+        return decrypt(topicName, partition, batch, wrapper, decryptor);
+    }
+
     @Override
     public <E> void read(@NonNull Parcel parcel,
                          @NonNull String topicName,
@@ -154,6 +210,15 @@ public class WrapperV2 implements Wrapper {
                          ByteBuffer wrapper,
                          Dek<E>.Decryptor decryptor,
                          @NonNull BiConsumer<ByteBuffer, Header[]> consumer) {
+        ByteBuffer plaintextParcel = decrypt(topicName, partition, batch, wrapper, decryptor);
+        parcel.readParcel(plaintextParcel, record, consumer);
+    }
+
+    private <E> ByteBuffer decrypt(@NonNull String topicName,
+                                   int partition,
+                                   @NonNull RecordBatch batch,
+                                   ByteBuffer wrapper,
+                                   Dek<E>.Decryptor decryptor) {
         CipherManager cipherManager = cipherSpecResolver.fromSerializedId(wrapper.get());
         var edekLength = ByteUtils.readUnsignedVarint(wrapper);
         wrapper.position(wrapper.position() + edekLength);
@@ -173,7 +238,6 @@ public class WrapperV2 implements Wrapper {
 
         ByteBuffer aad = aadSpec.computeAad(topicName, partition, batch);
 
-        ByteBuffer plaintextParcel = Wrapper.decryptParcel(ciphertext, aad, parametersBuffer, decryptor);
-        parcel.readParcel(plaintextParcel, record, consumer);
+        return Wrapper.decryptParcel(ciphertext, aad, parametersBuffer, decryptor);
     }
 }
@@ -6,17 +6,20 @@
 
 package io.kroxylicious.filter.encryption.decrypt;
 
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
+import com.github.benmanes.caffeine.cache.AsyncCache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.RemovalCause;
 
@@ -65,12 +68,27 @@ public class DecryptionDekCache<K, E> {
         }
     }
 
-    private final AsyncLoadingCache<CacheKey<E>, Dek<E>> decryptorCache;
+    private final AsyncCache<CacheKey<E>, Dek<E>> decryptorCache;
+    private final @Nullable EdekSnapshot<E> snapshot;
 
     public DecryptionDekCache(@NonNull DekManager<K, E> dekManager,
                               @Nullable Executor dekCacheExecutor,
                               int dekCacheMaxItems) {
+        this(dekManager, dekCacheExecutor, dekCacheMaxItems, null);
+    }
+
+    /**
+     * @param dekManager The DEK manager
+     * @param dekCacheExecutor The executor used by the cache, or null to use the default
+     * @param dekCacheMaxItems The maximum number of DEKs to cache, or {@link #NO_MAX_CACHE_SIZE}
+     * @param snapshot The snapshot which tracks the EDEKs used, or null if EDEKs are not snapshotted
+     */
+    public DecryptionDekCache(@NonNull DekManager<K, E> dekManager,
+                              @Nullable Executor dekCacheExecutor,
+                              int dekCacheMaxItems,
+                              @Nullable EdekSnapshot<E> snapshot) {
         this.dekManager = Objects.requireNonNull(dekManager);
+        this.snapshot = snapshot;
         Caffeine<Object, Object> cache = Caffeine.newBuilder();
         if (dekCacheMaxItems != NO_MAX_CACHE_SIZE) {
             cache.maximumSize(dekCacheMaxItems);
@@ -80,25 +98,65 @@ public class DecryptionDekCache<K, E> {
         }
         this.decryptorCache = cache
                 .removalListener(this::afterCacheEviction)
-                .buildAsync(this::loadDek);
+                .buildAsync();
     }
 
     /**
-     * Invoked by Caffeine when a DEK needs to be loaded.
-     * This method is executed on the {@code dekCacheExecutor} passed to the constructor.
-     * @param cacheKey The cache key
-     * @param executor The executor
-     * @return A future
+     * Gets the futures for the DEKs of the given cache keys, loading those which are missing from the cache.
+     * The missing EDEKs are decrypted with a single call to the KMS for each distinct cipher, of which there is usually only one.
+     * Each DEK is loaded on its own, so an EDEK which cannot be decrypted fails only its own future, and
+     * the cache discards it while keeping the others.
+     * The unencrypted sentinel is omitted from the result.
+     * @param cacheKeys The cache keys
+     * @return The future for the DEK of each of the distinct, encrypted, {@code cacheKeys}.
      */
-    private CompletableFuture<Dek<E>> loadDek(CacheKey<E> cacheKey, Executor executor) {
-        if (cacheKey == null || cacheKey.isUnencrypted()) {
-            return CompletableFuture.completedFuture(null);
+    private Map<CacheKey<E>, CompletableFuture<Dek<E>>> loadDeks(List<CacheKey<E>> cacheKeys) {
+        ConcurrentMap<CacheKey<E>, CompletableFuture<Dek<E>>> cached = decryptorCache.asMap();
+        Map<CacheKey<E>, CompletableFuture<Dek<E>>> deks = HashMap.newHashMap(cacheKeys.size());
+        Map<CipherManager, Map<E, CompletableFuture<Dek<E>>>> missingByCipher = new HashMap<>();
+        for (CacheKey<E> cacheKey : cacheKeys) {
+            if (cacheKey.isUnencrypted() || deks.containsKey(cacheKey)) {
+                continue;
+            }
+            CompletableFuture<Dek<E>> dek = cached.get(cacheKey);
+            if (dek == null) {
+                CompletableFuture<Dek<E>> loading = new CompletableFuture<>();
+                dek = cached.putIfAbsent(cacheKey, loading);
+                if (dek == null) {
+                    dek = loading;
+                    missingByCipher.computeIfAbsent(cacheKey.cipherManager(), k -> new HashMap<>()).put(cacheKey.edek(), loading);
+                }
+            }
+            deks.put(cacheKey, dek);
+        }
+        missingByCipher.forEach(this::decryptEdeks);
+        return deks;
+    }
+
+    /**
+     * Completes each of the given futures with the DEK for its EDEK, or with the reason it could not be decrypted.
+     * @param cipherManager The cipher of the EDEKs
+     * @param loading The future for each EDEK
+     */
+    private void decryptEdeks(CipherManager cipherManager, Map<E, CompletableFuture<Dek<E>>> loading) {
+        try {
+            dekManager.decryptEdeks(loading.keySet(), cipherManager).forEach((edek, dek) -> {
+                CompletableFuture<Dek<E>> future = loading.get(edek);
+                // the future is completed by this stage, so it does not need to be kept
+                var unused = dek.whenComplete((loaded, e) -> {
+                    if (e == null) {
+                        future.complete(loaded);
+                    }
+                    else {
+                        future.completeExceptionally(e);
+                    }
+                });
+            });
+        }
+        catch (RuntimeException e) {
+            // otherwise the futures would never complete, and would stay in the cache
+            loading.values().forEach(future -> future.completeExceptionally(e));
         }
-        // This assert is just to appease sonar because it doesn't grok that these things cannot be null due to
-        // the cacheKey.isNone() check above
-        assert cacheKey.edek() != null && cacheKey.cipherManager() != null;
-        return dekManager.decryptEdek(cacheKey.edek(), cacheKey.cipherManager())
-                .toCompletableFuture();
     }
 
     /**
@@ -108,6 +166,9 @@ public class DecryptionDekCache<K, E> {
     private void afterCacheEviction(@Nullable CacheKey<E> cacheKey,
                                     @Nullable Dek<E> dek,
                                     RemovalCause removalCause) {
+        if (snapshot != null && cacheKey != null && removalCause.wasEvicted()) {
+            snapshot.forget(cacheKey);
+        }
         if (dek != null) {
             dek.destroyForDecrypt();
             LOGGER.atTrace()
@@ -120,10 +181,50 @@ public class DecryptionDekCache<K, E> {
      * Gets the DEKs for all the given cache keys
      * @param cacheKeys The cache key
      * @param filterThreadExecutor The filter thread executor
-     * @return A completion stage which completes on the filter thread with the DEKs for the given {@code cacheKeys}.
+     * @return A completion stage which completes on the filter thread with the DEKs for the given {@code cacheKeys},
+     * or fails if any of them cannot be loaded.
      */
     public @NonNull CompletionStage<Map<CacheKey<E>, Dek<E>>> getAll(@NonNull List<CacheKey<E>> cacheKeys,
                                                                      @NonNull FilterThreadExecutor filterThreadExecutor) {
-        return filterThreadExecutor.completingOnFilterThread(decryptorCache.getAll(cacheKeys));
+        Map<CacheKey<E>, CompletableFuture<Dek<E>>> futures = loadDeks(cacheKeys);
+        CompletableFuture<Map<CacheKey<E>, Dek<E>>> deks = CompletableFuture.allOf(futures.values().toArray(CompletableFuture<?>[]::new))
+                .thenApply(ignored -> {
+                    Map<CacheKey<E>, Dek<E>> map = HashMap.newHashMap(futures.size());
+                    futures.forEach((cacheKey, dek) -> map.put(cacheKey, dek.join()));
+                    return map;
+                });
+        if (snapshot != null) {
+            deks = deks.thenApply(map -> {
+                snapshot.seen(map.keySet());
+                return map;
+            });
+        }
+        return filterThreadExecutor.completingOnFilterThread(deks);
+    }
+
+    /**
+     * Loads the DEKs for the given cache keys into the cache, without waiting for them to be needed.
+     * The DEKs which cannot be loaded are not counted, and do not prevent the others being loaded.
+     * @param cacheKeys The cache keys
+     * @return A completion stage which completes with the number of DEKs which are in the cache.
+     */
+    @NonNull
+    CompletionStage<Integer> warm(@NonNull List<CacheKey<E>> cacheKeys) {
+        Collection<CompletableFuture<Dek<E>>> futures = loadDeks(cacheKeys).values();
+        // a DEK which cannot be loaded does not fail the warming of the others
+        return CompletableFuture.allOf(futures.stream().map(dek -> dek.exceptionally(e -> null)).toArray(CompletableFuture<?>[]::new))
+                .thenApply(ignored -> {
+                    List<Throwable> failures = futures.stream()
+                            .filter(CompletableFuture::isCompletedExceptionally)
+                            .map(CompletableFuture::exceptionNow)
+                            .toList();
+                    if (!failures.isEmpty()) {
+                        LOGGER.atDebug()
+                                .setCause(failures.get(0))
+                                .addKeyValue("failedEdeks", failures.size())
+                                .log("Failed to decrypt EDEKs while warming the cache");
+                    }
+                    return futures.size() - failures.size();
+                });
     }
 }
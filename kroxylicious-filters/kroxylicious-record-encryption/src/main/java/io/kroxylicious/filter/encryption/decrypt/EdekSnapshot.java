@@ -0,0 +1,224 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.filter.encryption.decrypt;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.kroxylicious.filter.encryption.dek.CipherManager;
+import io.kroxylicious.filter.encryption.dek.CipherSpecResolver;
+import io.kroxylicious.kms.service.Serde;
+import io.kroxylicious.proxy.tag.VisibleForTesting;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
+
+/**
+ * <p>Tracks the encrypted DEKs recently seen on the decryption path, and persists them to a local file,
+ * so that after a restart they can be decrypted in the background before consumers need them.</p>
+ *
+ * <p>Only the encrypted DEKs, together with the id of their cipher and the time they were last seen, are persisted.
+ * Plaintext key material is never written to the file.
+ * The file starts with a magic number and a format version, followed by the number of entries.
+ * Each entry is the time it was last seen (epoch millis), the serialized id of its cipher, and its length-prefixed EDEK
+ * as serialized by the KMS's {@link Serde}.</p>
+ *
+ * @param <E> The type of encrypted DEK.
+ */
+public class EdekSnapshot<E> {
+
+    static final int MAGIC = 0x4b454453; // "KEDS"
+    static final byte VERSION = 1;
+
+    /**
+     * The largest serialized EDEK which is read from a file.
+     * EDEKs are much smaller than this, so a larger length means the file is corrupt.
+     */
+    static final int MAX_EDEK_BYTES = 64 * 1024;
+
+    private static final int HEADER_BYTES = Integer.BYTES + Byte.BYTES + Integer.BYTES;
+    private static final int ENTRY_HEADER_BYTES = Long.BYTES + Byte.BYTES + Integer.BYTES;
+
+    /**
+     * The resolution of the last seen times, which avoids updating the time each time a DEK is used.
+     */
+    private static final long SEEN_RESOLUTION_MILLIS = 1_000L;
+
+    private final Path file;
+    private final Serde<E> serde;
+    private final int maxEntries;
+    private final Duration maxAge;
+    private final Clock clock;
+    private final CipherSpecResolver cipherSpecResolver = CipherSpecResolver.ALL;
+    private final Map<DecryptionDekCache.CacheKey<E>, Long> lastSeen = new ConcurrentHashMap<>();
+
+    /**
+     * @param file The snapshot file
+     * @param serde The KMS's serde for encrypted DEKs
+     * @param maxEntries The maximum number of EDEKs to write to the file
+     * @param maxAge EDEKs last seen longer ago than this are neither written to, nor read from, the file
+     * @param clock The clock
+     */
+    public EdekSnapshot(@NonNull Path file,
+                        @NonNull Serde<E> serde,
+                        int maxEntries,
+                        @NonNull Duration maxAge,
+                        @NonNull Clock clock) {
+        this.file = Objects.requireNonNull(file);
+        this.serde = Objects.requireNonNull(serde);
+        this.maxEntries = maxEntries;
+        this.maxAge = Objects.requireNonNull(maxAge);
+        this.clock = Objects.requireNonNull(clock);
+    }
+
+    /**
+     * Gets the snapshot file.
+     * @return The snapshot file
+     */
+    public @NonNull Path file() {
+        return file;
+    }
+
+    /**
+     * Records that the DEKs for the given cache keys have just been used.
+     * @param cacheKeys The cache keys
+     */
+    void seen(@NonNull Collection<DecryptionDekCache.CacheKey<E>> cacheKeys) {
+        long now = clock.millis();
+        for (DecryptionDekCache.CacheKey<E> cacheKey : cacheKeys) {
+            if (cacheKey.isUnencrypted()) {
+                continue;
+            }
+            Long previous = lastSeen.get(cacheKey);
+            if (previous == null || now - previous >= SEEN_RESOLUTION_MILLIS) {
+                lastSeen.put(cacheKey, now);
+            }
+        }
+    }
+
+    /**
+     * Stops tracking the given cache key, because its DEK has been evicted from the cache.
+     * @param cacheKey The cache key
+     */
+    void forget(@NonNull DecryptionDekCache.CacheKey<E> cacheKey) {
+        lastSeen.remove(cacheKey);
+    }
+
+    /**
+     * Returns the number of EDEKs being tracked.
+     * @return The number of EDEKs being tracked
+     */
+    @VisibleForTesting
+    int tracked() {
+        return lastSeen.size();
+    }
+
+    /**
+     * Atomically replaces the snapshot file with the most recently seen EDEKs.
+     * @return The number of EDEKs written
+     * @throws IOException If the file could not be written
+     */
+    @SuppressFBWarnings(value = "PATH_TRAVERSAL_IN", justification = "The snapshot path is provided by the administrator via Kroxylicious configuration.")
+    public int write() throws IOException {
+        long oldest = clock.millis() - maxAge.toMillis();
+        // EDEKs which were seen too long ago are never written again, so stop tracking them
+        lastSeen.values().removeIf(seen -> seen < oldest);
+        List<Map.Entry<DecryptionDekCache.CacheKey<E>, Long>> entries = lastSeen.entrySet().stream()
+                .filter(entry -> entry.getValue() >= oldest)
+                .sorted(Map.Entry.<DecryptionDekCache.CacheKey<E>, Long> comparingByValue(Comparator.reverseOrder()))
+                .limit(maxEntries)
+                .toList();
+        Path dir = Objects.requireNonNull(file.toAbsolutePath().getParent(), "snapshot file must have a parent directory");
+        // a unique file in the same directory, so concurrent writers cannot interleave, and the move can be atomic
+        Path tmp = Files.createTempFile(dir, file.getFileName() + ".", ".tmp");
+        try {
+            writeEntries(tmp, entries);
+            Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+        finally {
+            Files.deleteIfExists(tmp);
+        }
+        return entries.size();
+    }
+
+    private void writeEntries(Path tmp, List<Map.Entry<DecryptionDekCache.CacheKey<E>, Long>> entries) throws IOException {
+        try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp)))) {
+            out.writeInt(MAGIC);
+            out.writeByte(VERSION);
+            out.writeInt(entries.size());
+            for (Map.Entry<DecryptionDekCache.CacheKey<E>, Long> entry : entries) {
+                DecryptionDekCache.CacheKey<E> cacheKey = entry.getKey();
+                // the entries are never unencrypted cache keys, so these are not null
+                E edek = Objects.requireNonNull(cacheKey.edek());
+                ByteBuffer serialized = ByteBuffer.allocate(serde.sizeOf(edek));
+                serde.serialize(edek, serialized);
+                out.writeLong(entry.getValue());
+                out.writeByte(cipherSpecResolver.toSerializedId(Objects.requireNonNull(cacheKey.cipherManager())));
+                out.writeInt(serialized.position());
+                out.write(serialized.array(), 0, serialized.position());
+            }
+        }
+    }
+
+    /**
+     * Reads the EDEKs in the snapshot file which are not too old, most recently seen first.
+     * The EDEKs read are tracked as if they had been seen at the time recorded in the file,
+     * so they are written to the next snapshot until they become too old.
+     * @return The cache keys for the EDEKs, which is empty if there is no snapshot file
+     * @throws IOException If the file could not be read, or is not a snapshot file
+     */
+    public @NonNull List<DecryptionDekCache.CacheKey<E>> read() throws IOException {
+        long oldest = clock.millis() - maxAge.toMillis();
+        List<DecryptionDekCache.CacheKey<E>> cacheKeys = new ArrayList<>();
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            long remaining = Files.size(file) - HEADER_BYTES;
+            if (remaining < 0 || in.readInt() != MAGIC || in.readByte() != VERSION) {
+                throw new IOException("Not an EDEK snapshot file, or an unsupported version: " + file);
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count && cacheKeys.size() < maxEntries; i++) {
+                long seen = in.readLong();
+                CipherManager cipherManager = cipherSpecResolver.fromSerializedId(in.readByte());
+                int length = in.readInt();
+                remaining -= ENTRY_HEADER_BYTES;
+                // check the length before allocating, so a corrupt file cannot exhaust the heap
+                if (length < 0 || length > MAX_EDEK_BYTES || length > remaining) {
+                    throw new IOException("Corrupt EDEK snapshot file, entry " + i + " has length " + length + ": " + file);
+                }
+                remaining -= length;
+                byte[] serialized = new byte[length];
+                in.readFully(serialized);
+                if (seen >= oldest) {
+                    var cacheKey = new DecryptionDekCache.CacheKey<>(cipherManager, serde.deserialize(ByteBuffer.wrap(serialized)));
+                    lastSeen.merge(cacheKey, seen, Math::max);
+                    cacheKeys.add(cacheKey);
+                }
+            }
+        }
+        catch (NoSuchFileException e) {
+            return List.of();
+        }
+        return cacheKeys;
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.filter.encryption.decrypt;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import io.micrometer.core.instrument.Counter;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+/**
+ * <p>Warms a {@link DecryptionDekCache} from an {@link EdekSnapshot} when the proxy starts,
+ * and periodically writes the snapshot while it runs, and once more when it is closed.</p>
+ *
+ * <p>The EDEKs in the snapshot are decrypted in batches, each of which is a single bulk request to the KMS
+ * (for KMSs which support it), on a background thread, so warming does not delay startup.
+ * Progress can be followed using {@link #snapshotEdeks()}, {@link #warmedEdeks()} and {@link #failedEdeks()}.</p>
+ *
+ * @param <K> The type of KEK id.
+ * @param <E> The type of encrypted DEK.
+ */
+public class EdekSnapshotter<K, E> implements AutoCloseable {
+
+    private static final Logger LOGGER = LoggerFactory.getLogger(EdekSnapshotter.class);
+
+    static final int WARM_BATCH_SIZE = 100;
+
+    private final EdekSnapshot<E> snapshot;
+    private final DecryptionDekCache<K, E> decryptionDekCache;
+    private final Duration writeInterval;
+    private final ScheduledExecutorService executor;
+    private final AtomicLong snapshotEdeks = new AtomicLong();
+    private final Counter warmedEdeks;
+    private final Counter failedEdeks;
+
+    /**
+     * @param snapshot The snapshot
+     * @param decryptionDekCache The cache which the snapshot is taken from, and which is warmed from it.
+     * @param writeInterval The interval between writes of the snapshot
+     * @param warmedEdeks Counts the EDEKs from the snapshot which are decrypted
+     * @param failedEdeks Counts the EDEKs from the snapshot which could not be decrypted
+     */
+    public EdekSnapshotter(@NonNull EdekSnapshot<E> snapshot,
+                           @NonNull DecryptionDekCache<K, E> decryptionDekCache,
+                           @NonNull Duration writeInterval,
+                           @NonNull Counter warmedEdeks,
+                           @NonNull Counter failedEdeks) {
+        this.snapshot = Objects.requireNonNull(snapshot);
+        this.decryptionDekCache = Objects.requireNonNull(decryptionDekCache);
+        this.writeInterval = Objects.requireNonNull(writeInterval);
+        this.warmedEdeks = Objects.requireNonNull(warmedEdeks);
+        this.failedEdeks = Objects.requireNonNull(failedEdeks);
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "edekSnapshotter");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Starts warming the cache from the snapshot, and schedules writes of the snapshot.
+     */
+    public void start() {
+        executor.execute(this::warm);
+        var unused = executor.scheduleWithFixedDelay(this::write, writeInterval.toMillis(), writeInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    private void warm() {
+        List<DecryptionDekCache.CacheKey<E>> cacheKeys;
+        try {
+            cacheKeys = snapshot.read();
+        }
+        catch (Exception e) {
+            LOGGER.atWarn()
+                    .setCause(LOGGER.isDebugEnabled() ? e : null)
+                    .addKeyValue("error", e.getMessage())
+                    .log(LOGGER.isDebugEnabled()
+                            ? "Failed to read EDEK snapshot, the decryption DEK cache will not be warmed"
+                            : "Failed to read EDEK snapshot, the decryption DEK cache will not be warmed, increase log level to DEBUG for stacktrace");
+            return;
+        }
+        snapshotEdeks.set(cacheKeys.size());
+        for (int from = 0; from < cacheKeys.size() && !executor.isShutdown(); from += WARM_BATCH_SIZE) {
+            List<DecryptionDekCache.CacheKey<E>> batch = cacheKeys.subList(from, Math.min(cacheKeys.size(), from + WARM_BATCH_SIZE));
+            try {
+                int warmed = decryptionDekCache.warm(batch).toCompletableFuture().join();
+                warmedEdeks.increment(warmed);
+                failedEdeks.increment((double) batch.size() - warmed);
+            }
+            catch (Exception e) {
+                failedEdeks.increment(batch.size());
+                LOGGER.atDebug()
+                        .setCause(e)
+                        .log("Failed to decrypt EDEKs from snapshot");
+            }
+        }
+        LOGGER.atInfo()
+                .addKeyValue("snapshotEdeks", snapshotEdeks.get())
+                .addKeyValue("warmedEdeks", warmedEdeks())
+                .addKeyValue("failedEdeks", failedEdeks())
+                .log("Warmed decryption DEK cache from EDEK snapshot");
+    }
+
+    private void write() {
+        try {
+            int written = snapshot.write();
+            LOGGER.atTrace()
+                    .addKeyValue("edeks", written)
+                    .log("Wrote EDEK snapshot");
+        }
+        catch (Exception e) {
+            LOGGER.atWarn()
+                    .setCause(LOGGER.isDebugEnabled() ? e : null)
+                    .addKeyValue("error", e.getMessage())
+                    .log(LOGGER.isDebugEnabled()
+                            ? "Failed to write EDEK snapshot"
+                            : "Failed to write EDEK snapshot, increase log level to DEBUG for stacktrace");
+        }
+    }
+
+    /**
+     * Returns the number of EDEKs read from the snapshot when the proxy started.
+     * @return The number of EDEKs read
+     */
+    public long snapshotEdeks() {
+        return snapshotEdeks.get();
+    }
+
+    /**
+     * Returns the number of EDEKs from the snapshot which have been decrypted and added to the cache.
+     * @return The number of EDEKs decrypted
+     */
+    public long warmedEdeks() {
+        return (long) warmedEdeks.count();
+    }
+
+    /**
+     * Returns the number of EDEKs from the snapshot which could not be decrypted.
+     * @return The number of EDEKs which could not be decrypted
+     */
+    public long failedEdeks() {
+        return (long) failedEdeks.count();
+    }
+
+    /**
+     * Stops warming the cache, and writes the snapshot a final time.
+     */
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        try {
+            if (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                LOGGER.atWarn().log("Timed out waiting for EDEK snapshotter to stop");
+            }
+        }
+        catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        write();
+    }
+}
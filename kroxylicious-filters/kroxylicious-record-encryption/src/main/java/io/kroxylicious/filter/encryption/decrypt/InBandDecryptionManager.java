@@ -9,18 +9,22 @@ package io.kroxylicious.filter.encryption.decrypt;
 import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.function.IntFunction;
+import java.util.function.Supplier;
 
 import org.apache.kafka.common.header.Header;
 import org.apache.kafka.common.record.MemoryRecords;
 import org.apache.kafka.common.record.Record;
 import org.apache.kafka.common.utils.ByteBufferOutputStream;
 
+import io.kroxylicious.filter.encryption.common.CryptoExecutor;
 import io.kroxylicious.filter.encryption.common.EncryptionException;
 import io.kroxylicious.filter.encryption.common.FilterThreadExecutor;
 import io.kroxylicious.filter.encryption.common.RecordEncryptionUtil;
@@ -47,6 +51,8 @@ public class InBandDecryptionManager<K, E> implements DecryptionManager {
     private final DekManager<K, E> dekManager;
     private final FilterThreadExecutor filterThreadExecutor;
     private final DecryptionDekCache<K, E> dekCache;
+    @Nullable
+    private final CryptoExecutor cryptoExecutor;
 
     private final EncryptionResolver encryptionResolver;
 
@@ -54,10 +60,22 @@ public class InBandDecryptionManager<K, E> implements DecryptionManager {
                                    @NonNull DekManager<K, E> dekManager,
                                    @NonNull DecryptionDekCache<K, E> dekCache,
                                    @Nullable FilterThreadExecutor filterThreadExecutor) {
+        this(encryptionResolver, dekManager, dekCache, filterThreadExecutor, null);
+    }
+
+    /**
+     * @param cryptoExecutor the executor to decrypt records on, or null if records should be decrypted on the filter thread
+     */
+    public InBandDecryptionManager(EncryptionResolver encryptionResolver,
+                                   @NonNull DekManager<K, E> dekManager,
+                                   @NonNull DecryptionDekCache<K, E> dekCache,
+                                   @Nullable FilterThreadExecutor filterThreadExecutor,
+                                   @Nullable CryptoExecutor cryptoExecutor) {
         this.encryptionResolver = encryptionResolver;
         this.dekManager = Objects.requireNonNull(dekManager);
         this.dekCache = Objects.requireNonNull(dekCache);
         this.filterThreadExecutor = filterThreadExecutor;
+        this.cryptoExecutor = cryptoExecutor;
     }
 
     /**
@@ -102,24 +120,59 @@ public class InBandDecryptionManager<K, E> implements DecryptionManager {
             return CompletableFuture.completedFuture(records);
         }
 
-        CompletionStage<List<DecryptState<E>>> decryptStates = resolveAll(topicName, partition, records);
-        return decryptStates.thenApply(
-                decryptStateList -> {
-                    try {
-                        return decrypt(topicName,
-                                partition,
-                                records,
-                                decryptStateList,
-                                allocateBufferForDecrypt(records, bufferAllocator));
-                    }
-                    finally {
-                        for (var ds : decryptStateList) {
-                            if (ds != null && ds.decryptor() != null) {
-                                ds.decryptor().close();
-                            }
-                        }
-                    }
-                });
+        Set<Long> encryptedBatchBaseOffsets = new HashSet<>();
+        CompletionStage<List<DecryptState<E>>> decryptStates = resolveAll(topicName, partition, records, encryptedBatchBaseOffsets);
+        if (encryptedBatchBaseOffsets.isEmpty()) {
+            // none of the records are encrypted, so return the input without copying it
+            return CompletableFuture.completedFuture(records);
+        }
+        if (cryptoExecutor == null || filterThreadExecutor == null) {
+            return decryptStates.thenApply(
+                    decryptStateList -> decryptAndClose(topicName, partition, records, decryptStateList, encryptedBatchBaseOffsets,
+                            () -> allocateBufferForDecrypt(records, bufferAllocator)));
+        }
+        return decryptStates.thenCompose(decryptStateList -> {
+            CompletionStage<MemoryRecords> decrypted;
+            try {
+                // the filter's buffer allocator may only be used on the filter thread
+                ByteBufferOutputStream buffer = allocateBufferForDecrypt(records, bufferAllocator);
+                decrypted = filterThreadExecutor.completingOnFilterThread(cryptoExecutor.submit(
+                        () -> decrypt(topicName, partition, records, decryptStateList, encryptedBatchBaseOffsets, buffer)));
+            }
+            catch (RuntimeException e) {
+                closeDecryptors(decryptStateList);
+                throw e;
+            }
+            // the decryptors were issued on the filter thread, so close them there too, returning their ciphers to its pool
+            return decrypted.whenComplete((result, error) -> closeDecryptors(decryptStateList));
+        });
+    }
+
+    private MemoryRecords decryptAndClose(@NonNull String topicName,
+                                          int partition,
+                                          @NonNull MemoryRecords records,
+                                          @NonNull List<DecryptState<E>> decryptStateList,
+                                          @NonNull Set<Long> encryptedBatchBaseOffsets,
+                                          @NonNull Supplier<ByteBufferOutputStream> buffer) {
+        try {
+            return decrypt(topicName,
+                    partition,
+                    records,
+                    decryptStateList,
+                    encryptedBatchBaseOffsets,
+                    buffer.get());
+        }
+        finally {
+            closeDecryptors(decryptStateList);
+        }
+    }
+
+    private static <E> void closeDecryptors(List<DecryptState<E>> decryptStateList) {
+        for (var ds : decryptStateList) {
+            if (ds != null && ds.decryptor() != null) {
+                ds.decryptor().close();
+            }
+        }
     }
 
     /**
@@ -128,12 +181,15 @@ public class InBandDecryptionManager<K, E> implements DecryptionManager {
      * @param topicName The topic name.
      * @param partition The partition.
      * @param records The records to decrypt.
+     * @param encryptedBatchBaseOffsets Populated, before this method returns, with the base offsets of the batches
+     * which contain encrypted records.
      * @return A stage that completes with a list of the DecryptState
      * for each record in the given {@code records}, in the same order.
      */
     private CompletionStage<List<DecryptState<E>>> resolveAll(String topicName,
                                                               int partition,
-                                                              MemoryRecords records) {
+                                                              MemoryRecords records,
+                                                              Set<Long> encryptedBatchBaseOffsets) {
         Serde<E> serde = dekManager.edekSerde();
         // Use a pair of lists because we end up wanting a `List<DecryptState>`,
         // indexed by the position of the record in the multi-batch MemoryRecords,
@@ -148,6 +204,14 @@ public class InBandDecryptionManager<K, E> implements DecryptionManager {
         RecordStream.ofRecords(records).forEachRecord((batch, record, ignored) -> {
             var decryptionVersion = decryptionVersion(topicName, partition, record);
             if (decryptionVersion != null) {
+                encryptedBatchBaseOffsets.add(batch.baseOffset());
+            }
+            if (decryptionVersion != null && decryptionVersion.batchGranularity() && record.valueSize() == 0) {
+                // The record's value and headers are in the wrapper of an earlier record in the batch
+                cacheKeys.add(DecryptionDekCache.CacheKey.unencrypted());
+                states.add(new DecryptState<>(decryptionVersion));
+            }
+            else if (decryptionVersion != null) {
                 ByteBuffer wrapper = record.value();
                 cacheKeys.add(decryptionVersion.wrapper().readSpecAndEdek(wrapper, serde, DecryptionDekCache.CacheKey::new));
                 states.add(new DecryptState<>(decryptionVersion));
@@ -158,6 +222,9 @@ public class InBandDecryptionManager<K, E> implements DecryptionManager {
                 states.add(DecryptState.none());
             }
         });
+        if (encryptedBatchBaseOffsets.isEmpty()) {
+            return CompletableFuture.completedFuture(states);
+        }
         // Lookup the decryptors for the cache keys
         return filterThreadExecutor.completingOnFilterThread(dekCache.getAll(cacheKeys, filterThreadExecutor))
                 .thenApply(cacheKeyDecryptorMap ->
@@ -204,6 +271,7 @@ public class InBandDecryptionManager<K, E> implements DecryptionManager {
      * {@code decryptorList}.
      * @param records The records to decrypt.
      * @param decryptorList The decryptors to use.
+     * @param encryptedBatchBaseOffsets The base offsets of the batches which contain encrypted records; other batches are copied as-is.
      * @param buffer The buffer to fill (to encourage buffer reuse).
      * @return The decrypted records.
      */
@@ -212,10 +280,11 @@ public class InBandDecryptionManager<K, E> implements DecryptionManager {
                                   int partition,
                                   @NonNull MemoryRecords records,
                                   @NonNull List<DecryptState<E>> decryptorList,
+                                  @NonNull Set<Long> encryptedBatchBaseOffsets,
                                   @NonNull ByteBufferOutputStream buffer) {
         return RecordStream.ofRecordsWithIndex(records)
                 .mapPerRecord((batch, record, index) -> decryptorList.get(index))
                 .toMemoryRecords(buffer,
-                        new RecordDecryptor<>(topicName, partition));
+                        new RecordDecryptor<>(topicName, partition, encryptedBatchBaseOffsets));
     }
 }
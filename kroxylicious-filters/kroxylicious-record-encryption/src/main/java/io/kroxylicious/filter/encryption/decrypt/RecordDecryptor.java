@@ -8,11 +8,15 @@ package io.kroxylicious.filter.encryption.decrypt;
 
 import java.nio.ByteBuffer;
 import java.util.Objects;
+import java.util.Set;
 
 import org.apache.kafka.common.header.Header;
 import org.apache.kafka.common.record.Record;
 import org.apache.kafka.common.record.RecordBatch;
 
+import io.kroxylicious.filter.encryption.common.EncryptionException;
+import io.kroxylicious.filter.encryption.crypto.BatchPlaintext;
+import io.kroxylicious.filter.encryption.crypto.Encryption;
 import io.kroxylicious.filter.encryption.dek.Dek;
 import io.kroxylicious.kafka.transform.RecordTransform;
 
@@ -21,24 +25,46 @@ import edu.umd.cs.findbugs.annotations.Nullable;
 
 /**
  * A {@link RecordTransform} that decrypts records that were previously encrypted by {@link io.kroxylicious.filter.encryption.encrypt.RecordEncryptor}.
+ * <p>For an {@link Encryption#batchGranularity() encryption with batch granularity} the first encrypted record of a batch
+ * carries the ciphertext for the whole batch. Its plaintext is kept so that the parcels of the following
+ * encrypted records in the batch can be read from it.</p>
  */
 public class RecordDecryptor<E> implements RecordTransform<DecryptState<E>> {
 
     private final String topicName;
     private final int partition;
+    private final @Nullable Set<Long> encryptedBatchBaseOffsets;
     private RecordBatch batch;
+    private boolean batchLeaderSeen;
+    private @Nullable ByteBuffer batchPlaintext;
 
     private ByteBuffer transformedValue;
     private Header[] transformedHeaders;
 
     public RecordDecryptor(@NonNull String topicName, int partition) {
+        this(topicName, partition, null);
+    }
+
+    /**
+     * @param encryptedBatchBaseOffsets the base offsets of the batches which contain encrypted records, or null if unknown.
+     * Other batches are passed through unchanged.
+     */
+    public RecordDecryptor(@NonNull String topicName, int partition, @Nullable Set<Long> encryptedBatchBaseOffsets) {
         this.topicName = Objects.requireNonNull(topicName);
         this.partition = partition;
+        this.encryptedBatchBaseOffsets = encryptedBatchBaseOffsets;
+    }
+
+    @Override
+    public boolean canPassThrough(@NonNull RecordBatch batch) {
+        return encryptedBatchBaseOffsets != null && !encryptedBatchBaseOffsets.contains(batch.baseOffset());
     }
 
     @Override
     public void initBatch(@NonNull RecordBatch batch) {
         this.batch = Objects.requireNonNull(batch);
+        this.batchLeaderSeen = false;
+        this.batchPlaintext = null;
     }
 
     @Override
@@ -48,31 +74,69 @@ public class RecordDecryptor<E> implements RecordTransform<DecryptState<E>> {
             throw new IllegalStateException();
         }
         final Dek<E>.Decryptor decryptor;
+        final Encryption encryptionUsed;
         if (decryptState == null) {
             decryptor = null;
+            encryptionUsed = null;
         }
         else {
             decryptor = decryptState.decryptor();
+            encryptionUsed = decryptState.encryptionUsed();
+        }
+        if (encryptionUsed != null && encryptionUsed.batchGranularity()) {
+            initBatchGranularity(encryptionUsed, decryptor, record);
+            return;
         }
         if (decryptor == null) {
-            transformedValue = record.value();
-            transformedHeaders = record.headers();
+            passthrough(record);
             return;
         }
 
         var wrapper = record.value();
-        decryptState.encryptionUsed().wrapper().read(decryptState.encryptionUsed().parcel(),
+        encryptionUsed.wrapper().read(encryptionUsed.parcel(),
                 topicName,
                 partition,
                 batch,
                 record,
                 wrapper,
                 decryptor,
-                (v, h) -> {
-                    transformedValue = v;
-                    transformedHeaders = h;
-                });
+                this::setTransformed);
+
+    }
+
+    private void initBatchGranularity(@NonNull Encryption encryptionUsed,
+                                      @Nullable Dek<E>.Decryptor decryptor,
+                                      @NonNull Record record) {
+        if (record.valueSize() > 0) {
+            // the batch leader, whose value is the wrapper for the whole batch
+            batchLeaderSeen = true;
+            if (decryptor == null) {
+                passthrough(record);
+                return;
+            }
+            batchPlaintext = BatchPlaintext.read(encryptionUsed, encryptionUsed.wrapper().readBatch(topicName, partition, batch, record.value(), decryptor));
+        }
+        else if (batchPlaintext == null) {
+            if (!batchLeaderSeen) {
+                throw new EncryptionException("Record at offset " + record.offset()
+                        + " in partition " + partition
+                        + " of topic " + topicName
+                        + " was encrypted with its batch, but the record carrying the batch ciphertext is missing");
+            }
+            // the batch leader could not be decrypted either
+            passthrough(record);
+            return;
+        }
+        encryptionUsed.parcel().readParcel(batchPlaintext, record, this::setTransformed);
+    }
+
+    private void passthrough(@NonNull Record record) {
+        setTransformed(record.value(), record.headers());
+    }
 
+    private void setTransformed(@Nullable ByteBuffer value, @Nullable Header[] headers) {
+        transformedValue = value;
+        transformedHeaders = headers;
     }
 
     @Override
@@ -91,6 +91,11 @@ public class Aes implements CipherManager {
         return constantParamsSize();
     }
 
+    @Override
+    public int ciphertextSize(int plaintextSize) {
+        return plaintextSize + TAG_LENGTH_BITS / Byte.SIZE;
+    }
+
     @Override
     public void writeParameters(
                                 ByteBuffer parametersBuffer,
@@ -22,6 +22,7 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
 public class ChaChaPoly implements CipherManager {
     private static final int NONCE_SIZE_BYTES = 12;
+    private static final int TAG_SIZE_BYTES = 16;
 
     public static final ChaChaPoly INSTANCE = new ChaChaPoly();
 
@@ -86,6 +87,11 @@ public class ChaChaPoly implements CipherManager {
         return constantParamsSize();
     }
 
+    @Override
+    public int ciphertextSize(int plaintextSize) {
+        return plaintextSize + TAG_SIZE_BYTES;
+    }
+
     @Override
     public void writeParameters(
                                 ByteBuffer parametersBuffer,
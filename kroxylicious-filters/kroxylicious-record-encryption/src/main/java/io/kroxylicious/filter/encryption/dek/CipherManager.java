@@ -69,6 +69,12 @@ public interface CipherManager extends PersistedIdentifiable<CipherSpec> {
      */
     AlgorithmParameterSpec readParameters(ByteBuffer parametersBuffer);
 
+    /**
+     * Return the number of bytes of ciphertext which result from encrypting the given number of bytes of plaintext,
+     * including any authentication tag.
+     */
+    int ciphertextSize(int plaintextSize);
+
     /**
      * Returns the size of the keys (in bits) that this ciphertext manager requires.
      * @return the required key size in bits.
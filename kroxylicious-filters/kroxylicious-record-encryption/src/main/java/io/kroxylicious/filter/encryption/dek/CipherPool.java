@@ -0,0 +1,80 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.filter.encryption.dek;
+
+import java.util.ArrayDeque;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+import javax.crypto.Cipher;
+
+import io.kroxylicious.proxy.tag.VisibleForTesting;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+/**
+ * <p>A per-thread pool of {@link Cipher} instances, so that issuing an {@link Dek.Encryptor Encryptor}
+ * or {@link Dek.Decryptor Decryptor} does not have to look up a provider and construct a new
+ * {@link Cipher} each time.</p>
+ *
+ * <p>A cipher is {@linkplain #borrow(CipherManager) borrowed} from the pool of the thread that issues
+ * the cryptor and {@linkplain #release(CipherManager, Cipher) released} to the pool of the thread
+ * that closes it. Callers should issue and close a cryptor on the same thread, even if it is used
+ * on another, otherwise one thread's pool drains into the other's. Each pool is only ever accessed by its own
+ * thread. Ciphers are pooled per {@link CipherManager}, of which there is one for each
+ * {@link io.kroxylicious.filter.encryption.config.CipherSpec CipherSpec}.
+ * A borrowed cipher is always re-initialised before it is used, so nothing carries over between cryptors.
+ * As with a discarded cipher, an idle cipher may hold on to its last key's internal state until it is
+ * re-initialised, so the number of idle ciphers per thread is bounded.</p>
+ */
+public final class CipherPool {
+
+    /**
+     * The maximum number of idle ciphers a thread keeps for each {@link CipherManager}.
+     */
+    static final int MAX_IDLE_PER_CIPHER_MANAGER = 16;
+
+    private static final ThreadLocal<Map<CipherManager, ArrayDeque<Cipher>>> POOLS = ThreadLocal.withInitial(IdentityHashMap::new);
+
+    private CipherPool() {
+    }
+
+    /**
+     * Takes an idle cipher from the current thread's pool, or creates a new one if there is none.
+     * @param cipherManager the cipher manager
+     * @return a cipher, which the caller has exclusive use of until it is released
+     */
+    public static @NonNull Cipher borrow(@NonNull CipherManager cipherManager) {
+        ArrayDeque<Cipher> idle = POOLS.get().get(Objects.requireNonNull(cipherManager));
+        Cipher cipher = idle == null ? null : idle.pollFirst();
+        return cipher != null ? cipher : cipherManager.newCipher();
+    }
+
+    /**
+     * Returns a cipher, which the caller must no longer use, to the current thread's pool.
+     * @param cipherManager the cipher manager the cipher was borrowed for
+     * @param cipher the cipher
+     */
+    public static void release(@NonNull CipherManager cipherManager, @NonNull Cipher cipher) {
+        ArrayDeque<Cipher> idle = POOLS.get().computeIfAbsent(Objects.requireNonNull(cipherManager), k -> new ArrayDeque<>());
+        if (idle.size() < MAX_IDLE_PER_CIPHER_MANAGER) {
+            idle.addFirst(Objects.requireNonNull(cipher));
+        }
+    }
+
+    /**
+     * Returns the number of idle ciphers the current thread has for the given cipher manager.
+     * @param cipherManager the cipher manager
+     * @return the number of idle ciphers
+     */
+    @VisibleForTesting
+    public static int idle(@NonNull CipherManager cipherManager) {
+        ArrayDeque<Cipher> idle = POOLS.get().get(cipherManager);
+        return idle == null ? 0 : idle.size();
+    }
+}
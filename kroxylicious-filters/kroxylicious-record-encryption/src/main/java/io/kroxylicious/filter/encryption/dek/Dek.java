@@ -120,6 +120,15 @@ public final class Dek<E> {
         }
     }
 
+    /**
+     * Returns the number of further encryptions this DEK can perform.
+     * This may be negative once the DEK is exhausted.
+     * @return The number of remaining encryptions.
+     */
+    public long remainingEncryptions() {
+        return remainingEncryptions.get();
+    }
+
     /**
      * Get a decryptor for this DEK.
      * Note that while this method is safe to call from multiple threads, the returned decryptor is not.
@@ -180,12 +189,20 @@ public final class Dek<E> {
         return edek;
     }
 
+    /**
+     * Returns the cipher manager for the cipher this DEK is used with.
+     * @return The cipher manager
+     */
+    public @NonNull CipherManager cipherManager() {
+        return cipherManager;
+    }
+
     /**
      * A means of performing a limited number of encryption operations without access to key material.
      */
     @NotThreadSafe
     public final class Encryptor implements AutoCloseable {
-        private final Cipher cipher;
+        private Cipher cipher;
         private SecretKey key;
         private final Supplier<AlgorithmParameterSpec> paramSupplier;
         private final CipherManager cipherManager;
@@ -199,7 +216,7 @@ public final class Dek<E> {
             this.cipherManager = Objects.requireNonNull(cipherManager);
             this.key = Objects.requireNonNull(key);
             this.numEncryptions = numEncryptions;
-            this.cipher = cipherManager.newCipher();
+            this.cipher = CipherPool.borrow(cipherManager);
             this.paramSupplier = cipherManager.paramSupplier();
         }
 
@@ -225,6 +242,9 @@ public final class Dek<E> {
             if (numEncryptions <= 0) {
                 throw new DekUsageException("The Encryptor has no more operations allowed");
             }
+            else if (key == null) {
+                throw new DekUsageException("The Encryptor has been closed");
+            }
             else {
                 --numEncryptions;
                 try {
@@ -303,6 +323,10 @@ public final class Dek<E> {
         public void close() {
             if (key != null) {
                 key = null;
+                haveParameters = false;
+                // the cipher is only returned once, and never used again by this Encryptor
+                CipherPool.release(cipherManager, cipher);
+                cipher = null;
                 maybeDestroyKey(outstandingCryptors.releaseEncryptorUsage());
             }
         }
@@ -317,12 +341,12 @@ public final class Dek<E> {
      */
     @NotThreadSafe
     public final class Decryptor implements AutoCloseable {
-        private final Cipher cipher;
+        private Cipher cipher;
         private SecretKey key;
         private final CipherManager cipherManager;
 
         private Decryptor(CipherManager cipherManager, SecretKey key) {
-            this.cipher = cipherManager.newCipher();
+            this.cipher = CipherPool.borrow(cipherManager);
             this.cipherManager = cipherManager;
             this.key = key;
         }
@@ -338,6 +362,9 @@ public final class Dek<E> {
                             @Nullable ByteBuffer aad,
                             @NonNull ByteBuffer parameterBuffer,
                             @NonNull ByteBuffer plaintext) {
+            if (key == null) {
+                throw new DekUsageException("The Decryptor has been closed");
+            }
             try {
                 var parameterSpec = cipherManager.readParameters(parameterBuffer);
                 cipher.init(Cipher.DECRYPT_MODE, key, parameterSpec);
@@ -355,6 +382,9 @@ public final class Dek<E> {
         public void close() {
             if (key != null) {
                 key = null;
+                // the cipher is only returned once, and never used again by this Decryptor
+                CipherPool.release(cipherManager, cipher);
+                cipher = null;
                 maybeDestroyKey(outstandingCryptors.releaseDecryptorUsage());
             }
         }
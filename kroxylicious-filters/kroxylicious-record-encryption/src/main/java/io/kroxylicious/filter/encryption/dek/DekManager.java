@@ -6,12 +6,21 @@
 
 package io.kroxylicious.filter.encryption.dek;
 
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 
+import javax.crypto.SecretKey;
+
 import io.kroxylicious.filter.encryption.config.EncryptionConfigurationException;
 import io.kroxylicious.kms.service.DestroyableRawSecretKey;
 import io.kroxylicious.kms.service.Kms;
+import io.kroxylicious.kms.service.KmsException;
 import io.kroxylicious.kms.service.Serde;
 import io.kroxylicious.proxy.tag.ThreadSafe;
 
@@ -35,6 +44,14 @@ public class DekManager<K, E> {
         this.maxEncryptionsPerDek = maxEncryptionsPerDek;
     }
 
+    /**
+     * Returns the maximum number of encryptions a generated DEK can perform.
+     * @return The maximum number of encryptions per DEK.
+     */
+    public long maxEncryptionsPerDek() {
+        return maxEncryptionsPerDek;
+    }
+
     /**
      * Returns the KMS's serde for encrypted DEKs.
      *
@@ -89,4 +106,57 @@ public class DekManager<K, E> {
         Objects.requireNonNull(cipherManager);
         return kms.decryptEdek(edek).thenApply(key -> new Dek<>(edek, DestroyableRawSecretKey.toDestroyableKey(key), cipherManager, 0));
     }
+
+    /**
+     * Ask the KMS to decrypt a number of encrypted DEKs in a single {@link Kms#decryptEdeks(Collection)} call,
+     * returning a stage for the {@link Dek} of each of them.
+     * Each stage completes on its own, so an EDEK which the KMS does not return a key for fails only its own stage.
+     * The returned DEKs can only be used for decryption, and only for the given cipher.
+     * @param edeks The encrypted DEKs
+     * @param cipherManager The cipher supported by the returned DEKs.
+     * @return A completion stage for each of the distinct {@code edeks}, which completes with its {@link Dek}, or
+     * fails if the request to the KMS fails or the KMS did not decrypt that EDEK.
+     */
+    public Map<E, CompletionStage<Dek<E>>> decryptEdeks(@NonNull Collection<E> edeks, @NonNull CipherManager cipherManager) {
+        Objects.requireNonNull(edeks);
+        Objects.requireNonNull(cipherManager);
+        Map<E, CompletableFuture<Dek<E>>> deks = LinkedHashMap.newLinkedHashMap(edeks.size());
+        for (E edek : edeks) {
+            deks.putIfAbsent(edek, new CompletableFuture<>());
+        }
+        // each of the DEK futures is completed by this stage, so it does not need to be returned
+        var unused = kms.decryptEdeks(List.copyOf(deks.keySet())).whenComplete((keys, failure) -> {
+            if (failure != null) {
+                failIncomplete(deks, failure);
+                return;
+            }
+            try {
+                completeDeks(deks, keys, cipherManager);
+                failIncomplete(deks, new KmsException("KMS did not return a DEK for an EDEK it was asked to decrypt"));
+            }
+            catch (RuntimeException e) {
+                failIncomplete(deks, e);
+            }
+        });
+        return Collections.unmodifiableMap(deks);
+    }
+
+    private void completeDeks(Map<E, CompletableFuture<Dek<E>>> deks, Map<E, SecretKey> keys, CipherManager cipherManager) {
+        keys.forEach((edek, key) -> {
+            DestroyableRawSecretKey destroyableKey = DestroyableRawSecretKey.toDestroyableKey(key);
+            CompletableFuture<Dek<E>> dek = deks.get(edek);
+            if (dek == null) {
+                // the KMS decrypted an EDEK which was not asked for, so nothing else would destroy its key
+                destroyableKey.destroy();
+            }
+            else {
+                dek.complete(new Dek<>(edek, destroyableKey, cipherManager, 0));
+            }
+        });
+    }
+
+    private static <E> void failIncomplete(Map<E, CompletableFuture<Dek<E>>> deks, Throwable cause) {
+        // has no effect on the DEKs which have already been completed
+        deks.values().forEach(dek -> dek.completeExceptionally(cause));
+    }
 }
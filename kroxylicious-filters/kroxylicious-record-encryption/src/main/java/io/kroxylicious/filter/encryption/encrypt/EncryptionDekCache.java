@@ -8,9 +8,12 @@ package io.kroxylicious.filter.encryption.encrypt;
 
 import java.time.Duration;
 import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import org.slf4j.Logger;
@@ -20,6 +23,9 @@ import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.RemovalCause;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Meter;
+
 import io.kroxylicious.filter.encryption.common.FilterThreadExecutor;
 import io.kroxylicious.filter.encryption.config.CipherSpec;
 import io.kroxylicious.filter.encryption.dek.CipherSpecResolver;
@@ -31,7 +37,18 @@ import edu.umd.cs.findbugs.annotations.NonNull;
 import edu.umd.cs.findbugs.annotations.Nullable;
 
 /**
- * A cache of DEKs used on the encryption path.
+ * <p>A cache of DEKs used on the encryption path.</p>
+ *
+ * <p>The cache can be divided into a number of stripes, each with its own DEK for a given KEK.
+ * Each thread that gets DEKs is assigned an index, round-robin, the first time it does so, and uses the stripe
+ * at its index modulo the number of stripes.
+ * With at least as many stripes as there are event loop threads each thread encrypts with its own DEK,
+ * so threads do not contend on the DEK's usage counters. The cost is more DEKs, and so more requests to the KMS
+ * to generate them.</p>
+ *
+ * <p>So that the encryption path does not have to wait for the KMS, DEKs can be {@linkplain #prewarm(Object) generated}
+ * before they are first needed, and a DEK which is close to being exhausted is replaced in the background.
+ * The replaced DEK continues to be used until its replacement has been generated.</p>
  * @param <K> The type of KEK id.
  * @param <E> The type of encrypted DEK.
  */
@@ -40,13 +57,23 @@ public class EncryptionDekCache<K, E> {
     private static final Logger LOGGER = LoggerFactory.getLogger(EncryptionDekCache.class);
 
     public static final int NO_MAX_CACHE_SIZE = -1;
+    public static final String STRIPE_LABEL = "stripe";
+    public static final long NO_PROACTIVE_REFRESH = -1L;
+    private static final AtomicInteger NEXT_THREAD_INDEX = new AtomicInteger();
+    // shared by all caches, so that a thread holds one index however many caches it gets DEKs from
+    private static final ThreadLocal<Integer> THREAD_INDEX = ThreadLocal.withInitial(NEXT_THREAD_INDEX::getAndIncrement);
     private CipherSpecResolver cipherSpecResolver;
     private final AtomicLong invalidationCount = new AtomicLong(0L);
+    private final int stripes;
+    private final Counter[] dekGenerationCounters;
+    private final long refreshAtRemainingEncryptions;
+    // the DEKs which are being replaced before they are exhausted
+    private final Set<Dek<E>> refreshing = ConcurrentHashMap.newKeySet();
 
-    private record CacheKey<K>(K kek, CipherSpec cipherSpec) {}
+    private record CacheKey<K>(K kek, CipherSpec cipherSpec, int stripe) {}
 
-    private static <K> CacheKey<K> cacheKey(EncryptionScheme<K> encryptionScheme) {
-        return new CacheKey<>(encryptionScheme.kekId(), CipherSpec.AES_256_GCM_128);
+    private CacheKey<K> cacheKey(EncryptionScheme<K> encryptionScheme) {
+        return new CacheKey<>(encryptionScheme.kekId(), CipherSpec.AES_256_GCM_128, stripes == 1 ? 0 : Math.floorMod(THREAD_INDEX.get(), stripes));
     }
 
     private final DekManager<K, E> dekManager;
@@ -58,9 +85,42 @@ public class EncryptionDekCache<K, E> {
                               int dekCacheMaxItems,
                               @NonNull Duration refreshAfterWrite,
                               @NonNull Duration expireAfterWrite) {
+        this(dekManager, dekCacheExecutor, dekCacheMaxItems, refreshAfterWrite, expireAfterWrite, 1, null, NO_PROACTIVE_REFRESH);
+    }
+
+    /**
+     * @param dekManager The DEK manager
+     * @param dekCacheExecutor The executor for loading and evicting DEKs, or null for Caffeine's default
+     * @param dekCacheMaxItems The maximum number of DEKs to cache, or {@link #NO_MAX_CACHE_SIZE}
+     * @param refreshAfterWrite The duration after which a DEK is replaced
+     * @param expireAfterWrite The duration after which a DEK is no longer used
+     * @param stripes The number of stripes
+     * @param dekGenerationCounter The counter of DEKs generated, which is tagged with the {@link #STRIPE_LABEL stripe}, or null
+     * @param refreshAtRemainingEncryptions The number of remaining encryptions at, or below, which a cached DEK is replaced
+     * in the background, or {@link #NO_PROACTIVE_REFRESH}
+     */
+    public EncryptionDekCache(@NonNull DekManager<K, E> dekManager,
+                              @Nullable Executor dekCacheExecutor,
+                              int dekCacheMaxItems,
+                              @NonNull Duration refreshAfterWrite,
+                              @NonNull Duration expireAfterWrite,
+                              int stripes,
+                              @Nullable Meter.MeterProvider<Counter> dekGenerationCounter,
+                              long refreshAtRemainingEncryptions) {
         Objects.requireNonNull(refreshAfterWrite, "refreshAfterWrite is null");
         Objects.requireNonNull(expireAfterWrite, "expireAfterWrite is null");
+        if (stripes <= 0) {
+            throw new IllegalArgumentException("stripes must be greater than zero");
+        }
         this.dekManager = Objects.requireNonNull(dekManager);
+        this.stripes = stripes;
+        this.refreshAtRemainingEncryptions = refreshAtRemainingEncryptions;
+        this.dekGenerationCounters = new Counter[stripes];
+        if (dekGenerationCounter != null) {
+            for (int stripe = 0; stripe < stripes; stripe++) {
+                dekGenerationCounters[stripe] = dekGenerationCounter.withTag(STRIPE_LABEL, Integer.toString(stripe));
+            }
+        }
         this.cipherSpecResolver = CipherSpecResolver.ALL;
         Caffeine<Object, Object> cache = Caffeine.newBuilder();
         if (dekCacheMaxItems != NO_MAX_CACHE_SIZE) {
@@ -83,11 +143,20 @@ public class EncryptionDekCache<K, E> {
      */
     private CompletableFuture<Dek<E>> requestGenerateDek(@NonNull CacheKey<K> cacheKey,
                                                          @NonNull Executor executor) {
+        return generateDek(cacheKey);
+    }
+
+    private CompletableFuture<Dek<E>> generateDek(@NonNull CacheKey<K> cacheKey) {
         return dekManager.generateDek(cacheKey.kek(), cipherSpecResolver.fromName(cacheKey.cipherSpec()))
                 .thenApply(dek -> {
                     LOGGER.atTrace()
                             .addKeyValue("dek", dek)
+                            .addKeyValue(STRIPE_LABEL, cacheKey.stripe())
                             .log("Adding DEK to cache");
+                    Counter counter = dekGenerationCounters[cacheKey.stripe()];
+                    if (counter != null) {
+                        counter.increment();
+                    }
                     dek.destroyForDecrypt();
                     return dek;
                 })
@@ -102,6 +171,7 @@ public class EncryptionDekCache<K, E> {
                                     @Nullable Dek<E> dek,
                                     RemovalCause removalCause) {
         if (dek != null) {
+            refreshing.remove(dek);
             dek.destroyForEncrypt();
             LOGGER.atTrace()
                     .addKeyValue("dek", dek)
@@ -110,7 +180,7 @@ public class EncryptionDekCache<K, E> {
     }
 
     /**
-     * Obtain a Dek for the KEK in the given {@code encryptionScheme},
+     * Obtain a Dek for the KEK in the given {@code encryptionScheme} from the calling thread's stripe,
      * generating a new one if necessary.
      *
      * @param encryptionScheme The KEK to get a DEK for.
@@ -119,7 +189,52 @@ public class EncryptionDekCache<K, E> {
      */
     public @NonNull CompletionStage<Dek<E>> get(@NonNull EncryptionScheme<K> encryptionScheme,
                                                 @NonNull FilterThreadExecutor filterThreadExecutor) {
-        return filterThreadExecutor.completingOnFilterThread(dekCache.get(cacheKey(encryptionScheme)));
+        CacheKey<K> cacheKey = cacheKey(encryptionScheme);
+        CompletableFuture<Dek<E>> dek = dekCache.get(cacheKey);
+        maybeRefreshBeforeExhausted(cacheKey, dek);
+        return filterThreadExecutor.completingOnFilterThread(dek);
+    }
+
+    private void maybeRefreshBeforeExhausted(CacheKey<K> cacheKey, CompletableFuture<Dek<E>> dekFuture) {
+        if (refreshAtRemainingEncryptions == NO_PROACTIVE_REFRESH
+                || !dekFuture.isDone()
+                || dekFuture.isCompletedExceptionally()) {
+            return;
+        }
+        Dek<E> dek = dekFuture.join();
+        if (dek.remainingEncryptions() > refreshAtRemainingEncryptions || !refreshing.add(dek)) {
+            return;
+        }
+        // the cache evicts (and so destroys) the old DEK when the new one replaces it
+        var unused = generateDek(cacheKey).whenComplete((replacement, failure) -> {
+            if (failure != null) {
+                LOGGER.atDebug()
+                        .setCause(failure)
+                        .addKeyValue(STRIPE_LABEL, cacheKey.stripe())
+                        .log("Failed to replace DEK before it is exhausted");
+                // a later encryption with the DEK will try again
+                refreshing.remove(dek);
+            }
+            else if (!dekCache.asMap().replace(cacheKey, dekFuture, CompletableFuture.completedFuture(replacement))) {
+                // the DEK was invalidated, or replaced by the cache itself, in the meantime
+                replacement.destroyForEncrypt();
+            }
+        });
+    }
+
+    /**
+     * Generates a DEK for the given KEK in each stripe, unless there is one already,
+     * so that the first encryption with the KEK does not have to wait for the KMS.
+     * @param kekId The KEK to generate DEKs for.
+     * @return A stage that completes when the DEKs have been generated.
+     */
+    public @NonNull CompletionStage<Void> prewarm(@NonNull K kekId) {
+        Objects.requireNonNull(kekId);
+        CompletableFuture<?>[] deks = new CompletableFuture<?>[stripes];
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            deks[stripe] = dekCache.get(new CacheKey<>(kekId, CipherSpec.AES_256_GCM_128, stripe));
+        }
+        return CompletableFuture.allOf(deks);
     }
 
     /**
@@ -127,6 +242,8 @@ public class EncryptionDekCache<K, E> {
      * CAS style so that multiple threads can redundantly invalidate the same cache key.
      * This method may block if a DEK for the given {@code encryptionScheme} is in the process
      * of being loaded.
+     * Only the calling thread's stripe is considered, so this should be called on the thread
+     * that {@linkplain #get(EncryptionScheme, FilterThreadExecutor) got} the DEK.
      * @param encryptionScheme The KEK for the DEK to discard.
      * @param dek The DEK to discard.
      */
@@ -155,4 +272,12 @@ public class EncryptionDekCache<K, E> {
     long invalidationCount() {
         return invalidationCount.get();
     }
+
+    /**
+     * Returns the number of stripes.
+     * @return The number of stripes
+     */
+    public int stripes() {
+        return stripes;
+    }
 }
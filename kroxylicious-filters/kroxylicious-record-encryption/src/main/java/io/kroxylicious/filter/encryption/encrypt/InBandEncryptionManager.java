@@ -9,19 +9,21 @@ package io.kroxylicious.filter.encryption.encrypt;
 import java.nio.ByteBuffer;
 import java.util.Objects;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
 import java.util.function.IntFunction;
 
 import org.apache.kafka.common.errors.NetworkException;
 import org.apache.kafka.common.record.MemoryRecords;
+import org.apache.kafka.common.record.MutableRecordBatch;
 import org.apache.kafka.common.utils.ByteBufferOutputStream;
 
+import io.kroxylicious.filter.encryption.common.CryptoExecutor;
 import io.kroxylicious.filter.encryption.common.EncryptionException;
 import io.kroxylicious.filter.encryption.common.FilterThreadExecutor;
 import io.kroxylicious.filter.encryption.common.RecordEncryptionUtil;
 import io.kroxylicious.filter.encryption.crypto.Encryption;
 import io.kroxylicious.filter.encryption.crypto.EncryptionHeader;
-import io.kroxylicious.filter.encryption.dek.BufferTooSmallException;
 import io.kroxylicious.filter.encryption.dek.Dek;
 import io.kroxylicious.filter.encryption.dek.DestroyedDekException;
 import io.kroxylicious.filter.encryption.dek.ExhaustedDekException;
@@ -30,10 +32,28 @@ import io.kroxylicious.kms.service.Serde;
 import io.kroxylicious.proxy.tag.VisibleForTesting;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
 
 public class InBandEncryptionManager<K, E> implements EncryptionManager<K> {
 
     private static final int MAX_ATTEMPTS = 100;
+    private static final int MAX_VARINT_BYTES = 5;
+    /**
+     * The most that encrypting a record adds to its size, other than the overhead of its wrapper.
+     */
+    private static final int MAX_RECORD_OVERHEAD_BYTES = MAX_VARINT_BYTES + EncryptionHeader.ENCRYPTION_HEADER_NAME.length() + MAX_VARINT_BYTES + 1 // encryption header
+            + 2 * MAX_VARINT_BYTES // value and headers lengths in the parcel
+            + 2 * MAX_VARINT_BYTES // growth of the record's own length and headers count
+            + 1; // compression type of a batch plaintext
+
+    /**
+     * The buffer each thread writes wrappers into before they're copied to the encrypted batch.
+     * A thread encrypts the records of one {@link #encryptBatches} call at a time, and a wrapper is only
+     * needed until it has been copied, so a single buffer per thread suffices.
+     * It grows, up to the maximum record buffer size, to fit the largest wrapper the thread has written.
+     */
+    private static final ThreadLocal<ByteBuffer> RECORD_BUFFER = new ThreadLocal<>();
+
     /**
     * The encryption version used on the produce path.
     * Note that the encryption version used on the fetch path is read from the
@@ -44,6 +64,8 @@ public class InBandEncryptionManager<K, E> implements EncryptionManager<K> {
     private final EncryptionDekCache<K, E> dekCache;
     @NonNull
     private final FilterThreadExecutor filterThreadExecutor;
+    @Nullable
+    private final CryptoExecutor cryptoExecutor;
     private final int recordBufferInitialBytes;
     private final int recordBufferMaxBytes;
 
@@ -53,8 +75,22 @@ public class InBandEncryptionManager<K, E> implements EncryptionManager<K> {
                                    int recordBufferMaxBytes,
                                    @NonNull EncryptionDekCache<K, E> dekCache,
                                    @NonNull FilterThreadExecutor filterThreadExecutor) {
+        this(encryption, edekSerde, recordBufferInitialBytes, recordBufferMaxBytes, dekCache, filterThreadExecutor, null);
+    }
+
+    /**
+     * @param cryptoExecutor the executor to encrypt records on, or null if records should be encrypted on the filter thread
+     */
+    public InBandEncryptionManager(@NonNull Encryption encryption,
+                                   @NonNull Serde<E> edekSerde,
+                                   int recordBufferInitialBytes,
+                                   int recordBufferMaxBytes,
+                                   @NonNull EncryptionDekCache<K, E> dekCache,
+                                   @NonNull FilterThreadExecutor filterThreadExecutor,
+                                   @Nullable CryptoExecutor cryptoExecutor) {
         this.filterThreadExecutor = filterThreadExecutor;
-        this.encryption = Objects.requireNonNull(encryption); // TODO read from config
+        this.cryptoExecutor = cryptoExecutor;
+        this.encryption = Objects.requireNonNull(encryption);
         this.edekSerde = Objects.requireNonNull(edekSerde);
         if (recordBufferInitialBytes <= 0) {
             throw new IllegalArgumentException();
@@ -96,10 +132,33 @@ public class InBandEncryptionManager<K, E> implements EncryptionManager<K> {
     }
 
     private ByteBufferOutputStream allocateBufferForEncrypt(@NonNull MemoryRecords records,
+                                                            @NonNull Dek<E> dek,
                                                             @NonNull IntFunction<ByteBufferOutputStream> bufferAllocator) {
-        int sizeEstimate = 2 * records.sizeInBytes();
-        // Accurate estimation is tricky without knowing the record sizes
-        return bufferAllocator.apply(sizeEstimate);
+        return bufferAllocator.apply(sizeOfEncrypted(records, dek));
+    }
+
+    /**
+     * Computes the size of the buffer to encrypt the given records into.
+     * For an uncompressed batch this is an upper bound on its encrypted size, computed from the number of records
+     * and the size of a wrapper, so the buffer need not grow. The records of a compressed batch can't be sized
+     * without decompressing them, so twice the batch's size is allowed, and the buffer grows if that is not enough.
+     */
+    @VisibleForTesting
+    int sizeOfEncrypted(@NonNull MemoryRecords records,
+                        @NonNull Dek<E> dek) {
+        int wrapperOverhead = encryption.wrapper().sizeOfWrapper(edekSerde, dek.edek(), dek.cipherManager(), 0);
+        long size = 0;
+        for (MutableRecordBatch batch : records.batches()) {
+            Integer count = batch.countOrNull();
+            if (batch.isCompressed() || count == null) {
+                size += 2L * batch.sizeInBytes();
+            }
+            else {
+                int wrappers = encryption.batchGranularity() ? Math.min(count, 1) : count;
+                size += batch.sizeInBytes() + (long) count * MAX_RECORD_OVERHEAD_BYTES + (long) wrappers * wrapperOverhead;
+            }
+        }
+        return (int) Math.min(size, Integer.MAX_VALUE);
     }
 
     private CompletionStage<MemoryRecords> attemptEncrypt(@NonNull String topicName,
@@ -118,24 +177,21 @@ public class InBandEncryptionManager<K, E> implements EncryptionManager<K> {
         return currentDek(encryptionScheme).thenCompose(dek -> {
             // if it's not alive we know a previous encrypt call has removed this stage from the cache and fall through to retry encrypt
             if (!dek.isDestroyed()) {
-                try {
-                    var encryptedMemoryRecords = encryptBatches(
-                            dek,
-                            allRecordsCount,
-                            topicName,
-                            partition,
-                            encryptionScheme,
-                            records,
-                            bufferAllocator);
-                    return CompletableFuture.completedFuture(encryptedMemoryRecords);
-                }
-                catch (DestroyedDekException | ExhaustedDekException e) {
-                    rotateKeyContext(encryptionScheme, dek);
-                    // fall through to recursive call below...
-                }
-                catch (Exception e) {
-                    return CompletableFuture.failedFuture(e);
-                }
+                return encryptBatchesAsync(dek, allRecordsCount, topicName, partition, encryptionScheme, records, bufferAllocator)
+                        .exceptionallyCompose(throwable -> {
+                            Throwable cause = throwable instanceof CompletionException ? throwable.getCause() : throwable;
+                            if (cause instanceof DestroyedDekException || cause instanceof ExhaustedDekException) {
+                                rotateKeyContext(encryptionScheme, dek);
+                                return attemptEncrypt(topicName,
+                                        partition,
+                                        encryptionScheme,
+                                        records,
+                                        attempt + 1,
+                                        bufferAllocator,
+                                        allRecordsCount);
+                            }
+                            return CompletableFuture.failedFuture(cause);
+                        });
             }
             // recurse, incrementing the attempt number
             return attemptEncrypt(topicName,
@@ -148,6 +204,31 @@ public class InBandEncryptionManager<K, E> implements EncryptionManager<K> {
         });
     }
 
+    /**
+     * Encrypts the batches on the crypto executor, if there is one, otherwise on the calling (filter) thread.
+     * The returned stage is completed on the filter thread.
+     */
+    private CompletionStage<MemoryRecords> encryptBatchesAsync(Dek<E> dek,
+                                                               int allRecordsCount,
+                                                               @NonNull String topicName,
+                                                               int partition,
+                                                               @NonNull EncryptionScheme<K> encryptionScheme,
+                                                               @NonNull MemoryRecords records,
+                                                               @NonNull IntFunction<ByteBufferOutputStream> bufferAllocator) {
+        if (cryptoExecutor == null) {
+            try {
+                return CompletableFuture.completedFuture(encryptBatches(dek, allRecordsCount, topicName, partition, encryptionScheme, records, bufferAllocator));
+            }
+            catch (Exception e) {
+                return CompletableFuture.failedFuture(e);
+            }
+        }
+        // the filter's buffer allocator may only be used on the filter thread
+        var workerAllocator = CryptoExecutor.preallocated(allocateBufferForEncrypt(records, dek, bufferAllocator));
+        return filterThreadExecutor.completingOnFilterThread(cryptoExecutor.submit(
+                () -> encryptBatches(dek, allRecordsCount, topicName, partition, encryptionScheme, records, workerAllocator)));
+    }
+
     @NonNull
     private MemoryRecords encryptBatches(Dek<E> dek,
                                          int allRecordsCount,
@@ -156,37 +237,65 @@ public class InBandEncryptionManager<K, E> implements EncryptionManager<K> {
                                          @NonNull EncryptionScheme<K> encryptionScheme,
                                          @NonNull MemoryRecords memoryRecords,
                                          @NonNull IntFunction<ByteBufferOutputStream> bufferAllocator) {
-        ByteBuffer recordBuffer = ByteBuffer.allocate(recordBufferInitialBytes);
-        do {
-            // create a new encryptor for each attempt as its requested encryption operations may be partially consumed by the attempt
-            // leaving us with too few operations remaining to encrypt the batches
-            try (Dek<E>.Encryptor encryptor = dek.encryptor(allRecordsCount)) {
-                return RecordStream.ofRecords(memoryRecords)
-                        .mapConstant(encryptor)
-                        .toMemoryRecords(allocateBufferForEncrypt(memoryRecords, bufferAllocator),
-                                new RecordEncryptor<>(topicName,
-                                        partition,
-                                        encryption,
-                                        encryptionScheme,
-                                        edekSerde,
-                                        recordBuffer));
-            }
-            catch (BufferTooSmallException e) {
-                recordBuffer = growBuffer(recordBuffer, recordBufferMaxBytes);
-            }
-        } while (true);
+        // each wrapper is sized exactly before it is written, so the records are encrypted in a single attempt
+        try (Dek<E>.Encryptor encryptor = dek.encryptor(encryptionsRequired(memoryRecords, allRecordsCount))) {
+            return RecordStream.ofRecords(memoryRecords)
+                    .mapConstant(encryptor)
+                    .toMemoryRecords(allocateBufferForEncrypt(memoryRecords, dek, bufferAllocator),
+                            new RecordEncryptor<>(topicName,
+                                    partition,
+                                    encryption,
+                                    encryptionScheme,
+                                    edekSerde,
+                                    this::recordBuffer));
+        }
+    }
+
+    /**
+     * Gets this thread's record buffer, cleared, growing it if it has fewer than {@code requiredBytes} bytes.
+     */
+    @NonNull
+    private ByteBuffer recordBuffer(int requiredBytes) {
+        if (requiredBytes > recordBufferMaxBytes) {
+            // the buffer may already be large enough, having been grown by a manager with a larger maximum
+            throw recordBufferTooLarge(recordBufferMaxBytes);
+        }
+        ByteBuffer recordBuffer = RECORD_BUFFER.get();
+        if (recordBuffer == null || recordBuffer.capacity() < requiredBytes) {
+            recordBuffer = growBuffer(recordBuffer == null ? ByteBuffer.allocate(0) : recordBuffer,
+                    Math.max(requiredBytes, recordBufferInitialBytes),
+                    recordBufferMaxBytes);
+            RECORD_BUFFER.set(recordBuffer);
+        }
+        return recordBuffer.clear();
     }
 
+    private int encryptionsRequired(@NonNull MemoryRecords memoryRecords, int allRecordsCount) {
+        // with batch granularity there is (at most) one encryption per batch
+        return encryption.batchGranularity() ? RecordEncryptionUtil.totalNonEmptyBatches(memoryRecords) : allRecordsCount;
+    }
+
+    /**
+     * Allocates a buffer of at least {@code requiredBytes}, doubling the capacity of the given buffer until it is large enough,
+     * so that a thread whose records keep growing doesn't reallocate its buffer for each of them.
+     */
     @VisibleForTesting
     @NonNull
-    static ByteBuffer growBuffer(ByteBuffer recordBuffer, int maxBytes) {
-        if (recordBuffer.capacity() == maxBytes) {
-            throw new EncryptionException("Record buffer cannot grow greater than " + maxBytes + " bytes");
+    static ByteBuffer growBuffer(ByteBuffer recordBuffer, int requiredBytes, int maxBytes) {
+        if (requiredBytes > maxBytes) {
+            throw recordBufferTooLarge(maxBytes);
         }
         // we should make an attempt at the max buffer size. now that the min and max are configurable it's not guaranteed that the numbers
         // will neatly line up.
-        int newCapacity = Math.min(maxBytes, 2 * recordBuffer.capacity());
-        return ByteBuffer.allocate(newCapacity);
+        long newCapacity = Math.max(1, recordBuffer.capacity());
+        while (newCapacity < requiredBytes) {
+            newCapacity = Math.min(maxBytes, 2 * newCapacity);
+        }
+        return ByteBuffer.allocate((int) newCapacity);
+    }
+
+    private static EncryptionException recordBufferTooLarge(int maxBytes) {
+        return new EncryptionException("Record buffer cannot grow greater than " + maxBytes + " bytes");
     }
 
     private void rotateKeyContext(@NonNull EncryptionScheme<K> encryptionScheme,
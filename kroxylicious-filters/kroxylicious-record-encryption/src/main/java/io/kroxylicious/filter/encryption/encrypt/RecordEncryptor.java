@@ -7,18 +7,23 @@
 package io.kroxylicious.filter.encryption.encrypt;
 
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Objects;
 
+import org.apache.kafka.common.compress.Compression;
 import org.apache.kafka.common.header.Header;
 import org.apache.kafka.common.header.internals.RecordHeader;
 import org.apache.kafka.common.record.Record;
 import org.apache.kafka.common.record.RecordBatch;
 
 import io.kroxylicious.filter.encryption.config.RecordField;
+import io.kroxylicious.filter.encryption.crypto.BatchPlaintext;
 import io.kroxylicious.filter.encryption.crypto.Encryption;
 import io.kroxylicious.filter.encryption.crypto.EncryptionHeader;
 import io.kroxylicious.filter.encryption.dek.BufferTooSmallException;
 import io.kroxylicious.filter.encryption.dek.Dek;
+import io.kroxylicious.filter.encryption.dek.EncryptAllocator;
 import io.kroxylicious.kafka.transform.RecordTransform;
 import io.kroxylicious.kms.service.Serde;
 
@@ -27,17 +32,24 @@ import edu.umd.cs.findbugs.annotations.Nullable;
 
 /**
  * A {@link RecordTransform} that encrypts records so that they can be later decrypted by {@link io.kroxylicious.filter.encryption.decrypt.RecordDecryptor}.
+ * <p>If the {@link Encryption#batchGranularity() encryption has batch granularity} the values (and headers) of all the
+ * records in a batch are encrypted together, as the value of the first record in the batch which has a value.
+ * The other records in the batch that have a value are given an empty value.
+ * If the encryption also {@link Encryption#compressedBatch() compresses batches} the batch is written uncompressed.</p>
  * @param <K> The type of KEK id
  */
 public class RecordEncryptor<K, E> implements RecordTransform<Dek<E>.Encryptor> {
 
+    private static final ByteBuffer EMPTY_VALUE = ByteBuffer.allocate(0);
+
     private final Encryption encryption;
     private final EncryptionScheme<K> encryptionScheme;
     private final Serde<E> edekSerde;
     private final String topicName;
     private final int partition;
     private Dek<E>.Encryptor encryptor;
-    private final ByteBuffer recordBuffer;
+    private final EncryptAllocator recordBufferAllocator;
+    private @Nullable ByteBuffer recordBuffer;
     /**
      * The encryption version used on the produce path.
      * Note that the encryption version used on the fetch path is read from the
@@ -47,13 +59,15 @@ public class RecordEncryptor<K, E> implements RecordTransform<Dek<E>.Encryptor>
     private @Nullable ByteBuffer transformedValue;
     private @Nullable Header[] transformedHeaders;
     private RecordBatch batch;
+    private @Nullable List<Record> valuedRecords;
+    private boolean batchWrapperWritten;
 
     /**
      * Constructor (obviously).
      * @param encryption The encryption version
      * @param encryptionScheme The encryption scheme for this key
      * @param edekSerde Serde for the encrypted DEK.
-     * @param recordBuffer A buffer
+     * @param recordBuffer A buffer, which must be large enough for the largest wrapper
      */
     public RecordEncryptor(@NonNull String topicName,
                            int partition,
@@ -61,23 +75,71 @@ public class RecordEncryptor<K, E> implements RecordTransform<Dek<E>.Encryptor>
                            @NonNull EncryptionScheme<K> encryptionScheme,
                            @NonNull Serde<E> edekSerde,
                            @NonNull ByteBuffer recordBuffer) {
+        this(topicName, partition, encryption, encryptionScheme, edekSerde, fixedBuffer(Objects.requireNonNull(recordBuffer)));
+    }
+
+    /**
+     * @param encryption The encryption version
+     * @param encryptionScheme The encryption scheme for this key
+     * @param edekSerde Serde for the encrypted DEK.
+     * @param recordBufferAllocator Returns a cleared buffer with at least the requested number of bytes remaining,
+     * into which a wrapper will be written. The buffer is only used until the following record is initialised,
+     * so the same buffer may be returned each time.
+     */
+    public RecordEncryptor(@NonNull String topicName,
+                           int partition,
+                           @NonNull Encryption encryption,
+                           @NonNull EncryptionScheme<K> encryptionScheme,
+                           @NonNull Serde<E> edekSerde,
+                           @NonNull EncryptAllocator recordBufferAllocator) {
         this.topicName = Objects.requireNonNull(topicName);
         this.partition = partition;
         this.encryption = Objects.requireNonNull(encryption);
         this.encryptionScheme = Objects.requireNonNull(encryptionScheme);
         this.edekSerde = Objects.requireNonNull(edekSerde);
-        this.recordBuffer = Objects.requireNonNull(recordBuffer);
+        this.recordBufferAllocator = Objects.requireNonNull(recordBufferAllocator);
         this.encryptionHeader = new Header[]{ new RecordHeader(EncryptionHeader.ENCRYPTION_HEADER_NAME, new byte[]{ encryption.serializedId() }) };
     }
 
+    private static EncryptAllocator fixedBuffer(@NonNull ByteBuffer recordBuffer) {
+        return size -> {
+            if (size > recordBuffer.capacity()) {
+                throw new BufferTooSmallException();
+            }
+            return recordBuffer.clear();
+        };
+    }
+
     @Override
     public void initBatch(@NonNull RecordBatch batch) {
         this.batch = Objects.requireNonNull(batch);
+        this.valuedRecords = null;
+        this.batchWrapperWritten = false;
+    }
+
+    @Override
+    public boolean needsBatchRecords(@NonNull RecordBatch batch) {
+        // the batch wrapper, written for the first record with a value, encrypts all the records with values
+        return encryption.batchGranularity();
+    }
+
+    @Override
+    public void initBatch(@NonNull RecordBatch batch, @NonNull List<Record> records) {
+        initBatch(batch);
+        List<Record> withValues = new ArrayList<>(records.size());
+        for (Record kafkaRecord : records) {
+            if (kafkaRecord.hasValue()) {
+                withValues.add(kafkaRecord);
+            }
+        }
+        this.valuedRecords = withValues;
     }
 
     @Override
     public void resetAfterTransform(Dek<E>.Encryptor encryptor, Record record) {
-        recordBuffer.clear();
+        if (recordBuffer != null) {
+            recordBuffer.clear();
+        }
     }
 
     @Override
@@ -99,8 +161,11 @@ public class RecordEncryptor<K, E> implements RecordTransform<Dek<E>.Encryptor>
     @Nullable
     private ByteBuffer doTransformValue(@NonNull Record kafkaRecord) throws BufferTooSmallException {
         final ByteBuffer transformed;
-        if (kafkaRecord.hasValue()) {
-            transformed = writeWrapper(kafkaRecord, recordBuffer);
+        if (kafkaRecord.hasValue() && encryption.batchGranularity()) {
+            transformed = batchWrapperWritten ? EMPTY_VALUE : writeBatchWrapper();
+        }
+        else if (kafkaRecord.hasValue()) {
+            transformed = writeWrapper(kafkaRecord);
         }
         else {
             transformed = null;
@@ -127,10 +192,24 @@ public class RecordEncryptor<K, E> implements RecordTransform<Dek<E>.Encryptor>
         return transformed;
     }
 
-    @Nullable
-    private ByteBuffer writeWrapper(@NonNull Record kafkaRecord,
-                                    @NonNull ByteBuffer buffer)
+    /**
+     * Gets a buffer of exactly the size of the wrapper for the given size of plaintext.
+     */
+    @NonNull
+    private ByteBuffer recordBuffer(int plaintextSize) {
+        int wrapperSize = encryption.wrapper().sizeOfWrapper(edekSerde,
+                Objects.requireNonNull(encryptor.edek()),
+                encryptor.cipherManager(),
+                plaintextSize);
+        ByteBuffer buffer = recordBufferAllocator.buffer(wrapperSize);
+        recordBuffer = buffer;
+        return buffer.limit(buffer.position() + wrapperSize);
+    }
+
+    @NonNull
+    private ByteBuffer writeWrapper(@NonNull Record kafkaRecord)
             throws BufferTooSmallException {
+        ByteBuffer buffer = recordBuffer(encryption.parcel().sizeOfParcel(encryptionScheme.recordFields(), kafkaRecord));
         encryption.wrapper().writeWrapper(edekSerde,
                 Objects.requireNonNull(encryptor.edek()),
                 topicName,
@@ -142,8 +221,36 @@ public class RecordEncryptor<K, E> implements RecordTransform<Dek<E>.Encryptor>
                 encryptionScheme.aadSpec(),
                 encryptionScheme.recordFields(),
                 buffer);
-        recordBuffer.flip();
-        return recordBuffer;
+        buffer.flip();
+        return buffer;
+    }
+
+    @NonNull
+    private ByteBuffer writeBatchWrapper()
+            throws BufferTooSmallException {
+        List<Record> valuedRecords = this.valuedRecords;
+        if (valuedRecords == null) {
+            throw new IllegalStateException("batch records were not provided to initBatch");
+        }
+        ByteBuffer buffer = recordBuffer(BatchPlaintext.sizeOf(encryption, encryptionScheme.recordFields(), batch, valuedRecords));
+        encryption.wrapper().writeBatchWrapper(edekSerde,
+                Objects.requireNonNull(encryptor.edek()),
+                topicName,
+                partition,
+                batch,
+                encryptor,
+                encryptionScheme.aadSpec(),
+                plaintext -> BatchPlaintext.write(encryption, encryptionScheme.recordFields(), batch, valuedRecords, plaintext),
+                buffer);
+        buffer.flip();
+        batchWrapperWritten = true;
+        return buffer;
+    }
+
+    @Override
+    public @NonNull Compression transformCompression(@NonNull RecordBatch batch) {
+        // compressing ciphertext is futile, so a batch whose plaintext was compressed is written uncompressed
+        return encryption.compressedBatch() ? Compression.NONE : RecordTransform.super.transformCompression(batch);
     }
 
     @Override
@@ -7,15 +7,20 @@
 package io.kroxylicious.filter.encryption.kms;
 
 import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.Executor;
 
 import javax.crypto.SecretKey;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.github.benmanes.caffeine.cache.AsyncCacheLoader;
 import com.github.benmanes.caffeine.cache.AsyncLoadingCache;
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
@@ -78,7 +83,17 @@ public class CachingKms<K, E> implements Kms<K, E> {
     @NonNull
     private static <K, E> AsyncLoadingCache<E, SecretKey> buildDecryptedDekCache(Kms<K, E> delegate, long maxSize, Duration expireAfterAccess) {
         return Caffeine.newBuilder().maximumSize(maxSize).expireAfterAccess(expireAfterAccess)
-                .buildAsync((key, executor) -> delegate.decryptEdek(key).toCompletableFuture());
+                .buildAsync(new AsyncCacheLoader<>() {
+                    @Override
+                    public CompletableFuture<? extends SecretKey> asyncLoad(E key, Executor executor) {
+                        return delegate.decryptEdek(key).toCompletableFuture();
+                    }
+
+                    @Override
+                    public CompletableFuture<? extends Map<? extends E, ? extends SecretKey>> asyncLoadAll(Set<? extends E> keys, Executor executor) {
+                        return delegate.decryptEdeks(Set.copyOf(keys)).toCompletableFuture();
+                    }
+                });
     }
 
     @NonNull
@@ -93,6 +108,12 @@ public class CachingKms<K, E> implements Kms<K, E> {
         return decryptDekCache.get(edek);
     }
 
+    @NonNull
+    @Override
+    public CompletionStage<Map<E, SecretKey>> decryptEdeks(@NonNull Collection<E> edeks) {
+        return decryptDekCache.getAll(edeks);
+    }
+
     @NonNull
     @Override
     public Serde<E> edekSerde() {
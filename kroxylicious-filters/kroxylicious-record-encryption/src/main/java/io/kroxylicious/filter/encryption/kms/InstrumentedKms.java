@@ -6,6 +6,8 @@
 
 package io.kroxylicious.filter.encryption.kms;
 
+import java.util.Collection;
+import java.util.Map;
 import java.util.concurrent.CompletionStage;
 
 import javax.crypto.SecretKey;
@@ -51,6 +53,25 @@ public class InstrumentedKms<K, E> implements Kms<K, E> {
         });
     }
 
+    /**
+     * Counts an attempt, and an outcome, for each of the given EDEKs, so that the decrypt EDEK metrics
+     * are in units of EDEKs whether or not they were decrypted in a single request.
+     */
+    @NonNull
+    @Override
+    public CompletionStage<Map<E, SecretKey>> decryptEdeks(@NonNull Collection<E> edeks) {
+        int count = edeks.size();
+        for (int i = 0; i < count; i++) {
+            metrics.countDecryptEdekAttempt();
+        }
+        return delegate.decryptEdeks(edeks).whenComplete((keys, throwable) -> {
+            KmsMetrics.OperationOutcome outcome = classify(throwable);
+            for (int i = 0; i < count; i++) {
+                metrics.countDecryptEdekOutcome(outcome);
+            }
+        });
+    }
+
     @NonNull
     @Override
     public CompletionStage<K> resolveAlias(@NonNull String alias) {
@@ -7,6 +7,8 @@
 package io.kroxylicious.filter.encryption.kms;
 
 import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
@@ -70,6 +72,12 @@ public class ResilientKms<K, E> implements Kms<K, E> {
         return retry("decryptEdek", () -> inner.decryptEdek(edek));
     }
 
+    @NonNull
+    @Override
+    public CompletionStage<Map<E, SecretKey>> decryptEdeks(@NonNull Collection<E> edeks) {
+        return retry("decryptEdeks", () -> inner.decryptEdeks(edeks));
+    }
+
     @NonNull
     @Override
     public Serde edekSerde() {
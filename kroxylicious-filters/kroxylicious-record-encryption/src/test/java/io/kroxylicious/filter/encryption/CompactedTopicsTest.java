@@ -0,0 +1,160 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.filter.encryption;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import org.apache.kafka.common.config.TopicConfig;
+import org.apache.kafka.common.errors.NetworkException;
+import org.apache.kafka.common.message.DescribeConfigsRequestData;
+import org.apache.kafka.common.message.DescribeConfigsResponseData;
+import org.apache.kafka.common.message.DescribeConfigsResponseData.DescribeConfigsResourceResult;
+import org.apache.kafka.common.message.DescribeConfigsResponseData.DescribeConfigsResult;
+import org.apache.kafka.common.message.ProduceRequestData;
+import org.apache.kafka.common.message.RequestHeaderData;
+import org.apache.kafka.common.protocol.ApiKeys;
+import org.apache.kafka.common.protocol.Errors;
+import org.junit.jupiter.api.Test;
+
+import io.kroxylicious.proxy.filter.FilterContext;
+import io.kroxylicious.testing.filter.context.MockFilterContext;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class CompactedTopicsTest {
+
+    private final CompactedTopics compactedTopics = new CompactedTopics();
+
+    @Test
+    void shouldReportTopicsWithCompactCleanupPolicy() {
+        // Given
+        var context = contextResponding(new DescribeConfigsResponseData().setResults(List.of(
+                topic("compacted", TopicConfig.CLEANUP_POLICY_COMPACT),
+                topic("compactedAndDeleted", "compact, delete"),
+                topic("deleted", TopicConfig.CLEANUP_POLICY_DELETE))));
+
+        // When
+        var compacted = compactedTopics.compacted(Set.of("compacted", "compactedAndDeleted", "deleted"), context);
+
+        // Then
+        assertThat(compacted).isCompletedWithValue(Set.of("compacted", "compactedAndDeleted"));
+    }
+
+    @Test
+    void shouldDescribeOnlyTheCleanupPolicy() {
+        // Given
+        var context = contextResponding(new DescribeConfigsResponseData().setResults(List.of(
+                topic("deleted", TopicConfig.CLEANUP_POLICY_DELETE))));
+
+        // When
+        compactedTopics.compacted(Set.of("deleted"), context).toCompletableFuture().join();
+
+        // Then
+        assertThat(context.sendRequestInvocations())
+                .singleElement()
+                .satisfies(invocation -> {
+                    assertThat(((RequestHeaderData) invocation.header()).requestApiKey()).isEqualTo(ApiKeys.DESCRIBE_CONFIGS.id);
+                    assertThat(((DescribeConfigsRequestData) invocation.request()).resources())
+                            .singleElement()
+                            .satisfies(resource -> {
+                                assertThat(resource.resourceName()).isEqualTo("deleted");
+                                assertThat(resource.configurationKeys()).containsExactly(TopicConfig.CLEANUP_POLICY_CONFIG);
+                            });
+                });
+    }
+
+    @Test
+    void shouldCacheCleanupPolicies() {
+        // Given
+        var context = contextResponding(new DescribeConfigsResponseData().setResults(List.of(
+                topic("compacted", TopicConfig.CLEANUP_POLICY_COMPACT),
+                topic("deleted", TopicConfig.CLEANUP_POLICY_DELETE))));
+        compactedTopics.compacted(Set.of("compacted", "deleted"), context).toCompletableFuture().join();
+
+        // When
+        var compacted = compactedTopics.compacted(Set.of("compacted", "deleted"), context);
+
+        // Then
+        assertThat(compacted).isCompletedWithValue(Set.of("compacted"));
+        assertThat(context.sendRequestInvocations()).hasSize(1);
+    }
+
+    @Test
+    void shouldAssumeTopicsThatCannotBeDescribedAreCompacted() {
+        // Given
+        var context = contextResponding(new DescribeConfigsResponseData().setResults(List.of(
+                new DescribeConfigsResult()
+                        .setResourceName("unauthorized")
+                        .setErrorCode(Errors.TOPIC_AUTHORIZATION_FAILED.code()),
+                topic("deleted", TopicConfig.CLEANUP_POLICY_DELETE))));
+
+        // When
+        var compacted = compactedTopics.compacted(Set.of("unauthorized", "missing", "deleted"), context);
+
+        // Then
+        assertThat(compacted).isCompletedWithValue(Set.of("unauthorized", "missing"));
+    }
+
+    @Test
+    void shouldAssumeTopicsWithoutReportedCleanupPolicyAreCompacted() {
+        // Given
+        var context = contextResponding(new DescribeConfigsResponseData().setResults(List.of(
+                new DescribeConfigsResult().setResourceName("unreported"))));
+
+        // When
+        var compacted = compactedTopics.compacted(Set.of("unreported"), context);
+
+        // Then
+        assertThat(compacted).isCompletedWithValue(Set.of("unreported"));
+    }
+
+    @Test
+    void shouldAssumeTopicsAreCompactedWhenDescribeFails() {
+        // Given
+        var context = mock(FilterContext.class);
+        when(context.sendRequest(any(), any())).thenReturn(CompletableFuture.failedFuture(new NetworkException("connection lost")));
+
+        // When
+        var compacted = compactedTopics.compacted(Set.of("topic"), context);
+
+        // Then
+        assertThat(compacted).isCompletedWithValue(Set.of("topic"));
+    }
+
+    @Test
+    void shouldNotDescribeWhenNoTopicsGiven() {
+        // Given
+        var context = MockFilterContext.builder(new RequestHeaderData(), new ProduceRequestData()).build();
+
+        // When
+        var compacted = compactedTopics.compacted(Set.of(), context);
+
+        // Then
+        assertThat(compacted).isCompletedWithValue(Set.of());
+        assertThat(context.sendRequestInvocations()).isEmpty();
+    }
+
+    private static MockFilterContext contextResponding(DescribeConfigsResponseData response) {
+        return MockFilterContext.builder(new RequestHeaderData(), new ProduceRequestData())
+                .withSendRequestResponseEnqueued(response)
+                .build();
+    }
+
+    private static DescribeConfigsResult topic(String topicName, String cleanupPolicy) {
+        return new DescribeConfigsResult()
+                .setResourceName(topicName)
+                .setErrorCode(Errors.NONE.code())
+                .setConfigs(List.of(new DescribeConfigsResourceResult()
+                        .setName(TopicConfig.CLEANUP_POLICY_CONFIG)
+                        .setValue(cleanupPolicy)));
+    }
+}
@@ -0,0 +1,58 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.filter.encryption;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.kafka.common.utils.ByteBufferOutputStream;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import io.kroxylicious.filter.encryption.common.CryptoExecutor;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CryptoExecutorTest {
+
+    private final ExecutorService workers = Executors.newSingleThreadExecutor(r -> new Thread(r, "worker"));
+    private final Timer jobTimer = Timer.builder("job").register(new SimpleMeterRegistry());
+    private final CryptoExecutor cryptoExecutor = new CryptoExecutor(workers, jobTimer);
+
+    @AfterEach
+    void tearDown() {
+        workers.shutdownNow();
+    }
+
+    @Test
+    void submitRunsJobOnWorkerThread() {
+        var thread = cryptoExecutor.submit(() -> Thread.currentThread().getName());
+        assertThat(thread).succeedsWithin(Duration.ofSeconds(5L)).isEqualTo("worker");
+        assertThat(jobTimer.count()).isEqualTo(1L);
+    }
+
+    @Test
+    void submitPropagatesJobFailure() {
+        var failed = cryptoExecutor.submit(() -> {
+            throw new IllegalStateException("boom");
+        });
+        assertThat(failed).failsWithin(Duration.ofSeconds(5L)).withThrowableThat().withRootCauseInstanceOf(IllegalStateException.class);
+        assertThat(jobTimer.count()).isEqualTo(1L);
+    }
+
+    @Test
+    void preallocatedHandsOutBufferOnce() {
+        var buffer = new ByteBufferOutputStream(16);
+        var allocator = CryptoExecutor.preallocated(buffer);
+        assertThat(allocator.apply(32)).isSameAs(buffer);
+        assertThat(allocator.apply(32)).isNotSameAs(buffer);
+    }
+}
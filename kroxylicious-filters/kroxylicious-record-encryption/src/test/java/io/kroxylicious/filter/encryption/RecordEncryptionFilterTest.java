@@ -25,9 +25,11 @@ import java.util.stream.LongStream;
 import org.apache.kafka.common.InvalidRecordException;
 import org.apache.kafka.common.Uuid;
 import org.apache.kafka.common.compress.Compression;
+import org.apache.kafka.common.config.TopicConfig;
 import org.apache.kafka.common.errors.NetworkException;
 import org.apache.kafka.common.errors.UnknownTopicIdException;
 import org.apache.kafka.common.header.internals.RecordHeader;
+import org.apache.kafka.common.message.DescribeConfigsResponseData;
 import org.apache.kafka.common.message.FetchResponseData;
 import org.apache.kafka.common.message.FetchResponseData.FetchableTopicResponse;
 import org.apache.kafka.common.message.FetchResponseData.PartitionData;
@@ -105,6 +107,9 @@ class RecordEncryptionFilterTest {
     @Mock(strictness = LENIENT)
     EncryptionManager<String> encryptionManager;
 
+    @Mock(strictness = LENIENT)
+    EncryptionManager<String> compactedTopicEncryptionManager;
+
     @Mock(strictness = LENIENT)
     DecryptionManager decryptionManager;
 
@@ -126,6 +131,9 @@ class RecordEncryptionFilterTest {
         when(encryptionManager.encrypt(any(), anyInt(), any(), any(), any()))
                 .thenReturn(CompletableFuture.completedFuture(RecordTestUtils.singleElementMemoryRecords("key", "value")));
 
+        when(compactedTopicEncryptionManager.encrypt(any(), anyInt(), any(), any(), any()))
+                .thenReturn(CompletableFuture.completedFuture(RecordTestUtils.singleElementMemoryRecords("key", "value")));
+
         when(decryptionManager.decrypt(any(), anyInt(), any(), any()))
                 .thenReturn(CompletableFuture.completedFuture(RecordTestUtils.singleElementMemoryRecords("decrypt", "decrypt")));
 
@@ -258,6 +266,48 @@ class RecordEncryptionFilterTest {
         verify(encryptionManager).encrypt(eq(ENCRYPTED_TOPIC), anyInt(), any(), any(), any());
     }
 
+    @Test
+    void shouldEncryptCompactedTopicWithCompactedTopicEncryptionManager() {
+        // Given
+        var filter = new RecordEncryptionFilter<>(encryptionManager, decryptionManager, kekSelector, new FilterThreadExecutor(Runnable::run),
+                UnresolvedKeyPolicy.PASSTHROUGH_UNENCRYPTED, new CompactedTopics(), compactedTopicEncryptionManager);
+        var produceRequestData = buildProduceRequestData(new TopicProduceData()
+                .setName(ENCRYPTED_TOPIC)
+                .setPartitionData(List.of(new PartitionProduceData().setRecords(makeRecord(HELLO_PLAIN_WORLD)))));
+        RequestHeaderData header = new RequestHeaderData();
+        MockFilterContext context = MockFilterContext.builder(header, produceRequestData)
+                .withSendRequestResponseEnqueued(cleanupPolicy(ENCRYPTED_TOPIC, TopicConfig.CLEANUP_POLICY_COMPACT))
+                .build();
+
+        // When
+        filter.onProduceRequest(ProduceRequestData.HIGHEST_SUPPORTED_VERSION, header, produceRequestData, context);
+
+        // Then
+        verify(compactedTopicEncryptionManager).encrypt(eq(ENCRYPTED_TOPIC), anyInt(), any(), any(), any());
+        verify(encryptionManager, never()).encrypt(any(), anyInt(), any(), any(), any());
+    }
+
+    @Test
+    void shouldEncryptUncompactedTopicWithEncryptionManager() {
+        // Given
+        var filter = new RecordEncryptionFilter<>(encryptionManager, decryptionManager, kekSelector, new FilterThreadExecutor(Runnable::run),
+                UnresolvedKeyPolicy.PASSTHROUGH_UNENCRYPTED, new CompactedTopics(), compactedTopicEncryptionManager);
+        var produceRequestData = buildProduceRequestData(new TopicProduceData()
+                .setName(ENCRYPTED_TOPIC)
+                .setPartitionData(List.of(new PartitionProduceData().setRecords(makeRecord(HELLO_PLAIN_WORLD)))));
+        RequestHeaderData header = new RequestHeaderData();
+        MockFilterContext context = MockFilterContext.builder(header, produceRequestData)
+                .withSendRequestResponseEnqueued(cleanupPolicy(ENCRYPTED_TOPIC, TopicConfig.CLEANUP_POLICY_DELETE))
+                .build();
+
+        // When
+        filter.onProduceRequest(ProduceRequestData.HIGHEST_SUPPORTED_VERSION, header, produceRequestData, context);
+
+        // Then
+        verify(encryptionManager).encrypt(eq(ENCRYPTED_TOPIC), anyInt(), any(), any(), any());
+        verify(compactedTopicEncryptionManager, never()).encrypt(any(), anyInt(), any(), any(), any());
+    }
+
     @Test
     void shouldOnlyEncryptTopicWithKeyId() {
         // Given
@@ -895,4 +945,13 @@ class RecordEncryptionFilterTest {
             }
         });
     }
+
+    private static DescribeConfigsResponseData cleanupPolicy(String topicName, String cleanupPolicy) {
+        return new DescribeConfigsResponseData().setResults(List.of(new DescribeConfigsResponseData.DescribeConfigsResult()
+                .setResourceName(topicName)
+                .setErrorCode(Errors.NONE.code())
+                .setConfigs(List.of(new DescribeConfigsResponseData.DescribeConfigsResourceResult()
+                        .setName(TopicConfig.CLEANUP_POLICY_CONFIG)
+                        .setValue(cleanupPolicy)))));
+    }
 }
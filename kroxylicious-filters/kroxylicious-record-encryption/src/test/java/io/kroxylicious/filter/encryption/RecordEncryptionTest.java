@@ -6,15 +6,24 @@
 
 package io.kroxylicious.filter.encryption;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Future;
 
 import javax.crypto.Cipher;
+import javax.crypto.spec.SecretKeySpec;
 
 import org.assertj.core.api.AbstractThrowableAssert;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.micrometer.core.instrument.Metrics;
 
 import io.kroxylicious.filter.encryption.config.CipherSpec;
 import io.kroxylicious.filter.encryption.config.DekManagerConfig;
@@ -23,8 +32,11 @@ import io.kroxylicious.filter.encryption.config.KekSelectorService;
 import io.kroxylicious.filter.encryption.config.KmsCacheConfig;
 import io.kroxylicious.filter.encryption.config.RecordEncryptionConfig;
 import io.kroxylicious.filter.encryption.config.TopicNameBasedKekSelector;
+import io.kroxylicious.filter.encryption.config.TopicNameKekSelection;
 import io.kroxylicious.filter.encryption.config.UnresolvedKeyPolicy;
 import io.kroxylicious.filter.encryption.dek.DekException;
+import io.kroxylicious.filter.encryption.encrypt.EncryptionDekCache;
+import io.kroxylicious.kms.service.DekPair;
 import io.kroxylicious.kms.service.Kms;
 import io.kroxylicious.kms.service.KmsService;
 import io.kroxylicious.kms.service.Serde;
@@ -39,6 +51,7 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.verify;
 
 class RecordEncryptionTest {
@@ -101,6 +114,117 @@ class RecordEncryptionTest {
         verify(kmsService).close();
     }
 
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldTagEdekSnapshotMetersAndRemoveThemOnClose(@TempDir Path dir) {
+        // Given
+        var config = new RecordEncryptionConfig("KMS", new Object(), "SELECTOR", null, Map.of("edekSnapshotPath", dir.resolve("edeks").toString()),
+                UnresolvedKeyPolicy.PASSTHROUGH_UNENCRYPTED);
+        var recordEncryption = new RecordEncryption<>();
+        var fc = mock(FilterFactoryContext.class);
+        var kmsService = mock(KmsService.class);
+        var kms = mock(Kms.class);
+        doReturn(kmsService).when(fc).pluginInstance(KmsService.class, "KMS");
+        doReturn(kms).when(kmsService).buildKms();
+        doReturn(mock(Serde.class)).when(kms).edekSerde();
+        doReturn("vc1").when(fc).virtualClusterName();
+        doReturn("encrypt").when(fc).filterName();
+
+        // When
+        var sec = recordEncryption.initialize(fc, config);
+
+        // Then
+        assertThat(Metrics.globalRegistry.find("kroxylicious_filter_record_encryption_edek_snapshot_warmed_edeks")
+                .tags(RecordEncryptionMetrics.VIRTUAL_CLUSTER_LABEL, "vc1", RecordEncryptionMetrics.FILTER_NAME_LABEL, "encrypt")
+                .counters()).hasSize(2);
+        assertThat(Metrics.globalRegistry.find("kroxylicious_filter_record_encryption_edek_snapshot_edeks")
+                .tags(RecordEncryptionMetrics.VIRTUAL_CLUSTER_LABEL, "vc1", RecordEncryptionMetrics.FILTER_NAME_LABEL, "encrypt")
+                .gauge()).isNotNull();
+
+        // When
+        recordEncryption.close(sec);
+
+        // Then
+        assertThat(Metrics.globalRegistry.find("kroxylicious_filter_record_encryption_edek_snapshot_warmed_edeks")
+                .tags(RecordEncryptionMetrics.VIRTUAL_CLUSTER_LABEL, "vc1").meters()).isEmpty();
+        assertThat(Metrics.globalRegistry.find("kroxylicious_filter_record_encryption_edek_snapshot_edeks")
+                .tags(RecordEncryptionMetrics.VIRTUAL_CLUSTER_LABEL, "vc1").meters()).isEmpty();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldWriteSeparateEdekSnapshotPerVirtualClusterSharingPath(@TempDir Path dir) throws Exception {
+        // Given
+        var config = new RecordEncryptionConfig("KMS", new Object(), "SELECTOR", null, Map.of("edekSnapshotPath", dir.resolve("edeks").toString()),
+                UnresolvedKeyPolicy.PASSTHROUGH_UNENCRYPTED);
+        var recordEncryption = new RecordEncryption<>();
+        var fc1 = snapshotFilterFactoryContext("vc1");
+        var fc2 = snapshotFilterFactoryContext("vc2");
+
+        // When
+        var sec1 = recordEncryption.initialize(fc1, config);
+        var sec2 = recordEncryption.initialize(fc2, config);
+        recordEncryption.close(sec1);
+        recordEncryption.close(sec2);
+
+        // Then
+        try (var files = Files.list(dir)) {
+            assertThat(files.map(file -> file.getFileName().toString()))
+                    .containsExactlyInAnyOrder("edeks-vc1-encrypt", "edeks-vc2-encrypt");
+        }
+    }
+
+    @Test
+    void shouldSanitizeNamesInEdekSnapshotFile() {
+        assertThat(RecordEncryption.edekSnapshotFile("/var/lib/edeks", "my/cluster", "encrypt:1"))
+                .isEqualTo(Path.of("/var/lib/edeks-my_cluster-encrypt_1"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static FilterFactoryContext snapshotFilterFactoryContext(String virtualClusterName) {
+        var fc = mock(FilterFactoryContext.class);
+        var kmsService = mock(KmsService.class);
+        var kms = mock(Kms.class);
+        doReturn(kmsService).when(fc).pluginInstance(KmsService.class, "KMS");
+        doReturn(kms).when(kmsService).buildKms();
+        doReturn(mock(Serde.class)).when(kms).edekSerde();
+        doReturn(virtualClusterName).when(fc).virtualClusterName();
+        doReturn("encrypt").when(fc).filterName();
+        return fc;
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void shouldPrewarmDeksForConfiguredTopics() {
+        var config = new RecordEncryptionConfig("KMS", new Object(), "SELECTOR", null, Map.of("prewarmTopics", List.of("orders")),
+                UnresolvedKeyPolicy.PASSTHROUGH_UNENCRYPTED);
+        var recordEncryption = new RecordEncryption<>();
+        var fc = mock(FilterFactoryContext.class);
+        var kmsService = mock(KmsService.class);
+        var kms = mock(Kms.class);
+        var kekSelectorService = mock(KekSelectorService.class);
+        var kekSelector = mock(TopicNameBasedKekSelector.class);
+
+        doReturn(kmsService).when(fc).pluginInstance(KmsService.class, "KMS");
+        doReturn(kms).when(kmsService).buildKms();
+        doReturn(kekSelectorService).when(fc).pluginInstance(KekSelectorService.class, "SELECTOR");
+        doReturn(kekSelector).when(kekSelectorService).buildSelector(any(), any());
+        doReturn(CompletableFuture.completedFuture(new TopicNameKekSelection<>(Map.of("orders", "kek"), Set.of()))).when(kekSelector)
+                .selectKek(Set.of("orders"));
+        doReturn(CompletableFuture.completedFuture(new DekPair<>("edek", new SecretKeySpec(new byte[32], "AES")))).when(kms).generateDekPair("kek");
+
+        var sec = recordEncryption.initialize(fc, config);
+
+        verify(kms, timeout(5000)).generateDekPair("kek");
+        recordEncryption.close(sec);
+    }
+
+    @Test
+    void refreshAtRemainingEncryptions() {
+        assertThat(RecordEncryption.refreshAtRemainingEncryptions(1000, 0.9)).isEqualTo(100);
+        assertThat(RecordEncryption.refreshAtRemainingEncryptions(1000, 1.0)).isEqualTo(EncryptionDekCache.NO_PROACTIVE_REFRESH);
+    }
+
     @Test
     void testKmsCacheConfigDefaults() {
         KmsCacheConfig config = new RecordEncryptionConfig("vault", 1L, "selector", 1L, null, UnresolvedKeyPolicy.PASSTHROUGH_UNENCRYPTED).kmsCache();
@@ -141,6 +141,152 @@ class RecordEncryptionConfigTest {
         assertThat(buffer.maxSizeBytes()).isEqualTo(expectedMaxSize);
     }
 
+    @Test
+    void cryptoExecutorDisabledByDefault() {
+        RecordEncryptionConfig config = createConfig(Map.of());
+        CryptoExecutorConfig cryptoExecutor = config.cryptoExecutor();
+        assertThat(cryptoExecutor.enabled()).isFalse();
+        assertThat(cryptoExecutor.queueCapacity()).isEqualTo(CryptoExecutorConfig.DEFAULT_QUEUE_CAPACITY);
+    }
+
+    @Test
+    void experimentalCryptoExecutorConfig() {
+        RecordEncryptionConfig config = createConfig(Map.of("cryptoExecutorThreads", "4", "cryptoExecutorQueueCapacity", 16));
+        CryptoExecutorConfig cryptoExecutor = config.cryptoExecutor();
+        assertThat(cryptoExecutor.enabled()).isTrue();
+        assertThat(cryptoExecutor.threads()).isEqualTo(4);
+        assertThat(cryptoExecutor.queueCapacity()).isEqualTo(16);
+    }
+
+    static Stream<Arguments> invalidExperimentalCryptoExecutorConfig() {
+        return Stream.of(argumentSet("threads zero", Map.of("cryptoExecutorThreads", "0")),
+                argumentSet("threads negative", Map.of("cryptoExecutorThreads", "-1")),
+                argumentSet("queue capacity zero", Map.of("cryptoExecutorThreads", "1", "cryptoExecutorQueueCapacity", "0")));
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void invalidExperimentalCryptoExecutorConfig(Map<String, Object> configMap) {
+        RecordEncryptionConfig config = createConfig(configMap);
+        assertThatThrownBy(config::cryptoExecutor).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void defaultEncryptionVersion() {
+        RecordEncryptionConfig config = createConfig(Map.of());
+        assertThat(config.encryptionVersion()).isEqualTo(EncryptionVersion.V2);
+    }
+
+    @Test
+    void experimentalEncryptionVersion() {
+        RecordEncryptionConfig config = createConfig(Map.of("encryptionVersion", "V3_BATCH"));
+        assertThat(config.encryptionVersion()).isEqualTo(EncryptionVersion.V3_BATCH);
+    }
+
+    static Stream<Arguments> invalidExperimentalEncryptionVersion() {
+        return Stream.of(argumentSet("unsupported version", Map.of("encryptionVersion", "V1_UNSUPPORTED")),
+                argumentSet("unknown version", Map.of("encryptionVersion", "V99")),
+                argumentSet("wrong type", Map.of("encryptionVersion", 3)));
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void invalidExperimentalEncryptionVersion(Map<String, Object> configMap) {
+        RecordEncryptionConfig config = createConfig(configMap);
+        assertThatThrownBy(config::encryptionVersion).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void defaultEncryptionDekStripes() {
+        RecordEncryptionConfig config = createConfig(Map.of());
+        assertThat(config.encryptionDekStripes()).isEqualTo(1);
+    }
+
+    @Test
+    void experimentalEncryptionDekStripes() {
+        RecordEncryptionConfig config = createConfig(Map.of("encryptionDekStripes", "8"));
+        assertThat(config.encryptionDekStripes()).isEqualTo(8);
+    }
+
+    @Test
+    void invalidExperimentalEncryptionDekStripes() {
+        RecordEncryptionConfig config = createConfig(Map.of("encryptionDekStripes", 0));
+        assertThatThrownBy(config::encryptionDekStripes).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void defaultEncryptionDekRotationThreshold() {
+        RecordEncryptionConfig config = createConfig(Map.of());
+        assertThat(config.encryptionDekRotationThreshold()).isEqualTo(0.9);
+    }
+
+    @Test
+    void experimentalEncryptionDekRotationThreshold() {
+        RecordEncryptionConfig config = createConfig(Map.of("encryptionDekRotationThreshold", "0.75"));
+        assertThat(config.encryptionDekRotationThreshold()).isEqualTo(0.75);
+    }
+
+    static Stream<Arguments> invalidExperimentalEncryptionDekRotationThreshold() {
+        return Stream.of(argumentSet("zero", Map.of("encryptionDekRotationThreshold", 0)),
+                argumentSet("greater than one", Map.of("encryptionDekRotationThreshold", "1.5")),
+                argumentSet("wrong type", Map.of("encryptionDekRotationThreshold", true)));
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void invalidExperimentalEncryptionDekRotationThreshold(Map<String, Object> configMap) {
+        RecordEncryptionConfig config = createConfig(configMap);
+        assertThatThrownBy(config::encryptionDekRotationThreshold).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void defaultPrewarmTopics() {
+        RecordEncryptionConfig config = createConfig(Map.of());
+        assertThat(config.prewarmTopics()).isEmpty();
+    }
+
+    static Stream<Arguments> experimentalPrewarmTopics() {
+        return Stream.of(argumentSet("list", Map.of("prewarmTopics", List.of("orders", "payments"))),
+                argumentSet("comma separated", Map.of("prewarmTopics", "orders, payments,")));
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void experimentalPrewarmTopics(Map<String, Object> configMap) {
+        RecordEncryptionConfig config = createConfig(configMap);
+        assertThat(config.prewarmTopics()).containsExactlyInAnyOrder("orders", "payments");
+    }
+
+    @Test
+    void defaultEdekSnapshot() {
+        RecordEncryptionConfig config = createConfig(Map.of());
+        assertThat(config.edekSnapshot()).isEqualTo(new EdekSnapshotConfig(null, 10_000, Duration.ofHours(6), Duration.ofMinutes(1)));
+        assertThat(config.edekSnapshot().enabled()).isFalse();
+    }
+
+    @Test
+    void experimentalEdekSnapshot() {
+        RecordEncryptionConfig config = createConfig(Map.of("edekSnapshotPath", "/var/lib/kroxylicious/edeks",
+                "edekSnapshotMaxEntries", 500,
+                "edekSnapshotMaxAgeSeconds", "3600",
+                "edekSnapshotWriteIntervalSeconds", 30));
+        assertThat(config.edekSnapshot()).isEqualTo(new EdekSnapshotConfig("/var/lib/kroxylicious/edeks", 500, Duration.ofHours(1), Duration.ofSeconds(30)));
+        assertThat(config.edekSnapshot().enabled()).isTrue();
+    }
+
+    static Stream<Arguments> invalidExperimentalEdekSnapshot() {
+        return Stream.of(argumentSet("zero max entries", Map.of("edekSnapshotMaxEntries", 0)),
+                argumentSet("zero max age", Map.of("edekSnapshotMaxAgeSeconds", 0)),
+                argumentSet("negative write interval", Map.of("edekSnapshotWriteIntervalSeconds", -1)));
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void invalidExperimentalEdekSnapshot(Map<String, Object> configMap) {
+        RecordEncryptionConfig config = createConfig(configMap);
+        assertThatThrownBy(config::edekSnapshot).isInstanceOf(IllegalArgumentException.class);
+    }
+
     @Test
     void defaultUnresolvedEncryptionPolicy() {
         RecordEncryptionConfig config = new RecordEncryptionConfig("kms", 1L, "selector", 2L, Map.of(), null);
@@ -0,0 +1,135 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.filter.encryption.crypto;
+
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.apache.kafka.common.compress.Compression;
+import org.apache.kafka.common.record.CompressionType;
+import org.apache.kafka.common.record.MemoryRecords;
+import org.apache.kafka.common.record.Record;
+import org.apache.kafka.common.record.RecordBatch;
+import org.apache.kafka.common.record.SimpleRecord;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import io.kroxylicious.filter.encryption.common.EncryptionException;
+import io.kroxylicious.filter.encryption.config.RecordField;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BatchPlaintextTest {
+
+    private static final Set<RecordField> RECORD_FIELDS = EnumSet.of(RecordField.RECORD_VALUE);
+
+    @ParameterizedTest
+    @EnumSource(CompressionType.class)
+    void shouldRoundTripCompressedBatch(CompressionType compressionType) {
+        RecordBatch batch = batch(compressionType);
+        List<Record> records = records(batch);
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+
+        BatchPlaintext.write(Encryption.V4, RECORD_FIELDS, batch, records, buffer);
+        buffer.flip();
+        assertThat(buffer.get(0)).isEqualTo((byte) compressionType.id);
+
+        assertParcels(BatchPlaintext.read(Encryption.V4, buffer), records);
+    }
+
+    @ParameterizedTest
+    @EnumSource(CompressionType.class)
+    void shouldNotCompressUncompressedEncryption(CompressionType compressionType) {
+        RecordBatch batch = batch(compressionType);
+        List<Record> records = records(batch);
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+
+        BatchPlaintext.write(Encryption.V3, RECORD_FIELDS, batch, records, buffer);
+        buffer.flip();
+
+        assertParcels(BatchPlaintext.read(Encryption.V3, buffer), records);
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = CompressionType.class, names = "NONE", mode = EnumSource.Mode.EXCLUDE)
+    void shouldThrowIfCompressedPlaintextOverflowsBuffer(CompressionType compressionType) {
+        RecordBatch batch = batch(compressionType);
+        List<Record> records = records(batch);
+        ByteBuffer buffer = ByteBuffer.allocate(8);
+
+        assertThatThrownBy(() -> BatchPlaintext.write(Encryption.V4, RECORD_FIELDS, batch, records, buffer))
+                .isInstanceOf(BufferOverflowException.class);
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = CompressionType.class, names = "NONE", mode = EnumSource.Mode.EXCLUDE)
+    void shouldRejectCorruptCompressedPlaintext(CompressionType compressionType) {
+        ByteBuffer plaintext = ByteBuffer.wrap(new byte[]{ (byte) compressionType.id, 1, 2, 3, 4, 5, 6, 7, 8 });
+        assertThatThrownBy(() -> BatchPlaintext.read(Encryption.V4, plaintext))
+                .isInstanceOf(EncryptionException.class);
+    }
+
+    @ParameterizedTest
+    @EnumSource(CompressionType.class)
+    void shouldSizeUncompressedPlaintextExactly(CompressionType compressionType) {
+        RecordBatch batch = batch(compressionType);
+        List<Record> records = records(batch);
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+
+        BatchPlaintext.write(Encryption.V3, RECORD_FIELDS, batch, records, buffer);
+
+        assertThat(BatchPlaintext.sizeOf(Encryption.V3, RECORD_FIELDS, batch, records)).isEqualTo(buffer.position());
+    }
+
+    @ParameterizedTest
+    @EnumSource(CompressionType.class)
+    void shouldFitIncompressiblePlaintextInItsSize(CompressionType compressionType) {
+        var random = new Random(42);
+        var values = new SimpleRecord[20];
+        for (int i = 0; i < values.length; i++) {
+            var value = new byte[10_000];
+            random.nextBytes(value);
+            values[i] = new SimpleRecord(value);
+        }
+        RecordBatch batch = MemoryRecords.withRecords(Compression.of(compressionType).build(), values).firstBatch();
+        List<Record> records = records(batch);
+        ByteBuffer buffer = ByteBuffer.allocate(BatchPlaintext.sizeOf(Encryption.V4, RECORD_FIELDS, batch, records));
+
+        BatchPlaintext.write(Encryption.V4, RECORD_FIELDS, batch, records, buffer);
+        buffer.flip();
+
+        assertParcels(BatchPlaintext.read(Encryption.V4, buffer), records);
+    }
+
+    private static RecordBatch batch(CompressionType compressionType) {
+        var value = "a compressible value, a compressible value".getBytes(StandardCharsets.UTF_8);
+        return MemoryRecords.withRecords(Compression.of(compressionType).build(),
+                new SimpleRecord(value),
+                new SimpleRecord(value),
+                new SimpleRecord(value)).firstBatch();
+    }
+
+    private static List<Record> records(RecordBatch batch) {
+        List<Record> records = new ArrayList<>();
+        batch.forEach(records::add);
+        return records;
+    }
+
+    private static void assertParcels(ByteBuffer parcels, List<Record> records) {
+        for (Record record : records) {
+            ParcelV1.INSTANCE.readParcel(parcels, record, (value, headers) -> assertThat(value).isEqualTo(record.value()));
+        }
+        assertThat(parcels.hasRemaining()).isFalse();
+    }
+}
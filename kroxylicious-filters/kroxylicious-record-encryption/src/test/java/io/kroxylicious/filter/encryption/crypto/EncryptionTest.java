@@ -10,6 +10,7 @@ import org.junit.jupiter.api.Test;
 
 import io.kroxylicious.filter.encryption.config.AadSpec;
 import io.kroxylicious.filter.encryption.config.CipherSpec;
+import io.kroxylicious.filter.encryption.config.EncryptionVersion;
 import io.kroxylicious.filter.encryption.dek.Aes;
 import io.kroxylicious.filter.encryption.dek.UnknownCipherSpecException;
 
@@ -48,4 +49,25 @@ class EncryptionTest {
         assertThat(aadResolver.toSerializedId(AadNone.INSTANCE)).isEqualTo(AadNone.INSTANCE.serializedId());
     }
 
+    @Test
+    void v3() {
+        // Encryption v3 uses the same wrapper and parcel formats as v2, with batch granularity
+        assertThat(Encryption.V3.wrapper()).isExactlyInstanceOf(WrapperV2.class);
+        assertThat(Encryption.V3.parcel()).isExactlyInstanceOf(ParcelV1.class);
+        assertThat(Encryption.V3.batchGranularity()).isTrue();
+        assertThat(Encryption.V2.batchGranularity()).isFalse();
+        assertThat(EncryptionResolver.ALL.fromName(EncryptionVersion.V3_BATCH)).isSameAs(Encryption.V3);
+    }
+
+    @Test
+    void v4() {
+        // Encryption v4 is v3 with the batch plaintext compressed
+        assertThat(Encryption.V4.wrapper()).isExactlyInstanceOf(WrapperV2.class);
+        assertThat(Encryption.V4.parcel()).isExactlyInstanceOf(ParcelV1.class);
+        assertThat(Encryption.V4.batchGranularity()).isTrue();
+        assertThat(Encryption.V4.compressedBatch()).isTrue();
+        assertThat(Encryption.V3.compressedBatch()).isFalse();
+        assertThat(EncryptionResolver.ALL.fromName(EncryptionVersion.V4_BATCH_COMPRESSED)).isSameAs(Encryption.V4);
+    }
+
 }
@@ -18,7 +18,9 @@ class WrapperV1Test {
     @Test
     void unsupportedWrapperVersionThrowsOnUsage() {
         assertUnsupported(() -> WrapperV1.INSTANCE.writeWrapper(null, null, null, 1, null, null, null, null, null, null, null));
+        assertUnsupported(() -> WrapperV1.INSTANCE.writeBatchWrapper(null, null, null, 1, null, null, null, null, null));
         assertUnsupported(() -> WrapperV1.INSTANCE.read(null, null, 1, null, null, null, null, null));
+        assertUnsupported(() -> WrapperV1.INSTANCE.readBatch(null, 1, null, null, null));
         assertUnsupported(() -> WrapperV1.INSTANCE.readSpecAndEdek(null, null, null));
     }
 
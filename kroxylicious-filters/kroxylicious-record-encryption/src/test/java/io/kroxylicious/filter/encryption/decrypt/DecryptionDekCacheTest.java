@@ -0,0 +1,156 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.filter.encryption.decrypt;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.jupiter.api.Test;
+
+import io.kroxylicious.filter.encryption.common.FilterThreadExecutor;
+import io.kroxylicious.filter.encryption.dek.Aes;
+import io.kroxylicious.filter.encryption.dek.DekManager;
+import io.kroxylicious.kms.service.Kms;
+import io.kroxylicious.kms.service.KmsException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DecryptionDekCacheTest {
+
+    private static final FilterThreadExecutor DIRECT = new FilterThreadExecutor(Runnable::run);
+
+    @Test
+    void shouldDecryptAllMissesInOneKmsCall() {
+        // Given
+        Kms<String, String> kms = mock(Kms.class);
+        when(kms.decryptEdeks(any())).thenReturn(CompletableFuture.completedFuture(Map.of(
+                "edek1", new SecretKeySpec(new byte[32], "AES"),
+                "edek2", new SecretKeySpec(new byte[32], "AES"))));
+        var cache = new DecryptionDekCache<>(new DekManager<>(kms, 1), Runnable::run, DecryptionDekCache.NO_MAX_CACHE_SIZE);
+        var key1 = new DecryptionDekCache.CacheKey<>(Aes.AES_256_GCM_128, "edek1");
+        var key2 = new DecryptionDekCache.CacheKey<>(Aes.AES_256_GCM_128, "edek2");
+
+        // When
+        var deks = cache.getAll(List.of(key1, DecryptionDekCache.CacheKey.unencrypted(), key2), DIRECT);
+
+        // Then
+        assertThat(deks).succeedsWithin(Duration.ofSeconds(5))
+                .satisfies(map -> {
+                    assertThat(map).containsOnlyKeys(key1, key2);
+                    assertThat(map.get(key1).edek()).isEqualTo("edek1");
+                    assertThat(map.get(key2).edek()).isEqualTo("edek2");
+                });
+        verify(kms).decryptEdeks(argThat(edeks -> edeks.size() == 2 && edeks.containsAll(Set.of("edek1", "edek2"))));
+        verify(kms, never()).decryptEdek(any());
+    }
+
+    @Test
+    void shouldNotCallKmsForCachedDeks() {
+        // Given
+        Kms<String, String> kms = mock(Kms.class);
+        when(kms.decryptEdeks(any())).thenReturn(CompletableFuture.completedFuture(Map.of("edek1", new SecretKeySpec(new byte[32], "AES"))));
+        var cache = new DecryptionDekCache<>(new DekManager<>(kms, 1), Runnable::run, DecryptionDekCache.NO_MAX_CACHE_SIZE);
+        var key1 = new DecryptionDekCache.CacheKey<>(Aes.AES_256_GCM_128, "edek1");
+        assertThat(cache.getAll(List.of(key1), DIRECT)).succeedsWithin(Duration.ofSeconds(5));
+
+        // When
+        var deks = cache.getAll(List.of(key1), DIRECT);
+
+        // Then
+        assertThat(deks).succeedsWithin(Duration.ofSeconds(5))
+                .satisfies(map -> assertThat(map).containsOnlyKeys(key1));
+        verify(kms).decryptEdeks(any());
+    }
+
+    @Test
+    void shouldWarmCacheInOneKmsCall() {
+        // Given
+        Kms<String, String> kms = mock(Kms.class);
+        when(kms.decryptEdeks(any())).thenReturn(CompletableFuture.completedFuture(Map.of(
+                "edek1", new SecretKeySpec(new byte[32], "AES"),
+                "edek2", new SecretKeySpec(new byte[32], "AES"))));
+        var cache = new DecryptionDekCache<>(new DekManager<>(kms, 1), Runnable::run, DecryptionDekCache.NO_MAX_CACHE_SIZE);
+        var key1 = new DecryptionDekCache.CacheKey<>(Aes.AES_256_GCM_128, "edek1");
+        var key2 = new DecryptionDekCache.CacheKey<>(Aes.AES_256_GCM_128, "edek2");
+
+        // When
+        var warmed = cache.warm(List.of(key1, key2));
+
+        // Then
+        assertThat(warmed).succeedsWithin(Duration.ofSeconds(5)).isEqualTo(2);
+        assertThat(cache.getAll(List.of(key1, key2), DIRECT)).succeedsWithin(Duration.ofSeconds(5))
+                .satisfies(map -> assertThat(map).containsOnlyKeys(key1, key2));
+        verify(kms).decryptEdeks(any());
+    }
+
+    @Test
+    void shouldCacheOtherDeksWhenAnEdekCannotBeDecrypted() {
+        // Given
+        Kms<String, String> kms = mock(Kms.class);
+        when(kms.decryptEdeks(any())).thenReturn(CompletableFuture.completedFuture(Map.of("edek1", new SecretKeySpec(new byte[32], "AES"))));
+        var cache = new DecryptionDekCache<>(new DekManager<>(kms, 1), Runnable::run, DecryptionDekCache.NO_MAX_CACHE_SIZE);
+        var key1 = new DecryptionDekCache.CacheKey<>(Aes.AES_256_GCM_128, "edek1");
+        var bad = new DecryptionDekCache.CacheKey<>(Aes.AES_256_GCM_128, "bad");
+
+        // When
+        var warmed = cache.warm(List.of(key1, bad));
+
+        // Then
+        assertThat(warmed).succeedsWithin(Duration.ofSeconds(5)).isEqualTo(1);
+        assertThat(cache.getAll(List.of(key1), DIRECT)).succeedsWithin(Duration.ofSeconds(5))
+                .satisfies(map -> assertThat(map).containsOnlyKeys(key1));
+        verify(kms).decryptEdeks(any());
+    }
+
+    @Test
+    void shouldFailGetAllWhenAnEdekCannotBeDecrypted() {
+        // Given
+        Kms<String, String> kms = mock(Kms.class);
+        when(kms.decryptEdeks(any())).thenReturn(CompletableFuture.completedFuture(Map.of("edek1", new SecretKeySpec(new byte[32], "AES"))));
+        var cache = new DecryptionDekCache<>(new DekManager<>(kms, 1), Runnable::run, DecryptionDekCache.NO_MAX_CACHE_SIZE);
+        var key1 = new DecryptionDekCache.CacheKey<>(Aes.AES_256_GCM_128, "edek1");
+        var bad = new DecryptionDekCache.CacheKey<>(Aes.AES_256_GCM_128, "bad");
+
+        // When
+        var deks = cache.getAll(List.of(key1, bad), DIRECT);
+
+        // Then
+        assertThat(deks).failsWithin(Duration.ofSeconds(5))
+                .withThrowableOfType(ExecutionException.class)
+                .havingCause()
+                .isExactlyInstanceOf(KmsException.class);
+    }
+
+    @Test
+    void shouldRecordDeksUsedInSnapshot() {
+        // Given
+        Kms<String, String> kms = mock(Kms.class);
+        when(kms.decryptEdeks(any())).thenReturn(CompletableFuture.completedFuture(Map.of("edek1", new SecretKeySpec(new byte[32], "AES"))));
+        EdekSnapshot<String> snapshot = mock(EdekSnapshot.class);
+        var cache = new DecryptionDekCache<>(new DekManager<>(kms, 1), Runnable::run, DecryptionDekCache.NO_MAX_CACHE_SIZE, snapshot);
+        var key1 = new DecryptionDekCache.CacheKey<>(Aes.AES_256_GCM_128, "edek1");
+
+        // When
+        var deks = cache.getAll(List.of(key1), DIRECT);
+
+        // Then
+        assertThat(deks).succeedsWithin(Duration.ofSeconds(5));
+        verify(snapshot).seen(Set.of(key1));
+    }
+}
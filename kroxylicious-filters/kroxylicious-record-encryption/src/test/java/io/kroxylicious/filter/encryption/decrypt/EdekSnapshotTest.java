@@ -0,0 +1,271 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.filter.encryption.decrypt;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.kroxylicious.filter.encryption.dek.Aes;
+import io.kroxylicious.filter.encryption.dek.CipherSpecResolver;
+import io.kroxylicious.kms.service.Serde;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EdekSnapshotTest {
+
+    private static final Instant NOW = Instant.parse("2026-01-01T00:00:00Z");
+    private static final Duration MAX_AGE = Duration.ofHours(6);
+
+    @TempDir
+    Path dir;
+
+    private static Clock clockAt(Instant instant) {
+        return Clock.fixed(instant, ZoneOffset.UTC);
+    }
+
+    private static DecryptionDekCache.CacheKey<String> key(String edek) {
+        return new DecryptionDekCache.CacheKey<>(Aes.AES_256_GCM_128, edek);
+    }
+
+    @Test
+    void shouldRoundTripSeenEdeks() throws IOException {
+        // Given
+        Path file = dir.resolve("edeks");
+        var snapshot = new EdekSnapshot<>(file, new StringSerde(), 10, MAX_AGE, clockAt(NOW));
+        snapshot.seen(List.of(key("edek1"), DecryptionDekCache.CacheKey.unencrypted(), key("edek2")));
+
+        // When
+        int written = snapshot.write();
+        var read = new EdekSnapshot<>(file, new StringSerde(), 10, MAX_AGE, clockAt(NOW.plusSeconds(60))).read();
+
+        // Then
+        assertThat(written).isEqualTo(2);
+        assertThat(read).containsExactlyInAnyOrder(key("edek1"), key("edek2"));
+    }
+
+    @Test
+    void shouldKeepOnlyTheMostRecentEdeks() throws IOException {
+        // Given
+        Path file = dir.resolve("edeks");
+        var first = new EdekSnapshot<>(file, new StringSerde(), 10, MAX_AGE, clockAt(NOW));
+        first.seen(List.of(key("edek1")));
+        first.write();
+        var second = new EdekSnapshot<>(file, new StringSerde(), 2, MAX_AGE, clockAt(NOW.plusSeconds(10)));
+        second.read();
+        second.seen(List.of(key("edek2"), key("edek3")));
+
+        // When
+        second.write();
+        var read = new EdekSnapshot<>(file, new StringSerde(), 10, MAX_AGE, clockAt(NOW.plusSeconds(20))).read();
+
+        // Then
+        assertThat(read).containsExactlyInAnyOrder(key("edek2"), key("edek3"));
+    }
+
+    @Test
+    void shouldNotReadEdeksOlderThanMaxAge() throws IOException {
+        // Given
+        Path file = dir.resolve("edeks");
+        var snapshot = new EdekSnapshot<>(file, new StringSerde(), 10, MAX_AGE, clockAt(NOW));
+        snapshot.seen(List.of(key("edek1")));
+        snapshot.write();
+
+        // When
+        var read = new EdekSnapshot<>(file, new StringSerde(), 10, MAX_AGE, clockAt(NOW.plus(MAX_AGE).plusSeconds(1))).read();
+
+        // Then
+        assertThat(read).isEmpty();
+    }
+
+    @Test
+    void shouldRetainReadEdeksInNextSnapshot() throws IOException {
+        // Given
+        Path file = dir.resolve("edeks");
+        var first = new EdekSnapshot<>(file, new StringSerde(), 10, MAX_AGE, clockAt(NOW));
+        first.seen(List.of(key("edek1")));
+        first.write();
+        var second = new EdekSnapshot<>(file, new StringSerde(), 10, MAX_AGE, clockAt(NOW.plusSeconds(10)));
+        second.read();
+
+        // When
+        int written = second.write();
+
+        // Then
+        assertThat(written).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotWriteForgottenEdeks() throws IOException {
+        // Given
+        Path file = dir.resolve("edeks");
+        var snapshot = new EdekSnapshot<>(file, new StringSerde(), 10, MAX_AGE, clockAt(NOW));
+        snapshot.seen(List.of(key("edek1"), key("edek2")));
+        snapshot.forget(key("edek1"));
+
+        // When
+        snapshot.write();
+        var read = new EdekSnapshot<>(file, new StringSerde(), 10, MAX_AGE, clockAt(NOW)).read();
+
+        // Then
+        assertThat(read).containsExactly(key("edek2"));
+    }
+
+    @Test
+    void shouldReadNothingWhenThereIsNoSnapshot() throws IOException {
+        var snapshot = new EdekSnapshot<>(dir.resolve("missing"), new StringSerde(), 10, MAX_AGE, clockAt(NOW));
+        assertThat(snapshot.read()).isEmpty();
+    }
+
+    @Test
+    void shouldRejectFileWhichIsNotASnapshot() throws IOException {
+        // Given
+        Path file = dir.resolve("edeks");
+        Files.writeString(file, "not a snapshot");
+        var snapshot = new EdekSnapshot<>(file, new StringSerde(), 10, MAX_AGE, clockAt(NOW));
+
+        // When/Then
+        assertThatThrownBy(snapshot::read).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void shouldStopTrackingEdeksOlderThanMaxAgeWhenWriting() throws IOException {
+        // Given
+        Path file = dir.resolve("edeks");
+        var clock = new AtomicReference<>(NOW);
+        var snapshot = new EdekSnapshot<>(file, new StringSerde(), 10, MAX_AGE, new Clock() {
+            @Override
+            public ZoneOffset getZone() {
+                return ZoneOffset.UTC;
+            }
+
+            @Override
+            public Clock withZone(ZoneId zone) {
+                return this;
+            }
+
+            @Override
+            public Instant instant() {
+                return clock.get();
+            }
+        });
+        snapshot.seen(List.of(key("edek1")));
+        clock.set(NOW.plus(MAX_AGE).plusSeconds(1));
+        snapshot.seen(List.of(key("edek2")));
+
+        // When
+        int written = snapshot.write();
+
+        // Then
+        assertThat(written).isEqualTo(1);
+        assertThat(snapshot.tracked()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldLeaveOnlyTheSnapshotFileAfterWriting() throws IOException {
+        // Given
+        Path file = dir.resolve("edeks");
+        var snapshot = new EdekSnapshot<>(file, new StringSerde(), 10, MAX_AGE, clockAt(NOW));
+        snapshot.seen(List.of(key("edek1")));
+
+        // When
+        snapshot.write();
+        snapshot.write();
+
+        // Then
+        try (var files = Files.list(dir)) {
+            assertThat(files).containsExactly(file);
+        }
+    }
+
+    @Test
+    void shouldRejectEntryLongerThanMaxEdekSize() throws IOException {
+        // Given
+        Path file = dir.resolve("edeks");
+        writeSnapshotWithEntryLength(file, EdekSnapshot.MAX_EDEK_BYTES + 1, 0);
+        var snapshot = new EdekSnapshot<>(file, new StringSerde(), 10, MAX_AGE, clockAt(NOW));
+
+        // When/Then
+        assertThatThrownBy(snapshot::read)
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Corrupt EDEK snapshot file");
+    }
+
+    @Test
+    void shouldRejectEntryLongerThanRestOfFile() throws IOException {
+        // Given
+        Path file = dir.resolve("edeks");
+        writeSnapshotWithEntryLength(file, 100, 10);
+        var snapshot = new EdekSnapshot<>(file, new StringSerde(), 10, MAX_AGE, clockAt(NOW));
+
+        // When/Then
+        assertThatThrownBy(snapshot::read)
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Corrupt EDEK snapshot file");
+    }
+
+    @Test
+    void shouldRejectNegativeEntryLength() throws IOException {
+        // Given
+        Path file = dir.resolve("edeks");
+        writeSnapshotWithEntryLength(file, -1, 0);
+        var snapshot = new EdekSnapshot<>(file, new StringSerde(), 10, MAX_AGE, clockAt(NOW));
+
+        // When/Then
+        assertThatThrownBy(snapshot::read)
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("Corrupt EDEK snapshot file");
+    }
+
+    private static void writeSnapshotWithEntryLength(Path file, int length, int actualLength) throws IOException {
+        try (var out = new DataOutputStream(Files.newOutputStream(file))) {
+            out.writeInt(EdekSnapshot.MAGIC);
+            out.writeByte(EdekSnapshot.VERSION);
+            out.writeInt(1);
+            out.writeLong(NOW.toEpochMilli());
+            out.writeByte(CipherSpecResolver.ALL.toSerializedId(Aes.AES_256_GCM_128));
+            out.writeInt(length);
+            out.write(new byte[actualLength]);
+        }
+    }
+
+    private static class StringSerde implements Serde<String> {
+
+        @Override
+        public int sizeOf(String object) {
+            return object.getBytes(StandardCharsets.UTF_8).length;
+        }
+
+        @Override
+        public void serialize(String object, @NonNull ByteBuffer buffer) {
+            buffer.put(object.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public String deserialize(@NonNull ByteBuffer buffer) {
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+}
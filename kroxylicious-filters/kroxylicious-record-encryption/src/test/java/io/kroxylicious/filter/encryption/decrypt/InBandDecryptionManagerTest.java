@@ -18,6 +18,8 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 import java.util.stream.Stream;
@@ -27,10 +29,12 @@ import javax.crypto.SecretKey;
 import org.apache.kafka.common.compress.Compression;
 import org.apache.kafka.common.header.Header;
 import org.apache.kafka.common.header.internals.RecordHeader;
+import org.apache.kafka.common.record.CompressionType;
 import org.apache.kafka.common.record.MemoryRecords;
 import org.apache.kafka.common.record.MutableRecordBatch;
 import org.apache.kafka.common.record.Record;
 import org.apache.kafka.common.record.RecordBatch;
+import org.apache.kafka.common.record.SimpleRecord;
 import org.apache.kafka.common.record.TimestampType;
 import org.apache.kafka.common.utils.ByteBufferOutputStream;
 import org.apache.kafka.common.utils.ByteUtils;
@@ -43,14 +47,20 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mockito;
 import org.mockito.stubbing.Answer;
 
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
 import io.kroxylicious.filter.encryption.EncryptorCreationException;
 import io.kroxylicious.filter.encryption.TestingDek;
+import io.kroxylicious.filter.encryption.common.CryptoExecutor;
 import io.kroxylicious.filter.encryption.common.EncryptionException;
 import io.kroxylicious.filter.encryption.common.FilterThreadExecutor;
+import io.kroxylicious.filter.encryption.config.CipherSpec;
 import io.kroxylicious.filter.encryption.config.RecordField;
 import io.kroxylicious.filter.encryption.crypto.Encryption;
 import io.kroxylicious.filter.encryption.crypto.EncryptionHeader;
 import io.kroxylicious.filter.encryption.crypto.EncryptionResolver;
+import io.kroxylicious.filter.encryption.dek.CipherPool;
 import io.kroxylicious.filter.encryption.dek.CipherSpecResolver;
 import io.kroxylicious.filter.encryption.dek.Dek;
 import io.kroxylicious.filter.encryption.dek.DekManager;
@@ -65,6 +75,7 @@ import io.kroxylicious.testing.filter.assertj.MemoryRecordsAssert;
 import io.kroxylicious.testing.filter.record.RecordTestUtils;
 
 import edu.umd.cs.findbugs.annotations.NonNull;
+import edu.umd.cs.findbugs.annotations.Nullable;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -130,6 +141,105 @@ class InBandDecryptionManagerTest {
                 .isEqualTo(value);
     }
 
+    @Test
+    void shouldEncryptAndDecryptOnCryptoExecutor() {
+        // given
+        InMemoryKms kms = getInMemoryKms();
+        ExecutorService workers = Executors.newSingleThreadExecutor();
+        Timer jobTimer = Timer.builder("job").register(new SimpleMeterRegistry());
+        var cryptoExecutor = new CryptoExecutor(workers, jobTimer);
+        try {
+            var encryptionManager = createEncryptionManager(kms, 500_000, cryptoExecutor);
+            var decryptionManager = createDecryptionManager(kms, cryptoExecutor);
+            var kekId = kms.generateKey();
+            var value = new byte[]{ 1, 2, 3 };
+            List<Record> encrypted = new ArrayList<>();
+            List<Record> decrypted = new ArrayList<>();
+
+            // when
+            var roundTrip = doEncrypt(encryptionManager, "topic", 1, new EncryptionScheme<>(kekId, EnumSet.of(RecordField.RECORD_VALUE)),
+                    List.of(RecordTestUtils.record(value)), encrypted)
+                    .thenCompose(u -> doDecrypt(decryptionManager, "topic", 1, encrypted, decrypted));
+
+            // then
+            assertThat(roundTrip).succeedsWithin(Duration.ofSeconds(10));
+            assertThat(decrypted).singleElement().extracting(RecordTestUtils::recordValueAsBytes).isEqualTo(value);
+            assertThat(jobTimer.count()).isEqualTo(2L);
+        }
+        finally {
+            workers.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldReuseDecryptCiphersOnFilterThreadWithCryptoExecutor() {
+        // given
+        InMemoryKms kms = getInMemoryKms();
+        ExecutorService filterThread = Executors.newSingleThreadExecutor();
+        ExecutorService workers = Executors.newSingleThreadExecutor();
+        var cipherManager = CipherSpecResolver.ALL.fromName(CipherSpec.AES_256_GCM_128);
+        try {
+            var encryptionManager = createEncryptionManager(kms, 500_000);
+            DekManager<UUID, InMemoryEdek> dekManager = new DekManager<>(kms, 1);
+            var decryptionManager = new InBandDecryptionManager<>(EncryptionResolver.ALL,
+                    dekManager,
+                    new DecryptionDekCache<>(dekManager, directExecutor(), DecryptionDekCache.NO_MAX_CACHE_SIZE),
+                    new FilterThreadExecutor(filterThread),
+                    new CryptoExecutor(workers, Timer.builder("job").register(new SimpleMeterRegistry())));
+            List<Record> encrypted = new ArrayList<>();
+            assertThat(doEncrypt(encryptionManager, "topic", 1, createScheme(kms), List.of(RecordTestUtils.record(new byte[]{ 1, 2, 3 })), encrypted))
+                    .succeedsWithin(Duration.ofSeconds(10));
+
+            // when
+            for (int i = 0; i < 3; i++) {
+                List<Record> decrypted = new ArrayList<>();
+                var decryptOnFilterThread = CompletableFuture.supplyAsync(() -> doDecrypt(decryptionManager, "topic", 1, encrypted, decrypted), filterThread)
+                        .thenCompose(stage -> stage);
+                assertThat(decryptOnFilterThread).succeedsWithin(Duration.ofSeconds(10));
+                assertThat(decrypted).hasSize(1);
+            }
+
+            // then
+            assertThat(CompletableFuture.supplyAsync(() -> CipherPool.idle(cipherManager), filterThread))
+                    .succeedsWithin(Duration.ofSeconds(10))
+                    .isEqualTo(1);
+            assertThat(CompletableFuture.supplyAsync(() -> CipherPool.idle(cipherManager), workers))
+                    .succeedsWithin(Duration.ofSeconds(10))
+                    .isEqualTo(0);
+        }
+        finally {
+            filterThread.shutdownNow();
+            workers.shutdownNow();
+        }
+    }
+
+    @Test
+    void shouldRotateExhaustedDekOnCryptoExecutor() {
+        // given
+        InMemoryKms kms = getInMemoryKms();
+        ExecutorService workers = Executors.newSingleThreadExecutor();
+        var cryptoExecutor = new CryptoExecutor(workers, Timer.builder("job").register(new SimpleMeterRegistry()));
+        try {
+            var encryptionManager = createEncryptionManager(kms, 2, cryptoExecutor);
+            var scheme = new EncryptionScheme<>(kms.generateKey(), EnumSet.of(RecordField.RECORD_VALUE));
+            List<Record> encrypted = new ArrayList<>();
+            List<Record> initial = List.of(RecordTestUtils.record(0L, ByteBuffer.wrap(new byte[]{ 1 })),
+                    RecordTestUtils.record(1L, ByteBuffer.wrap(new byte[]{ 2 })));
+
+            // when
+            var encryptTwice = doEncrypt(encryptionManager, "topic", 1, scheme, initial, encrypted)
+                    .thenCompose(u -> doEncrypt(encryptionManager, "topic", 1, scheme, initial, encrypted));
+
+            // then
+            assertThat(encryptTwice).succeedsWithin(Duration.ofSeconds(10));
+            assertThat(kms.numDeksGenerated()).isEqualTo(2);
+            assertThat(encrypted).hasSize(4);
+        }
+        finally {
+            workers.shutdownNow();
+        }
+    }
+
     @Test
     void shouldPreserveMultipleBatchesOnEncrypt() {
         // given
@@ -350,6 +460,40 @@ class InBandDecryptionManagerTest {
                 .containsExactly(recBytes);
     }
 
+    @Test
+    void decryptReturnsInputWhenNoRecordsAreEncrypted() {
+        InMemoryKms kms = getInMemoryKms();
+        var decryptionManager = createDecryptionManager(kms);
+        MemoryRecords records = MemoryRecords.withRecords(Compression.gzip().build(),
+                new SimpleRecord(ARBITRARY_KEY.getBytes(StandardCharsets.UTF_8), ARBITRARY_VALUE.getBytes(StandardCharsets.UTF_8)));
+
+        assertThat(decryptionManager.decrypt("foo", 1, records, ByteBufferOutputStream::new))
+                .succeedsWithin(Duration.ZERO).isSameAs(records);
+    }
+
+    @Test
+    void decryptCopiesBatchWithNoEncryptedRecordsUnchanged() {
+        InMemoryKms kms = getInMemoryKms();
+        EncryptionScheme<UUID> scheme = createScheme(kms);
+        var encryptionManager = createEncryptionManager(kms, 500_000);
+        var decryptionManager = createDecryptionManager(kms);
+
+        MemoryRecords plain = MemoryRecords.withRecords(0L, Compression.gzip().build(),
+                new SimpleRecord(ARBITRARY_KEY.getBytes(StandardCharsets.UTF_8), ARBITRARY_VALUE.getBytes(StandardCharsets.UTF_8)));
+        MemoryRecords encrypted = assertImmediateSuccessAndGet(encrypt(encryptionManager, scheme,
+                MemoryRecords.withRecords(1L, Compression.NONE,
+                        new SimpleRecord(ARBITRARY_KEY_2.getBytes(StandardCharsets.UTF_8), ARBITRARY_VALUE_2.getBytes(StandardCharsets.UTF_8)))));
+        MemoryRecords records = RecordTestUtils.memoryRecords(plain.batches().iterator().next(), encrypted.batches().iterator().next());
+
+        MemoryRecords decrypted = assertImmediateSuccessAndGet(decryptionManager.decrypt("foo", 1, records, ByteBufferOutputStream::new));
+
+        assertThat(decrypted.firstBatch().compressionType()).isEqualTo(CompressionType.GZIP);
+        assertThat(decrypted.buffer().slice(0, plain.sizeInBytes())).isEqualTo(plain.buffer());
+        assertThat(decrypted.records())
+                .extracting(RecordTestUtils::recordValueAsString)
+                .containsExactly(ARBITRARY_VALUE, ARBITRARY_VALUE_2);
+    }
+
     static List<MemoryRecords> decryptSupportsEmptyRecordBatches() {
         return List.of(MemoryRecords.EMPTY, RecordTestUtils.memoryRecordsWithAllRecordsRemoved());
     }
@@ -783,6 +927,90 @@ class InBandDecryptionManagerTest {
                 .containsExactly(header);
     }
 
+    @Test
+    void shouldEncryptAndDecryptWholeBatchWithBatchGranularity() {
+        InMemoryKms kms = getInMemoryKms();
+        // a single encryption suffices for the whole batch
+        var encryptionManager = createEncryptionManager(kms, 1, Encryption.V3);
+        var decryptionManager = createDecryptionManager(kms);
+
+        var kekId = kms.generateKey();
+
+        var value = ByteBuffer.wrap(new byte[]{ 1, 2, 3 });
+        var value3 = ByteBuffer.wrap(new byte[]{ 7, 8, 9 });
+        Record record = RecordTestUtils.record(0L, value, new RecordHeader("foo", new byte[]{ 4, 5, 6 }));
+        Record tombstone = RecordTestUtils.record(1L, (ByteBuffer) null);
+        Record record3 = RecordTestUtils.record(2L, value3, new RecordHeader("foo", new byte[]{ 10, 11, 12 }));
+
+        List<Record> encrypted = new ArrayList<>();
+        assertThat(doEncrypt(encryptionManager, "topic", 1, new EncryptionScheme<>(kekId, EnumSet.of(RecordField.RECORD_VALUE, RecordField.RECORD_HEADER_VALUES)),
+                List.of(record, tombstone, record3),
+                encrypted))
+                .isCompleted();
+        value.rewind();
+        value3.rewind();
+
+        assertThat(encrypted).hasSize(3);
+        assertThat(encrypted.get(0).valueSize()).isGreaterThan(value.remaining() + value3.remaining());
+        assertThat(encrypted.get(1).hasValue()).isFalse();
+        assertThat(encrypted.get(2).valueSize()).isZero();
+        assertThat(encrypted.get(2).headers()).singleElement().extracting(Header::key).isEqualTo(EncryptionHeader.ENCRYPTION_HEADER_NAME);
+
+        List<Record> decrypted = new ArrayList<>();
+        assertThat(doDecrypt(decryptionManager, "topic", 1, encrypted, decrypted)).isCompleted();
+
+        assertEquals(List.of(RecordTestUtils.record(0L, value, new RecordHeader("foo", new byte[]{ 4, 5, 6 })),
+                RecordTestUtils.record(1L, (ByteBuffer) null),
+                RecordTestUtils.record(2L, value3, new RecordHeader("foo", new byte[]{ 10, 11, 12 }))), decrypted);
+    }
+
+    @Test
+    void shouldCompressBatchPlaintextBeforeEncrypting() {
+        InMemoryKms kms = getInMemoryKms();
+        EncryptionScheme<UUID> scheme = createScheme(kms);
+        var decryptionManager = createDecryptionManager(kms);
+
+        var value = "a compressible value, a compressible value, a compressible value".getBytes(StandardCharsets.UTF_8);
+        var simpleRecords = new SimpleRecord[100];
+        for (int i = 0; i < simpleRecords.length; i++) {
+            simpleRecords[i] = new SimpleRecord(0L, ARBITRARY_KEY.getBytes(StandardCharsets.UTF_8), value);
+        }
+        MemoryRecords records = MemoryRecords.withRecords(Compression.gzip().build(), simpleRecords);
+
+        MemoryRecords encryptedV3 = assertImmediateSuccessAndGet(encrypt(createEncryptionManager(kms, 500_000, Encryption.V3), scheme, records));
+        MemoryRecords encryptedV4 = assertImmediateSuccessAndGet(encrypt(createEncryptionManager(kms, 500_000, Encryption.V4), scheme, records));
+
+        // the ciphertext is not recompressed, but is smaller than recompressed ciphertext
+        assertThat(encryptedV3.firstBatch().compressionType()).isEqualTo(CompressionType.GZIP);
+        assertThat(encryptedV4.firstBatch().compressionType()).isEqualTo(CompressionType.NONE);
+        assertThat(encryptedV4.sizeInBytes()).isLessThan(encryptedV3.sizeInBytes());
+
+        MemoryRecords decrypted = assertImmediateSuccessAndGet(decrypt(decryptionManager, encryptedV4));
+        assertThat(decrypted.records())
+                .hasSize(simpleRecords.length)
+                .allSatisfy(record -> assertThat(RecordTestUtils.recordValueAsBytes(record)).isEqualTo(value));
+    }
+
+    @Test
+    void shouldFailToDecryptBatchGranularityRecordWithoutBatchCiphertext() {
+        InMemoryKms kms = getInMemoryKms();
+        var encryptionManager = createEncryptionManager(kms, 500_000, Encryption.V3);
+        var decryptionManager = createDecryptionManager(kms);
+
+        List<Record> encrypted = new ArrayList<>();
+        assertThat(doEncrypt(encryptionManager, "topic", 1, createScheme(kms),
+                List.of(RecordTestUtils.record(0L, ByteBuffer.wrap(new byte[]{ 1 })), RecordTestUtils.record(1L, ByteBuffer.wrap(new byte[]{ 2 }))),
+                encrypted))
+                .isCompleted();
+
+        // as if the record carrying the ciphertext had been compacted away
+        List<Record> decrypted = new ArrayList<>();
+        assertThat(doDecrypt(decryptionManager, "topic", 1, encrypted.subList(1, 2), decrypted).toCompletableFuture())
+                .failsWithin(Duration.ZERO)
+                .withThrowableThat()
+                .withCauseInstanceOf(EncryptionException.class);
+    }
+
     @ParameterizedTest
     @CsvSource({ "0,1", "0,3" })
     void decryptPreservesOrdering(long offsetA, long offsetB) {
@@ -1006,13 +1234,19 @@ class InBandDecryptionManagerTest {
 
     @NonNull
     private static InBandDecryptionManager<UUID, InMemoryEdek> createDecryptionManager(InMemoryKms kms) {
+        return createDecryptionManager(kms, null);
+    }
+
+    @NonNull
+    private static InBandDecryptionManager<UUID, InMemoryEdek> createDecryptionManager(InMemoryKms kms, @Nullable CryptoExecutor cryptoExecutor) {
 
         DekManager<UUID, InMemoryEdek> dekManager = new DekManager<>(kms, 1);
         var dekCache = new DecryptionDekCache<>(dekManager, directExecutor(), DecryptionDekCache.NO_MAX_CACHE_SIZE);
         return new InBandDecryptionManager<>(EncryptionResolver.ALL,
                 dekManager,
                 dekCache,
-                new FilterThreadExecutor(directExecutor()));
+                new FilterThreadExecutor(directExecutor()),
+                cryptoExecutor);
     }
 
     @NonNull
@@ -1021,7 +1255,30 @@ class InBandDecryptionManagerTest {
                 maxEncryptionsPerDek,
                 1024 * 1024,
                 8 * 1024 * 1024,
-                EncryptionDekCache.NO_MAX_CACHE_SIZE);
+                EncryptionDekCache.NO_MAX_CACHE_SIZE,
+                null);
+    }
+
+    @NonNull
+    private static InBandEncryptionManager<UUID, InMemoryEdek> createEncryptionManager(InMemoryKms kms, int maxEncryptionsPerDek, Encryption encryption) {
+        DekManager<UUID, InMemoryEdek> dekManager = new DekManager<>(kms, maxEncryptionsPerDek);
+        var cache = new EncryptionDekCache<>(dekManager, directExecutor(), EncryptionDekCache.NO_MAX_CACHE_SIZE, Duration.ofHours(1), Duration.ofHours(1));
+        return new InBandEncryptionManager<>(encryption,
+                dekManager.edekSerde(),
+                1024 * 1024,
+                8 * 1024 * 1024,
+                cache,
+                new FilterThreadExecutor(directExecutor()));
+    }
+
+    @NonNull
+    private static InBandEncryptionManager<UUID, InMemoryEdek> createEncryptionManager(InMemoryKms kms, int maxEncryptionsPerDek, CryptoExecutor cryptoExecutor) {
+        return createEncryptionManager(kms,
+                maxEncryptionsPerDek,
+                1024 * 1024,
+                8 * 1024 * 1024,
+                EncryptionDekCache.NO_MAX_CACHE_SIZE,
+                cryptoExecutor);
     }
 
     @NonNull
@@ -1030,6 +1287,16 @@ class InBandDecryptionManagerTest {
                                                                                        int recordBufferInitialBytes,
                                                                                        int recordBufferMaxBytes,
                                                                                        int maxCacheSize) {
+        return createEncryptionManager(kms, maxEncryptionsPerDek, recordBufferInitialBytes, recordBufferMaxBytes, maxCacheSize, null);
+    }
+
+    @NonNull
+    private static InBandEncryptionManager<UUID, InMemoryEdek> createEncryptionManager(InMemoryKms kms,
+                                                                                       int maxEncryptionsPerDek,
+                                                                                       int recordBufferInitialBytes,
+                                                                                       int recordBufferMaxBytes,
+                                                                                       int maxCacheSize,
+                                                                                       @Nullable CryptoExecutor cryptoExecutor) {
 
         DekManager<UUID, InMemoryEdek> dekManager = new DekManager<>(kms, maxEncryptionsPerDek);
         var cache = new EncryptionDekCache<>(dekManager, directExecutor(), maxCacheSize, Duration.ofHours(1), Duration.ofHours(1));
@@ -1038,7 +1305,8 @@ class InBandDecryptionManagerTest {
                 recordBufferInitialBytes,
                 recordBufferMaxBytes,
                 cache,
-                new FilterThreadExecutor(directExecutor()));
+                new FilterThreadExecutor(directExecutor()),
+                cryptoExecutor);
     }
 
     @NonNull
@@ -0,0 +1,87 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.filter.encryption.dek;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.crypto.Cipher;
+
+import org.junit.jupiter.api.Test;
+
+import io.kroxylicious.kms.service.DestroyableRawSecretKey;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CipherPoolTest {
+
+    // the pools are per-thread and keyed by cipher manager identity, so each test uses its own cipher manager
+    private final CipherManager cipherManager = new NullCipherManager((byte) 0, true, new byte[0]);
+
+    @Test
+    void shouldReuseReleasedCipher() {
+        Cipher cipher = CipherPool.borrow(cipherManager);
+        CipherPool.release(cipherManager, cipher);
+        assertThat(CipherPool.borrow(cipherManager)).isSameAs(cipher);
+        assertThat(CipherPool.idle(cipherManager)).isZero();
+    }
+
+    @Test
+    void shouldNotShareCiphersBetweenCipherManagers() {
+        var otherCipherManager = new NullCipherManager((byte) 0, true, new byte[0]);
+        Cipher cipher = CipherPool.borrow(cipherManager);
+        CipherPool.release(cipherManager, cipher);
+        assertThat(CipherPool.borrow(otherCipherManager)).isNotSameAs(cipher);
+    }
+
+    @Test
+    void shouldNotShareCiphersBetweenThreads() {
+        Cipher cipher = CipherPool.borrow(cipherManager);
+        CipherPool.release(cipherManager, cipher);
+        var borrowedElsewhere = CompletableFuture.supplyAsync(() -> CipherPool.borrow(cipherManager));
+        assertThat(borrowedElsewhere).succeedsWithin(5, TimeUnit.SECONDS).isNotSameAs(cipher);
+    }
+
+    @Test
+    void shouldBoundIdleCiphers() {
+        var borrowed = new ArrayList<Cipher>();
+        for (int i = 0; i < CipherPool.MAX_IDLE_PER_CIPHER_MANAGER + 1; i++) {
+            borrowed.add(CipherPool.borrow(cipherManager));
+        }
+        borrowed.forEach(cipher -> CipherPool.release(cipherManager, cipher));
+        assertThat(CipherPool.idle(cipherManager)).isEqualTo(CipherPool.MAX_IDLE_PER_CIPHER_MANAGER);
+    }
+
+    @Test
+    void closedCryptorsShouldReturnTheirCiphers() {
+        var dek = new Dek<>("edek", DestroyableRawSecretKey.takeCopyOf(new byte[]{ 1 }, "AES"), cipherManager, 100);
+        dek.encryptor(1).close();
+        assertThat(CipherPool.idle(cipherManager)).isEqualTo(1);
+        var decryptor = dek.decryptor();
+        assertThat(CipherPool.idle(cipherManager)).isZero();
+        decryptor.close();
+        decryptor.close();
+        assertThat(CipherPool.idle(cipherManager)).isEqualTo(1);
+    }
+
+    @Test
+    void closedCryptorsShouldNotBeUsable() {
+        var dek = new Dek<>("edek", DestroyableRawSecretKey.takeCopyOf(new byte[]{ 1 }, "AES"), cipherManager, 100);
+        var encryptor = dek.encryptor(2);
+        encryptor.close();
+        assertThatThrownBy(() -> encryptor.generateParameters(size -> ByteBuffer.allocate(size)))
+                .isExactlyInstanceOf(DekUsageException.class);
+        var decryptor = dek.decryptor();
+        decryptor.close();
+        var buffer = ByteBuffer.allocate(0);
+        assertThatThrownBy(() -> decryptor.decrypt(buffer, null, buffer, buffer))
+                .isExactlyInstanceOf(DekUsageException.class);
+    }
+}
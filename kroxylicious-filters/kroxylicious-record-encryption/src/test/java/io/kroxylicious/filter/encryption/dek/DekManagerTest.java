@@ -9,10 +9,14 @@ package io.kroxylicious.filter.encryption.dek;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
+import javax.crypto.spec.SecretKeySpec;
+
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -23,10 +27,18 @@ import io.kroxylicious.filter.encryption.FixedDekKmsService;
 import io.kroxylicious.filter.encryption.config.EncryptionConfigurationException;
 import io.kroxylicious.kms.provider.kroxylicious.inmemory.InMemoryEdek;
 import io.kroxylicious.kms.provider.kroxylicious.inmemory.UnitTestingKmsService;
+import io.kroxylicious.kms.service.DestroyableRawSecretKey;
+import io.kroxylicious.kms.service.Kms;
+import io.kroxylicious.kms.service.KmsException;
 import io.kroxylicious.kms.service.Serde;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 class DekManagerTest {
 
@@ -117,6 +129,84 @@ class DekManagerTest {
         assertThat(new String(decodedPlaintext.array(), StandardCharsets.UTF_8)).isEqualTo("hello, world");
     }
 
+    @ParameterizedTest
+    @MethodSource("io.kroxylicious.filter.encryption.dek.CipherManagerTest#allCipherManagers")
+    void testDecryptEdeksDecryptsAllEdeksInOneKmsCall(CipherManager cipherManager) {
+        // Given
+        Kms<String, String> kms = mock(Kms.class);
+        when(kms.decryptEdeks(any())).thenReturn(CompletableFuture.completedFuture(Map.of(
+                "edek1", new SecretKeySpec(new byte[32], "AES"),
+                "edek2", new SecretKeySpec(new byte[32], "AES"))));
+        var dm = new DekManager<>(kms, 1_000);
+
+        // When
+        var deks = dm.decryptEdeks(List.of("edek1", "edek2"), cipherManager);
+
+        // Then
+        assertThat(deks).containsOnlyKeys("edek1", "edek2");
+        assertThat(deks.get("edek1")).succeedsWithin(10, TimeUnit.SECONDS)
+                .satisfies(dek -> assertThat(dek.edek()).isEqualTo("edek1"));
+        assertThat(deks.get("edek2")).succeedsWithin(10, TimeUnit.SECONDS)
+                .satisfies(dek -> assertThatThrownBy(() -> dek.encryptor(1)).isExactlyInstanceOf(DestroyedDekException.class));
+        verify(kms).decryptEdeks(List.of("edek1", "edek2"));
+        verify(kms, never()).decryptEdek(any());
+    }
+
+    @Test
+    void testDecryptEdeksFailsOnlyTheEdekKmsOmits() {
+        // Given
+        Kms<String, String> kms = mock(Kms.class);
+        when(kms.decryptEdeks(any())).thenReturn(CompletableFuture.completedFuture(Map.of("edek1", new SecretKeySpec(new byte[32], "AES"))));
+        var dm = new DekManager<>(kms, 1_000);
+
+        // When
+        var deks = dm.decryptEdeks(List.of("edek1", "edek2"), Aes.AES_256_GCM_128);
+
+        // Then
+        assertThat(deks.get("edek1")).succeedsWithin(10, TimeUnit.SECONDS)
+                .satisfies(dek -> assertThat(dek.edek()).isEqualTo("edek1"));
+        assertThat(deks.get("edek2")).failsWithin(10, TimeUnit.SECONDS)
+                .withThrowableOfType(ExecutionException.class)
+                .havingCause()
+                .isExactlyInstanceOf(KmsException.class);
+    }
+
+    @Test
+    void testDecryptEdeksFailsEveryEdekIfKmsFails() {
+        // Given
+        Kms<String, String> kms = mock(Kms.class);
+        when(kms.decryptEdeks(any())).thenReturn(CompletableFuture.failedFuture(new KmsException("boom")));
+        var dm = new DekManager<>(kms, 1_000);
+
+        // When
+        var deks = dm.decryptEdeks(List.of("edek1", "edek2"), Aes.AES_256_GCM_128);
+
+        // Then
+        assertThat(deks.values()).allSatisfy(dek -> assertThat(dek).failsWithin(10, TimeUnit.SECONDS)
+                .withThrowableOfType(ExecutionException.class)
+                .havingCause()
+                .withMessage("boom"));
+    }
+
+    @Test
+    void testDecryptEdeksDestroysKeysForEdeksNotAskedFor() {
+        // Given
+        Kms<String, String> kms = mock(Kms.class);
+        var unexpected = DestroyableRawSecretKey.takeCopyOf(new byte[32], "AES");
+        when(kms.decryptEdeks(any())).thenReturn(CompletableFuture.completedFuture(Map.of(
+                "edek1", new SecretKeySpec(new byte[32], "AES"),
+                "unexpected", unexpected)));
+        var dm = new DekManager<>(kms, 1_000);
+
+        // When
+        var deks = dm.decryptEdeks(List.of("edek1"), Aes.AES_256_GCM_128);
+
+        // Then
+        assertThat(deks).containsOnlyKeys("edek1");
+        assertThat(deks.get("edek1")).succeedsWithin(10, TimeUnit.SECONDS);
+        assertThat(unexpected.isDestroyed()).isTrue();
+    }
+
     @Test
     void aes256KeyMustBe256bits() {
         try (var fixedDekKmsService = new FixedDekKmsService(128)) {
@@ -71,6 +71,11 @@ public class NullCipherManager implements CipherManager {
         return constantParamsSize();
     }
 
+    @Override
+    public int ciphertextSize(int plaintextSize) {
+        return plaintextSize;
+    }
+
     @Override
     public void writeParameters(
                                 ByteBuffer parametersBuffer,
@@ -0,0 +1,211 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.filter.encryption.encrypt;
+
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import io.kroxylicious.filter.encryption.common.FilterThreadExecutor;
+import io.kroxylicious.filter.encryption.config.RecordField;
+import io.kroxylicious.filter.encryption.dek.Aes;
+import io.kroxylicious.filter.encryption.dek.Dek;
+import io.kroxylicious.filter.encryption.dek.DekManager;
+import io.kroxylicious.filter.encryption.dek.DestroyedDekException;
+import io.kroxylicious.kms.provider.kroxylicious.inmemory.InMemoryEdek;
+import io.kroxylicious.kms.provider.kroxylicious.inmemory.InMemoryKms;
+import io.kroxylicious.kms.provider.kroxylicious.inmemory.UnitTestingKmsService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EncryptionDekCacheTest {
+
+    private static final FilterThreadExecutor DIRECT = new FilterThreadExecutor(Runnable::run);
+
+    private InMemoryKms kms;
+    private EncryptionScheme<UUID> scheme;
+    private ExecutorService thread1;
+    private ExecutorService thread2;
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void beforeEach() {
+        var kmsService = UnitTestingKmsService.newInstance();
+        kmsService.initialize(new UnitTestingKmsService.Config());
+        kms = kmsService.buildKms();
+        scheme = new EncryptionScheme<>(kms.generateKey(), EnumSet.of(RecordField.RECORD_VALUE));
+        thread1 = Executors.newSingleThreadExecutor();
+        thread2 = Executors.newSingleThreadExecutor();
+        registry = new SimpleMeterRegistry();
+    }
+
+    @AfterEach
+    void afterEach() {
+        thread1.shutdownNow();
+        thread2.shutdownNow();
+    }
+
+    @Test
+    void shouldShareDekBetweenThreadsWithOneStripe() {
+        var cache = cache(1);
+
+        Dek<InMemoryEdek> dek1 = getOn(thread1, cache);
+        Dek<InMemoryEdek> dek2 = getOn(thread2, cache);
+
+        assertThat(dek1).isSameAs(dek2);
+        assertThat(kms.numDeksGenerated()).isEqualTo(1);
+        assertThat(generated("0")).isEqualTo(1.0);
+    }
+
+    @Test
+    void shouldGiveEachThreadItsOwnDekWithEnoughStripes() {
+        var cache = cache(2);
+
+        Dek<InMemoryEdek> dek1 = getOn(thread1, cache);
+        Dek<InMemoryEdek> dek2 = getOn(thread2, cache);
+
+        assertThat(dek1).isNotSameAs(dek2);
+        assertThat(getOn(thread1, cache)).isSameAs(dek1);
+        assertThat(getOn(thread2, cache)).isSameAs(dek2);
+        assertThat(kms.numDeksGenerated()).isEqualTo(2);
+        assertThat(generated("0")).isEqualTo(1.0);
+        assertThat(generated("1")).isEqualTo(1.0);
+    }
+
+    @Test
+    void shouldOnlyInvalidateCallingThreadsStripe() {
+        var cache = cache(2);
+        Dek<InMemoryEdek> dek1 = getOn(thread1, cache);
+        Dek<InMemoryEdek> dek2 = getOn(thread2, cache);
+
+        // invalidating from the wrong thread has no effect
+        CompletableFuture.runAsync(() -> cache.invalidate(scheme, dek1), thread2).join();
+        assertThat(getOn(thread1, cache)).isSameAs(dek1);
+
+        CompletableFuture.runAsync(() -> cache.invalidate(scheme, dek1), thread1).join();
+
+        assertThat(getOn(thread1, cache)).isNotSameAs(dek1);
+        assertThat(getOn(thread2, cache)).isSameAs(dek2);
+        assertThat(cache.invalidationCount()).isEqualTo(1);
+        assertThat(generated("0")).isEqualTo(2.0);
+        assertThat(generated("1")).isEqualTo(1.0);
+    }
+
+    @Test
+    void shouldRejectNonPositiveStripes() {
+        var dekManager = new DekManager<>(kms, 1000);
+        Duration hour = Duration.ofHours(1);
+        assertThatThrownBy(() -> new EncryptionDekCache<>(dekManager, Runnable::run, EncryptionDekCache.NO_MAX_CACHE_SIZE, hour, hour, 0, null,
+                EncryptionDekCache.NO_PROACTIVE_REFRESH))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldReplaceDekInBackgroundBeforeItIsExhausted() {
+        var cache = cache(1, 10, 4);
+        Dek<InMemoryEdek> dek = getOn(thread1, cache);
+        dek.encryptor(5).close();
+        assertThat(getOn(thread1, cache)).isSameAs(dek);
+
+        dek.encryptor(1).close();
+        // the DEK at the threshold is still returned, while its replacement is generated
+        assertThat(getOn(thread1, cache)).isSameAs(dek);
+
+        Dek<InMemoryEdek> replacement = getOn(thread1, cache);
+        assertThat(replacement).isNotSameAs(dek);
+        assertThat(replacement.remainingEncryptions()).isEqualTo(10);
+        assertThatThrownBy(() -> dek.encryptor(1)).isInstanceOf(DestroyedDekException.class);
+        assertThat(kms.numDeksGenerated()).isEqualTo(2);
+        assertThat(generated("0")).isEqualTo(2.0);
+    }
+
+    @Test
+    void shouldReplaceDekOnlyOnceWhenThresholdIsCrossed() {
+        var dekManager = Mockito.spy(new DekManager<>(kms, 10));
+        var cache = cache(dekManager, 1, 4);
+        Dek<InMemoryEdek> dek = getOn(thread1, cache);
+        var pendingReplacement = new CompletableFuture<Dek<InMemoryEdek>>();
+        Mockito.doReturn(pendingReplacement).when(dekManager).generateDek(Mockito.any(), Mockito.any());
+
+        dek.encryptor(6).close();
+        // while the replacement is being generated, further encryptions at the threshold do not replace the DEK again
+        assertThat(getOn(thread1, cache)).isSameAs(dek);
+        dek.encryptor(1).close();
+        assertThat(getOn(thread1, cache)).isSameAs(dek);
+        assertThat(getOn(thread1, cache)).isSameAs(dek);
+        Mockito.verify(dekManager, Mockito.times(2)).generateDek(Mockito.any(), Mockito.any());
+
+        Dek<InMemoryEdek> replacement = new DekManager<>(kms, 10).generateDek(scheme.kekId(), Aes.AES_256_GCM_128).toCompletableFuture().join();
+        pendingReplacement.complete(replacement);
+
+        assertThat(getOn(thread1, cache)).isSameAs(replacement);
+        assertThatThrownBy(() -> dek.encryptor(1)).isInstanceOf(DestroyedDekException.class);
+        Mockito.verify(dekManager, Mockito.times(2)).generateDek(Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    void shouldNotReplaceDekBeforeItIsExhaustedIfDisabled() {
+        var cache = cache(1, 10, EncryptionDekCache.NO_PROACTIVE_REFRESH);
+        Dek<InMemoryEdek> dek = getOn(thread1, cache);
+        dek.encryptor(10).close();
+
+        assertThat(getOn(thread1, cache)).isSameAs(dek);
+        assertThat(getOn(thread1, cache)).isSameAs(dek);
+        assertThat(kms.numDeksGenerated()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldPrewarmEachStripe() {
+        var cache = cache(2);
+
+        assertThat(cache.prewarm(scheme.kekId())).succeedsWithin(Duration.ofSeconds(10));
+        assertThat(kms.numDeksGenerated()).isEqualTo(2);
+
+        Dek<InMemoryEdek> dek1 = getOn(thread1, cache);
+        Dek<InMemoryEdek> dek2 = getOn(thread2, cache);
+        assertThat(dek1).isNotSameAs(dek2);
+        assertThat(kms.numDeksGenerated()).isEqualTo(2);
+    }
+
+    private EncryptionDekCache<UUID, InMemoryEdek> cache(int stripes) {
+        return cache(stripes, 1000, EncryptionDekCache.NO_PROACTIVE_REFRESH);
+    }
+
+    private EncryptionDekCache<UUID, InMemoryEdek> cache(int stripes, long maxEncryptionsPerDek, long refreshAtRemainingEncryptions) {
+        return cache(new DekManager<>(kms, maxEncryptionsPerDek), stripes, refreshAtRemainingEncryptions);
+    }
+
+    private EncryptionDekCache<UUID, InMemoryEdek> cache(DekManager<UUID, InMemoryEdek> dekManager, int stripes, long refreshAtRemainingEncryptions) {
+        var cache = new EncryptionDekCache<>(dekManager, Runnable::run, EncryptionDekCache.NO_MAX_CACHE_SIZE,
+                Duration.ofHours(1), Duration.ofHours(1), stripes, Counter.builder("deks_generated").withRegistry(registry), refreshAtRemainingEncryptions);
+        assertThat(cache.stripes()).isEqualTo(stripes);
+        return cache;
+    }
+
+    private Dek<InMemoryEdek> getOn(ExecutorService thread, EncryptionDekCache<UUID, InMemoryEdek> cache) {
+        return CompletableFuture.supplyAsync(() -> cache.get(scheme, DIRECT).toCompletableFuture().join(), thread)
+                .orTimeout(10, TimeUnit.SECONDS)
+                .join();
+    }
+
+    private double generated(String stripe) {
+        return registry.get("deks_generated").tag(EncryptionDekCache.STRIPE_LABEL, stripe).counter().count();
+    }
+}
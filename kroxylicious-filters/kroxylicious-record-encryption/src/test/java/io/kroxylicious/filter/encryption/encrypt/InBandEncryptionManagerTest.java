@@ -105,26 +105,66 @@ class InBandEncryptionManagerTest {
     @Test
     void testGrowBufferCannotGrowBeyondMaximum() {
         ByteBuffer priorBuffer = ByteBuffer.allocate(2);
-        assertThatThrownBy(() -> InBandEncryptionManager.growBuffer(priorBuffer, 2)).isInstanceOf(EncryptionException.class)
+        assertThatThrownBy(() -> InBandEncryptionManager.growBuffer(priorBuffer, 3, 2)).isInstanceOf(EncryptionException.class)
                 .hasMessage("Record buffer cannot grow greater than 2 bytes");
     }
 
     @Test
     void testGrowBufferDoubles() {
         ByteBuffer priorBuffer = ByteBuffer.allocate(2);
-        ByteBuffer grown = InBandEncryptionManager.growBuffer(priorBuffer, 8);
+        ByteBuffer grown = InBandEncryptionManager.growBuffer(priorBuffer, 3, 8);
         assertThat(grown.capacity()).isEqualTo(4);
-        ByteBuffer regrown = InBandEncryptionManager.growBuffer(grown, 8);
+        ByteBuffer regrown = InBandEncryptionManager.growBuffer(grown, 5, 8);
         assertThat(regrown.capacity()).isEqualTo(8);
     }
 
+    @Test
+    void testGrowBufferDoublesUntilLargeEnough() {
+        ByteBuffer priorBuffer = ByteBuffer.allocate(2);
+        ByteBuffer grown = InBandEncryptionManager.growBuffer(priorBuffer, 7, 16);
+        assertThat(grown.capacity()).isEqualTo(8);
+    }
+
     @Test
     void testGrowBufferWillCapGrowthAtMaximum() {
         ByteBuffer priorBuffer = ByteBuffer.allocate(5);
-        ByteBuffer grown = InBandEncryptionManager.growBuffer(priorBuffer, 8);
+        ByteBuffer grown = InBandEncryptionManager.growBuffer(priorBuffer, 6, 8);
         assertThat(grown.capacity()).isEqualTo(8);
     }
 
+    @Test
+    void shouldAllocateOutputBufferLargeEnoughForEncryptedRecords() {
+        // Given
+        InMemoryKms kms = getInMemoryKms();
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        final DekManager<UUID, InMemoryEdek> dekManager = new DekManager<>(new AsyncKms<>(kms, executor), 10000);
+        EncryptionDekCache<UUID, InMemoryEdek> cache = new EncryptionDekCache<>(dekManager, executor, EncryptionDekCache.NO_MAX_CACHE_SIZE, Duration.ofHours(1),
+                Duration.ofHours(1));
+        var encryptionManager = createEncryptionManager(dekManager, cache, executor);
+        var scheme = new EncryptionScheme<>(kms.generateKey(), EnumSet.of(RecordField.RECORD_VALUE, RecordField.RECORD_HEADER_VALUES));
+        MemoryRecords records = RecordTestUtils.memoryRecords(IntStream.range(0, 100)
+                .mapToObj(i -> RecordTestUtils.record(i, ByteBuffer.wrap(new byte[1000 + i])))
+                .toList());
+        List<Integer> requestedSizes = new ArrayList<>();
+
+        // When
+        CompletionStage<MemoryRecords> encrypted = encryptionManager.currentDek(scheme)
+                .thenCompose(dek -> {
+                    requestedSizes.add(encryptionManager.sizeOfEncrypted(records, dek));
+                    return encryptionManager.encrypt("topic", 1, scheme, records, size -> {
+                        requestedSizes.add(size);
+                        return new ByteBufferOutputStream(size);
+                    });
+                });
+
+        // Then
+        assertThat(encrypted).succeedsWithin(10, TimeUnit.SECONDS)
+                .satisfies(memoryRecords -> assertThat(memoryRecords.sizeInBytes()).isLessThanOrEqualTo(requestedSizes.get(1)));
+        assertThat(requestedSizes.get(1))
+                .isEqualTo(requestedSizes.get(0))
+                .isLessThan(2 * records.sizeInBytes());
+    }
+
     @Test
     void shouldGrowBuffer() {
         // Given
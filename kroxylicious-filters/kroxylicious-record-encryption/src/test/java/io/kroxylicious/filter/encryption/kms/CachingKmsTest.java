@@ -7,6 +7,9 @@
 package io.kroxylicious.filter.encryption.kms;
 
 import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
@@ -76,6 +79,24 @@ class CachingKmsTest {
         verify(kms, times(2)).decryptEdek(1L);
     }
 
+    @Test
+    void testDecryptEdeksDecryptsMissesInOneCall() {
+        Kms<Long, Long> kms = mock(Kms.class);
+        SecretKey secretKey1 = mock(SecretKey.class);
+        SecretKey secretKey2 = mock(SecretKey.class);
+        SecretKey secretKey3 = mock(SecretKey.class);
+        Mockito.when(kms.decryptEdek(1L)).thenReturn(CompletableFuture.completedFuture(secretKey1));
+        Mockito.when(kms.decryptEdeks(any())).thenReturn(CompletableFuture.completedFuture(Map.of(2L, secretKey2, 3L, secretKey3)));
+        Kms<Long, Long> caching = CachingKms.wrap(kms, 10L, Duration.ofHours(1), 1L, Duration.ZERO, Duration.ofMinutes(8), Duration.ofSeconds(30));
+        assertThat(caching.decryptEdek(1L)).succeedsWithin(5, TimeUnit.SECONDS).isSameAs(secretKey1);
+
+        assertThat(caching.decryptEdeks(List.of(1L, 2L, 3L))).succeedsWithin(5, TimeUnit.SECONDS)
+                .isEqualTo(Map.of(1L, secretKey1, 2L, secretKey2, 3L, secretKey3));
+        assertThat(caching.decryptEdek(3L)).succeedsWithin(5, TimeUnit.SECONDS).isSameAs(secretKey3);
+        verify(kms, times(1)).decryptEdeks(Set.of(2L, 3L));
+        verify(kms, times(1)).decryptEdek(any());
+    }
+
     @Test
     void testResolveAliasCached() {
         Kms<Long, Long> kms = mock(Kms.class);
@@ -7,6 +7,8 @@
 package io.kroxylicious.filter.encryption.kms;
 
 import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutionException;
@@ -28,6 +30,7 @@ import static io.kroxylicious.filter.encryption.kms.KmsMetrics.OperationOutcome.
 import static io.kroxylicious.filter.encryption.kms.KmsMetrics.OperationOutcome.NOT_FOUND;
 import static io.kroxylicious.filter.encryption.kms.KmsMetrics.OperationOutcome.SUCCESS;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -140,6 +143,27 @@ class InstrumentedKmsTest {
         verify(metrics).countDecryptEdekOutcome(NOT_FOUND);
     }
 
+    @Test
+    void testDecryptEdeksCountsEachEdek() {
+        Kms<String, String> instrument = InstrumentedKms.wrap(kms, metrics);
+        when(kms.decryptEdeks(List.of("edek1", "edek2"))).thenReturn(CompletableFuture.completedFuture(Map.of("edek1", secretKey, "edek2", secretKey)));
+        CompletionStage<Map<String, SecretKey>> stage = instrument.decryptEdeks(List.of("edek1", "edek2"));
+        assertThat(stage).succeedsWithin(Duration.ZERO).isEqualTo(Map.of("edek1", secretKey, "edek2", secretKey));
+        verify(metrics, times(2)).countDecryptEdekAttempt();
+        verify(metrics, times(2)).countDecryptEdekOutcome(SUCCESS);
+    }
+
+    @Test
+    void testDecryptEdeksUnknownKeyException() {
+        Kms<String, String> instrument = InstrumentedKms.wrap(kms, metrics);
+        UnknownKeyException cause = new UnknownKeyException("unknown");
+        when(kms.decryptEdeks(List.of("edek1", "edek2"))).thenReturn(CompletableFuture.failedFuture(cause));
+        CompletionStage<Map<String, SecretKey>> stage = instrument.decryptEdeks(List.of("edek1", "edek2"));
+        assertStageFailsWithCause(stage, cause);
+        verify(metrics, times(2)).countDecryptEdekAttempt();
+        verify(metrics, times(2)).countDecryptEdekOutcome(NOT_FOUND);
+    }
+
     private static void assertStageFailsWithCause(CompletionStage<?> stage, Throwable cause) {
         assertThat(stage).failsWithin(Duration.ZERO).withThrowableThat().isInstanceOf(ExecutionException.class).withCause(cause);
     }
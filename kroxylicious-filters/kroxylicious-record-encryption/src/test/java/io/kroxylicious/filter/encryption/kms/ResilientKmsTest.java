@@ -7,6 +7,8 @@
 package io.kroxylicious.filter.encryption.kms;
 
 import java.time.Duration;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.ExecutionException;
@@ -269,6 +271,25 @@ class ResilientKmsTest {
         verify(mockExecutor, times(2)).schedule(any(Runnable.class), eq(DELAY), eq(TimeUnit.MILLISECONDS));
     }
 
+    @Test
+    void testDecryptEdeksRetries() {
+        // given
+        Kms<Long, Long> kms = Mockito.mock(Kms.class);
+        when(kms.decryptEdeks(List.of(1L, 2L))).thenReturn(failedFuture(new RuntimeException("BOOM! test exception")),
+                completedFuture(Map.of(1L, SECRET_KEY, 2L, SECRET_KEY)));
+        BackoffStrategy strategy = Mockito.mock(BackoffStrategy.class);
+        when(strategy.getDelay(anyInt())).thenReturn(Duration.ofMillis(DELAY));
+        ScheduledExecutorService mockExecutor = getMockExecutor();
+        Kms<Long, Long> resilientKms = ResilientKms.wrap(kms, mockExecutor, strategy, 3);
+
+        // when
+        CompletionStage<Map<Long, SecretKey>> deks = resilientKms.decryptEdeks(List.of(1L, 2L));
+
+        // then
+        assertThat(deks).succeedsWithin(5, TimeUnit.SECONDS).isEqualTo(Map.of(1L, SECRET_KEY, 2L, SECRET_KEY));
+        verify(mockExecutor, times(2)).schedule(any(Runnable.class), eq(DELAY), eq(TimeUnit.MILLISECONDS));
+    }
+
     @Test
     void testDecryptEdekDoesNotRetryUnknownKey() {
         // given
@@ -15,6 +15,7 @@ import org.apache.kafka.common.message.SaslAuthenticateResponseData;
 import org.apache.kafka.common.security.oauthbearer.internals.OAuthBearerClientInitialResponse;
 import org.jose4j.jwt.GeneralJwtException;
 import org.jose4j.jwt.consumer.InvalidJwtException;
+import org.jose4j.jwt.consumer.JwtConsumer;
 import org.jose4j.jwt.consumer.JwtConsumerBuilder;
 
 import edu.umd.cs.findbugs.annotations.Nullable;
@@ -32,6 +33,17 @@ import edu.umd.cs.findbugs.annotations.Nullable;
  */
 class OauthBearerSaslObserver implements SaslObserver {
 
+    /**
+     * It is not the role of the observer to validate the JWT - the server
+     * will decide if it is acceptable. We merely need to extract
+     * the subject claim. The consumer holds no per-token state, so one instance is shared by all observers.
+     */
+    private static final JwtConsumer SUBJECT_EXTRACTOR = new JwtConsumerBuilder()
+            .setSkipAllValidators()
+            .setDisableRequireSignature()
+            .setSkipSignatureVerification()
+            .build();
+
     private boolean gotExpectedServerFinal = false;
 
     private boolean gotServerError = false;
@@ -52,15 +64,7 @@ class OauthBearerSaslObserver implements SaslObserver {
                 var authzid = Optional.of(initialResponse.authorizationId()).filter(Predicate.not(String::isEmpty)).map(SaslUtils::decodeSaslName);
 
                 if (authzid.isEmpty()) {
-                    // It is not the role of the observer to validate the JWT - the server
-                    // will decide if it is acceptable. We merely need to extract
-                    // the subject claim.
-                    var consumer = new JwtConsumerBuilder()
-                            .setSkipAllValidators()
-                            .setDisableRequireSignature()
-                            .setSkipSignatureVerification()
-                            .build();
-                    var context = consumer.process(initialResponse.tokenValue());
+                    var context = SUBJECT_EXTRACTOR.process(initialResponse.tokenValue());
                     var sub = context.getJwtClaims().getStringClaimValue("sub");
 
                     authorizationId = Optional.ofNullable(sub).filter(Predicate.not(String::isEmpty))
@@ -7,8 +7,6 @@
 package io.kroxylicious.filter.sasl.inspection;
 
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Objects;
 
 import javax.security.sasl.SaslException;
@@ -20,6 +18,7 @@ import edu.umd.cs.findbugs.annotations.Nullable;
  * <a href="https://tools.ietf.org/html/rfc4616">SASL PLAIN</a> client initial response.
  */
 class PlainSaslObserver implements SaslObserver {
+    private static final byte NUL = 0;
     private boolean gotExpectedServerFinal = false;
     @Nullable
     private String authorizationId = null;
@@ -28,13 +27,22 @@ class PlainSaslObserver implements SaslObserver {
     public boolean clientResponse(byte[] response) throws SaslException {
         Objects.requireNonNull(response, "response");
         if (authorizationId == null) {
-            var tokens = parsePlainClient(new String(response, StandardCharsets.UTF_8));
-            var optionalAuthzid = tokens.getFirst();
-            var authcid = tokens.get(1);
-            if (authcid.isEmpty()) {
+            // message = [authzid] UTF8NUL authcid UTF8NUL passwd
+            // The tokens are located in the response's bytes, so that only the authorization id is decoded.
+            // UTF8NUL cannot occur within a multibyte UTF-8 sequence.
+            int authcidStart = SaslUtils.indexOf(response, NUL, 0) + 1;
+            int passwdStart = authcidStart == 0 ? 0 : SaslUtils.indexOf(response, NUL, authcidStart) + 1;
+            if (authcidStart == 0 || passwdStart == 0 || SaslUtils.indexOf(response, NUL, passwdStart) != -1) {
+                throw new SaslException("Invalid SASL/PLAIN response: expected 3 tokens, got " + countTokens(response));
+            }
+            int authcidLength = passwdStart - 1 - authcidStart;
+            if (authcidLength == 0) {
                 throw new SaslException("PLAIN saw client initial response with empty authcid.");
             }
-            authorizationId = optionalAuthzid.isEmpty() ? authcid : optionalAuthzid;
+            int authzidLength = authcidStart - 1;
+            authorizationId = authzidLength == 0
+                    ? new String(response, authcidStart, authcidLength, StandardCharsets.UTF_8)
+                    : new String(response, 0, authzidLength, StandardCharsets.UTF_8);
             return true;
         }
         else {
@@ -70,37 +78,11 @@ class PlainSaslObserver implements SaslObserver {
         return authorizationId;
     }
 
-    /* This function originally copied from Apach Kafka's PlainSaslServer */
-    private static List<String> parsePlainClient(String string) throws SaslException {
-        /*
-         * Message format (from https://tools.ietf.org/html/rfc4616):
-         *
-         * message = [authzid] UTF8NUL authcid UTF8NUL passwd
-         * authcid = 1*SAFE ; MUST accept up to 255 octets
-         * authzid = 1*SAFE ; MUST accept up to 255 octets
-         * passwd = 1*SAFE ; MUST accept up to 255 octets
-         * UTF8NUL = %x00 ; UTF-8 encoded NUL character
-         *
-         * SAFE = UTF1 / UTF2 / UTF3 / UTF4
-         * ;; any UTF-8 encoded Unicode character except NUL
-         */
-        List<String> tokens = new ArrayList<>();
-        int startIndex = 0;
-        for (int i = 0; i < 4; ++i) {
-            int endIndex = string.indexOf("\u0000", startIndex);
-            if (endIndex == -1) {
-                tokens.add(string.substring(startIndex));
-                break;
-            }
-            tokens.add(string.substring(startIndex, endIndex));
-            startIndex = endIndex + 1;
+    private static int countTokens(byte[] response) {
+        int tokens = 1;
+        for (int i = SaslUtils.indexOf(response, NUL, 0); i != -1 && tokens < 4; i = SaslUtils.indexOf(response, NUL, i + 1)) {
+            tokens++;
         }
-
-        if (tokens.size() != 3) {
-            throw new SaslException("Invalid SASL/PLAIN response: expected 3 tokens, got " +
-                    tokens.size());
-        }
-
         return tokens;
     }
 
@@ -31,4 +31,20 @@ final class SaslUtils {
 
         return saslName.replace(ENCODED_COMMA, ",").replace(ENCODED_EQUALS_SIGN, "=");
     }
+
+    /**
+     * Returns the index of the first occurrence of the given byte, searching from the given index.
+     * @param bytes bytes to search
+     * @param b byte to search for
+     * @param fromIndex index from which to start searching
+     * @return index of the byte, or -1 if it does not occur.
+     */
+    static int indexOf(byte[] bytes, byte b, int fromIndex) {
+        for (int i = fromIndex; i < bytes.length; i++) {
+            if (bytes[i] == b) {
+                return i;
+            }
+        }
+        return -1;
+    }
 }
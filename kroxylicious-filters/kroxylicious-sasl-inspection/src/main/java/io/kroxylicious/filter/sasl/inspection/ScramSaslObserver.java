@@ -7,8 +7,6 @@
 package io.kroxylicious.filter.sasl.inspection;
 
 import java.nio.charset.StandardCharsets;
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Objects;
 
 import javax.security.sasl.SaslException;
@@ -24,6 +22,8 @@ import edu.umd.cs.findbugs.annotations.Nullable;
  */
 public class ScramSaslObserver implements SaslObserver {
 
+    private static final byte COMMA = ',';
+
     private final String mechanismName;
     private boolean gotServerFinal = false;
     private @Nullable String authorizationId = null;
@@ -39,14 +39,23 @@ public class ScramSaslObserver implements SaslObserver {
             // n,,n=user,r=fyko+d2lbbFgONRv9qkxdawL
             // n,a=ursel,n=testuser,r=fyko+d2lbbFgONRv9qkxdawL
 
-            List<String> tokens = parseScramClientFirst(new String(clientFirst, StandardCharsets.UTF_8));
-            var username = tokens.get(2).startsWith("n=") ? tokens.get(2).substring(2) : null;
-            if (username == null || username.isEmpty()) {
+            // The attributes are located in the message's bytes, so that only the authorization id is decoded.
+            int authzidStart = SaslUtils.indexOf(clientFirst, COMMA, 0) + 1;
+            int usernameStart = authzidStart == 0 ? 0 : SaslUtils.indexOf(clientFirst, COMMA, authzidStart) + 1;
+            int usernameEnd = usernameStart == 0 ? -1 : SaslUtils.indexOf(clientFirst, COMMA, usernameStart);
+            if (usernameEnd == -1) {
+                int tokens = authzidStart == 0 ? 1 : usernameStart == 0 ? 2 : 3;
+                throw new SaslException("Invalid SASL/" + this.mechanismName() + " response: expected 4 tokens, got " + tokens);
+            }
+            if (!isAttribute(clientFirst, usernameStart, usernameEnd, 'n') || usernameEnd - usernameStart == 2) {
                 throw new SaslException("Invalid SCRAM client first message, username (n) absent");
             }
-            var authzid = tokens.get(1).startsWith("a=") ? tokens.get(1).substring(2) : "";
+            int authzidEnd = usernameStart - 1;
+            var saslName = isAttribute(clientFirst, authzidStart, authzidEnd, 'a') && authzidEnd - authzidStart > 2
+                    ? new String(clientFirst, authzidStart + 2, authzidEnd - authzidStart - 2, StandardCharsets.UTF_8)
+                    : new String(clientFirst, usernameStart + 2, usernameEnd - usernameStart - 2, StandardCharsets.UTF_8);
             try {
-                authorizationId = SaslUtils.decodeSaslName(authzid.isEmpty() ? username : authzid);
+                authorizationId = SaslUtils.decodeSaslName(saslName);
             }
             catch (IllegalArgumentException e) {
                 throw new SaslException("error decoding sasl name", e);
@@ -59,9 +68,8 @@ public class ScramSaslObserver implements SaslObserver {
     @Override
     public void serverChallenge(byte[] challenge) {
         if (!gotServerFinal) {
-            var c = new String(challenge, StandardCharsets.UTF_8);
-            boolean verifier = c.startsWith("v=");
-            boolean serverError = c.startsWith("e=");
+            boolean verifier = isAttribute(challenge, 0, challenge.length, 'v');
+            boolean serverError = isAttribute(challenge, 0, challenge.length, 'e');
             if (verifier || serverError) {
                 gotServerFinal = true;
             }
@@ -86,23 +94,8 @@ public class ScramSaslObserver implements SaslObserver {
         return authorizationId;
     }
 
-    private List<String> parseScramClientFirst(String clientFirst) throws SaslException {
-        List<String> tokens = new ArrayList<>(4);
-        int startIndex = 0;
-        for (int i = 0; i < 4; ++i) {
-            int endIndex = clientFirst.indexOf(",", startIndex);
-            if (endIndex == -1) {
-                tokens.add(clientFirst.substring(startIndex));
-                break;
-            }
-            tokens.add(clientFirst.substring(startIndex, endIndex));
-            startIndex = endIndex + 1;
-        }
-        if (tokens.size() != 4) {
-            throw new SaslException("Invalid SASL/" + this.mechanismName() + " response: expected 4 tokens, got " +
-                    tokens.size());
-        }
-        return tokens;
+    private static boolean isAttribute(byte[] message, int start, int end, char name) {
+        return end - start >= 2 && message[start] == name && message[start + 1] == '=';
     }
 
 }
@@ -34,7 +34,10 @@ class PlainSaslObserverTest {
     static Stream<Arguments> goodInitialResponses() {
         return Stream.of(
                 Arguments.argumentSet("authcid only", TestData.SASL_PLAIN_CLIENT_INITIAL, "tim"),
-                Arguments.argumentSet("both authcid and authzid", TestData.SASL_PLAIN_CLIENT_INITIAL_WITH_AUTHZID, "Ursel"));
+                Arguments.argumentSet("both authcid and authzid", TestData.SASL_PLAIN_CLIENT_INITIAL_WITH_AUTHZID, "Ursel"),
+                Arguments.argumentSet("multibyte authcid", "\0J\u00fcrgen\0pa\u00df".getBytes(UTF_8), "J\u00fcrgen"),
+                Arguments.argumentSet("multibyte authzid", "\u00c5sa\0tim\0tanstaaf".getBytes(UTF_8), "\u00c5sa"),
+                Arguments.argumentSet("empty password", "\0tim\0".getBytes(UTF_8), "tim"));
     }
 
     @ParameterizedTest
@@ -56,6 +59,7 @@ class PlainSaslObserverTest {
         return Stream.of(
                 Arguments.argumentSet("too many tokens", (Object) "far\0too\0many\0tokens".getBytes(UTF_8)),
                 Arguments.argumentSet("empty response", (Object) "".getBytes(UTF_8)),
+                Arguments.argumentSet("too few tokens", (Object) "tim\0tanstaaf".getBytes(UTF_8)),
                 Arguments.argumentSet("empty authcid", (Object) "\0\0tanstaaftanstaaf".getBytes(UTF_8)));
     }
 
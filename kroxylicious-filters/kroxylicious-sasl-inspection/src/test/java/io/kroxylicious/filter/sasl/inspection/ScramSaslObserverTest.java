@@ -49,7 +49,10 @@ class ScramSaslObserverTest {
                 Arguments.argumentSet("saslname with encoded comma", "n,,n=test=2Cuser,r=rOprNGfwEbeRWgbNEkqO".getBytes(UTF_8), "test,user"),
                 Arguments.argumentSet("saslname with encoded equals", "n,,n=test=3Duser,r=rOprNGfwEbeRWgbNEkqO".getBytes(UTF_8), "test=user"),
                 Arguments.argumentSet("saslname with many encoded chars", "n,,n=encoded=3Dchars=3Da=2Cgo=2Cgo,r=rOprNGfwEbeRWgbNEkqO".getBytes(UTF_8),
-                        "encoded=chars=a,go,go"));
+                        "encoded=chars=a,go,go"),
+                Arguments.argumentSet("multibyte username", "n,,n=J\u00fcrgen,r=rOprNGfwEbeRWgbNEkqO".getBytes(UTF_8), "J\u00fcrgen"),
+                Arguments.argumentSet("empty authzid", "n,a=,n=user,r=rOprNGfwEbeRWgbNEkqO".getBytes(UTF_8), "user"),
+                Arguments.argumentSet("extension after nonce", "n,,n=user,r=rOprNGfwEbeRWgbNEkqO,ext=1".getBytes(UTF_8), "user"));
     }
 
     @ParameterizedTest
@@ -76,6 +79,8 @@ class ScramSaslObserverTest {
                         (Object) "n,a=ursel,m=unexpected,n=testuser,r=fyko+d2lbbFgONRv9qkxdawL".getBytes(
                                 UTF_8)),
                 Arguments.argumentSet("missing username", (Object) "n,,r=fyko+d2lbbFgONRv9qkxdawL".getBytes(UTF_8)),
+                Arguments.argumentSet("missing nonce", (Object) "n,,n=user".getBytes(UTF_8)),
+                Arguments.argumentSet("no attributes", (Object) "n".getBytes(UTF_8)),
                 Arguments.argumentSet("empty username", (Object) "n,,n=,r=fyko+d2lbbFgONRv9qkxdawL".getBytes(UTF_8)),
                 Arguments.argumentSet("unrecognized encoded char", (Object) "n,,n=hello=2D,r=fyko+d2lbbFgONRv9qkxdawL".getBytes(UTF_8)));
     }
@@ -112,4 +117,17 @@ class ScramSaslObserverTest {
         assertThat(observer.isFinished()).isTrue();
         assertThat(observer.authorizationId()).isEqualTo("user");
     }
-}
\ No newline at end of file
+
+    @Test
+    void shouldNotFinishOnTruncatedServerFinal() throws SaslException {
+        // Given
+        var observer = new ScramSaslObserver(MECHANISM_NAME);
+        observer.clientResponse(TestData.SASL_SCRAM_SHA_256_CLIENT_INITIAL);
+
+        // When
+        observer.serverChallenge("v".getBytes(UTF_8));
+
+        // Then
+        assertThat(observer.isFinished()).isFalse();
+    }
+}
@@ -135,10 +135,20 @@ public class BatchAwareMemoryRecordsBuilder {
      * @return this builder
      */
     public BatchAwareMemoryRecordsBuilder addBatchLike(RecordBatch templateBatch) {
+        return addBatchLike(templateBatch, Compression.of(templateBatch.compressionType()).build());
+    }
+
+    /**
+     * Starts a batch, with batch parameters other than the compression taken from the given {@code templateBatch}.
+     * @param templateBatch The batch to use as a source of batch parameters
+     * @param compression the compression of the batch
+     * @return this builder
+     */
+    public BatchAwareMemoryRecordsBuilder addBatchLike(RecordBatch templateBatch, Compression compression) {
         TimestampType timestampType = templateBatch.timestampType();
         long logAppendTime = timestampType == TimestampType.LOG_APPEND_TIME ? templateBatch.maxTimestamp() : RecordBatch.NO_TIMESTAMP;
         return addBatch(templateBatch.magic(),
-                Compression.of(templateBatch.compressionType()).build(),
+                compression,
                 timestampType,
                 templateBatch.baseOffset(),
                 logAppendTime,
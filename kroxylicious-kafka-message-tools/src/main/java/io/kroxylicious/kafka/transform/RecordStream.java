@@ -15,6 +15,8 @@ import java.util.Set;
 import java.util.function.Function;
 
 import org.apache.kafka.common.record.MemoryRecords;
+import org.apache.kafka.common.record.Record;
+import org.apache.kafka.common.record.RecordBatch;
 import org.apache.kafka.common.utils.ByteBufferOutputStream;
 
 /**
@@ -143,7 +145,8 @@ public class RecordStream<T> {
     /**
      * Applies a {@link RecordTransform} to the records in this stream,
      * returning the mapped records in a {@link MemoryRecords}.
-     * This method will preserve empty batches and control batches.
+     * This method will preserve empty batches and control batches, and batches which the
+     * transform {@linkplain RecordTransform#canPassThrough(RecordBatch) can pass through}.
      * This iterates the batches in the source {@link MemoryRecords} and so will result in
      * batch decompression.
      *
@@ -158,12 +161,22 @@ public class RecordStream<T> {
             if (batch.isControlBatch()) {
                 builder.writeBatch(batch);
             }
+            else if (transform.canPassThrough(batch)) {
+                builder.writeBatch(batch);
+                indexInStream += recordCount(batch);
+            }
             else {
+                List<Record> batchRecords = transform.needsBatchRecords(batch) ? readRecords(batch) : null;
                 int indexInBatch = 0;
-                for (var record : batch) {
+                for (var record : batchRecords != null ? batchRecords : batch) {
                     if (indexInBatch == 0) {
-                        builder.addBatchLike(batch);
-                        transform.initBatch(batch);
+                        if (batchRecords != null) {
+                            transform.initBatch(batch, batchRecords);
+                        }
+                        else {
+                            transform.initBatch(batch);
+                        }
+                        builder.addBatchLike(batch, transform.transformCompression(batch));
                     }
                     var existingState = stateFunction.apply(batch, record, indexInStream);
                     transform.init(existingState, record);
@@ -185,4 +198,26 @@ public class RecordStream<T> {
         return builder.build();
     }
 
+    private static List<Record> readRecords(RecordBatch batch) {
+        Integer count = batch.countOrNull();
+        List<Record> batchRecords = new ArrayList<>(count == null ? 16 : count);
+        for (var record : batch) {
+            batchRecords.add(record);
+        }
+        return batchRecords;
+    }
+
+    private static int recordCount(RecordBatch batch) {
+        Integer count = batch.countOrNull();
+        if (count != null) {
+            return count;
+        }
+        // for magic < 2 the batch has to be iterated
+        int c = 0;
+        for (var ignored : batch) {
+            c++;
+        }
+        return c;
+    }
+
 }
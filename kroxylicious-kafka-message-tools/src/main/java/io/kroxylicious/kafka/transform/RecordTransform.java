@@ -7,7 +7,9 @@
 package io.kroxylicious.kafka.transform;
 
 import java.nio.ByteBuffer;
+import java.util.List;
 
+import org.apache.kafka.common.compress.Compression;
 import org.apache.kafka.common.header.Header;
 import org.apache.kafka.common.record.Record;
 import org.apache.kafka.common.record.RecordBatch;
@@ -36,10 +38,59 @@ public interface RecordTransform<S> {
 
     void initBatch(RecordBatch batch);
 
+    /**
+     * Whether the transform needs all the records of a batch before it transforms the first of them,
+     * in which case {@link #initBatch(RecordBatch, List)} is invoked instead of {@link #initBatch(RecordBatch)}.
+     * By default the records are not needed.
+     *
+     * @param batch The operand batch.
+     * @return true if the transform needs the batch's records in advance.
+     */
+    default boolean needsBatchRecords(RecordBatch batch) {
+        return false;
+    }
+
+    /**
+     * Initialises the transform for a batch, when it {@linkplain #needsBatchRecords(RecordBatch) needs the batch's records}.
+     * The records have been read from the batch once, so that a compressed batch is only decompressed once,
+     * and they are then transformed in the same order.
+     * By default this just invokes {@link #initBatch(RecordBatch)}.
+     *
+     * @param batch The operand batch.
+     * @param records The records of the batch.
+     */
+    default void initBatch(RecordBatch batch, List<Record> records) {
+        initBatch(batch);
+    }
+
+    /**
+     * Whether the given batch would be unchanged by this transform, in which case it is
+     * copied as-is, without being decompressed, and none of the other methods are invoked for it or its records.
+     * By default every batch is transformed.
+     *
+     * @param batch The operand batch.
+     * @return true if the batch can be passed through unchanged.
+     */
+    default boolean canPassThrough(RecordBatch batch) {
+        return false;
+    }
+
     void init(@Nullable S state, Record record);
 
     void resetAfterTransform(S state, Record record);
 
+    /**
+     * Computes the compression for the transformed batch.
+     * This is invoked after {@link #initBatch(RecordBatch)} and before the batch's first record is transformed.
+     * By default the batch keeps its compression type.
+     *
+     * @param batch The operand batch.
+     * @return The compression of the new batch.
+     */
+    default Compression transformCompression(RecordBatch batch) {
+        return Compression.of(batch.compressionType()).build();
+    }
+
     /**
      * Computes the offset for the transformed record.
      *
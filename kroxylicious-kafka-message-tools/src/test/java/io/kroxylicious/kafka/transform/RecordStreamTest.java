@@ -9,9 +9,12 @@ package io.kroxylicious.kafka.transform;
 import java.nio.ByteBuffer;
 import java.nio.CharBuffer;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.kafka.common.compress.Compression;
 import org.apache.kafka.common.header.Header;
+import org.apache.kafka.common.record.CompressionType;
 import org.apache.kafka.common.record.MemoryRecords;
 import org.apache.kafka.common.record.MutableRecordBatch;
 import org.apache.kafka.common.record.Record;
@@ -186,6 +189,101 @@ class RecordStreamTest {
                 .hasTimestampEqualTo(positiveHash(Integer.hashCode(index)) + 65L);
     }
 
+    @Test
+    void toMemoryRecordsPreservesCompressionByDefault() {
+        var mrb = new BatchAwareMemoryRecordsBuilder(new ByteBufferOutputStream(ByteBuffer.allocate(10)));
+        var mr = mrb.addBatch(Compression.gzip().build(), TimestampType.CREATE_TIME, 0)
+                .append(new SimpleRecord(42, "hello".getBytes(StandardCharsets.UTF_8), "world".getBytes(StandardCharsets.UTF_8), new Header[0]))
+                .build();
+        var records = RecordStream.ofRecords(mr).mapConstant("prefix").toMemoryRecords(new ByteBufferOutputStream(ByteBuffer.allocate(10)),
+                new Prefixer<>());
+        assertThat(records.firstBatch().compressionType()).isEqualTo(CompressionType.GZIP);
+    }
+
+    @Test
+    void toMemoryRecordsUsesTransformedCompression() {
+        var mrb = new BatchAwareMemoryRecordsBuilder(new ByteBufferOutputStream(ByteBuffer.allocate(10)));
+        var mr = mrb.addBatch(Compression.gzip().build(), TimestampType.CREATE_TIME, 0)
+                .append(new SimpleRecord(42, "hello".getBytes(StandardCharsets.UTF_8), "world".getBytes(StandardCharsets.UTF_8), new Header[0]))
+                .build();
+        var records = RecordStream.ofRecords(mr).mapConstant("prefix").toMemoryRecords(new ByteBufferOutputStream(ByteBuffer.allocate(10)),
+                new Prefixer<>() {
+                    @Override
+                    public Compression transformCompression(RecordBatch batch) {
+                        return Compression.NONE;
+                    }
+                });
+        assertThat(records.firstBatch().compressionType()).isEqualTo(CompressionType.NONE);
+        assertThat(records)
+                .firstBatch()
+                .firstRecord()
+                .hasValueEqualTo("prefixworld");
+    }
+
+    @Test
+    void toMemoryRecordsTransformsRecordsGivenToInitBatch() {
+        var mrb = new BatchAwareMemoryRecordsBuilder(new ByteBufferOutputStream(ByteBuffer.allocate(10)));
+        var mr = mrb.addBatch(Compression.gzip().build(), TimestampType.CREATE_TIME, 0)
+                .append(new SimpleRecord(42, "hello".getBytes(StandardCharsets.UTF_8), "world".getBytes(StandardCharsets.UTF_8), new Header[0]))
+                .append(new SimpleRecord(43, "HELLO".getBytes(StandardCharsets.UTF_8), "WORLD".getBytes(StandardCharsets.UTF_8), new Header[0]))
+                .build();
+        List<Record> initialised = new ArrayList<>();
+        List<Record> transformed = new ArrayList<>();
+        var records = RecordStream.ofRecords(mr).mapConstant("prefix").toMemoryRecords(new ByteBufferOutputStream(ByteBuffer.allocate(10)),
+                new Prefixer<>() {
+                    @Override
+                    public boolean needsBatchRecords(RecordBatch batch) {
+                        return true;
+                    }
+
+                    @Override
+                    public void initBatch(RecordBatch batch, List<Record> batchRecords) {
+                        initialised.addAll(batchRecords);
+                    }
+
+                    @Override
+                    public void init(String state, Record record) {
+                        super.init(state, record);
+                        transformed.add(record);
+                    }
+                });
+        // the compressed batch is read once, so the records given to initBatch are the ones transformed
+        assertThat(initialised).hasSize(2);
+        assertThat(transformed).zipSatisfy(initialised, (record, initialisedRecord) -> assertThat(record).isSameAs(initialisedRecord));
+        assertThat(records)
+                .firstBatch()
+                .lastRecord()
+                .hasValueEqualTo("prefixWORLD");
+    }
+
+    @Test
+    void toMemoryRecordsCopiesPassedThroughBatch() {
+        var mrb = new BatchAwareMemoryRecordsBuilder(new ByteBufferOutputStream(ByteBuffer.allocate(10)));
+        var mr = mrb.addBatch(Compression.gzip().build(), TimestampType.CREATE_TIME, 0)
+                .append(new SimpleRecord(42, "hello".getBytes(StandardCharsets.UTF_8), "world".getBytes(StandardCharsets.UTF_8), new Header[0]))
+                .append(new SimpleRecord(43, "hello".getBytes(StandardCharsets.UTF_8), "world".getBytes(StandardCharsets.UTF_8), new Header[0]))
+                .addBatch(Compression.NONE, TimestampType.CREATE_TIME, 2)
+                .append(new SimpleRecord(65, "HELLO".getBytes(StandardCharsets.UTF_8), "WORLD".getBytes(StandardCharsets.UTF_8), new Header[0]))
+                .build();
+        var firstBatchSize = mr.firstBatch().sizeInBytes();
+        var records = RecordStream.ofRecordsWithIndex(mr).toMemoryRecords(new ByteBufferOutputStream(ByteBuffer.allocate(10)),
+                new Prefixer<>() {
+                    @Override
+                    public boolean canPassThrough(RecordBatch batch) {
+                        return batch.baseOffset() == 0;
+                    }
+                });
+        // the first batch is copied as-is
+        assertThat(records.buffer().slice(0, firstBatchSize)).isEqualTo(mr.buffer().slice(0, firstBatchSize));
+        // the indexes of the records of the second batch account for the records of the first
+        assertThat(records)
+                .hasNumBatches(2)
+                .lastBatch()
+                .firstRecord()
+                .hasKeyEqualTo(2 + "HELLO")
+                .hasValueEqualTo(2 + "WORLD");
+    }
+
     private static ByteBuffer prefix(String prefix, ByteBuffer buffer) {
         return StandardCharsets.UTF_8.encode(CharBuffer.wrap(prefix + StandardCharsets.UTF_8.decode(buffer)));
     }
@@ -6,6 +6,13 @@
 
 package io.kroxylicious.kms.service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 
 import javax.crypto.SecretKey;
@@ -49,6 +56,34 @@ public interface Kms<K, E> {
     @NonNull
     CompletionStage<SecretKey> decryptEdek(@NonNull E edek);
 
+    /**
+     * <p>Asynchronously decrypts a number of data encryption keys that were {@linkplain #generateDekPair(Object) previously encrypted}.</p>
+     *
+     * <p>The default implementation calls {@link #decryptEdek(Object)} once for each distinct EDEK.
+     * Implementations for a KMS which can decrypt many keys in a single request should override this method to do so.
+     * The same recommendation about destroying key material applies as for {@link #decryptEdek(Object)}.</p>
+     *
+     * @param edeks The encrypted data encryption keys.
+     * @return A completion stage for a map from each of the given EDEKs to its data encryption key.
+     * The stage fails if any of the EDEKs cannot be decrypted, for the reasons given for {@link #decryptEdek(Object)}.
+     */
+    @NonNull
+    default CompletionStage<Map<E, SecretKey>> decryptEdeks(@NonNull Collection<E> edeks) {
+        List<E> distinct = new ArrayList<>(new LinkedHashSet<>(edeks));
+        List<CompletableFuture<SecretKey>> futures = new ArrayList<>(distinct.size());
+        for (E edek : distinct) {
+            futures.add(decryptEdek(edek).toCompletableFuture());
+        }
+        return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> {
+                    Map<E, SecretKey> result = HashMap.newHashMap(distinct.size());
+                    for (int i = 0; i < distinct.size(); i++) {
+                        result.put(distinct.get(i), futures.get(i).join());
+                    }
+                    return result;
+                });
+    }
+
     /**
      * Get a serializer for encrypted DEKs.
      * It is required that {@code deserialize(serialize(edek)).equals(edek)}.
@@ -0,0 +1,98 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.kms.service;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ExecutionException;
+
+import javax.crypto.SecretKey;
+import javax.crypto.spec.SecretKeySpec;
+
+import org.junit.jupiter.api.Test;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class KmsTest {
+
+    /**
+     * A KMS which only implements single-key decryption, decrypting an EDEK to a key whose bytes are the EDEK.
+     */
+    static class SingleKeyKms implements Kms<String, String> {
+
+        final List<String> decrypted = new ArrayList<>();
+
+        @NonNull
+        @Override
+        public CompletionStage<DekPair<String>> generateDekPair(@NonNull String kekRef) {
+            throw new UnsupportedOperationException();
+        }
+
+        @NonNull
+        @Override
+        public CompletionStage<SecretKey> decryptEdek(@NonNull String edek) {
+            decrypted.add(edek);
+            if (edek.equals("unknown")) {
+                return CompletableFuture.failedFuture(new UnknownKeyException());
+            }
+            return CompletableFuture.completedFuture(new SecretKeySpec(edek.getBytes(StandardCharsets.UTF_8), "AES"));
+        }
+
+        @NonNull
+        @Override
+        public Serde<String> edekSerde() {
+            throw new UnsupportedOperationException();
+        }
+
+        @NonNull
+        @Override
+        public CompletionStage<String> resolveAlias(@NonNull String alias) {
+            throw new UnsupportedOperationException();
+        }
+    }
+
+    @Test
+    void decryptEdeksShouldDecryptEachDistinctEdekOnce() {
+        var kms = new SingleKeyKms();
+
+        var stage = kms.decryptEdeks(List.of("a", "b", "a"));
+
+        assertThat(stage).succeedsWithin(Duration.ZERO)
+                .satisfies(keys -> {
+                    assertThat(keys).containsOnlyKeys("a", "b");
+                    assertThat(keys.get("a").getEncoded()).isEqualTo("a".getBytes(StandardCharsets.UTF_8));
+                    assertThat(keys.get("b").getEncoded()).isEqualTo("b".getBytes(StandardCharsets.UTF_8));
+                });
+        assertThat(kms.decrypted).containsExactly("a", "b");
+    }
+
+    @Test
+    void decryptEdeksShouldSucceedWithNoEdeks() {
+        var kms = new SingleKeyKms();
+
+        assertThat(kms.decryptEdeks(List.of())).succeedsWithin(Duration.ZERO)
+                .satisfies(keys -> assertThat(keys).isEmpty());
+        assertThat(kms.decrypted).isEmpty();
+    }
+
+    @Test
+    void decryptEdeksShouldFailIfAnyEdekCannotBeDecrypted() {
+        var kms = new SingleKeyKms();
+
+        assertThat(kms.decryptEdeks(List.of("a", "unknown"))).failsWithin(Duration.ZERO)
+                .withThrowableThat()
+                .isInstanceOf(ExecutionException.class)
+                .havingRootCause()
+                .isInstanceOf(UnknownKeyException.class);
+    }
+}
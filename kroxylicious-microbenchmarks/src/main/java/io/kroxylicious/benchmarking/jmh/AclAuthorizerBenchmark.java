@@ -0,0 +1,144 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.benchmarking.jmh;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.IntStream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.kroxylicious.authorizer.provider.acl.AclAuthorizerConfig;
+import io.kroxylicious.authorizer.provider.acl.AclAuthorizerService;
+import io.kroxylicious.authorizer.service.Action;
+import io.kroxylicious.authorizer.service.AuthorizeResult;
+import io.kroxylicious.authorizer.service.Authorizer;
+import io.kroxylicious.authorizer.service.Decision;
+import io.kroxylicious.filter.authorization.TopicResource;
+import io.kroxylicious.proxy.authentication.Subject;
+import io.kroxylicious.proxy.authentication.User;
+
+/**
+ * Measures the cost of authorizing a single action with the ACL authorizer, as the number of rules grows.
+ * Of every 10 rules, 7 grant access to a topic by exact name, 2 to topics with a name prefix, and 1 to topics
+ * matching a regular expression. The actions authorized cycle through ones allowed by each kind of rule,
+ * and ones which are denied because no rule matches.
+ * The batch benchmark authorizes reading many topics at once, as for a large FETCH request, and then partitions
+ * the topics by the decisions, as the authorization filter's enforcement does.
+ */
+@Fork(value = 2)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+public class AclAuthorizerBenchmark {
+
+    private static final int NUM_LOOKUPS = 1024;
+
+    @State(Scope.Benchmark)
+    public static class BenchState {
+        @Param({ "10", "1000", "100000" })
+        int numRules;
+
+        Authorizer authorizer;
+        Subject[] subjects;
+        List<Action>[] actions;
+
+        @Setup
+        @SuppressWarnings("unchecked")
+        public void init() throws IOException {
+            StringBuilder rules = new StringBuilder("""
+                    from io.kroxylicious.filter.authorization import TopicResource as Topic;
+                    deny User with name = "mallory" to * Topic with name like "*";
+                    """);
+            for (int i = 0; i < numRules; i++) {
+                switch (i % 10) {
+                    case 7, 8 -> rules.append("allow User with name = \"user-%d\" to READ Topic with name like \"prefix-%d-*\";%n".formatted(i, i));
+                    case 9 -> rules.append("allow User with name = \"user-%d\" to READ Topic with name matching /regex-%d-[0-9]+/;%n".formatted(i, i));
+                    default -> rules.append("allow User with name = \"user-%d\" to READ Topic with name = \"topic-%d\";%n".formatted(i, i));
+                }
+            }
+            rules.append("otherwise deny;");
+            Path file = Files.createTempFile("acl-rules", ".txt");
+            try {
+                Files.writeString(file, rules);
+                var service = new AclAuthorizerService();
+                service.initialize(new AclAuthorizerConfig(file.toString()));
+                authorizer = service.build();
+            }
+            finally {
+                Files.delete(file);
+            }
+
+            subjects = new Subject[NUM_LOOKUPS];
+            actions = new List[NUM_LOOKUPS];
+            for (int j = 0; j < NUM_LOOKUPS; j++) {
+                int i = (int) ((j * 2654435761L) % numRules);
+                String topic = switch (i % 10) {
+                    case 7, 8 -> "prefix-" + i + "-topic";
+                    case 9 -> "regex-" + i + "-" + j;
+                    default -> "topic-" + i;
+                };
+                // every fourth lookup is for a topic the user has not been granted
+                subjects[j] = new Subject(Set.of(new User("user-" + i)));
+                actions[j] = List.of(new Action(TopicResource.READ, j % 4 == 3 ? "other-" + topic : topic));
+            }
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class BatchState {
+        @Param({ "500" })
+        int batchSize;
+
+        Subject subject;
+        List<Action> actions;
+        List<String> topics;
+
+        @Setup
+        public void init() {
+            // rule 7 grants user-7 READ on topics with the prefix "prefix-7-"
+            subject = new Subject(Set.of(new User("user-7")));
+            topics = IntStream.range(0, batchSize)
+                    .mapToObj(k -> k % 4 == 3 ? "other-" + k : "prefix-7-" + k)
+                    .toList();
+            actions = topics.stream()
+                    .map(topic -> new Action(TopicResource.READ, topic))
+                    .toList();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Lookup {
+        int index;
+    }
+
+    @Benchmark
+    public AuthorizeResult authorize(BenchState state, Lookup lookup) {
+        int j = lookup.index++ & (NUM_LOOKUPS - 1);
+        return state.authorizer.authorize(state.subjects[j], state.actions[j])
+                .toCompletableFuture().join();
+    }
+
+    @Benchmark
+    public Map<Decision, List<String>> authorizeBatch(BenchState state, BatchState batch) {
+        return state.authorizer.authorize(batch.subject, batch.actions)
+                .toCompletableFuture().join()
+                .partition(batch.topics, TopicResource.READ, Function.identity());
+    }
+}
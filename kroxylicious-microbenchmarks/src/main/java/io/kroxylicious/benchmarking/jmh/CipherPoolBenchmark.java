@@ -0,0 +1,88 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.benchmarking.jmh;
+
+import java.nio.ByteBuffer;
+import java.security.GeneralSecurityException;
+import java.security.spec.AlgorithmParameterSpec;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import javax.crypto.Cipher;
+import javax.crypto.KeyGenerator;
+import javax.crypto.SecretKey;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import io.kroxylicious.filter.encryption.dek.Aes;
+import io.kroxylicious.filter.encryption.dek.CipherManager;
+import io.kroxylicious.filter.encryption.dek.CipherPool;
+
+/**
+ * Compares creating a new {@link Cipher} for each batch, as each Encryptor and Decryptor used to,
+ * with borrowing one from the per-thread {@link CipherPool}, for batches of various sizes.
+ */
+@Fork(value = 2)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 500, timeUnit = TimeUnit.MILLISECONDS)
+public class CipherPoolBenchmark {
+
+    @State(Scope.Thread)
+    public static class BenchState {
+        @Param({ "1", "10", "100" })
+        int recordsPerBatch;
+
+        final CipherManager cipherManager = Aes.AES_256_GCM_128;
+        Supplier<AlgorithmParameterSpec> paramSupplier;
+        SecretKey key;
+        ByteBuffer plaintext;
+        ByteBuffer ciphertext;
+
+        @Setup
+        public void init() throws GeneralSecurityException {
+            KeyGenerator keyGenerator = KeyGenerator.getInstance("AES");
+            keyGenerator.init(cipherManager.requiredNumKeyBits());
+            key = keyGenerator.generateKey();
+            paramSupplier = cipherManager.paramSupplier();
+            // a small record value, so that the cost of obtaining the cipher is not hidden by the cost of encrypting
+            plaintext = ByteBuffer.allocate(100);
+            ciphertext = ByteBuffer.allocate(1024);
+        }
+    }
+
+    @Benchmark
+    public void newCipherPerBatch(BenchState state, Blackhole blackhole) throws GeneralSecurityException {
+        encryptBatch(state, state.cipherManager.newCipher(), blackhole);
+    }
+
+    @Benchmark
+    public void pooledCipherPerBatch(BenchState state, Blackhole blackhole) throws GeneralSecurityException {
+        Cipher cipher = CipherPool.borrow(state.cipherManager);
+        try {
+            encryptBatch(state, cipher, blackhole);
+        }
+        finally {
+            CipherPool.release(state.cipherManager, cipher);
+        }
+    }
+
+    private static void encryptBatch(BenchState state, Cipher cipher, Blackhole blackhole) throws GeneralSecurityException {
+        for (int i = 0; i < state.recordsPerBatch; i++) {
+            cipher.init(Cipher.ENCRYPT_MODE, state.key, state.paramSupplier.get());
+            state.ciphertext.clear();
+            blackhole.consume(cipher.doFinal(state.plaintext.duplicate(), state.ciphertext));
+        }
+    }
+}
@@ -6,13 +6,25 @@
 
 package io.kroxylicious.benchmarking.jmh;
 
+import java.nio.ByteBuffer;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
+import org.apache.kafka.common.compress.Compression;
+import org.apache.kafka.common.message.ProduceRequestData;
 import org.apache.kafka.common.protocol.ApiKeys;
+import org.apache.kafka.common.protocol.ByteBufferAccessor;
+import org.apache.kafka.common.protocol.MessageUtil;
+import org.apache.kafka.common.record.MemoryRecords;
+import org.apache.kafka.common.record.SimpleRecord;
 import org.openjdk.jmh.annotations.Benchmark;
 import org.openjdk.jmh.annotations.Fork;
 import org.openjdk.jmh.annotations.Measurement;
 import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
 import org.openjdk.jmh.annotations.Warmup;
 import org.openjdk.jmh.infra.Blackhole;
 
@@ -20,6 +32,13 @@ import io.kroxylicious.benchmarking.jmh.filters.EightInterfaceFilter;
 import io.kroxylicious.benchmarking.jmh.filters.FourInterfaceFilter;
 import io.kroxylicious.benchmarking.jmh.filters.OneInterfaceFilter;
 import io.kroxylicious.benchmarking.jmh.filters.TwoInterfaceFilter;
+import io.kroxylicious.filter.connectionexpiration.ConnectionExpiration;
+import io.kroxylicious.filter.connectionexpiration.ConnectionExpirationFilterConfig;
+import io.kroxylicious.proxy.filter.Filter;
+import io.kroxylicious.proxy.filter.FilterDispatchExecutor;
+import io.kroxylicious.proxy.filter.FilterFactoryContext;
+import io.kroxylicious.proxy.internal.codec.DecodePredicate;
+import io.kroxylicious.proxy.internal.filter.FilterAndInvoker;
 import io.kroxylicious.proxy.internal.filter.FilterInvoker;
 import io.kroxylicious.proxy.internal.filter.FilterInvokers;
 
@@ -36,6 +55,37 @@ public class InvokerBenchmark {
         final FilterInvoker arrayInvokerHasEightInterfaces = FilterInvokers.arrayInvoker(new EightInterfaceFilter());
     }
 
+    /**
+     * A connection expiration filter on a connection which has not expired, and a Produce request of 10 records of 1KiB.
+     * What matters for such a filter is not the cost of asking whether the request should be decoded,
+     * but the cost of decoding the request when the answer is yes.
+     */
+    @org.openjdk.jmh.annotations.State(Scope.Benchmark)
+    public static class ConnectionExpirationState {
+        DecodePredicate decodePredicate;
+        ByteBuffer produceRequest;
+
+        @Setup
+        public void init() {
+            Filter filter = new ConnectionExpiration().createFilter(new BenchmarkFilterFactoryContext(),
+                    new ConnectionExpirationFilterConfig(Duration.ofDays(1), Duration.ZERO));
+            decodePredicate = DecodePredicate.forFilters(FilterAndInvoker.build("connection-expiration", filter));
+            var records = new SimpleRecord[10];
+            Arrays.setAll(records, i -> new SimpleRecord(new byte[1024]));
+            var produce = new ProduceRequestData()
+                    .setAcks((short) -1)
+                    .setTimeoutMs(30_000);
+            produce.topicData().add(new ProduceRequestData.TopicProduceData()
+                    .setName("topic")
+                    .setPartitionData(List.of(new ProduceRequestData.PartitionProduceData()
+                            .setIndex(0)
+                            .setRecords(MemoryRecords.withRecords(Compression.NONE, records)))));
+            produceRequest = MessageUtil.toByteBufferAccessor(produce, PRODUCE_VERSION).buffer();
+        }
+    }
+
+    private static final short PRODUCE_VERSION = 11;
+
     @Benchmark
     public void testArrayInvokerHasOneInterface(BenchState state, Blackhole blackhole) {
         invoke(blackhole, state.arrayInvokerHasOneInterface);
@@ -56,6 +106,17 @@ public class InvokerBenchmark {
         invoke(blackhole, state.arrayInvokerHasEightInterfaces);
     }
 
+    @Benchmark
+    public void testConnectionExpirationProduceRequest(ConnectionExpirationState state, Blackhole blackhole) {
+        if (state.decodePredicate.shouldDecodeRequest(ApiKeys.PRODUCE, PRODUCE_VERSION)) {
+            // what the request decoder does when a filter asks to handle the request
+            blackhole.consume(new ProduceRequestData(new ByteBufferAccessor(state.produceRequest.duplicate()), PRODUCE_VERSION));
+        }
+        else {
+            blackhole.consume(state.produceRequest);
+        }
+    }
+
     private static void invoke(Blackhole blackhole, FilterInvoker filter) {
         blackhole.consume(filter.shouldHandleRequest(ApiKeys.PRODUCE, ApiKeys.PRODUCE.latestVersion()));
         blackhole.consume(filter.shouldHandleRequest(ApiKeys.FETCH, ApiKeys.FETCH.latestVersion()));
@@ -63,4 +124,20 @@ public class InvokerBenchmark {
         blackhole.consume(filter.shouldHandleResponse(ApiKeys.FETCH, ApiKeys.FETCH.latestVersion()));
     }
 
+    private static class BenchmarkFilterFactoryContext implements FilterFactoryContext {
+        @Override
+        public FilterDispatchExecutor filterDispatchExecutor() {
+            throw new IllegalStateException("not bound to a channel");
+        }
+
+        @Override
+        public <P> P pluginInstance(Class<P> pluginClass, String implementationName) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public <P> Set<String> pluginImplementationNames(Class<P> pluginClass) {
+            return Set.of();
+        }
+    }
 }
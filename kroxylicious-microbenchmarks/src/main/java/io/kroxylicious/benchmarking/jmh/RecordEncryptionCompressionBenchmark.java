@@ -0,0 +1,138 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.benchmarking.jmh;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.EnumSet;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.common.compress.Compression;
+import org.apache.kafka.common.record.CompressionType;
+import org.apache.kafka.common.record.MemoryRecords;
+import org.apache.kafka.common.record.SimpleRecord;
+import org.apache.kafka.common.utils.ByteBufferOutputStream;
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import io.kroxylicious.filter.encryption.common.FilterThreadExecutor;
+import io.kroxylicious.filter.encryption.config.EncryptionVersion;
+import io.kroxylicious.filter.encryption.config.RecordField;
+import io.kroxylicious.filter.encryption.crypto.EncryptionResolver;
+import io.kroxylicious.filter.encryption.decrypt.DecryptionDekCache;
+import io.kroxylicious.filter.encryption.decrypt.InBandDecryptionManager;
+import io.kroxylicious.filter.encryption.dek.DekManager;
+import io.kroxylicious.filter.encryption.encrypt.EncryptionDekCache;
+import io.kroxylicious.filter.encryption.encrypt.EncryptionScheme;
+import io.kroxylicious.filter.encryption.encrypt.InBandEncryptionManager;
+import io.kroxylicious.kms.provider.kroxylicious.inmemory.InMemoryEdek;
+import io.kroxylicious.kms.provider.kroxylicious.inmemory.InMemoryKms;
+import io.kroxylicious.kms.provider.kroxylicious.inmemory.UnitTestingKmsService;
+
+/**
+ * Compares the encryption versions on compressed produce batches: per-record encryption ({@code V2}) and batch
+ * encryption ({@code V3_BATCH}) recompress the ciphertext with the batch's compression type, while
+ * {@code V4_BATCH_COMPRESSED} compresses the plaintext and writes the batch uncompressed.
+ * The {@code encryptedBytes} counter, divided by the operation rate, gives the size of an encrypted batch
+ * as it would be sent to, and stored by, the broker.
+ */
+@Fork(value = 2)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+public class RecordEncryptionCompressionBenchmark {
+
+    private static final Executor DIRECT = Runnable::run;
+
+    @State(Scope.Thread)
+    public static class BenchState {
+        @Param({ "V2", "V3_BATCH", "V4_BATCH_COMPRESSED" })
+        EncryptionVersion encryptionVersion;
+
+        @Param({ "NONE", "GZIP", "LZ4", "ZSTD" })
+        CompressionType compressionType;
+
+        @Param({ "100" })
+        int recordsPerBatch;
+
+        InBandEncryptionManager<UUID, InMemoryEdek> encryptionManager;
+        InBandDecryptionManager<UUID, InMemoryEdek> decryptionManager;
+        EncryptionScheme<UUID> scheme;
+        MemoryRecords plaintext;
+        MemoryRecords ciphertext;
+
+        @Setup
+        public void init() {
+            var kmsService = UnitTestingKmsService.newInstance();
+            kmsService.initialize(new UnitTestingKmsService.Config());
+            InMemoryKms kms = kmsService.buildKms();
+            scheme = new EncryptionScheme<>(kms.generateKey(), EnumSet.of(RecordField.RECORD_VALUE));
+            DekManager<UUID, InMemoryEdek> dekManager = new DekManager<>(kms, 1_000_000_000L);
+            encryptionManager = new InBandEncryptionManager<>(EncryptionResolver.ALL.fromName(encryptionVersion),
+                    dekManager.edekSerde(),
+                    1024 * 1024,
+                    8 * 1024 * 1024,
+                    new EncryptionDekCache<>(dekManager, DIRECT, EncryptionDekCache.NO_MAX_CACHE_SIZE, Duration.ofHours(1), Duration.ofHours(1)),
+                    new FilterThreadExecutor(DIRECT));
+            decryptionManager = new InBandDecryptionManager<>(EncryptionResolver.ALL,
+                    dekManager,
+                    new DecryptionDekCache<>(dekManager, DIRECT, DecryptionDekCache.NO_MAX_CACHE_SIZE),
+                    new FilterThreadExecutor(DIRECT));
+
+            var records = new SimpleRecord[recordsPerBatch];
+            for (int i = 0; i < recordsPerBatch; i++) {
+                // JSON-like values, which compress reasonably well
+                var value = "{\"orderId\":" + i + ",\"customer\":\"customer-" + (i % 7) + "\",\"status\":\"SHIPPED\",\"items\":[\"widget\",\"gadget\"]}";
+                records[i] = new SimpleRecord(System.currentTimeMillis(), ("key-" + i).getBytes(StandardCharsets.UTF_8), value.getBytes(StandardCharsets.UTF_8));
+            }
+            plaintext = MemoryRecords.withRecords(Compression.of(compressionType).build(), records);
+            ciphertext = encrypt(this);
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Bytes {
+        public long encryptedBytes;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            encryptedBytes = 0;
+        }
+    }
+
+    @Benchmark
+    public MemoryRecords encrypt(BenchState state, Bytes bytes) {
+        MemoryRecords encrypted = encrypt(state);
+        bytes.encryptedBytes += encrypted.sizeInBytes();
+        return encrypted;
+    }
+
+    @Benchmark
+    public MemoryRecords decrypt(BenchState state) {
+        // records are decrypted in place, so each decryption needs its own copy of the ciphertext
+        ByteBuffer ciphertext = ByteBuffer.allocate(state.ciphertext.sizeInBytes());
+        ciphertext.put(state.ciphertext.buffer().duplicate()).flip();
+        return state.decryptionManager.decrypt("topic", 0, MemoryRecords.readableRecords(ciphertext), ByteBufferOutputStream::new)
+                .toCompletableFuture().join();
+    }
+
+    private static MemoryRecords encrypt(BenchState state) {
+        return state.encryptionManager.encrypt("topic", 0, state.scheme, state.plaintext, ByteBufferOutputStream::new)
+                .toCompletableFuture().join();
+    }
+}
@@ -34,6 +34,8 @@ import io.kroxylicious.proxy.filter.ResponseFilter;
 import io.kroxylicious.proxy.internal.filter.FilterAndInvoker;
 import io.kroxylicious.proxy.plugin.PluginConfigurationException;
 
+import edu.umd.cs.findbugs.annotations.Nullable;
+
 /**
  * Builds per-connection filter instances for a single virtual cluster's filter chain.
  *
@@ -80,13 +82,14 @@ public class FilterChainFactory implements AutoCloseable {
         private final AtomicBoolean closed = new AtomicBoolean(false);
 
         private Wrapper(FilterFactoryContext context,
+                        @Nullable String virtualClusterName,
                         NamedFilterDefinition filterDefinition,
                         FilterFactory<? super Object, ? super Object> filterFactory) {
             this.filterFactory = filterFactory;
             this.filterDefinition = filterDefinition;
             Object config = filterDefinition.config();
             try {
-                initResult = filterFactory.initialize(context, config);
+                initResult = filterFactory.initialize(new NamedFilterFactoryContext(context, virtualClusterName, filterDefinition.name()), config);
             }
             catch (Exception e) {
                 throw new PluginConfigurationException(
@@ -99,6 +102,7 @@ public class FilterChainFactory implements AutoCloseable {
                 throw new IllegalStateException("Filter factory " + filterDefinition.name() + " is closed");
             }
             try {
+                // the names are only needed to initialize, so the per-connection context is passed on as it is
                 Filter filter = filterFactory.createFilter(context, initResult);
                 maybeWarnAboutDeprecations(filter);
                 return filter;
@@ -168,6 +172,39 @@ public class FilterChainFactory implements AutoCloseable {
 
     }
 
+    /**
+     * Adds the names of the virtual cluster and the filter definition to the {@link FilterFactoryContext}
+     * used to initialize the filter factory. It is built once per filter definition.
+     */
+    private record NamedFilterFactoryContext(FilterFactoryContext delegate,
+                                             @Nullable String virtualClusterName,
+                                             String filterName)
+            implements FilterFactoryContext {
+
+        @Override
+        public FilterDispatchExecutor filterDispatchExecutor() {
+            return delegate.filterDispatchExecutor();
+        }
+
+        @Override
+        public String virtualClusterName() {
+            if (virtualClusterName == null) {
+                return delegate.virtualClusterName();
+            }
+            return virtualClusterName;
+        }
+
+        @Override
+        public <P> P pluginInstance(Class<P> pluginClass, String implementationName) {
+            return delegate.pluginInstance(pluginClass, implementationName);
+        }
+
+        @Override
+        public <P> Set<String> pluginImplementationNames(Class<P> pluginClass) {
+            return delegate.pluginImplementationNames(pluginClass);
+        }
+    }
+
     /**
      * The VC's filter chain in invocation order. May contain duplicate names (e.g. an audit
      * filter applied before and after a transformation). Stored as the source of truth for
@@ -184,6 +221,16 @@ public class FilterChainFactory implements AutoCloseable {
     private final Map<String, Wrapper> initialized;
 
     public FilterChainFactory(PluginFactoryRegistry pfr, List<NamedFilterDefinition> filterChain) {
+        this(pfr, null, filterChain);
+    }
+
+    /**
+     * @param pfr the plugin factory registry
+     * @param virtualClusterName the name of the virtual cluster the chain belongs to, or null if the
+     *        chain does not belong to a virtual cluster
+     * @param filterChain the filter chain
+     */
+    public FilterChainFactory(PluginFactoryRegistry pfr, @Nullable String virtualClusterName, List<NamedFilterDefinition> filterChain) {
         Objects.requireNonNull(pfr, "pfr must not be null");
         Objects.requireNonNull(filterChain, "filterChain must not be null");
         if (filterChain.isEmpty()) {
@@ -226,7 +273,7 @@ public class FilterChainFactory implements AutoCloseable {
                     FilterFactory<? super Object, ? super Object> filterFactory = pluginFactory.pluginInstance(fd.type());
                     Class<?> configType = pluginFactory.configType(fd.type());
                     if (fd.config() == null || configType.isInstance(fd.config())) {
-                        Wrapper uninitializedFilterFactory = new Wrapper(context, fd, filterFactory);
+                        Wrapper uninitializedFilterFactory = new Wrapper(context, virtualClusterName, fd, filterFactory);
                         this.initialized.put(fd.name(), uninitializedFilterFactory);
                     }
                     else {
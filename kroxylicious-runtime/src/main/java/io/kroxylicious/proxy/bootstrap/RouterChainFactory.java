@@ -9,8 +9,11 @@ import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 
 import io.kroxylicious.proxy.config.PluginFactory;
@@ -18,7 +21,11 @@ import io.kroxylicious.proxy.config.PluginFactoryRegistry;
 import io.kroxylicious.proxy.config.RouteDefinition;
 import io.kroxylicious.proxy.config.RouterDefinition;
 import io.kroxylicious.proxy.config.VirtualCluster;
+import io.kroxylicious.proxy.internal.routing.ConnectionTopology;
+import io.kroxylicious.proxy.internal.routing.RequestHedger;
+import io.kroxylicious.proxy.internal.routing.TopologyCache;
 import io.kroxylicious.proxy.plugin.PluginConfigurationException;
+import io.kroxylicious.proxy.router.HedgingPolicy;
 import io.kroxylicious.proxy.router.Router;
 import io.kroxylicious.proxy.router.RouterFactory;
 import io.kroxylicious.proxy.router.RouterFactoryContext;
@@ -44,14 +51,21 @@ public class RouterChainFactory implements AutoCloseable {
         private final String routerName;
         private final RouterFactoryContext context;
         private final Object initResult;
+        @Nullable
+        private final RequestHedger requestHedger;
+        private final AtomicReference<TopologyCache> topologyCache;
         private final AtomicBoolean closed = new AtomicBoolean(false);
 
-        private Wrapper(RouterFactoryContext context,
+        private Wrapper(String vcName,
+                        RouterFactoryContext context,
+                        AtomicReference<HedgingPolicy> hedgingPolicy,
+                        AtomicReference<TopologyCache> topologyCache,
                         RouterDefinition routerDefinition,
                         RouterFactory<? super Object, ? super Object> routerFactory) {
             this.routerFactory = routerFactory;
             this.routerName = routerDefinition.name();
             this.context = context;
+            this.topologyCache = topologyCache;
             Object config = routerDefinition.config();
             try {
                 initResult = routerFactory.initialize(context, config);
@@ -62,14 +76,20 @@ public class RouterChainFactory implements AutoCloseable {
                                 + " with config " + config + ": " + e.getMessage(),
                         e);
             }
+            HedgingPolicy policy = hedgingPolicy.get();
+            requestHedger = policy == null ? null : new RequestHedger(vcName, routerName, policy);
         }
 
-        private Router create() {
+        private Router create(ConnectionTopology connectionTopology) {
             if (closed.get()) {
                 throw new IllegalStateException("Router factory " + routerName + " is closed");
             }
+            TopologyCache cache = topologyCache.get();
+            if (cache != null) {
+                connectionTopology.attach(cache);
+            }
             try {
-                return routerFactory.createRouter(context, initResult);
+                return routerFactory.createRouter(new ConnectionContext(context, topologyCache, connectionTopology), initResult);
             }
             catch (Exception e) {
                 throw new PluginConfigurationException(
@@ -157,8 +177,10 @@ public class RouterChainFactory implements AutoCloseable {
         var routeNames = rd.routes().stream()
                 .map(RouteDefinition::name)
                 .collect(Collectors.toUnmodifiableSet());
-        RouterFactoryContext context = createContext(vcName, routerName, routeNames);
-        Wrapper wrapper = new Wrapper(context, rd, factory);
+        var hedgingPolicy = new AtomicReference<HedgingPolicy>();
+        var topologyCache = new AtomicReference<TopologyCache>();
+        RouterFactoryContext context = createContext(vcName, routerName, routeNames, hedgingPolicy, topologyCache);
+        Wrapper wrapper = new Wrapper(vcName, context, hedgingPolicy, topologyCache, rd, factory);
         initialized.put(key, wrapper);
 
         for (RouteDefinition route : rd.routes()) {
@@ -177,6 +199,22 @@ public class RouterChainFactory implements AutoCloseable {
      */
     public Router createRouter(String routerName,
                                String virtualClusterName) {
+        return createRouter(routerName, virtualClusterName, new ConnectionTopology());
+    }
+
+    /**
+     * Creates a new router instance for the given router name and virtual cluster, for the
+     * client connection with the given topology.
+     *
+     * @param routerName the name of the router definition
+     * @param virtualClusterName the name of the virtual cluster
+     * @param connectionTopology the connection's topology, to which the router level's topology
+     *        cache is attached
+     * @return the created router instance
+     */
+    public Router createRouter(String routerName,
+                               String virtualClusterName,
+                               ConnectionTopology connectionTopology) {
         var key = new VcRouter(virtualClusterName, routerName);
         Wrapper wrapper = initialized.get(key);
         if (wrapper == null) {
@@ -184,10 +222,26 @@ public class RouterChainFactory implements AutoCloseable {
                     "No router definition found for name: " + routerName
                             + " in virtual cluster: " + virtualClusterName);
         }
-        return wrapper.create();
+        return wrapper.create(connectionTopology);
     }
 
-    private RouterFactoryContext createContext(String vcName, String routerName, Set<String> routeNames) {
+    /**
+     * Returns the hedging state shared by routers created for the given router name and
+     * virtual cluster, or empty if the router did not enable hedging.
+     *
+     * @param routerName the name of the router definition
+     * @param virtualClusterName the name of the virtual cluster
+     * @return the request hedger, or empty
+     */
+    public Optional<RequestHedger> requestHedger(String routerName,
+                                                 String virtualClusterName) {
+        return Optional.ofNullable(initialized.get(new VcRouter(virtualClusterName, routerName)))
+                .map(wrapper -> wrapper.requestHedger);
+    }
+
+    private RouterFactoryContext createContext(String vcName, String routerName, Set<String> routeNames,
+                                               AtomicReference<HedgingPolicy> hedgingPolicy,
+                                               AtomicReference<TopologyCache> topologyCache) {
         return new RouterFactoryContext() {
             @Override
             public String virtualClusterName() {
@@ -217,16 +271,76 @@ public class RouterChainFactory implements AutoCloseable {
 
             @Override
             public TopologyService topologyService() {
-                throw new UnsupportedOperationException("TopologyService not available in this context");
+                return getOrCreate(topologyCache).unboundService();
             }
 
             @Override
             public void allowSharedClusterTargets() {
                 // no-op: shared-cluster-target validation is not yet enforced by the runtime
             }
+
+            @Override
+            public void enableHedging(HedgingPolicy policy) {
+                hedgingPolicy.set(Objects.requireNonNull(policy, "policy"));
+            }
         };
     }
 
+    private static TopologyCache getOrCreate(AtomicReference<TopologyCache> topologyCache) {
+        return topologyCache.updateAndGet(cache -> cache == null ? new TopologyCache() : cache);
+    }
+
+    /**
+     * The context passed to {@link RouterFactory#createRouter}, which differs from the
+     * initialisation context only in handing out the connection's own topology service.
+     */
+    private record ConnectionContext(RouterFactoryContext delegate,
+                                     AtomicReference<TopologyCache> topologyCache,
+                                     ConnectionTopology connectionTopology)
+            implements RouterFactoryContext {
+
+        @Override
+        public String virtualClusterName() {
+            return delegate.virtualClusterName();
+        }
+
+        @Override
+        public String routerName() {
+            return delegate.routerName();
+        }
+
+        @Override
+        public <P> P pluginInstance(Class<P> pluginClass,
+                                    String implementationName) {
+            return delegate.pluginInstance(pluginClass, implementationName);
+        }
+
+        @Override
+        public Set<String> routeNames() {
+            return delegate.routeNames();
+        }
+
+        @Override
+        public <P> Set<String> pluginImplementationNames(Class<P> pluginClass) {
+            return delegate.pluginImplementationNames(pluginClass);
+        }
+
+        @Override
+        public TopologyService topologyService() {
+            return connectionTopology.service(getOrCreate(topologyCache));
+        }
+
+        @Override
+        public void allowSharedClusterTargets() {
+            delegate.allowSharedClusterTargets();
+        }
+
+        @Override
+        public void enableHedging(HedgingPolicy policy) {
+            delegate.enableHedging(policy);
+        }
+    }
+
     @Override
     public void close() {
         RuntimeException firstThrown = null;
@@ -16,12 +16,27 @@ import edu.umd.cs.findbugs.annotations.Nullable;
  * @param maxSize the maximum number of entries the cache may contain, default (null) means no maximum
  * @param expireAfterWrite cache entries should be automatically removed from the cache once this duration has elapsed after the entry's creation, or the most recent replacement of its value. The default is to never expire.
  * @param expireAfterAccess cache entries should be automatically removed from the cache once this duration has elapsed after the entry's creation, creation, the most recent replacement of its value, or its last access. The default is 1 hour.
+ * @param refreshAfterWrite cache entries that are accessed once this duration has elapsed after the entry's creation, or the most recent replacement of its value, are refreshed in the background while the current value continues to be served. The default is to never refresh.
+ * @param negativeExpireAfterWrite how long the absence of an entry is cached once the upstream has reported it as unknown. The default (null) means absences are not cached.
  */
 public record CacheConfiguration(@Nullable Integer maxSize,
                                  @Nullable Duration expireAfterWrite,
-                                 @Nullable Duration expireAfterAccess) {
+                                 @Nullable Duration expireAfterAccess,
+                                 @Nullable Duration refreshAfterWrite,
+                                 @Nullable Duration negativeExpireAfterWrite) {
 
-    public static final CacheConfiguration DEFAULT = new CacheConfiguration(null, null, null);
+    public static final CacheConfiguration DEFAULT = new CacheConfiguration(null, null, null, null, null);
+
+    public CacheConfiguration {
+        requirePositive(refreshAfterWrite, "refreshAfterWrite");
+        requirePositive(negativeExpireAfterWrite, "negativeExpireAfterWrite");
+    }
+
+    private static void requirePositive(@Nullable Duration duration, String name) {
+        if (duration != null && (duration.isNegative() || duration.isZero())) {
+            throw new IllegalArgumentException(name + " must be positive, but was " + duration);
+        }
+    }
 
     @Override
     public Duration expireAfterAccess() {
@@ -5,6 +5,7 @@
  */
 package io.kroxylicious.proxy.internal;
 
+import java.nio.ByteBuffer;
 import java.util.Collection;
 import java.util.Objects;
 import java.util.Optional;
@@ -36,6 +37,10 @@ import io.kroxylicious.proxy.authentication.Subject;
 import io.kroxylicious.proxy.filter.Filter;
 import io.kroxylicious.proxy.filter.FilterContext;
 import io.kroxylicious.proxy.filter.FilterResult;
+import io.kroxylicious.proxy.filter.FrameAction;
+import io.kroxylicious.proxy.filter.FrameFilter;
+import io.kroxylicious.proxy.filter.FrameFilterContext;
+import io.kroxylicious.proxy.filter.FrameView;
 import io.kroxylicious.proxy.filter.RequestFilterResult;
 import io.kroxylicious.proxy.filter.RequestFilterResultBuilder;
 import io.kroxylicious.proxy.filter.ResponseFilterResult;
@@ -44,6 +49,7 @@ import io.kroxylicious.proxy.filter.metadata.TopicNameMapping;
 import io.kroxylicious.proxy.frame.DecodedFrame;
 import io.kroxylicious.proxy.frame.DecodedRequestFrame;
 import io.kroxylicious.proxy.frame.DecodedResponseFrame;
+import io.kroxylicious.proxy.frame.Frame;
 import io.kroxylicious.proxy.frame.OpaqueFrame;
 import io.kroxylicious.proxy.frame.OpaqueRequestFrame;
 import io.kroxylicious.proxy.frame.OpaqueResponseFrame;
@@ -75,6 +81,10 @@ public class FilterHandler extends ChannelDuplexHandler {
     private final FilterAndInvoker filterAndInvoker;
     private final ClientConnectionStateMachine clientConnectionStateMachine;
 
+    /** Non-null if the filter is a {@link FrameFilter}, in which case it is dispatched without decoding. */
+    private final @Nullable FrameFilter frameFilter;
+    private final FrameFilterContext frameFilterContext = new InternalFrameFilterContext();
+
     /** Chains response processing to preserve ordering when filters defer work asynchronously. */
     private CompletableFuture<Void> writeFuture = CompletableFuture.completedFuture(null);
 
@@ -99,6 +109,7 @@ public class FilterHandler extends ChannelDuplexHandler {
         this.sniHostname = sniHostname;
         this.inboundChannel = inboundChannel;
         this.clientConnectionStateMachine = clientConnectionStateMachine;
+        this.frameFilter = filterAndInvoker.filter() instanceof FrameFilter ff ? ff : null;
     }
 
     @Override
@@ -133,6 +144,8 @@ public class FilterHandler extends ChannelDuplexHandler {
     public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise) throws Exception {
         switch (msg) {
             case InternalResponseFrame<?> decodedFrame -> handleInternalResponseWrite(promise, decodedFrame);
+            case DecodedResponseFrame<?> decodedFrame when frameFilter != null -> handleFrameWrite(frameFilter, decodedFrame, promise);
+            case OpaqueResponseFrame orf when frameFilter != null -> handleFrameWrite(frameFilter, orf, promise);
             case DecodedResponseFrame<?> decodedFrame -> handleDecodedResponseWrite(decodedFrame, promise);
             case OpaqueResponseFrame orf -> handleOpaqueResponseWrite(ctx, msg, promise, orf);
             case null, default -> throw new IllegalStateException(
@@ -178,6 +191,43 @@ public class FilterHandler extends ChannelDuplexHandler {
         });
     }
 
+    private void handleFrameWrite(FrameFilter filter, Frame frame, ChannelPromise promise) {
+        writeFuture = writeFuture.whenComplete((a, b) -> {
+            if (ctx.channel().isOpen()) {
+                applyResponseFrameAction(dispatchFrame(filter, frame, false), frame, promise);
+            }
+            else {
+                releaseIfOpaque(frame);
+            }
+        });
+    }
+
+    private void applyResponseFrameAction(FrameAction action, Frame frame, ChannelPromise promise) {
+        switch (action) {
+            case FORWARD -> {
+                // the promise is completed with the outcome of the write
+                var unused = ctx.write(frame, promise);
+            }
+            case FORWARD_AND_CLOSE -> {
+                var unused = ctx.write(frame, promise);
+                ctx.flush(); // ensure writes are flushed before closing
+                closeConnection();
+            }
+            case DROP -> {
+                log(DEBUG)
+                        .addKeyValue("apiKey", frame.apiKeyId())
+                        .log("Filter drops response frame");
+                releaseIfOpaque(frame);
+                promise.trySuccess();
+            }
+            case CLOSE -> {
+                releaseIfOpaque(frame);
+                promise.trySuccess();
+                closeConnection();
+            }
+        }
+    }
+
     private CompletableFuture<Void> handleDecodedResponse(DecodedResponseFrame<?> decodedFrame, ChannelPromise promise) {
         var filterContext = new InternalFilterContext(decodedFrame);
 
@@ -221,6 +271,8 @@ public class FilterHandler extends ChannelDuplexHandler {
     public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
         switch (msg) {
             case InternalRequestFrame<?> decodedFrame -> handleDecodedRequest(decodedFrame); // jump the queue, internal request must flow!
+            case DecodedRequestFrame<?> decodedFrame when frameFilter != null -> handleFrameRead(frameFilter, decodedFrame);
+            case OpaqueRequestFrame orf when frameFilter != null -> handleFrameRead(frameFilter, orf);
             case DecodedRequestFrame<?> decodedFrame -> handleDecodedRequestRead(decodedFrame);
             case OpaqueRequestFrame ignored -> handleOpaqueOrPassthroughRead(msg);
             case ByteBuf ignored when msg == Unpooled.EMPTY_BUFFER -> handleOpaqueOrPassthroughRead(msg);
@@ -318,6 +370,75 @@ public class FilterHandler extends ChannelDuplexHandler {
         });
     }
 
+    private void handleFrameRead(FrameFilter filter, Frame frame) {
+        readFuture = readFuture.whenComplete((unused, throwable) -> {
+            if (ctx.channel().isOpen()) {
+                applyRequestFrameAction(dispatchFrame(filter, frame, true), frame);
+            }
+            else {
+                releaseIfOpaque(frame);
+            }
+        });
+    }
+
+    private void applyRequestFrameAction(FrameAction action, Frame frame) {
+        switch (action) {
+            case FORWARD -> ctx.fireChannelRead(frame);
+            case FORWARD_AND_CLOSE -> {
+                ctx.fireChannelRead(frame);
+                ctx.flush();
+                closeConnection();
+            }
+            case DROP -> {
+                log(DEBUG)
+                        .addKeyValue("apiKey", frame.apiKeyId())
+                        .log("Filter drops request frame");
+                releaseIfOpaque(frame);
+                // When a request is dropped, trigger reading the next request to keep the channel active
+                inboundChannel.read();
+            }
+            case CLOSE -> {
+                releaseIfOpaque(frame);
+                closeConnection();
+            }
+        }
+    }
+
+    private FrameAction dispatchFrame(FrameFilter filter, Frame frame, boolean isRequest) {
+        if (!ApiKeys.hasId(frame.apiKeyId())) {
+            // the view could not name the frame's API, and the filter cannot act on an API it does not know
+            log(DEBUG)
+                    .addKeyValue("direction", isRequest ? "request" : "response")
+                    .addKeyValue("apiKey", frame.apiKeyId())
+                    .log("Frame has an unknown API key, forwarding it without invoking the frame filter");
+            return FrameAction.FORWARD;
+        }
+        var view = new InternalFrameView(frame);
+        try {
+            var action = isRequest ? filter.onRequestFrame(view, frameFilterContext) : filter.onResponseFrame(view, frameFilterContext);
+            return Objects.requireNonNull(action, "Frame filter must not return a null action");
+        }
+        catch (RuntimeException e) {
+            if (LOGGER.isWarnEnabled()) {
+                log(WARN)
+                        .addKeyValue("direction", isRequest ? "request" : "response")
+                        .addKeyValue("apiKey", frame.apiKeyId())
+                        .addKeyValue("error", e.getMessage())
+                        .setCause(LOGGER.isDebugEnabled() ? e : null)
+                        .log(LOGGER.isDebugEnabled()
+                                ? "frame filter failed, closing connection"
+                                : "frame filter failed, closing connection, increase log level to DEBUG for stacktrace");
+            }
+            return FrameAction.CLOSE;
+        }
+    }
+
+    private static void releaseIfOpaque(Frame frame) {
+        if (frame instanceof OpaqueFrame opaqueFrame) {
+            opaqueFrame.releaseBuffer();
+        }
+    }
+
     private CompletableFuture<RequestFilterResult> dispatchDecodedRequest(DecodedRequestFrame<?> decodedFrame, InternalFilterContext filterContext) {
         log(DEBUG)
                 .addKeyValue("apiKey", decodedFrame.apiKey())
@@ -608,6 +729,65 @@ public class FilterHandler extends ChannelDuplexHandler {
         });
     }
 
+    /**
+     * The view of a frame passed to a {@link FrameFilter}. Only an opaque frame has a buffer:
+     * a decoded frame's encoded form is not known until it is encoded, and may be changed by a later filter.
+     */
+    private static final class InternalFrameView implements FrameView {
+
+        private final Frame frame;
+
+        InternalFrameView(Frame frame) {
+            this.frame = frame;
+        }
+
+        @Override
+        public ApiKeys apiKey() {
+            return ApiKeys.forId(frame.apiKeyId());
+        }
+
+        @Override
+        public short apiVersion() {
+            return frame.apiVersion();
+        }
+
+        @Override
+        public int correlationId() {
+            return frame.correlationId();
+        }
+
+        @Override
+        public Optional<ByteBuffer> buffer() {
+            if (frame instanceof OpaqueFrame opaqueFrame) {
+                return Optional.of(opaqueFrame.buf().nioBuffer().asReadOnlyBuffer());
+            }
+            return Optional.empty();
+        }
+    }
+
+    private class InternalFrameFilterContext implements FrameFilterContext {
+
+        @Override
+        public String channelDescriptor() {
+            return Objects.requireNonNull(ctx).channel().toString();
+        }
+
+        @Override
+        public String sessionId() {
+            return clientConnectionStateMachine.sessionId();
+        }
+
+        @Override
+        public String getVirtualClusterName() {
+            return clientConnectionStateMachine.clusterName();
+        }
+
+        @Override
+        public Subject authenticatedSubject() {
+            return clientConnectionStateMachine.authenticatedSubject();
+        }
+    }
+
     private class InternalFilterContext implements FilterContext {
 
         private final DecodedFrame<?, ?> decodedFrame;
@@ -739,7 +919,8 @@ public class FilterHandler extends ChannelDuplexHandler {
 
         @Override
         public CompletionStage<TopicNameMapping> topicNames(Collection<Uuid> topicIds) {
-            return new TopicNameRetriever(this, Objects.requireNonNull(ctx).executor()).topicNames(topicIds);
+            TopicNameLookups lookups = clientConnectionStateMachine.virtualCluster().getTopicNameCacheFilter().lookups();
+            return new TopicNameRetriever(this, Objects.requireNonNull(ctx).executor(), lookups).topicNames(topicIds);
         }
 
     }
@@ -42,6 +42,7 @@ import io.kroxylicious.proxy.internal.net.Endpoint;
 import io.kroxylicious.proxy.internal.net.EndpointBinding;
 import io.kroxylicious.proxy.internal.net.EndpointBindingResolver;
 import io.kroxylicious.proxy.internal.net.EndpointReconciler;
+import io.kroxylicious.proxy.internal.routing.ConnectionTopology;
 import io.kroxylicious.proxy.internal.routing.DirectRouting;
 import io.kroxylicious.proxy.internal.routing.DynamicRouting;
 import io.kroxylicious.proxy.internal.routing.RouterDispatchHandler;
@@ -260,7 +261,8 @@ public class KafkaProxyInitializer extends ChannelInitializer<Channel> {
         pipeline.addLast("frontendHandler", frontendHandler);
         switch (virtualCluster.routing()) {
             case DynamicRouting dr -> {
-                Router router = virtualCluster.createRouter();
+                var connectionTopology = new ConnectionTopology();
+                Router router = virtualCluster.createRouter(connectionTopology);
                 Map<ApiKeys, String> staticRoutes = router.staticRoutes();
                 Set<ApiKeys> decodedKeys = EnumSet.allOf(ApiKeys.class);
                 if (!staticRoutes.isEmpty()) {
@@ -273,7 +275,7 @@ public class KafkaProxyInitializer extends ChannelInitializer<Channel> {
 
                 var dispatchHandler = new RouterDispatchHandler(
                         router, dr.routeDescriptors(), staticRoutes, clientConnectionStateMachine, clientConnectionStateMachine.clusterName(), dr.nodeIdMapping(),
-                        binding.nodeId());
+                        binding.nodeId(), virtualCluster.requestHedger().orElse(null), connectionTopology);
                 clientConnectionStateMachine.setRouterActive();
                 clientConnectionStateMachine.setUpstreamAddressResolver(
                         virtualNodeId -> dispatchHandler.resolveRouterNodeAddress(virtualNodeId)
@@ -0,0 +1,170 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.proxy.internal;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import org.apache.kafka.common.Uuid;
+
+import io.micrometer.core.instrument.Counter;
+
+import io.kroxylicious.proxy.tag.ThreadSafe;
+import io.kroxylicious.proxy.tag.VisibleForTesting;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+/**
+ * The table of in-flight topic name lookups shared by all connections to a virtual cluster.
+ * <p>
+ * When a new topic appears, every connection that encounters its id misses the topic name cache
+ * at about the same time. Rather than each sending its own METADATA request, a connection that
+ * misses joins the lookup already in flight for the id, if there is one. Otherwise, the id is added
+ * to a batch that is kept open for a short window, so that the cold misses of concurrent connections
+ * are looked up by a single request, sent by the connection that opened the batch.
+ * <p>
+ * Once the ids it is waiting for have been looked up, a connection retrieves its topic names as before,
+ * which the topic name cache can now answer. Ids that failed to resolve are retrieved upstream again.
+ */
+@ThreadSafe
+public final class TopicNameLookups {
+
+    public static final Duration DEFAULT_BATCH_WINDOW = Duration.ofMillis(5);
+
+    private final Predicate<Uuid> cached;
+    private final Duration batchWindow;
+    private final Counter coalesced;
+    private final Map<Uuid, CompletableFuture<Void>> inFlight = new ConcurrentHashMap<>();
+
+    // guarded by this
+    @Nullable
+    private Batch openBatch;
+
+    /**
+     * @param cached tests whether the topic name for an id is cached, without affecting cache statistics
+     * @param batchWindow how long a batch of cold misses is kept open before it is sent
+     * @param coalesced counts the ids whose lookup was left to another request
+     */
+    public TopicNameLookups(Predicate<Uuid> cached, Duration batchWindow, Counter coalesced) {
+        this.cached = Objects.requireNonNull(cached);
+        this.batchWindow = Objects.requireNonNull(batchWindow);
+        this.coalesced = Objects.requireNonNull(coalesced);
+    }
+
+    /**
+     * Waits until the uncached ids among the given ids have been looked up.
+     *
+     * @param topicIds the topic ids the caller is about to retrieve
+     * @param scheduler the caller's event loop, used to send a batch the caller opens
+     * @param lookup sends a topic name lookup for a batch of ids
+     * @return a future that completes, normally, once every uncached id has been looked up, successfully or not
+     */
+    CompletableFuture<Void> awaitLookups(Collection<Uuid> topicIds,
+                                         ScheduledExecutorService scheduler,
+                                         Function<Set<Uuid>, CompletionStage<?>> lookup) {
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        Set<Uuid> owned = new HashSet<>();
+        for (Uuid topicId : topicIds) {
+            if (cached.test(topicId)) {
+                continue;
+            }
+            var future = new CompletableFuture<Void>();
+            var existing = inFlight.putIfAbsent(topicId, future);
+            if (existing == null) {
+                owned.add(topicId);
+                pending.add(future);
+            }
+            else {
+                coalesced.increment();
+                pending.add(existing);
+            }
+        }
+        if (!owned.isEmpty()) {
+            addToBatch(owned, scheduler, lookup);
+        }
+        return CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new));
+    }
+
+    private void addToBatch(Set<Uuid> topicIds, ScheduledExecutorService scheduler, Function<Set<Uuid>, CompletionStage<?>> lookup) {
+        Batch batch;
+        synchronized (this) {
+            if (openBatch != null) {
+                openBatch.topicIds.addAll(topicIds);
+                coalesced.increment(topicIds.size());
+                return;
+            }
+            batch = new Batch(topicIds);
+            openBatch = batch;
+        }
+        if (batchWindow.isZero()) {
+            send(batch, lookup);
+            return;
+        }
+        try {
+            // send completes the waiting callers itself if the lookup cannot be sent
+            var unused = scheduler.schedule(() -> send(batch, lookup), batchWindow.toNanos(), TimeUnit.NANOSECONDS);
+        }
+        catch (RejectedExecutionException e) {
+            send(batch, lookup);
+        }
+    }
+
+    private void send(Batch batch, Function<Set<Uuid>, CompletionStage<?>> lookup) {
+        Set<Uuid> topicIds;
+        synchronized (this) {
+            if (openBatch == batch) {
+                openBatch = null;
+            }
+            topicIds = Set.copyOf(batch.topicIds);
+        }
+        CompletionStage<?> response;
+        try {
+            response = lookup.apply(topicIds);
+        }
+        catch (RuntimeException e) {
+            complete(topicIds);
+            throw e;
+        }
+        response.whenComplete((result, error) -> complete(topicIds));
+    }
+
+    private void complete(Set<Uuid> topicIds) {
+        for (Uuid topicId : topicIds) {
+            var future = inFlight.remove(topicId);
+            if (future != null) {
+                future.complete(null);
+            }
+        }
+    }
+
+    private static final class Batch {
+        private final Set<Uuid> topicIds;
+
+        private Batch(Set<Uuid> topicIds) {
+            this.topicIds = new HashSet<>(topicIds);
+        }
+    }
+
+    @VisibleForTesting
+    boolean isInFlight(Uuid topicId) {
+        return inFlight.containsKey(topicId);
+    }
+}
@@ -11,6 +11,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionException;
 import java.util.concurrent.CompletionStage;
 
@@ -22,7 +23,7 @@ import org.apache.kafka.common.protocol.ApiKeys;
 import org.apache.kafka.common.protocol.ApiMessage;
 import org.apache.kafka.common.protocol.Errors;
 
-import io.netty.util.concurrent.ThreadAwareExecutor;
+import io.netty.util.concurrent.EventExecutor;
 
 import io.kroxylicious.proxy.filter.FilterContext;
 import io.kroxylicious.proxy.filter.metadata.TopLevelMetadataErrorException;
@@ -32,6 +33,8 @@ import io.kroxylicious.proxy.filter.metadata.TopicNameMappingException;
 import io.kroxylicious.proxy.internal.util.RequestHeaderTagger;
 import io.kroxylicious.proxy.tag.VisibleForTesting;
 
+import edu.umd.cs.findbugs.annotations.Nullable;
+
 import static java.util.Collections.unmodifiableMap;
 import static java.util.stream.Collectors.toMap;
 
@@ -39,11 +42,21 @@ public final class TopicNameRetriever {
     // Version 12 was the first version that uses topic ids.
     public static final short METADATA_API_VER_WITH_TOPIC_ID_SUPPORT = (short) 12;
     private final FilterContext filterContext;
-    private final ThreadAwareExecutor filterDispatchExecutor;
+    private final EventExecutor filterDispatchExecutor;
+    @Nullable
+    private final TopicNameLookups lookups;
+
+    TopicNameRetriever(FilterContext filterContext, EventExecutor filterDispatchExecutor) {
+        this(filterContext, filterDispatchExecutor, null);
+    }
 
-    TopicNameRetriever(FilterContext filterContext, ThreadAwareExecutor filterDispatchExecutor) {
+    /**
+     * @param lookups the virtual cluster's in-flight lookups, which uncached lookups are coalesced with, or null to not coalesce
+     */
+    TopicNameRetriever(FilterContext filterContext, EventExecutor filterDispatchExecutor, @Nullable TopicNameLookups lookups) {
         this.filterContext = filterContext;
         this.filterDispatchExecutor = filterDispatchExecutor;
+        this.lookups = lookups;
     }
 
     CompletionStage<TopicNameMapping> topicNames(Collection<Uuid> topicIds) {
@@ -51,6 +64,20 @@ public final class TopicNameRetriever {
         if (topicIds.isEmpty()) {
             return InternalCompletableFuture.completedFuture(filterDispatchExecutor, MapTopicNameMapping.EMPTY).minimalCompletionStage();
         }
+        if (lookups == null) {
+            return retrieve(topicIds);
+        }
+        CompletableFuture<Void> looked = lookups.awaitLookups(topicIds, filterDispatchExecutor, this::retrieve);
+        if (looked.isDone()) {
+            return retrieve(topicIds);
+        }
+        // another connection may complete the lookup, so continue on this connection's event loop
+        var ready = new InternalCompletableFuture<Void>(filterDispatchExecutor);
+        var unused = looked.whenComplete((result, error) -> ready.complete(null));
+        return ready.thenCompose(result -> retrieve(topicIds)).minimalCompletionStage();
+    }
+
+    private CompletionStage<TopicNameMapping> retrieve(Collection<Uuid> topicIds) {
         CompletionStage<ApiMessage> apiMessageCompletionStage = requestTopicMetadata(topicIds);
         return apiMessageCompletionStage
                 .thenApply(message -> extractTopicNames(topicIds, message))
@@ -11,6 +11,7 @@ import java.util.Optional;
 import java.util.stream.Stream;
 
 import io.kroxylicious.proxy.filter.Filter;
+import io.kroxylicious.proxy.filter.FrameFilter;
 import io.kroxylicious.proxy.filter.RequestFilter;
 import io.kroxylicious.proxy.filter.ResponseFilter;
 
@@ -31,10 +32,12 @@ public class FilterInvokers {
      *     <li>A Filter implementing {@link RequestFilter}</li>
      *     <li>A Filter implementing both {@link ResponseFilter} and {@link RequestFilter} </li>
      *     <li>A Filter implementing any number of Specific Message Filter interfaces</li>
+     *     <li>A Filter implementing {@link FrameFilter}</li>
      * </ol>
      * Examples of unsupported cases are:
      * <ol>
      *     <li>A Filter implementing {@link ResponseFilter} and any number of Specific Message Filter interfaces</li>
+     *     <li>A Filter implementing {@link FrameFilter} and any other Filter interface</li>
      * </ol>
      * @throws IllegalArgumentException if there is an invalid combination of Filter interfaces
      * @throws IllegalArgumentException if none of the supported interfaces are implemented
@@ -51,6 +54,10 @@ public class FilterInvokers {
     private static List<FilterAndInvoker> invokersForFilter(String filterName, Filter filter) {
         FilterCharacteristics characteristics = FilterCharacteristics.describeCharacteristics(filter);
         validateFilter(filterName, characteristics);
+        if (characteristics.isFrameFilter) {
+            // frame filters are dispatched by the FilterHandler without decoding, so the invoker must never ask for a decode
+            return List.of(getFilterAndInvoker(filterName, filter, handleNothingInvoker()));
+        }
         Optional<FilterAndInvoker> genericInvoker = maybeGenericInvoker(filterName, filter, characteristics);
         Optional<FilterAndInvoker> specificInvoker = maybeSpecificInvoker(filterName, filter, characteristics);
         return Stream.concat(genericInvoker.stream(), specificInvoker.stream()).toList();
@@ -84,6 +91,13 @@ public class FilterInvokers {
     }
 
     private static void validateFilter(String filterName, FilterCharacteristics characteristics) {
+        if (characteristics.isFrameFilter
+                && (characteristics.isAnyRequestFilter
+                        || characteristics.isAnyResponseFilter
+                        || characteristics.isSpecificRequestFilter
+                        || characteristics.isSpecificResponseFilter)) {
+            throw unsupportedFilterInstance(filterName, "Cannot mix FrameFilter and other filter interfaces");
+        }
         if (characteristics.isAnyRequestFilter
                 && characteristics.isSpecificRequestFilter) {
             throw unsupportedFilterInstance(filterName, "Cannot mix specific request message filter interfaces and RequestFilter interfaces");
@@ -92,12 +106,13 @@ public class FilterInvokers {
                 && characteristics.isSpecificResponseFilter) {
             throw unsupportedFilterInstance(filterName, "Cannot mix specific response message filter interfaces and ResponseFilter interfaces");
         }
-        if (!characteristics.isAnyRequestFilter
+        if (!characteristics.isFrameFilter
+                && !characteristics.isAnyRequestFilter
                 && !characteristics.isAnyResponseFilter
                 && !characteristics.isSpecificRequestFilter
                 && !characteristics.isSpecificResponseFilter) {
             throw unsupportedFilterInstance(filterName,
-                    "Filter must implement ResponseFilter, RequestFilter or any combination of specific message Filter interfaces");
+                    "Filter must implement ResponseFilter, RequestFilter, FrameFilter or any combination of specific message Filter interfaces");
         }
     }
 
@@ -128,13 +143,15 @@ public class FilterInvokers {
         return new IllegalArgumentException("Invoker could not be created for filter: " + filterName + ". " + message);
     }
 
-    private record FilterCharacteristics(boolean isAnyRequestFilter, boolean isAnyResponseFilter, boolean isSpecificRequestFilter, boolean isSpecificResponseFilter) {
+    private record FilterCharacteristics(boolean isAnyRequestFilter, boolean isAnyResponseFilter, boolean isSpecificRequestFilter, boolean isSpecificResponseFilter,
+                                         boolean isFrameFilter) {
         static FilterCharacteristics describeCharacteristics(Filter filter) {
             boolean isAnyRequestFilter = filter instanceof RequestFilter;
             boolean isSpecificRequestFilter = SpecificFilterArrayInvoker.implementsAnySpecificRequestFilterInterface(filter);
             boolean isAnyResponseFilter = filter instanceof ResponseFilter;
             boolean isSpecificResponseFilter = SpecificFilterArrayInvoker.implementsAnySpecificResponseFilterInterface(filter);
-            return new FilterCharacteristics(isAnyRequestFilter, isAnyResponseFilter, isSpecificRequestFilter, isSpecificResponseFilter);
+            boolean isFrameFilter = filter instanceof FrameFilter;
+            return new FilterCharacteristics(isAnyRequestFilter, isAnyResponseFilter, isSpecificRequestFilter, isSpecificResponseFilter, isFrameFilter);
         }
     }
 
@@ -7,11 +7,14 @@
 package io.kroxylicious.proxy.internal.filter.impl;
 
 import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.kafka.common.Uuid;
 import org.apache.kafka.common.errors.UnknownServerException;
@@ -21,10 +24,16 @@ import org.apache.kafka.common.message.MetadataResponseData;
 import org.apache.kafka.common.message.MetadataResponseData.MetadataResponseTopic;
 import org.apache.kafka.common.message.RequestHeaderData;
 import org.apache.kafka.common.message.ResponseHeaderData;
+import org.apache.kafka.common.protocol.ApiKeys;
+import org.apache.kafka.common.protocol.Errors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
 import com.github.benmanes.caffeine.cache.Cache;
 import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
 
+import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.Metrics;
 import io.micrometer.core.instrument.Tag;
 import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
@@ -35,23 +44,55 @@ import io.kroxylicious.proxy.filter.MetadataRequestFilter;
 import io.kroxylicious.proxy.filter.MetadataResponseFilter;
 import io.kroxylicious.proxy.filter.RequestFilterResult;
 import io.kroxylicious.proxy.filter.ResponseFilterResult;
+import io.kroxylicious.proxy.internal.TopicNameLookups;
+import io.kroxylicious.proxy.internal.TopicNameRetriever;
 import io.kroxylicious.proxy.internal.util.RequestHeaderTagger;
 import io.kroxylicious.proxy.tag.ThreadSafe;
 import io.kroxylicious.proxy.tag.VisibleForTesting;
 
+import edu.umd.cs.findbugs.annotations.Nullable;
+
 import static io.kroxylicious.proxy.internal.util.Metrics.VIRTUAL_CLUSTER_LABEL;
 
 /**
  * A Filter that learns and caches all topic names, it is responsible for short circuit responding to internal
  * topic name retrievals.
  * <p>
+ * If configured, the filter also caches topic ids that the upstream reported as {@code UNKNOWN_TOPIC_ID}, so that
+ * retrievals for a deleted topic are answered with that error rather than a round trip, and refreshes the names that
+ * are still being retrieved once they reach {@link CacheConfiguration#refreshAfterWrite()}, while continuing to answer
+ * with the cached name. Any METADATA response reporting a topic id as unknown invalidates its cached name.
+ * <p>
  * Note that this is a special Filter in that a single instance is shared across all connections for a VirtualCluster
  * rather than an instance per connection. This means it can be invoked by multiple threads concurrently.
  */
 @ThreadSafe
 public class TopicNameCacheFilter implements MetadataRequestFilter, MetadataResponseFilter {
+    private static final Logger LOGGER = LoggerFactory.getLogger(TopicNameCacheFilter.class);
+    private static final String CACHE_NAME = "topicNames";
+
+    /**
+     * A cached topic name.
+     * @param name the topic name
+     * @param writeTime the ticker time at which the name was learned
+     */
     @VisibleForTesting
-    final Cache<Uuid, String> topicNameCache;
+    record TopicName(String name, long writeTime) {}
+
+    @VisibleForTesting
+    final Cache<Uuid, TopicName> topicNameCache;
+    /**
+     * Topic ids the upstream reported as unknown, or null if absences are not cached.
+     */
+    @VisibleForTesting
+    @Nullable
+    final Cache<Uuid, Errors> unknownTopicIdCache;
+    private final Ticker ticker;
+    private final long refreshAfterWriteNanos;
+    private final Set<Uuid> refreshing = ConcurrentHashMap.newKeySet();
+    private final TopicNameLookups lookups;
+    private final Counter coalesced;
+    private final String clusterName;
 
     public TopicNameCacheFilter(CacheConfiguration cacheConfiguration,
                                 String clusterName) {
@@ -65,16 +106,37 @@ public class TopicNameCacheFilter implements MetadataRequestFilter, MetadataResp
     public TopicNameCacheFilter(CacheConfiguration cacheConfiguration,
                                 Map<Uuid, String> topicNames,
                                 String clusterName) {
+        this(cacheConfiguration, topicNames, clusterName, Ticker.systemTicker());
+    }
+
+    @VisibleForTesting
+    TopicNameCacheFilter(CacheConfiguration cacheConfiguration,
+                         Map<Uuid, String> topicNames,
+                         String clusterName,
+                         Ticker ticker) {
         Objects.requireNonNull(cacheConfiguration, "cacheConfiguration must not be null");
         Objects.requireNonNull(topicNames, "topicNames must not be null");
-        this.topicNameCache = buildCache(cacheConfiguration);
-        new CaffeineCacheMetrics<>(this.topicNameCache, "topicNames", List.of(Tag.of(VIRTUAL_CLUSTER_LABEL, clusterName))).bindTo(Metrics.globalRegistry);
-        this.topicNameCache.putAll(topicNames);
+        this.ticker = Objects.requireNonNull(ticker, "ticker must not be null");
+        this.clusterName = clusterName;
+        this.topicNameCache = buildCache(cacheConfiguration, ticker);
+        this.unknownTopicIdCache = buildUnknownTopicIdCache(cacheConfiguration, ticker);
+        Duration refreshAfterWrite = cacheConfiguration.refreshAfterWrite();
+        this.refreshAfterWriteNanos = refreshAfterWrite == null ? Long.MAX_VALUE : refreshAfterWrite.toNanos();
+        List<Tag> tags = List.of(Tag.of(VIRTUAL_CLUSTER_LABEL, clusterName));
+        new CaffeineCacheMetrics<>(this.topicNameCache, CACHE_NAME, tags).bindTo(Metrics.globalRegistry);
+        this.coalesced = Counter.builder("cache.coalesced")
+                .description("The number of cache misses that were looked up by a request already in flight for another connection")
+                .tags(tags)
+                .tag("cache", CACHE_NAME)
+                .register(Metrics.globalRegistry);
+        this.lookups = new TopicNameLookups(this::isCached, TopicNameLookups.DEFAULT_BATCH_WINDOW, coalesced);
+        topicNames.forEach(this::learn);
     }
 
-    private static Cache<Uuid, String> buildCache(CacheConfiguration cacheConfiguration) {
+    private static Cache<Uuid, TopicName> buildCache(CacheConfiguration cacheConfiguration, Ticker ticker) {
         Caffeine<Object, Object> cacheBuilder = Caffeine.newBuilder();
         cacheBuilder.recordStats();
+        cacheBuilder.ticker(ticker);
         if (cacheConfiguration.maxSize() != null) {
             cacheBuilder.maximumSize(cacheConfiguration.maxSize());
         }
@@ -86,6 +148,20 @@ public class TopicNameCacheFilter implements MetadataRequestFilter, MetadataResp
         return cacheBuilder.build();
     }
 
+    @Nullable
+    private static Cache<Uuid, Errors> buildUnknownTopicIdCache(CacheConfiguration cacheConfiguration, Ticker ticker) {
+        Duration negativeExpireAfterWrite = cacheConfiguration.negativeExpireAfterWrite();
+        if (negativeExpireAfterWrite == null) {
+            return null;
+        }
+        Caffeine<Object, Object> cacheBuilder = Caffeine.newBuilder();
+        cacheBuilder.ticker(ticker);
+        if (cacheConfiguration.maxSize() != null) {
+            cacheBuilder.maximumSize(cacheConfiguration.maxSize());
+        }
+        return cacheBuilder.expireAfterWrite(negativeExpireAfterWrite).build();
+    }
+
     @Override
     public CompletionStage<RequestFilterResult> onMetadataRequest(short apiVersion,
                                                                   RequestHeaderData header,
@@ -93,16 +169,25 @@ public class TopicNameCacheFilter implements MetadataRequestFilter, MetadataResp
                                                                   FilterContext context) {
         if (RequestHeaderTagger.containsTag(header, RequestHeaderTagger.Tag.LEARN_TOPIC_NAMES)) {
             if (request.topics() != null && !request.topics().isEmpty()) {
-                Map<Uuid, String> names = topicNameCache.getAllPresent(
-                        request.topics().stream().map(MetadataRequestTopic::topicId).toList());
-                if (request.topics().stream().allMatch(metadataRequestTopic -> names.containsKey(metadataRequestTopic.topicId()))) {
+                List<Uuid> topicIds = request.topics().stream().map(MetadataRequestTopic::topicId).toList();
+                Map<Uuid, TopicName> names = topicNameCache.getAllPresent(topicIds);
+                Map<Uuid, Errors> unknown = unknownTopicIdCache == null || names.size() == topicIds.size() ? Map.of()
+                        : unknownTopicIdCache.getAllPresent(topicIds);
+                if (topicIds.stream().allMatch(topicId -> names.containsKey(topicId) || unknown.containsKey(topicId))) {
                     MetadataResponseData metadataResponseData = new MetadataResponseData();
-                    request.topics().stream().map(metadataRequestTopic -> {
+                    topicIds.stream().map(topicId -> {
                         MetadataResponseTopic responseTopic = new MetadataResponseTopic();
-                        responseTopic.setTopicId(metadataRequestTopic.topicId());
-                        responseTopic.setName(names.get(metadataRequestTopic.topicId()));
+                        responseTopic.setTopicId(topicId);
+                        TopicName topicName = names.get(topicId);
+                        if (topicName != null) {
+                            responseTopic.setName(topicName.name());
+                        }
+                        else {
+                            responseTopic.setErrorCode(unknown.get(topicId).code());
+                        }
                         return responseTopic;
                     }).forEach(metadataResponseData.topics()::add);
+                    refreshAhead(names, context);
                     return context.requestFilterResultBuilder().shortCircuitResponse(metadataResponseData).completed();
                 }
                 else {
@@ -119,23 +204,111 @@ public class TopicNameCacheFilter implements MetadataRequestFilter, MetadataResp
         return context.forwardRequest(header, request);
     }
 
+    /**
+     * Refreshes, in the background, those of the given names that are due a refresh and not already being refreshed.
+     */
+    private void refreshAhead(Map<Uuid, TopicName> names, FilterContext context) {
+        if (refreshAfterWriteNanos == Long.MAX_VALUE) {
+            return;
+        }
+        long now = ticker.read();
+        List<Uuid> due = new ArrayList<>();
+        names.forEach((topicId, topicName) -> {
+            if (now - topicName.writeTime() >= refreshAfterWriteNanos && refreshing.add(topicId)) {
+                due.add(topicId);
+            }
+        });
+        if (due.isEmpty()) {
+            return;
+        }
+        MetadataRequestData request = new MetadataRequestData()
+                .setAllowAutoTopicCreation(false)
+                .setIncludeClusterAuthorizedOperations(false)
+                .setIncludeTopicAuthorizedOperations(false);
+        due.forEach(topicId -> request.topics().add(new MetadataRequestTopic().setTopicId(topicId)));
+        RequestHeaderData header = new RequestHeaderData()
+                .setRequestApiKey(ApiKeys.METADATA.id)
+                .setRequestApiVersion(TopicNameRetriever.METADATA_API_VER_WITH_TOPIC_ID_SUPPORT);
+        // the refresh is best effort, the cached names keep being used until it succeeds, so its failure is only logged
+        var unused = context.<MetadataResponseData> sendRequest(header, request)
+                .whenComplete((response, error) -> {
+                    if (error != null) {
+                        LOGGER.atDebug()
+                                .setCause(error)
+                                .addKeyValue("virtualCluster", clusterName)
+                                .addKeyValue("topicIds", due.size())
+                                .log("Failed to refresh cached topic names");
+                    }
+                    else if (Errors.forCode(response.errorCode()) == Errors.NONE) {
+                        learn(response);
+                    }
+                    due.forEach(refreshing::remove);
+                });
+    }
+
     @Override
     public CompletionStage<ResponseFilterResult> onMetadataResponse(short apiVersion,
                                                                     ResponseHeaderData header,
                                                                     MetadataResponseData response,
                                                                     FilterContext context) {
+        learn(response);
+        return context.forwardResponse(header, response);
+    }
+
+    private void learn(MetadataResponseData response) {
         if (response.topics() != null) {
             response.topics().forEach(topic -> {
-                if (topic.name() != null && !topic.name().isEmpty() && topic.topicId() != null && !Uuid.ZERO_UUID.equals(topic.topicId())) {
-                    topicNameCache.put(topic.topicId(), topic.name());
+                if (topic.topicId() == null || Uuid.ZERO_UUID.equals(topic.topicId())) {
+                    return;
+                }
+                if (topic.errorCode() == Errors.UNKNOWN_TOPIC_ID.code()) {
+                    forget(topic.topicId());
+                }
+                else if (topic.errorCode() == Errors.NONE.code() && topic.name() != null && !topic.name().isEmpty()) {
+                    learn(topic.topicId(), topic.name());
                 }
             });
         }
-        return context.forwardResponse(header, response);
+    }
+
+    private void learn(Uuid topicId, String topicName) {
+        topicNameCache.put(topicId, new TopicName(topicName, ticker.read()));
+        if (unknownTopicIdCache != null) {
+            unknownTopicIdCache.invalidate(topicId);
+        }
+    }
+
+    private void forget(Uuid topicId) {
+        topicNameCache.invalidate(topicId);
+        if (unknownTopicIdCache != null) {
+            // only UNKNOWN_TOPIC_ID is cached: this filter is shared by all connections, so errors that depend
+            // on the client's principal, such as TOPIC_AUTHORIZATION_FAILED, must not be
+            unknownTopicIdCache.put(topicId, Errors.UNKNOWN_TOPIC_ID);
+        }
+    }
+
+    private boolean isCached(Uuid topicId) {
+        return topicNameCache.asMap().containsKey(topicId)
+                || (unknownTopicIdCache != null && unknownTopicIdCache.asMap().containsKey(topicId));
+    }
+
+    /**
+     * Returns the in-flight topic name lookups of the virtual cluster, which coalesce the cache misses of its connections.
+     * @return the lookups
+     */
+    public TopicNameLookups lookups() {
+        return lookups;
+    }
+
+    /**
+     * Removes the meters registered for the lookups of the virtual cluster, which is being closed.
+     */
+    public void close() {
+        Metrics.globalRegistry.remove(coalesced);
     }
 
     @VisibleForTesting
     Optional<String> topicName(Uuid topicId) {
-        return Optional.ofNullable(topicNameCache.getIfPresent(topicId));
+        return Optional.ofNullable(topicNameCache.getIfPresent(topicId)).map(TopicName::name);
     }
 }
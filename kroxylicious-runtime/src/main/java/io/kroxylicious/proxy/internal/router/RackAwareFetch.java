@@ -0,0 +1,50 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.proxy.internal.router;
+
+import io.kroxylicious.proxy.plugin.Plugin;
+import io.kroxylicious.proxy.plugin.PluginConfigurationException;
+import io.kroxylicious.proxy.plugin.Plugins;
+import io.kroxylicious.proxy.router.Router;
+import io.kroxylicious.proxy.router.RouterFactory;
+import io.kroxylicious.proxy.router.RouterFactoryContext;
+
+import edu.umd.cs.findbugs.annotations.NonNull;
+
+/**
+ * A {@link RouterFactory} for {@link RackAwareFetchRouter}, which sends consumer FETCH requests
+ * to an in-sync replica in the client's rack, or the proxy's, and everything else to the
+ * configured route unchanged.
+ * <p>
+ * The router uses the router level's {@link io.kroxylicious.proxy.topology.TopologyService},
+ * which learns replicas, in-sync replicas and broker racks from the METADATA responses that
+ * clients receive through the proxy.
+ */
+@Plugin(configType = RackAwareFetchConfig.class)
+public class RackAwareFetch implements RouterFactory<RackAwareFetchConfig, RackAwareFetch.Initialized> {
+
+    record Initialized(RackAwareFetchConfig config, RackAwareFetchMetrics metrics) {}
+
+    @Override
+    public Initialized initialize(RouterFactoryContext context, RackAwareFetchConfig config) {
+        RackAwareFetchConfig checked = Plugins.requireConfig(this, config);
+        if (!context.routeNames().contains(checked.route())) {
+            throw new PluginConfigurationException("Router " + context.routerName() + " has no route named " + checked.route());
+        }
+        // opt in to the topology cache, so that METADATA responses on every connection populate it
+        context.topologyService();
+        return new Initialized(checked, new RackAwareFetchMetrics(context.virtualClusterName(), context.routerName(), checked.rack()));
+    }
+
+    @Override
+    public Router createRouter(RouterFactoryContext context, @NonNull Initialized initializationData) {
+        return new RackAwareFetchRouter(initializationData.config().route(),
+                initializationData.config().rack(),
+                context.topologyService(),
+                initializationData.metrics());
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.proxy.internal.router;
+
+import java.util.Objects;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+/**
+ * Configuration for the {@link RackAwareFetch} router.
+ *
+ * @param route the route to which all requests are sent
+ * @param rack the rack the proxy runs in, used for FETCH requests from clients that do not
+ *             declare a rack of their own; if null, such requests are sent to the node the
+ *             client addressed
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record RackAwareFetchConfig(@JsonProperty(required = true) String route,
+                                   @JsonProperty @Nullable String rack) {
+
+    public RackAwareFetchConfig {
+        Objects.requireNonNull(route, "route");
+        if (rack != null && rack.isEmpty()) {
+            throw new IllegalArgumentException("rack must not be empty");
+        }
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.proxy.internal.router;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.micrometer.core.instrument.Counter;
+
+import io.kroxylicious.proxy.internal.util.Metrics;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+/**
+ * Outcome counters shared by all {@link RackAwareFetchRouter}s of one router level.
+ * <p>
+ * The {@code rackId} of a FETCH request is chosen by the client, so it is not used as a tag:
+ * that would let any client create an unbounded number of meters. Instead the counters are
+ * tagged with how the client's rack relates to the proxy's configured rack.
+ */
+final class RackAwareFetchMetrics {
+
+    /**
+     * How the rack declared by the client relates to the proxy's rack.
+     */
+    enum ClientRack {
+        /** The client declared the proxy's rack. */
+        MATCHED,
+        /** The client declared a rack other than the proxy's. */
+        UNMATCHED,
+        /** The client did not declare a rack, so the proxy's rack is preferred. */
+        ABSENT;
+
+        private String tagValue() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private record Key(ClientRack clientRack, String outcome) {}
+
+    private final String virtualClusterName;
+    private final String routerName;
+    @Nullable
+    private final String proxyRack;
+    private final Map<Key, Counter> counters = new ConcurrentHashMap<>();
+
+    RackAwareFetchMetrics(String virtualClusterName, String routerName, @Nullable String proxyRack) {
+        this.virtualClusterName = virtualClusterName;
+        this.routerName = routerName;
+        this.proxyRack = proxyRack;
+    }
+
+    void hit(String clientRackId) {
+        counter(clientRackId, "hit").increment();
+    }
+
+    void miss(String clientRackId) {
+        counter(clientRackId, "miss").increment();
+    }
+
+    void fallback(String clientRackId) {
+        counter(clientRackId, "fallback").increment();
+    }
+
+    ClientRack classify(String clientRackId) {
+        if (clientRackId.isEmpty()) {
+            return ClientRack.ABSENT;
+        }
+        return Objects.equals(clientRackId, proxyRack) ? ClientRack.MATCHED : ClientRack.UNMATCHED;
+    }
+
+    private Counter counter(String clientRackId, String outcome) {
+        return counters.computeIfAbsent(new Key(classify(clientRackId), outcome),
+                key -> Metrics.routerRackAwareFetchesCounter(virtualClusterName, routerName, key.clientRack().tagValue(), key.outcome()));
+    }
+}
@@ -0,0 +1,226 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.proxy.internal.router;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+
+import org.apache.kafka.common.Uuid;
+import org.apache.kafka.common.message.FetchRequestData;
+import org.apache.kafka.common.message.FetchResponseData;
+import org.apache.kafka.common.message.RequestHeaderData;
+import org.apache.kafka.common.protocol.ApiKeys;
+import org.apache.kafka.common.protocol.ApiMessage;
+import org.apache.kafka.common.protocol.Errors;
+import org.apache.kafka.common.requests.FetchMetadata;
+
+import io.kroxylicious.proxy.router.Router;
+import io.kroxylicious.proxy.router.RouterContext;
+import io.kroxylicious.proxy.router.RouterResponse;
+import io.kroxylicious.proxy.topology.BrokerInfo;
+import io.kroxylicious.proxy.topology.PartitionInfo;
+import io.kroxylicious.proxy.topology.TopologyService;
+import io.kroxylicious.proxy.topology.VirtualNode;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+/**
+ * Routes every API key statically to a single route, except FETCH, which it sends to an
+ * in-sync replica in the preferred rack when one hosts every partition of the request.
+ * <p>
+ * The preferred rack is the {@code rackId} of the FETCH request (KIP-392, version 11 onwards),
+ * or the proxy's configured rack for clients that do not declare one. The in-rack replica is
+ * chosen when the client starts a fetch session and is kept for the rest of the session, because
+ * an incremental fetch is only meaningful to the broker holding the session. Connections choose
+ * between equally suitable replicas by session ID, which spreads them across the rack.
+ * <p>
+ * If the replica answers with {@code NOT_LEADER_OR_FOLLOWER} the router falls back to the node
+ * the client addressed, invalidates the route's topology and, for a full fetch, retries there
+ * before replying. An incremental fetch's reply is passed on, because the client must start a
+ * new fetch session anyway. A request that cannot be sent to the replica at all is retried on
+ * the addressed node.
+ */
+final class RackAwareFetchRouter implements Router {
+
+    // Version 11 was the first version that allows consumers to fetch from followers (KIP-392).
+    private static final short MIN_FOLLOWER_FETCH_VERSION = 11;
+    // Version 13 was the first version that identifies topics by id.
+    private static final short MIN_TOPIC_ID_FETCH_VERSION = 13;
+
+    private final String route;
+    @Nullable
+    private final String proxyRack;
+    private final TopologyService topology;
+    private final RackAwareFetchMetrics metrics;
+    private final Map<ApiKeys, String> staticRoutes;
+
+    /**
+     * The in-rack replica holding this connection's fetch session, or null if the session is
+     * held by the node the client addressed. Only accessed on the connection's event loop.
+     */
+    @Nullable
+    private VirtualNode fetchTarget;
+
+    RackAwareFetchRouter(String route, @Nullable String proxyRack, TopologyService topology, RackAwareFetchMetrics metrics) {
+        this.route = Objects.requireNonNull(route, "route");
+        this.proxyRack = proxyRack;
+        this.topology = Objects.requireNonNull(topology, "topology");
+        this.metrics = Objects.requireNonNull(metrics, "metrics");
+        Map<ApiKeys, String> routes = new EnumMap<>(ApiKeys.class);
+        for (ApiKeys apiKey : ApiKeys.values()) {
+            if (apiKey != ApiKeys.FETCH) {
+                routes.put(apiKey, route);
+            }
+        }
+        this.staticRoutes = Map.copyOf(routes);
+    }
+
+    @Override
+    public Map<ApiKeys, String> staticRoutes() {
+        return staticRoutes;
+    }
+
+    @Override
+    public CompletionStage<RouterResponse> onRequest(ApiKeys apiKey,
+                                                     short apiVersion,
+                                                     RequestHeaderData header,
+                                                     ApiMessage request,
+                                                     RouterContext context) {
+        VirtualNode addressed = context.virtualNode().orElseGet(() -> context.anyNode(route));
+        String rack = request instanceof FetchRequestData fetch ? preferredRack(apiVersion, fetch) : null;
+        if (rack == null) {
+            return context.sendRequest(addressed, header, request)
+                    .thenCompose(response -> context.respondWith(response).completed());
+        }
+        FetchRequestData fetch = (FetchRequestData) request;
+        if (fetch.sessionEpoch() > FetchMetadata.INITIAL_EPOCH) {
+            VirtualNode target = fetchTarget == null ? addressed : fetchTarget;
+            return fetch(context, rack, addressed, target, false, header, fetch);
+        }
+        return topicNames(apiVersion, fetch).thenCompose(topicNames -> {
+            VirtualNode target = inRackReplica(fetch, topicNames, rack, addressed, context.sessionId()).orElse(addressed);
+            fetchTarget = target.equals(addressed) ? null : target;
+            return fetch(context, rack, addressed, target, true, header, fetch);
+        });
+    }
+
+    @Nullable
+    private String preferredRack(short apiVersion, FetchRequestData fetch) {
+        if (apiVersion < MIN_FOLLOWER_FETCH_VERSION) {
+            return null;
+        }
+        return fetch.rackId().isEmpty() ? proxyRack : fetch.rackId();
+    }
+
+    private CompletionStage<Map<Uuid, String>> topicNames(short apiVersion, FetchRequestData fetch) {
+        if (apiVersion < MIN_TOPIC_ID_FETCH_VERSION) {
+            return CompletableFuture.completedFuture(Map.of());
+        }
+        Set<Uuid> topicIds = new HashSet<>();
+        for (var topic : fetch.topics()) {
+            topicIds.add(topic.topicId());
+        }
+        // a failed lookup just means that no replica is known to be in the rack
+        return topology.topicNames(route, topicIds).exceptionally(error -> Map.of());
+    }
+
+    private Optional<VirtualNode> inRackReplica(FetchRequestData fetch,
+                                                Map<Uuid, String> topicNames,
+                                                String rack,
+                                                VirtualNode addressed,
+                                                String sessionId) {
+        List<VirtualNode> candidates = null;
+        for (var topic : fetch.topics()) {
+            String topicName = Uuid.ZERO_UUID.equals(topic.topicId()) ? topic.topic() : topicNames.get(topic.topicId());
+            if (topicName == null) {
+                return Optional.empty();
+            }
+            for (var partition : topic.partitions()) {
+                Optional<PartitionInfo> info = topology.partitionInfo(route, topicName, partition.partition());
+                if (info.isEmpty()) {
+                    return Optional.empty();
+                }
+                List<VirtualNode> inRack = info.get().isr().stream().filter(node -> isInRack(node, rack)).toList();
+                if (candidates == null) {
+                    candidates = new ArrayList<>(inRack);
+                }
+                else {
+                    candidates.retainAll(inRack);
+                }
+                if (candidates.isEmpty()) {
+                    return Optional.empty();
+                }
+            }
+        }
+        if (candidates == null) {
+            return Optional.empty();
+        }
+        if (candidates.contains(addressed)) {
+            return Optional.of(addressed);
+        }
+        return Optional.of(candidates.get(Math.floorMod(sessionId.hashCode(), candidates.size())));
+    }
+
+    private boolean isInRack(VirtualNode node, String rack) {
+        return topology.brokerInfo(node).map(BrokerInfo::rack).filter(rack::equals).isPresent();
+    }
+
+    private CompletionStage<RouterResponse> fetch(RouterContext context,
+                                                  String rack,
+                                                  VirtualNode addressed,
+                                                  VirtualNode target,
+                                                  boolean fullFetch,
+                                                  RequestHeaderData header,
+                                                  FetchRequestData fetch) {
+        if (isInRack(target, rack)) {
+            metrics.hit(fetch.rackId());
+        }
+        else {
+            metrics.miss(fetch.rackId());
+        }
+        if (target.equals(addressed)) {
+            return context.sendRequest(target, header, fetch)
+                    .thenCompose(response -> context.respondWith(response).completed());
+        }
+        // keep the original intact in case we must retry: per-route filters may modify the request
+        return context.sendRequest(target, header.duplicate(), fetch.duplicate())
+                .<CompletionStage<ApiMessage>> handle((response, error) -> {
+                    if (error == null && !isNotLeaderOrFollower((FetchResponseData) response)) {
+                        return CompletableFuture.completedFuture(response);
+                    }
+                    fetchTarget = null;
+                    topology.invalidateRoute(route);
+                    metrics.fallback(fetch.rackId());
+                    if (error == null && !fullFetch) {
+                        return CompletableFuture.completedFuture(response);
+                    }
+                    return context.sendRequest(addressed, header, fetch);
+                })
+                .thenCompose(Function.identity())
+                .thenCompose(response -> context.respondWith(response).completed());
+    }
+
+    private static boolean isNotLeaderOrFollower(FetchResponseData response) {
+        for (var topic : response.responses()) {
+            for (var partition : topic.partitions()) {
+                if (partition.errorCode() == Errors.NOT_LEADER_OR_FOLLOWER.code()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,63 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.kroxylicious.proxy.internal.routing;
+
+import java.util.Objects;
+
+import io.kroxylicious.proxy.topology.TopologyService;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+/**
+ * Connects a client connection's router to its router level's {@link TopologyCache}.
+ *
+ * <p>An instance is created for each connection before its router is created.
+ * {@link io.kroxylicious.proxy.bootstrap.RouterChainFactory} attaches the router level's cache,
+ * if there is one, and hands out the connection's {@link TopologyService} when the router asks
+ * for it. The connection's {@link RouterDispatchHandler} then populates the cache from responses
+ * and sends the service's discovery requests.</p>
+ */
+public final class ConnectionTopology {
+
+    @Nullable
+    private TopologyCache cache;
+    @Nullable
+    private TopologyServiceImpl service;
+
+    /**
+     * Attaches the router level's topology cache, so that responses on this connection populate it.
+     *
+     * @param cache the topology cache
+     */
+    public void attach(TopologyCache cache) {
+        this.cache = Objects.requireNonNull(cache, "cache");
+    }
+
+    /**
+     * Returns this connection's topology service, backed by the given cache.
+     *
+     * @param cache the topology cache
+     * @return the topology service
+     */
+    public TopologyService service(TopologyCache cache) {
+        attach(cache);
+        if (service == null) {
+            service = new TopologyServiceImpl(cache);
+        }
+        return service;
+    }
+
+    @Nullable
+    TopologyCache cache() {
+        return cache;
+    }
+
+    void bind(RouterDispatchHandler handler) {
+        if (service != null) {
+            service.bind(handler);
+        }
+    }
+}
@@ -8,6 +8,7 @@ package io.kroxylicious.proxy.internal.routing;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 
 import io.kroxylicious.proxy.bootstrap.RouterChainFactory;
 import io.kroxylicious.proxy.router.Router;
@@ -63,6 +64,14 @@ public record DynamicRouting(
         return routerChainFactory.createRouter(routerName, clusterName);
     }
 
+    public Router createRouter(String clusterName, ConnectionTopology connectionTopology) {
+        return routerChainFactory.createRouter(routerName, clusterName, connectionTopology);
+    }
+
+    public Optional<RequestHedger> requestHedger(String clusterName) {
+        return routerChainFactory.requestHedger(routerName, clusterName);
+    }
+
     @Override
     public void close() {
         RuntimeException firstFailure = null;
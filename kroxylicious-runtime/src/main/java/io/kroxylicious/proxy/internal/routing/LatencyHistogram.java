@@ -0,0 +1,129 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.kroxylicious.proxy.internal.routing;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.LongSupplier;
+
+/**
+ * A thread-safe, fixed-size, log-linear latency histogram over a sliding window.
+ *
+ * <p>Buckets cover each power-of-two octave from ~1µs to ~68s, split into four
+ * linear sub-buckets, so a reported percentile overestimates the true value by
+ * at most 25%. Samples are recorded into the current window; when the window
+ * elapses it becomes the previous window and a fresh one is started. Percentiles
+ * are computed over both, so they track recent behaviour without the discontinuity
+ * of a hard reset.</p>
+ */
+final class LatencyHistogram {
+
+    private static final int MIN_EXPONENT = 10;
+    private static final int MAX_EXPONENT = 36;
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    static final int BUCKET_COUNT = 1 + (MAX_EXPONENT - MIN_EXPONENT) * SUB_BUCKETS;
+
+    private record Window(long startNanos, AtomicLongArray counts, AtomicLong total) {
+        Window(long startNanos) {
+            this(startNanos, new AtomicLongArray(BUCKET_COUNT), new AtomicLong());
+        }
+    }
+
+    private final long windowNanos;
+    private final LongSupplier nanoClock;
+    private volatile Window current;
+    private volatile Window previous;
+
+    LatencyHistogram(long windowNanos, LongSupplier nanoClock) {
+        if (windowNanos <= 0) {
+            throw new IllegalArgumentException("windowNanos must be positive");
+        }
+        this.windowNanos = windowNanos;
+        this.nanoClock = nanoClock;
+        long now = nanoClock.getAsLong();
+        this.current = new Window(now);
+        this.previous = new Window(now);
+    }
+
+    void record(long latencyNanos) {
+        Window window = rotateIfNecessary();
+        window.counts().incrementAndGet(bucketFor(latencyNanos));
+        window.total().incrementAndGet();
+    }
+
+    /**
+     * Returns the number of samples in the current and previous windows.
+     */
+    long sampleCount() {
+        Window window = rotateIfNecessary();
+        return window.total().get() + previous.total().get();
+    }
+
+    /**
+     * Returns an upper bound for the given percentile of the recorded latencies,
+     * or -1 if no samples have been recorded.
+     *
+     * @param percentile a value in the interval (0, 1)
+     */
+    long percentileNanos(double percentile) {
+        Window cur = rotateIfNecessary();
+        Window prev = previous;
+        long total = cur.total().get() + prev.total().get();
+        if (total == 0) {
+            return -1;
+        }
+        long target = (long) Math.ceil(percentile * total);
+        long cumulative = 0;
+        for (int bucket = 0; bucket < BUCKET_COUNT; bucket++) {
+            cumulative += cur.counts().get(bucket) + prev.counts().get(bucket);
+            if (cumulative >= target) {
+                return upperBoundNanos(bucket);
+            }
+        }
+        return upperBoundNanos(BUCKET_COUNT - 1);
+    }
+
+    private Window rotateIfNecessary() {
+        Window window = current;
+        long now = nanoClock.getAsLong();
+        if (now - window.startNanos() < windowNanos) {
+            return window;
+        }
+        synchronized (this) {
+            window = current;
+            long elapsed = now - window.startNanos();
+            if (elapsed >= windowNanos) {
+                // If more than two windows have elapsed the previous window is stale too
+                previous = elapsed >= 2 * windowNanos ? new Window(now) : window;
+                current = new Window(now);
+            }
+            return current;
+        }
+    }
+
+    static int bucketFor(long latencyNanos) {
+        if (latencyNanos < (1L << MIN_EXPONENT)) {
+            return 0;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(latencyNanos);
+        if (exponent >= MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int subBucket = (int) ((latencyNanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+        return 1 + (exponent - MIN_EXPONENT) * SUB_BUCKETS + subBucket;
+    }
+
+    static long upperBoundNanos(int bucket) {
+        if (bucket == 0) {
+            return 1L << MIN_EXPONENT;
+        }
+        int exponent = MIN_EXPONENT + (bucket - 1) / SUB_BUCKETS;
+        int subBucket = (bucket - 1) % SUB_BUCKETS;
+        long subBucketWidth = 1L << (exponent - SUB_BUCKET_BITS);
+        return (1L << exponent) + (subBucket + 1) * subBucketWidth;
+    }
+}
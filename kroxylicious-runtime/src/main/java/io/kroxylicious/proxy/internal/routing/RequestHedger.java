@@ -0,0 +1,145 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.kroxylicious.proxy.internal.routing;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Objects;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+import org.apache.kafka.common.protocol.ApiKeys;
+
+import io.micrometer.core.instrument.Counter;
+
+import io.kroxylicious.proxy.internal.util.Metrics;
+import io.kroxylicious.proxy.router.HedgingPolicy;
+import io.kroxylicious.proxy.tag.VisibleForTesting;
+
+/**
+ * Shared hedging state for one router level of one virtual cluster: per route and API key
+ * latency histograms, and the hedge budget.
+ *
+ * <p>Instances are created by {@link io.kroxylicious.proxy.bootstrap.RouterChainFactory} when
+ * a router calls {@link io.kroxylicious.proxy.router.RouterFactoryContext#enableHedging} and are
+ * shared by every {@link RouterDispatchHandler} for that router, so they are thread-safe.</p>
+ *
+ * <p>The budget is a token bucket denominated in millionths of a hedge. Each hedgeable request
+ * deposits {@link HedgingPolicy#maxExtraRequestRatio()} of a hedge and each hedge withdraws one
+ * whole hedge, so over any period hedges never exceed that fraction of hedgeable requests. The
+ * bucket is capped so that a long quiet period cannot fund a burst of hedges.</p>
+ */
+public class RequestHedger {
+
+    private static final long ONE_HEDGE = 1_000_000L;
+    private static final long MAX_BUDGET = 10 * ONE_HEDGE;
+    private static final Duration DEFAULT_HISTOGRAM_WINDOW = Duration.ofSeconds(30);
+    private static final long DEFAULT_MINIMUM_SAMPLES = 100;
+
+    private record HistogramKey(String route, ApiKeys apiKey) {}
+
+    private final HedgingPolicy policy;
+    private final long minimumDelayNanos;
+    private final long budgetDeposit;
+    private final long histogramWindowNanos;
+    private final long minimumSamples;
+    private final LongSupplier nanoClock;
+    private final Map<HistogramKey, LatencyHistogram> histograms = new ConcurrentHashMap<>();
+    private final AtomicLong budget = new AtomicLong();
+    private final Counter hedgesSent;
+    private final Counter hedgesWon;
+    private final Counter hedgesSuppressed;
+
+    public RequestHedger(String virtualClusterName, String routerName, HedgingPolicy policy) {
+        this(virtualClusterName, routerName, policy, DEFAULT_HISTOGRAM_WINDOW, DEFAULT_MINIMUM_SAMPLES, System::nanoTime);
+    }
+
+    @VisibleForTesting
+    RequestHedger(String virtualClusterName,
+                  String routerName,
+                  HedgingPolicy policy,
+                  Duration histogramWindow,
+                  long minimumSamples,
+                  LongSupplier nanoClock) {
+        this.policy = Objects.requireNonNull(policy, "policy");
+        this.minimumDelayNanos = policy.minimumDelay().toNanos();
+        this.budgetDeposit = Math.max(1L, Math.round(policy.maxExtraRequestRatio() * ONE_HEDGE));
+        this.histogramWindowNanos = histogramWindow.toNanos();
+        this.minimumSamples = minimumSamples;
+        this.nanoClock = Objects.requireNonNull(nanoClock, "nanoClock");
+        this.hedgesSent = Metrics.routerHedgedRequestsCounter(virtualClusterName, routerName, "sent");
+        this.hedgesWon = Metrics.routerHedgedRequestsCounter(virtualClusterName, routerName, "won");
+        this.hedgesSuppressed = Metrics.routerHedgedRequestsCounter(virtualClusterName, routerName, "suppressed");
+    }
+
+    public HedgingPolicy policy() {
+        return policy;
+    }
+
+    /**
+     * Returns true if requests with the given API key are hedged.
+     */
+    boolean appliesTo(ApiKeys apiKey) {
+        return policy.appliesTo(apiKey);
+    }
+
+    /**
+     * Accounts for a hedgeable request about to be sent to {@code route}, returning the delay
+     * after which it should be hedged. The delay is empty while too few replies have been
+     * observed for the route and API key to estimate the latency percentile.
+     *
+     * @param route the route of the primary node
+     * @param apiKey the API key of the request
+     * @return the hedge delay in nanoseconds, or empty if the request should not be hedged
+     */
+    OptionalLong onHedgeableRequest(String route, ApiKeys apiKey) {
+        budget.accumulateAndGet(budgetDeposit, (current, deposit) -> Math.min(MAX_BUDGET, current + deposit));
+        LatencyHistogram histogram = histogram(route, apiKey);
+        if (histogram.sampleCount() < minimumSamples) {
+            return OptionalLong.empty();
+        }
+        long percentileNanos = histogram.percentileNanos(policy.latencyPercentile());
+        return OptionalLong.of(Math.max(minimumDelayNanos, percentileNanos));
+    }
+
+    /**
+     * Withdraws a hedge from the budget.
+     *
+     * @return true if the budget permitted the hedge, in which case the caller must send it
+     */
+    boolean tryAcquireHedge() {
+        boolean acquired = budget.getAndUpdate(current -> current >= ONE_HEDGE ? current - ONE_HEDGE : current) >= ONE_HEDGE;
+        (acquired ? hedgesSent : hedgesSuppressed).increment();
+        return acquired;
+    }
+
+    /**
+     * Records the latency of a reply to a hedgeable request, measured from when that request
+     * was sent. Late replies to requests which lost the race are recorded too.
+     *
+     * @param route the route of the node that sent the reply
+     * @param apiKey the API key of the request
+     * @param latencyNanos the latency
+     * @param hedgeWon true if the reply came from the alternate node, and won the race
+     */
+    void recordReply(String route, ApiKeys apiKey, long latencyNanos, boolean hedgeWon) {
+        histogram(route, apiKey).record(latencyNanos);
+        if (hedgeWon) {
+            hedgesWon.increment();
+        }
+    }
+
+    long nanoTime() {
+        return nanoClock.getAsLong();
+    }
+
+    @VisibleForTesting
+    LatencyHistogram histogram(String route, ApiKeys apiKey) {
+        return histograms.computeIfAbsent(new HistogramKey(route, apiKey), k -> new LatencyHistogram(histogramWindowNanos, nanoClock));
+    }
+}
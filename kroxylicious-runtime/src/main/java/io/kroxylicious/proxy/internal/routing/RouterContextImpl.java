@@ -92,6 +92,21 @@ class RouterContextImpl implements RouterContext {
         }
     }
 
+    @Override
+    public CompletionStage<ApiMessage> sendHedgedRequest(VirtualNode primary,
+                                                         VirtualNode alternate,
+                                                         RequestHeaderData header,
+                                                         ApiMessage request) {
+        return handler.sendHedged(toImpl(primary), toImpl(alternate), header, request, sessionId, clientCorrelationId);
+    }
+
+    private static VirtualNodeImpl toImpl(VirtualNode node) {
+        if (!(node instanceof VirtualNodeImpl impl)) {
+            throw new IllegalArgumentException("Unrecognised VirtualNode type: " + node.getClass().getName());
+        }
+        return impl;
+    }
+
     @Override
     public String sessionId() {
         return sessionId;
@@ -6,12 +6,15 @@
 package io.kroxylicious.proxy.internal.routing;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.OptionalLong;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.TimeUnit;
 import java.util.function.Supplier;
 
 import org.apache.kafka.common.message.MetadataResponseData;
@@ -28,6 +31,7 @@ import io.netty.channel.ChannelDuplexHandler;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.ChannelPromise;
 import io.netty.util.concurrent.EventExecutor;
+import io.netty.util.concurrent.ScheduledFuture;
 
 import io.kroxylicious.proxy.frame.DecodedRequestFrame;
 import io.kroxylicious.proxy.frame.DecodedResponseFrame;
@@ -52,6 +56,14 @@ import edu.umd.cs.findbugs.annotations.Nullable;
  *
  * <p>The {@link #write} override applies node ID translation for statically-routed
  * API keys whose responses carry broker node IDs.
+ *
+ * <p>When the router has enabled hedging, {@link #sendHedged} sends hedgeable requests to a
+ * primary node and, if it is slow to reply, a duplicate to an alternate node. Replies to the
+ * losing request are discarded in {@link #write}.
+ *
+ * <p>When the router level has a {@link TopologyCache}, {@link #write} also populates it from
+ * METADATA responses, and the connection's topology service sends its discovery requests via
+ * {@link #sendDiscoveryRequest}.
  */
 public class RouterDispatchHandler extends ChannelDuplexHandler {
 
@@ -72,6 +84,19 @@ public class RouterDispatchHandler extends ChannelDuplexHandler {
             ApiKeys.SHARE_ACKNOWLEDGE,
             ApiKeys.DESCRIBE_TOPIC_PARTITIONS);
 
+    /**
+     * Stands in for the client correlation ID in the log context of requests that are not
+     * sent on behalf of a client request.
+     */
+    private static final int NO_CLIENT_CORRELATION_ID = -1;
+
+    /**
+     * The maximum number of abandoned hedged requests whose replies are remembered. A losing
+     * reply may never arrive, for example if its upstream connection is lost, so the oldest
+     * entries are forgotten beyond this.
+     */
+    static final int MAX_ABANDONED_RESPONSES = 1024;
+
     private final Router router;
     final Map<String, RouteDescriptor> routes;
     private final Map<ApiKeys, String> staticRoutes;
@@ -84,10 +109,24 @@ public class RouterDispatchHandler extends ChannelDuplexHandler {
      * Tracks correlation IDs of in-flight statically-routed requests that need response
      * node ID translation. Entries are removed when the response arrives in {@link #write}.
      */
-    private final Map<Integer, String> pendingRoutes = new HashMap<>();
+    private final Map<Integer, PendingRoute> pendingRoutes = new HashMap<>();
 
     final Map<Integer, PendingResponse> pendingResponses = new HashMap<>();
 
+    /**
+     * Routing correlation IDs of hedged requests that lost the race, each with the action which
+     * records the latency of its reply. Their responses are expected and are discarded when they
+     * arrive in {@link #write}. Bounded by {@link #MAX_ABANDONED_RESPONSES}, and cleared when the
+     * channel closes.
+     */
+    final Map<Integer, Runnable> abandonedResponses = new LinkedHashMap<>();
+
+    @Nullable
+    private final RequestHedger requestHedger;
+
+    @Nullable
+    private final TopologyCache topologyCache;
+
     private final CorrelationIdAllocator correlationIdAllocator = CorrelationIdSpace.createRouterAllocator();
 
     @Nullable
@@ -99,7 +138,12 @@ public class RouterDispatchHandler extends ChannelDuplexHandler {
     @Nullable
     private final Integer nodeId;
 
-    record PendingResponse(CompletableFuture<ApiMessage> future, String route) {}
+    /**
+     * @param coordinatorRequest what the request asked of, or told, a coordinator, if anything, for the topology cache
+     */
+    record PendingResponse(CompletableFuture<ApiMessage> future, String route, @Nullable TopologyCache.CoordinatorRequest coordinatorRequest) {}
+
+    private record PendingRoute(String route, @Nullable TopologyCache.CoordinatorRequest coordinatorRequest) {}
 
     public RouterDispatchHandler(Router router,
                                  Map<String, RouteDescriptor> routes,
@@ -108,6 +152,29 @@ public class RouterDispatchHandler extends ChannelDuplexHandler {
                                  String virtualClusterName,
                                  NodeIdMapping nodeIdMapping,
                                  @Nullable Integer nodeId) {
+        this(router, routes, staticRoutes, ccsm, virtualClusterName, nodeIdMapping, nodeId, null);
+    }
+
+    public RouterDispatchHandler(Router router,
+                                 Map<String, RouteDescriptor> routes,
+                                 Map<ApiKeys, String> staticRoutes,
+                                 ClientConnectionStateMachine ccsm,
+                                 String virtualClusterName,
+                                 NodeIdMapping nodeIdMapping,
+                                 @Nullable Integer nodeId,
+                                 @Nullable RequestHedger requestHedger) {
+        this(router, routes, staticRoutes, ccsm, virtualClusterName, nodeIdMapping, nodeId, requestHedger, new ConnectionTopology());
+    }
+
+    public RouterDispatchHandler(Router router,
+                                 Map<String, RouteDescriptor> routes,
+                                 Map<ApiKeys, String> staticRoutes,
+                                 ClientConnectionStateMachine ccsm,
+                                 String virtualClusterName,
+                                 NodeIdMapping nodeIdMapping,
+                                 @Nullable Integer nodeId,
+                                 @Nullable RequestHedger requestHedger,
+                                 ConnectionTopology connectionTopology) {
         this.router = router;
         this.routes = routes;
         this.staticRoutes = staticRoutes;
@@ -115,6 +182,9 @@ public class RouterDispatchHandler extends ChannelDuplexHandler {
         this.virtualClusterName = virtualClusterName;
         this.nodeIdMapping = nodeIdMapping;
         this.nodeId = nodeId;
+        this.requestHedger = requestHedger;
+        this.topologyCache = connectionTopology.cache();
+        connectionTopology.bind(this);
     }
 
     @Override
@@ -127,12 +197,29 @@ public class RouterDispatchHandler extends ChannelDuplexHandler {
         router.close();
     }
 
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+        abandonedResponses.clear();
+        super.channelInactive(ctx);
+    }
+
     /**
      * Returns the upstream address for the given virtual node ID, as learned from the most
      * recent internal METADATA response. Returns empty if the address has not been cached yet.
      */
     public Optional<HostPort> resolveRouterNodeAddress(int virtualNodeId) {
-        return Optional.ofNullable(routerNodeAddresses.get(virtualNodeId));
+        return Optional.ofNullable(routerNodeAddresses.get(virtualNodeId))
+                .or(() -> topologyCache == null ? Optional.empty()
+                        : topologyCache.brokerInfo(nodeForVirtualId(virtualNodeId))
+                                .map(brokerInfo -> new HostPort(brokerInfo.host(), brokerInfo.port())));
+    }
+
+    /**
+     * Returns the node that a virtual node ID found in a translated response refers to.
+     */
+    VirtualNodeImpl nodeForVirtualId(int virtualNodeId) {
+        NodeIdMapping.RouteAndNode ran = nodeIdMapping.fromVirtual(virtualNodeId);
+        return new VirtualNodeImpl(ran.route(), ran.targetNodeId());
     }
 
     @Override
@@ -142,7 +229,8 @@ public class RouterDispatchHandler extends ChannelDuplexHandler {
             String staticRoute = staticRoutes.get(apiKey);
             if (staticRoute != null) {
                 if (NODE_ID_TRANSLATION_APIS.contains(apiKey)) {
-                    pendingRoutes.put(frame.correlationId(), staticRoute);
+                    pendingRoutes.put(frame.correlationId(), new PendingRoute(staticRoute,
+                            msg instanceof DecodedRequestFrame<?> decoded ? coordinatorRequest(decoded.body()) : null));
                 }
                 ccsm.forwardToRoute(staticRoute, msg);
                 LOGGER.atTrace()
@@ -268,6 +356,7 @@ public class RouterDispatchHandler extends ChannelDuplexHandler {
             if (correlationIdAllocator.inRange(correlationId)) {
                 PendingResponse pendingResponse = pendingResponses.remove(correlationId);
                 if (pendingResponse != null) {
+                    updateTopologyCache(pendingResponse.route(), pendingResponse.coordinatorRequest(), frame.body());
                     NodeIdResponseTranslator.translate(frame.body(), frame.apiVersion(), nodeIdMapping, pendingResponse.route());
                     cacheNodeAddressesIfMetadata(frame.body());
                     pendingResponse.future().complete(frame.body());
@@ -277,6 +366,14 @@ public class RouterDispatchHandler extends ChannelDuplexHandler {
                             .addKeyValue("routingCorrelationId", correlationId)
                             .log("Routed response matched to pending request");
                 }
+                else if (abandonedResponses.containsKey(correlationId)) {
+                    abandonedResponses.remove(correlationId).run();
+                    LOGGER.atTrace()
+                            .addKeyValue("virtualCluster", virtualClusterName)
+                            .addKeyValue("sessionId", ccsm.sessionId())
+                            .addKeyValue("routingCorrelationId", correlationId)
+                            .log("Discarded response to hedged request that lost the race");
+                }
                 else {
                     LOGGER.atWarn()
                             .addKeyValue("virtualCluster", virtualClusterName)
@@ -288,20 +385,29 @@ public class RouterDispatchHandler extends ChannelDuplexHandler {
                 promise.setSuccess();
                 return;
             }
-            String routeName = pendingRoutes.remove(correlationId);
-            if (routeName != null) {
-                NodeIdResponseTranslator.translate(frame.body(), frame.apiVersion(), nodeIdMapping, routeName);
+            PendingRoute pendingRoute = pendingRoutes.remove(correlationId);
+            if (pendingRoute != null) {
+                updateTopologyCache(pendingRoute.route(), pendingRoute.coordinatorRequest(), frame.body());
+                NodeIdResponseTranslator.translate(frame.body(), frame.apiVersion(), nodeIdMapping, pendingRoute.route());
             }
         }
         ctx.write(msg, promise);
     }
 
+    /**
+     * Sends a request on behalf of this connection's {@link io.kroxylicious.proxy.topology.TopologyService},
+     * rather than on behalf of a client request.
+     */
+    CompletionStage<ApiMessage> sendDiscoveryRequest(String route, RequestHeaderData header, ApiMessage request) {
+        return sendToAnyNode(route, header, request, ccsm.sessionId(), NO_CLIENT_CORRELATION_ID);
+    }
+
     CompletionStage<ApiMessage> sendToAnyNode(String route,
                                               RequestHeaderData header,
                                               ApiMessage request,
                                               String sessionId,
                                               int clientCorrelationId) {
-        return executeOnEventLoop(() -> doSendToAny(route, header, request, sessionId, clientCorrelationId));
+        return executeOnEventLoop(() -> doSendToAny(correlationIdAllocator.allocateId(), route, header, request, sessionId, clientCorrelationId));
     }
 
     private <T> CompletionStage<T> executeOnEventLoop(Supplier<CompletableFuture<T>> work) {
@@ -321,7 +427,7 @@ public class RouterDispatchHandler extends ChannelDuplexHandler {
         return bridge;
     }
 
-    private CompletableFuture<ApiMessage> doSendToAny(String route, RequestHeaderData header, ApiMessage request, String sessionId,
+    private CompletableFuture<ApiMessage> doSendToAny(int routingCorrelationId, String route, RequestHeaderData header, ApiMessage request, String sessionId,
                                                       int clientCorrelationId) {
         RouteDescriptor rd = routes.get(route);
         if (rd == null) {
@@ -337,7 +443,6 @@ public class RouterDispatchHandler extends ChannelDuplexHandler {
         }
 
         short requestApiVersion = header.requestApiVersion();
-        int routingCorrelationId = correlationIdAllocator.allocateId();
         var frame = new DecodedRequestFrame<>(requestApiVersion, routingCorrelationId, true, header, request);
 
         if (!frame.hasResponse()) {
@@ -349,7 +454,7 @@ public class RouterDispatchHandler extends ChannelDuplexHandler {
         }
 
         CompletableFuture<ApiMessage> future = new CompletableFuture<>();
-        pendingResponses.put(routingCorrelationId, new PendingResponse(future, route));
+        pendingResponses.put(routingCorrelationId, new PendingResponse(future, route, coordinatorRequest(request)));
 
         try {
             ccsm.forwardToRoute(route, frame);
@@ -378,10 +483,12 @@ public class RouterDispatchHandler extends ChannelDuplexHandler {
                                                    ApiMessage request,
                                                    String sessionId,
                                                    int clientCorrelationId) {
-        return executeOnEventLoop(() -> doSendToSpecificNode(targetNodeId, route, header, request, sessionId, clientCorrelationId));
+        return executeOnEventLoop(
+                () -> doSendToSpecificNode(correlationIdAllocator.allocateId(), targetNodeId, route, header, request, sessionId, clientCorrelationId));
     }
 
-    private CompletableFuture<ApiMessage> doSendToSpecificNode(int targetNodeId,
+    private CompletableFuture<ApiMessage> doSendToSpecificNode(int routingCorrelationId,
+                                                               int targetNodeId,
                                                                String route,
                                                                RequestHeaderData header,
                                                                ApiMessage request,
@@ -396,7 +503,6 @@ public class RouterDispatchHandler extends ChannelDuplexHandler {
         }
 
         short requestApiVersion = header.requestApiVersion();
-        int routingCorrelationId = correlationIdAllocator.allocateId();
         var frame = new DecodedRequestFrame<>(requestApiVersion, routingCorrelationId, true, header, request);
 
         if (!frame.hasResponse()) {
@@ -409,7 +515,7 @@ public class RouterDispatchHandler extends ChannelDuplexHandler {
         }
 
         CompletableFuture<ApiMessage> future = new CompletableFuture<>();
-        pendingResponses.put(routingCorrelationId, new PendingResponse(future, route));
+        pendingResponses.put(routingCorrelationId, new PendingResponse(future, route, coordinatorRequest(request)));
 
         try {
             ccsm.forwardToNode(targetNodeId, route, frame);
@@ -432,6 +538,144 @@ public class RouterDispatchHandler extends ChannelDuplexHandler {
         return future;
     }
 
+    CompletionStage<ApiMessage> sendHedged(VirtualNodeImpl primary,
+                                           VirtualNodeImpl alternate,
+                                           RequestHeaderData header,
+                                           ApiMessage request,
+                                           String sessionId,
+                                           int clientCorrelationId) {
+        return executeOnEventLoop(() -> doSendHedged(primary, alternate, header, request, sessionId, clientCorrelationId));
+    }
+
+    private CompletableFuture<ApiMessage> doSendHedged(VirtualNodeImpl primary,
+                                                       VirtualNodeImpl alternate,
+                                                       RequestHeaderData header,
+                                                       ApiMessage request,
+                                                       String sessionId,
+                                                       int clientCorrelationId) {
+        ApiKeys apiKey = ApiKeys.forId(header.requestApiKey());
+        if (requestHedger == null || !requestHedger.appliesTo(apiKey) || primary.equals(alternate)) {
+            return doSend(correlationIdAllocator.allocateId(), primary, header, request, sessionId, clientCorrelationId);
+        }
+        var exchange = new HedgedExchange(requestHedger, apiKey);
+        OptionalLong hedgeDelayNanos = requestHedger.onHedgeableRequest(primary.route(), apiKey);
+        // duplicated before the primary is sent, because per-route filters may modify the request in place
+        RequestHeaderData hedgeHeader = hedgeDelayNanos.isPresent() ? header.duplicate() : header;
+        ApiMessage hedgeRequest = hedgeDelayNanos.isPresent() ? (ApiMessage) request.duplicate() : request;
+        int primaryCorrelationId = correlationIdAllocator.allocateId();
+        exchange.track(primaryCorrelationId, primary.route(), false,
+                doSend(primaryCorrelationId, primary, header, request, sessionId, clientCorrelationId));
+        if (hedgeDelayNanos.isPresent() && !exchange.result.isDone()) {
+            exchange.hedgeTimer = Objects.requireNonNull(eventExecutor).schedule(() -> {
+                if (exchange.result.isDone() || !exchange.hedger.tryAcquireHedge()) {
+                    return;
+                }
+                int hedgeCorrelationId = correlationIdAllocator.allocateId();
+                withSendContext(LOGGER.atDebug(), virtualClusterName, sessionId, alternate.route(), clientCorrelationId)
+                        .addKeyValue("apiKey", apiKey)
+                        .addKeyValue("primaryRoutingCorrelationId", primaryCorrelationId)
+                        .addKeyValue("routingCorrelationId", hedgeCorrelationId)
+                        .log("Primary node slow to reply, hedging request to alternate node");
+                exchange.track(hedgeCorrelationId, alternate.route(), true,
+                        doSend(hedgeCorrelationId, alternate, hedgeHeader, hedgeRequest, sessionId, clientCorrelationId));
+            }, hedgeDelayNanos.getAsLong(), TimeUnit.NANOSECONDS);
+        }
+        return exchange.result;
+    }
+
+    private CompletableFuture<ApiMessage> doSend(int routingCorrelationId,
+                                                 VirtualNodeImpl node,
+                                                 RequestHeaderData header,
+                                                 ApiMessage request,
+                                                 String sessionId,
+                                                 int clientCorrelationId) {
+        if (node.virtualNodeId() == null) {
+            return doSendToAny(routingCorrelationId, node.route(), header, request, sessionId, clientCorrelationId);
+        }
+        return doSendToSpecificNode(routingCorrelationId, node.virtualNodeId(), node.route(), header, request, sessionId, clientCorrelationId);
+    }
+
+    /**
+     * One of the requests of a {@link HedgedExchange}.
+     */
+    private record Attempt(String route, boolean hedge, long sentNanos) {}
+
+    /**
+     * The event-loop-confined state of a single hedged request: the primary request, and
+     * possibly a hedge. The first successful reply completes {@code result}; the other
+     * request, if still in flight, is abandoned so its reply is discarded once its latency
+     * has been recorded.
+     */
+    private final class HedgedExchange {
+        private final CompletableFuture<ApiMessage> result = new CompletableFuture<>();
+        private final Map<Integer, Attempt> inFlight = new HashMap<>(2);
+        private final RequestHedger hedger;
+        private final ApiKeys apiKey;
+        @Nullable
+        private ScheduledFuture<?> hedgeTimer;
+        @Nullable
+        private Throwable firstFailure;
+
+        private HedgedExchange(RequestHedger hedger, ApiKeys apiKey) {
+            this.hedger = hedger;
+            this.apiKey = apiKey;
+        }
+
+        private void track(int routingCorrelationId, String route, boolean hedge, CompletableFuture<ApiMessage> future) {
+            var attempt = new Attempt(route, hedge, hedger.nanoTime());
+            inFlight.put(routingCorrelationId, attempt);
+            var unused = future.whenComplete((response, error) -> onReply(routingCorrelationId, attempt, response, error));
+        }
+
+        private void onReply(int routingCorrelationId, Attempt attempt, @Nullable ApiMessage response, @Nullable Throwable error) {
+            inFlight.remove(routingCorrelationId);
+            if (result.isDone()) {
+                return;
+            }
+            if (error != null) {
+                if (firstFailure == null) {
+                    firstFailure = error;
+                }
+                // Hedging covers slow replies, not failures: only wait if the other request is in flight
+                if (inFlight.isEmpty()) {
+                    cancelHedgeTimer();
+                    result.completeExceptionally(firstFailure);
+                }
+                return;
+            }
+            cancelHedgeTimer();
+            // the loser's latency is recorded too when its reply arrives, otherwise the latency
+            // distribution would be missing the slow replies which caused the hedges
+            inFlight.forEach((loser, loserAttempt) -> {
+                if (pendingResponses.remove(loser) != null) {
+                    abandon(loser, () -> recordReply(loserAttempt, false));
+                }
+            });
+            inFlight.clear();
+            recordReply(attempt, attempt.hedge());
+            result.complete(response);
+        }
+
+        private void recordReply(Attempt attempt, boolean hedgeWon) {
+            hedger.recordReply(attempt.route(), apiKey, hedger.nanoTime() - attempt.sentNanos(), hedgeWon);
+        }
+
+        private void abandon(int routingCorrelationId, Runnable onReply) {
+            if (abandonedResponses.size() >= MAX_ABANDONED_RESPONSES) {
+                var oldest = abandonedResponses.keySet().iterator();
+                oldest.next();
+                oldest.remove();
+            }
+            abandonedResponses.put(routingCorrelationId, onReply);
+        }
+
+        private void cancelHedgeTimer() {
+            if (hedgeTimer != null) {
+                hedgeTimer.cancel(false);
+            }
+        }
+    }
+
     private static LoggingEventBuilder withSendContext(LoggingEventBuilder event, String virtualClusterName, String sessionId, String route, int clientCorrelationId) {
         return event.addKeyValue("virtualCluster", virtualClusterName)
                 .addKeyValue("sessionId", sessionId)
@@ -447,6 +691,18 @@ public class RouterDispatchHandler extends ChannelDuplexHandler {
     }
 
     // post transformation of ids into virtual ids
+    private void updateTopologyCache(String route, @Nullable TopologyCache.CoordinatorRequest coordinatorRequest, ApiMessage body) {
+        if (topologyCache != null) {
+            topologyCache.onResponse(route, coordinatorRequest, body);
+        }
+    }
+
+    // captured when the request is sent, because per-route filters may modify the request in place
+    @Nullable
+    private TopologyCache.CoordinatorRequest coordinatorRequest(ApiMessage request) {
+        return topologyCache == null ? null : TopologyCache.coordinatorRequest(request);
+    }
+
     private void cacheNodeAddressesIfMetadata(Object body) {
         if (body instanceof MetadataResponseData md) {
             for (var broker : md.brokers()) {
@@ -0,0 +1,282 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.kroxylicious.proxy.internal.routing;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import org.apache.kafka.common.Uuid;
+import org.apache.kafka.common.message.AddOffsetsToTxnRequestData;
+import org.apache.kafka.common.message.AddOffsetsToTxnResponseData;
+import org.apache.kafka.common.message.ConsumerGroupHeartbeatRequestData;
+import org.apache.kafka.common.message.ConsumerGroupHeartbeatResponseData;
+import org.apache.kafka.common.message.EndTxnRequestData;
+import org.apache.kafka.common.message.EndTxnResponseData;
+import org.apache.kafka.common.message.FindCoordinatorRequestData;
+import org.apache.kafka.common.message.FindCoordinatorResponseData;
+import org.apache.kafka.common.message.HeartbeatRequestData;
+import org.apache.kafka.common.message.HeartbeatResponseData;
+import org.apache.kafka.common.message.JoinGroupRequestData;
+import org.apache.kafka.common.message.JoinGroupResponseData;
+import org.apache.kafka.common.message.LeaveGroupRequestData;
+import org.apache.kafka.common.message.LeaveGroupResponseData;
+import org.apache.kafka.common.message.MetadataResponseData;
+import org.apache.kafka.common.message.OffsetCommitRequestData;
+import org.apache.kafka.common.message.OffsetCommitResponseData;
+import org.apache.kafka.common.message.SyncGroupRequestData;
+import org.apache.kafka.common.message.SyncGroupResponseData;
+import org.apache.kafka.common.message.TxnOffsetCommitRequestData;
+import org.apache.kafka.common.message.TxnOffsetCommitResponseData;
+import org.apache.kafka.common.protocol.ApiMessage;
+import org.apache.kafka.common.protocol.Errors;
+import org.apache.kafka.common.requests.FindCoordinatorRequest.CoordinatorType;
+
+import io.kroxylicious.proxy.topology.BrokerInfo;
+import io.kroxylicious.proxy.topology.PartitionInfo;
+import io.kroxylicious.proxy.topology.TopologyService;
+import io.kroxylicious.proxy.topology.VirtualNode;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+/**
+ * The topology cache shared by all connections through one router level of one virtual cluster.
+ *
+ * <p>Instances are created by {@link io.kroxylicious.proxy.bootstrap.RouterChainFactory} the first
+ * time a router calls {@link io.kroxylicious.proxy.router.RouterFactoryContext#topologyService()}
+ * and are populated by {@link RouterDispatchHandler} from METADATA responses before their node IDs
+ * are translated, so cached nodes are {@link VirtualNodeImpl}s carrying the route and the
+ * target-cluster node ID, exactly as {@link io.kroxylicious.proxy.router.RouterContext#nodeForId}
+ * produces them.</p>
+ *
+ * <p>Coordinators are learned from FIND_COORDINATOR responses, whether the client or a router
+ * sent the request, and are forgotten when a response to a coordinator request reports
+ * {@code NOT_COORDINATOR} or {@code COORDINATOR_NOT_AVAILABLE}. Since the key type (and, before
+ * version 4, the key) of a FIND_COORDINATOR request is not in its response, the dispatch handler
+ * captures them as a {@link CoordinatorRequest} when the request is sent.</p>
+ *
+ * <p>The cache is additive: a response replaces the entries for the topics, brokers and
+ * coordinators it describes and leaves all others untouched. It is thread-safe.</p>
+ */
+public final class TopologyCache {
+
+    record TopicEntry(Uuid topicId, Map<Integer, PartitionInfo> partitions) {}
+
+    private record RouteTopic(String route, String topicName) {}
+
+    private record RouteTopicId(String route, Uuid topicId) {}
+
+    private record CoordinatorKey(String route, byte keyType, String key) {}
+
+    /**
+     * What a request asked of, or told, a coordinator.
+     *
+     * @param keyType the coordinator key type, 0 for group, 1 for transaction
+     * @param key the single key the request concerns, or null for a batched FIND_COORDINATOR request,
+     * whose response carries its keys
+     */
+    record CoordinatorRequest(byte keyType, @Nullable String key) {}
+
+    private final Map<RouteTopic, TopicEntry> topics = new ConcurrentHashMap<>();
+    private final Map<VirtualNodeImpl, BrokerInfo> brokers = new ConcurrentHashMap<>();
+    private final Map<RouteTopicId, String> topicNames = new ConcurrentHashMap<>();
+    private final Map<CoordinatorKey, VirtualNodeImpl> coordinators = new ConcurrentHashMap<>();
+
+    /**
+     * Returns a topology service backed by this cache that is not bound to any connection,
+     * so it answers cache lookups but cannot discover.
+     *
+     * @return the topology service
+     */
+    public TopologyService unboundService() {
+        return new TopologyServiceImpl(this);
+    }
+
+    /**
+     * Returns the coordinator context of a request, if it has one.
+     *
+     * @param request the request, before it is sent
+     * @return the coordinator context, or null if the request does not concern a coordinator
+     */
+    @Nullable
+    static CoordinatorRequest coordinatorRequest(ApiMessage request) {
+        return switch (request) {
+            case FindCoordinatorRequestData findCoordinator -> new CoordinatorRequest(findCoordinator.keyType(),
+                    findCoordinator.coordinatorKeys().isEmpty() ? findCoordinator.key() : null);
+            case JoinGroupRequestData joinGroup -> group(joinGroup.groupId());
+            case SyncGroupRequestData syncGroup -> group(syncGroup.groupId());
+            case HeartbeatRequestData heartbeat -> group(heartbeat.groupId());
+            case LeaveGroupRequestData leaveGroup -> group(leaveGroup.groupId());
+            case OffsetCommitRequestData offsetCommit -> group(offsetCommit.groupId());
+            case ConsumerGroupHeartbeatRequestData heartbeat -> group(heartbeat.groupId());
+            case TxnOffsetCommitRequestData txnOffsetCommit -> group(txnOffsetCommit.groupId());
+            case AddOffsetsToTxnRequestData addOffsets -> transaction(addOffsets.transactionalId());
+            case EndTxnRequestData endTxn -> transaction(endTxn.transactionalId());
+            default -> null;
+        };
+    }
+
+    private static CoordinatorRequest group(String groupId) {
+        return new CoordinatorRequest(CoordinatorType.GROUP.id(), groupId);
+    }
+
+    private static CoordinatorRequest transaction(String transactionalId) {
+        return new CoordinatorRequest(CoordinatorType.TRANSACTION.id(), transactionalId);
+    }
+
+    /**
+     * Updates the cache from a response received on the given route. Responses other than
+     * METADATA, and responses to coordinator requests, are ignored.
+     *
+     * @param route the route the response was received from
+     * @param coordinatorRequest the coordinator context of the request, or null if it has none
+     * @param body the untranslated response body
+     */
+    void onResponse(String route, @Nullable CoordinatorRequest coordinatorRequest, ApiMessage body) {
+        if (body instanceof MetadataResponseData metadata) {
+            onMetadataResponse(route, metadata);
+        }
+        else if (coordinatorRequest != null) {
+            if (body instanceof FindCoordinatorResponseData findCoordinator) {
+                onFindCoordinatorResponse(route, coordinatorRequest, findCoordinator);
+            }
+            else if (coordinatorRequest.key() != null && isCoordinatorError(errorCodes(body))) {
+                coordinators.remove(new CoordinatorKey(route, coordinatorRequest.keyType(), coordinatorRequest.key()));
+            }
+        }
+    }
+
+    void onResponse(String route, ApiMessage body) {
+        onResponse(route, null, body);
+    }
+
+    private void onFindCoordinatorResponse(String route, CoordinatorRequest request, FindCoordinatorResponseData response) {
+        if (response.coordinators().isEmpty()) {
+            // versions before 4 look up the single key of the request
+            if (request.key() != null) {
+                onCoordinator(new CoordinatorKey(route, request.keyType(), request.key()), response.errorCode(), response.nodeId());
+            }
+            return;
+        }
+        for (var coordinator : response.coordinators()) {
+            onCoordinator(new CoordinatorKey(route, request.keyType(), coordinator.key()), coordinator.errorCode(), coordinator.nodeId());
+        }
+    }
+
+    private void onCoordinator(CoordinatorKey key, short errorCode, int nodeId) {
+        if (errorCode == Errors.NONE.code() && nodeId >= 0) {
+            coordinators.put(key, new VirtualNodeImpl(key.route(), nodeId));
+        }
+        else if (isCoordinatorError(IntStream.of(errorCode))) {
+            coordinators.remove(key);
+        }
+    }
+
+    private static boolean isCoordinatorError(IntStream errorCodes) {
+        return errorCodes.anyMatch(errorCode -> errorCode == Errors.NOT_COORDINATOR.code() || errorCode == Errors.COORDINATOR_NOT_AVAILABLE.code());
+    }
+
+    private static IntStream errorCodes(ApiMessage response) {
+        return switch (response) {
+            case JoinGroupResponseData joinGroup -> IntStream.of(joinGroup.errorCode());
+            case SyncGroupResponseData syncGroup -> IntStream.of(syncGroup.errorCode());
+            case HeartbeatResponseData heartbeat -> IntStream.of(heartbeat.errorCode());
+            case LeaveGroupResponseData leaveGroup -> IntStream.of(leaveGroup.errorCode());
+            case ConsumerGroupHeartbeatResponseData heartbeat -> IntStream.of(heartbeat.errorCode());
+            case AddOffsetsToTxnResponseData addOffsets -> IntStream.of(addOffsets.errorCode());
+            case EndTxnResponseData endTxn -> IntStream.of(endTxn.errorCode());
+            case OffsetCommitResponseData offsetCommit -> offsetCommit.topics().stream()
+                    .flatMap(topic -> topic.partitions().stream())
+                    .mapToInt(OffsetCommitResponseData.OffsetCommitResponsePartition::errorCode);
+            case TxnOffsetCommitResponseData txnOffsetCommit -> txnOffsetCommit.topics().stream()
+                    .flatMap(topic -> topic.partitions().stream())
+                    .mapToInt(TxnOffsetCommitResponseData.TxnOffsetCommitResponsePartition::errorCode);
+            default -> IntStream.empty();
+        };
+    }
+
+    private void onMetadataResponse(String route, MetadataResponseData metadata) {
+        for (var broker : metadata.brokers()) {
+            brokers.put(new VirtualNodeImpl(route, broker.nodeId()), new BrokerInfo(broker.host(), broker.port(), broker.rack()));
+        }
+        for (var topic : metadata.topics()) {
+            if (topic.errorCode() != Errors.NONE.code() || topic.name() == null) {
+                continue;
+            }
+            Map<Integer, PartitionInfo> partitions = new HashMap<>(topic.partitions().size());
+            for (var partition : topic.partitions()) {
+                if (partition.leaderId() < 0) {
+                    continue;
+                }
+                partitions.put(partition.partitionIndex(), new PartitionInfo(
+                        new VirtualNodeImpl(route, partition.leaderId()),
+                        nodes(route, partition.replicaNodes()),
+                        nodes(route, partition.isrNodes())));
+            }
+            topics.put(new RouteTopic(route, topic.name()), new TopicEntry(topic.topicId(), Map.copyOf(partitions)));
+            if (!Uuid.ZERO_UUID.equals(topic.topicId())) {
+                topicNames.put(new RouteTopicId(route, topic.topicId()), topic.name());
+            }
+        }
+    }
+
+    private static List<VirtualNode> nodes(String route, List<Integer> nodeIds) {
+        List<VirtualNode> nodes = new ArrayList<>(nodeIds.size());
+        for (int nodeId : nodeIds) {
+            nodes.add(new VirtualNodeImpl(route, nodeId));
+        }
+        return nodes;
+    }
+
+    @Nullable
+    TopicEntry topic(String route, String topicName) {
+        return topics.get(new RouteTopic(route, topicName));
+    }
+
+    /**
+     * Looks the topic up on every route, which is only unambiguous when a single route has it cached.
+     */
+    Optional<PartitionInfo> partitionInfo(String topicName, int partitionIndex) {
+        TopicEntry found = null;
+        for (Map.Entry<RouteTopic, TopicEntry> entry : topics.entrySet()) {
+            if (entry.getKey().topicName().equals(topicName)) {
+                if (found != null) {
+                    return Optional.empty();
+                }
+                found = entry.getValue();
+            }
+        }
+        return found == null ? Optional.empty() : Optional.ofNullable(found.partitions().get(partitionIndex));
+    }
+
+    Optional<PartitionInfo> partitionInfo(String route, String topicName, int partitionIndex) {
+        TopicEntry entry = topic(route, topicName);
+        return entry == null ? Optional.empty() : Optional.ofNullable(entry.partitions().get(partitionIndex));
+    }
+
+    Optional<BrokerInfo> brokerInfo(VirtualNode node) {
+        return Optional.ofNullable(brokers.get(node));
+    }
+
+    Optional<String> topicName(String route, Uuid topicId) {
+        return Optional.ofNullable(topicNames.get(new RouteTopicId(route, topicId)));
+    }
+
+    Optional<VirtualNode> coordinator(String route, byte keyType, String key) {
+        return Optional.ofNullable(coordinators.get(new CoordinatorKey(route, keyType, key)));
+    }
+
+    void invalidateRoute(String route) {
+        topics.keySet().removeIf(key -> key.route().equals(route));
+        brokers.keySet().removeIf(node -> node.route().equals(route));
+        topicNames.keySet().removeIf(key -> key.route().equals(route));
+        coordinators.keySet().removeIf(key -> key.route().equals(route));
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.kroxylicious.proxy.internal.routing;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import org.apache.kafka.common.TopicPartition;
+import org.apache.kafka.common.Uuid;
+import org.apache.kafka.common.message.FindCoordinatorRequestData;
+import org.apache.kafka.common.message.MetadataRequestData;
+import org.apache.kafka.common.message.RequestHeaderData;
+import org.apache.kafka.common.protocol.ApiKeys;
+import org.apache.kafka.common.protocol.ApiMessage;
+
+import io.kroxylicious.proxy.topology.BrokerInfo;
+import io.kroxylicious.proxy.topology.Coordinators;
+import io.kroxylicious.proxy.topology.PartitionInfo;
+import io.kroxylicious.proxy.topology.PartitionLeaders;
+import io.kroxylicious.proxy.topology.TopologyService;
+import io.kroxylicious.proxy.topology.VirtualNode;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+/**
+ * Per-connection {@link TopologyService} backed by the shared {@link TopologyCache}.
+ *
+ * <p>Discovery requests are sent on the connection's {@link RouterDispatchHandler}, which
+ * populates the cache from the responses before completing them. An instance that was never
+ * bound to a handler (such as the one handed out during
+ * {@link io.kroxylicious.proxy.router.RouterFactory#initialize}) answers cache lookups but
+ * fails discovery.</p>
+ *
+ * <p>Discovery only sends requests for what the cache cannot answer: the topics whose leaders
+ * are not cached, and, in a single FIND_COORDINATOR request, the keys whose coordinators are
+ * not cached.</p>
+ */
+final class TopologyServiceImpl implements TopologyService {
+
+    // Version 12 was the first version that uses topic ids.
+    private static final short METADATA_VERSION = 12;
+    // Version 4 was the first version that supports batched lookup.
+    private static final short FIND_COORDINATOR_VERSION = 4;
+
+    private final TopologyCache cache;
+    @Nullable
+    private volatile RouterDispatchHandler handler;
+
+    TopologyServiceImpl(TopologyCache cache) {
+        this.cache = Objects.requireNonNull(cache, "cache");
+    }
+
+    void bind(RouterDispatchHandler handler) {
+        this.handler = handler;
+    }
+
+    @Override
+    public CompletionStage<PartitionLeaders> leaders(Map<String, Set<String>> topicsByRoute) {
+        List<CompletableFuture<ApiMessage>> lookups = new ArrayList<>();
+        topicsByRoute.forEach((route, topics) -> {
+            List<MetadataRequestData.MetadataRequestTopic> missing = topics.stream()
+                    .filter(topic -> !isCached(route, topic))
+                    .map(topic -> new MetadataRequestData.MetadataRequestTopic().setName(topic))
+                    .toList();
+            if (!missing.isEmpty()) {
+                lookups.add(sendMetadataRequest(route, missing));
+            }
+        });
+        return CompletableFuture.allOf(lookups.toArray(CompletableFuture[]::new))
+                .thenApply(ignored -> leadersSnapshot(topicsByRoute));
+    }
+
+    private boolean isCached(String route, String topic) {
+        return cache.topic(route, topic) != null;
+    }
+
+    private PartitionLeaders leadersSnapshot(Map<String, Set<String>> topicsByRoute) {
+        Map<TopicPartition, VirtualNode> leaders = new HashMap<>();
+        topicsByRoute.forEach((route, topics) -> {
+            for (String topic : topics) {
+                TopologyCache.TopicEntry entry = cache.topic(route, topic);
+                if (entry != null) {
+                    entry.partitions().forEach((partition, info) -> leaders.put(new TopicPartition(topic, partition), info.leader()));
+                }
+            }
+        });
+        return new LeadersSnapshot(leaders);
+    }
+
+    @Override
+    public CompletionStage<Coordinators> coordinators(String route, byte keyType, Set<String> keys) {
+        List<String> missing = keys.stream()
+                .filter(key -> cache.coordinator(route, keyType, key).isEmpty())
+                .toList();
+        if (missing.isEmpty()) {
+            return CompletableFuture.completedFuture(coordinatorsSnapshot(route, keyType, keys));
+        }
+        RouterDispatchHandler boundHandler = handler;
+        if (boundHandler == null) {
+            return unbound();
+        }
+        // the handler learns the coordinators from the response before completing it
+        var request = new FindCoordinatorRequestData()
+                .setKeyType(keyType)
+                .setCoordinatorKeys(missing);
+        return boundHandler.sendDiscoveryRequest(route, header(ApiKeys.FIND_COORDINATOR, FIND_COORDINATOR_VERSION), request)
+                .thenApply(ignored -> coordinatorsSnapshot(route, keyType, keys));
+    }
+
+    private Coordinators coordinatorsSnapshot(String route, byte keyType, Set<String> keys) {
+        Map<String, VirtualNode> coordinators = new HashMap<>();
+        for (String key : keys) {
+            cache.coordinator(route, keyType, key).ifPresent(node -> coordinators.put(key, node));
+        }
+        return new CoordinatorsSnapshot(coordinators);
+    }
+
+    @Override
+    public CompletionStage<Map<Uuid, String>> topicNames(String route, Set<Uuid> topicIds) {
+        List<MetadataRequestData.MetadataRequestTopic> missing = topicIds.stream()
+                .filter(topicId -> cache.topicName(route, topicId).isEmpty())
+                .map(topicId -> new MetadataRequestData.MetadataRequestTopic().setTopicId(topicId))
+                .toList();
+        CompletableFuture<?> lookup = missing.isEmpty() ? CompletableFuture.completedFuture(null) : sendMetadataRequest(route, missing);
+        return lookup.thenApply(ignored -> {
+            Map<Uuid, String> names = new HashMap<>(topicIds.size());
+            for (Uuid topicId : topicIds) {
+                cache.topicName(route, topicId).ifPresent(name -> names.put(topicId, name));
+            }
+            return Map.copyOf(names);
+        });
+    }
+
+    @Override
+    public Optional<PartitionInfo> partitionInfo(String topicName, int partitionIndex) {
+        return cache.partitionInfo(topicName, partitionIndex);
+    }
+
+    @Override
+    public Optional<PartitionInfo> partitionInfo(String route, String topicName, int partitionIndex) {
+        return cache.partitionInfo(route, topicName, partitionIndex);
+    }
+
+    @Override
+    public Optional<BrokerInfo> brokerInfo(VirtualNode node) {
+        return cache.brokerInfo(node);
+    }
+
+    @Override
+    public void invalidateRoute(String route) {
+        cache.invalidateRoute(route);
+    }
+
+    private CompletableFuture<ApiMessage> sendMetadataRequest(String route, List<MetadataRequestData.MetadataRequestTopic> topics) {
+        RouterDispatchHandler boundHandler = handler;
+        if (boundHandler == null) {
+            return unbound();
+        }
+        var request = new MetadataRequestData()
+                .setTopics(topics)
+                .setAllowAutoTopicCreation(false)
+                .setIncludeClusterAuthorizedOperations(false)
+                .setIncludeTopicAuthorizedOperations(false);
+        return boundHandler.sendDiscoveryRequest(route, header(ApiKeys.METADATA, METADATA_VERSION), request).toCompletableFuture();
+    }
+
+    private static RequestHeaderData header(ApiKeys apiKey, short apiVersion) {
+        return new RequestHeaderData()
+                .setRequestApiKey(apiKey.id)
+                .setRequestApiVersion(apiVersion);
+    }
+
+    private static <T> CompletableFuture<T> unbound() {
+        return CompletableFuture.failedFuture(new IllegalStateException(
+                "Discovery is only available from the TopologyService obtained while creating a router"));
+    }
+
+    private record LeadersSnapshot(Map<TopicPartition, VirtualNode> leaders) implements PartitionLeaders {
+        @Override
+        public Optional<VirtualNode> leaderOf(String topicName, int partitionIndex) {
+            return Optional.ofNullable(leaders.get(new TopicPartition(topicName, partitionIndex)));
+        }
+    }
+
+    private record CoordinatorsSnapshot(Map<String, VirtualNode> coordinators) implements Coordinators {
+        @Override
+        public Optional<VirtualNode> coordinatorFor(String key) {
+            return Optional.ofNullable(coordinators.get(key));
+        }
+    }
+}
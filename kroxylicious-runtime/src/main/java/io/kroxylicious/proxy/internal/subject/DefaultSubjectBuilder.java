@@ -6,22 +6,52 @@
 
 package io.kroxylicious.proxy.internal.subject;
 
+import java.security.cert.X509Certificate;
 import java.util.List;
+import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.stream.Collectors;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
 import io.kroxylicious.proxy.authentication.Principal;
 import io.kroxylicious.proxy.authentication.SaslSubjectBuilder;
 import io.kroxylicious.proxy.authentication.Subject;
 import io.kroxylicious.proxy.authentication.TransportSubjectBuilder;
+import io.kroxylicious.proxy.tag.VisibleForTesting;
+import io.kroxylicious.proxy.tls.ClientTlsContext;
 
+/**
+ * <p>Builds subjects by applying a list of {@link PrincipalAdder}s to the connection's context.</p>
+ *
+ * <p>Clients which reconnect present the same identity again, so the subjects that have been built are cached,
+ * keyed by the client certificate for a transport subject, or by the SASL authorization id for a SASL subject.
+ * These are the only inputs to the extractors which the subject builder services support.
+ * The cache belongs to the builder, so it is discarded along with the builder when the configuration is reloaded.</p>
+ */
 public class DefaultSubjectBuilder implements TransportSubjectBuilder, SaslSubjectBuilder {
+
+    /**
+     * The maximum number of subjects which are cached.
+     */
+    static final long DEFAULT_SUBJECT_CACHE_MAX_SIZE = 1000L;
+
     private final List<PrincipalAdder> adders;
+    private final Cache<Object, Subject> subjects;
 
     public DefaultSubjectBuilder(List<PrincipalAdder> adders) {
+        this(adders, DEFAULT_SUBJECT_CACHE_MAX_SIZE);
+    }
+
+    @VisibleForTesting
+    DefaultSubjectBuilder(List<PrincipalAdder> adders, long subjectCacheMaxSize) {
         this.adders = adders;
+        this.subjects = Caffeine.newBuilder()
+                .maximumSize(subjectCacheMaxSize)
+                .build();
     }
 
     @Override
@@ -30,10 +60,11 @@ public class DefaultSubjectBuilder implements TransportSubjectBuilder, SaslSubje
             if (adders.isEmpty()) {
                 return CompletableFuture.completedFuture(Subject.anonymous());
             }
-            Set<Principal> collect = adders.stream()
-                    .flatMap(adder -> adder.createPrincipals(context))
-                    .collect(Collectors.toSet());
-            return CompletableFuture.completedStage(new Subject(collect));
+            Optional<X509Certificate> clientCertificate = context.clientTlsContext().flatMap(ClientTlsContext::clientCertificate);
+            if (clientCertificate.isEmpty()) {
+                return CompletableFuture.completedStage(buildSubject(context));
+            }
+            return CompletableFuture.completedStage(subjects.get(clientCertificate.get(), certificate -> buildSubject(context)));
         }
         catch (Exception e) {
             return CompletableFuture.failedStage(e);
@@ -43,13 +74,23 @@ public class DefaultSubjectBuilder implements TransportSubjectBuilder, SaslSubje
     @Override
     public CompletionStage<Subject> buildSaslSubject(SaslSubjectBuilder.Context context) {
         try {
-            Set<Principal> collect = adders.stream()
-                    .flatMap(lal -> lal.createPrincipals(context))
-                    .collect(Collectors.toSet());
-            return CompletableFuture.completedStage(new Subject(collect));
+            return CompletableFuture.completedStage(subjects.get(context.clientSaslContext().authorizationId(), authorizationId -> buildSubject(context)));
         }
         catch (Exception e) {
             return CompletableFuture.failedStage(e);
         }
     }
+
+    private Subject buildSubject(Object context) {
+        Set<Principal> collect = adders.stream()
+                .flatMap(adder -> adder.createPrincipals(context))
+                .collect(Collectors.toSet());
+        return new Subject(collect);
+    }
+
+    @VisibleForTesting
+    long cachedSubjects() {
+        subjects.cleanUp();
+        return subjects.estimatedSize();
+    }
 }
@@ -53,6 +53,10 @@ public class Metrics {
     public static final String FROM_STATE_LABEL = "from";
     public static final String TO_STATE_LABEL = "to";
 
+    // Router labels
+    public static final String ROUTER_LABEL = "router";
+    public static final String CLIENT_RACK_LABEL = "client_rack";
+
     // Base Metric Names
 
     private static final String CLIENT_TO_PROXY_REQUEST_BASE_METER_NAME = "kroxylicious_client_to_proxy_request";
@@ -80,6 +84,10 @@ public class Metrics {
     private static final String VIRTUAL_CLUSTER_STATE_DURATION_NAME = "kroxylicious_virtual_cluster_state_duration_seconds";
     private static final String VIRTUAL_CLUSTER_TRANSITIONS_COUNTER_NAME = "kroxylicious_virtual_cluster_transitions_total";
 
+    // Router metric names
+    private static final String ROUTER_HEDGED_REQUESTS_COUNTER_NAME = "kroxylicious_router_hedged_requests_total";
+    private static final String ROUTER_RACK_AWARE_FETCHES_COUNTER_NAME = "kroxylicious_router_rack_aware_fetches_total";
+
     /**
      * Name of the build_info metric.  Note that the {@code .info} suffix is significant
      * to Micrometer and is used to indicate an 'info' metric to it.  The metric
@@ -441,6 +449,40 @@ public class Metrics {
                 .register(globalRegistry);
     }
 
+    // --- Routers ---
+
+    /**
+     * Counter of hedged router requests, tagged by {@code outcome}: {@code sent} when a
+     * duplicate request was sent to the alternate node, {@code won} when the duplicate's
+     * reply arrived first, and {@code suppressed} when a hedge was due but the hedge
+     * budget was exhausted.
+     */
+    public static Counter routerHedgedRequestsCounter(String clusterName, String routerName, String outcome) {
+        return Counter.builder(ROUTER_HEDGED_REQUESTS_COUNTER_NAME)
+                .description("Count of hedged router requests by outcome.")
+                .tag(VIRTUAL_CLUSTER_LABEL, clusterName)
+                .tag(ROUTER_LABEL, routerName)
+                .tag(OUTCOME_LABEL, outcome)
+                .register(globalRegistry);
+    }
+
+    /**
+     * Counter of FETCH requests routed by a rack-aware router, tagged by the preferred
+     * {@code rack} and by {@code outcome}: {@code hit} when the request was served by an
+     * in-sync replica in that rack, {@code miss} when no such replica was known, and
+     * {@code fallback} when an in-rack replica rejected the request and the router fell
+     * back to the node the client addressed.
+     */
+    public static Counter routerRackAwareFetchesCounter(String clusterName, String routerName, String clientRack, String outcome) {
+        return Counter.builder(ROUTER_RACK_AWARE_FETCHES_COUNTER_NAME)
+                .description("Count of rack-aware router FETCH requests by outcome, and by whether the client declared the proxy's rack, another rack, or none.")
+                .tag(VIRTUAL_CLUSTER_LABEL, clusterName)
+                .tag(ROUTER_LABEL, routerName)
+                .tag(CLIENT_RACK_LABEL, clientRack)
+                .tag(OUTCOME_LABEL, outcome)
+                .register(globalRegistry);
+    }
+
     public static void clear() {
         CLIENT_TO_PROXY_CONNECTION_CACHE.clear();
         PROXY_TO_SERVER_CONNECTION_CACHE.clear();
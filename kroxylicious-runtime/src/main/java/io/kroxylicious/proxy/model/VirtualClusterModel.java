@@ -46,8 +46,10 @@ import io.kroxylicious.proxy.config.tls.TrustOptions;
 import io.kroxylicious.proxy.config.tls.TrustProvider;
 import io.kroxylicious.proxy.internal.filter.impl.TopicNameCacheFilter;
 import io.kroxylicious.proxy.internal.net.EndpointGateway;
+import io.kroxylicious.proxy.internal.routing.ConnectionTopology;
 import io.kroxylicious.proxy.internal.routing.DirectRouting;
 import io.kroxylicious.proxy.internal.routing.DynamicRouting;
+import io.kroxylicious.proxy.internal.routing.RequestHedger;
 import io.kroxylicious.proxy.internal.routing.RoutingModel;
 import io.kroxylicious.proxy.internal.routing.UpstreamClusterModel;
 import io.kroxylicious.proxy.internal.subject.DefaultTransportSubjectBuilderService;
@@ -110,6 +112,9 @@ public class VirtualClusterModel implements AutoCloseable {
     // lazily initialize to delay statistics registration until after the meter registry has been configured
     @Nullable
     private TopicNameCacheFilter topicNameCacheFilter = null;
+    // lazily initialized, then shared by all of this virtual cluster's connections so that its subject cache is too
+    @Nullable
+    private volatile TransportSubjectBuilder transportSubjectBuilder = null;
 
     /**
      * The filter chain factory for <em>this</em> virtual cluster. Owned by the VCM — its
@@ -125,7 +130,7 @@ public class VirtualClusterModel implements AutoCloseable {
                                boolean logFrames,
                                List<NamedFilterDefinition> filters) {
         this(clusterName, new DirectRouting(DirectRouting.routeName(clusterName), targetCluster), logNetwork, logFrames, filters,
-                new CacheConfiguration(null, null, null), null, Duration.ofSeconds(10), null);
+                CacheConfiguration.DEFAULT, null, Duration.ofSeconds(10), null);
     }
 
     @SuppressWarnings("java:S107")
@@ -147,7 +152,7 @@ public class VirtualClusterModel implements AutoCloseable {
         this.drainTimeout = Objects.requireNonNull(drainTimeout);
         this.routing = Objects.requireNonNull(routing);
         this.filterChainFactory = pluginFactoryRegistry != null
-                ? new FilterChainFactory(pluginFactoryRegistry, filters)
+                ? new FilterChainFactory(pluginFactoryRegistry, clusterName, filters)
                 : FilterChainFactory.empty();
     }
 
@@ -162,10 +167,29 @@ public class VirtualClusterModel implements AutoCloseable {
     }
 
     public Router createRouter() {
+        return createRouter(new ConnectionTopology());
+    }
+
+    /**
+     * Creates a router for a client connection, attaching this virtual cluster's topology
+     * cache (if its router uses one) to the connection's topology.
+     */
+    public Router createRouter(ConnectionTopology connectionTopology) {
         if (!(routing instanceof DynamicRouting dr)) {
             throw new IllegalStateException("Virtual cluster '" + clusterName + "' does not use a router");
         }
-        return dr.createRouter(clusterName);
+        return dr.createRouter(clusterName, connectionTopology);
+    }
+
+    /**
+     * Returns the hedging state shared by this virtual cluster's routers, or empty if the
+     * virtual cluster does not use a router or its router did not enable hedging.
+     */
+    public Optional<RequestHedger> requestHedger() {
+        if (!(routing instanceof DynamicRouting dr)) {
+            return Optional.empty();
+        }
+        return dr.requestHedger(clusterName);
     }
 
     public Duration drainTimeout() {
@@ -259,7 +283,8 @@ public class VirtualClusterModel implements AutoCloseable {
 
     /**
      * Closes resources associated with this virtual cluster — the TLS credential supplier
-     * manager(s) held by the routing model and the {@link FilterChainFactory}. Called by
+     * manager(s) held by the routing model, the {@link FilterChainFactory} and the meters of the
+     * {@link TopicNameCacheFilter}. Called by
      * {@code VirtualClusterRegistry} on lifecycle transition into {@code Stopped}. Safe to call
      * multiple times — the FCF's underlying {@code Wrapper.close} is idempotent via an internal
      * {@code AtomicBoolean}, and {@code TlsCredentialSupplierManager.close} tolerates re-entry.
@@ -286,6 +311,9 @@ public class VirtualClusterModel implements AutoCloseable {
                 firstFailure.addSuppressed(e);
             }
         }
+        if (topicNameCacheFilter != null) {
+            topicNameCacheFilter.close();
+        }
         if (firstFailure != null) {
             throw firstFailure;
         }
@@ -378,7 +406,27 @@ public class VirtualClusterModel implements AutoCloseable {
         return Collections.unmodifiableMap(gateways);
     }
 
+    /**
+     * Returns the transport subject builder for this virtual cluster. The builder is created on first use and then
+     * shared by all the virtual cluster's connections, so that subjects it caches are reused when clients reconnect.
+     * @param pfr The plugin factory registry used to create the builder on first use.
+     * @return The transport subject builder.
+     */
     public TransportSubjectBuilder subjectBuilder(PluginFactoryRegistry pfr) {
+        var builder = transportSubjectBuilder;
+        if (builder == null) {
+            synchronized (this) {
+                builder = transportSubjectBuilder;
+                if (builder == null) {
+                    builder = buildSubjectBuilder(pfr);
+                    transportSubjectBuilder = builder;
+                }
+            }
+        }
+        return builder;
+    }
+
+    private TransportSubjectBuilder buildSubjectBuilder(PluginFactoryRegistry pfr) {
         var pf = pfr.pluginFactory(TransportSubjectBuilderService.class);
         String type;
         Object config;
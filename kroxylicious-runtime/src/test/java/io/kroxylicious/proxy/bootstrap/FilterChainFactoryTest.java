@@ -118,6 +118,46 @@ class FilterChainFactoryTest {
                 .isInstanceOf(NullPointerException.class);
     }
 
+    @Test
+    void shouldNameVirtualClusterAndFilterInInitializationContext() {
+        // Given
+        var auditDef = new NamedFilterDefinition("audit", FlakyFactory.class.getName(), new FlakyConfig(null, null, null));
+        try (var fcf = new FilterChainFactory(pfr, "vc1", List.of(auditDef))) {
+
+            var connectionContext = new NettyFilterContext(eventLoop, pfr);
+
+            // When
+            var filters = fcf.createFilters(connectionContext);
+
+            // Then
+            assertThat(filters)
+                    .singleElement()
+                    .extracting(filterAndInvoker -> (FlakyFactory.Filter) filterAndInvoker.filter())
+                    .satisfies(filter -> {
+                        assertThat(filter.getInitializationContext().virtualClusterName()).isEqualTo("vc1");
+                        assertThat(filter.getInitializationContext().filterName()).isEqualTo("audit");
+                        assertThat(filter.getContext()).isSameAs(connectionContext);
+                    });
+        }
+    }
+
+    @Test
+    void shouldRejectVirtualClusterNameWhenChainHasNoVirtualCluster() {
+        // Given
+        var auditDef = new NamedFilterDefinition("audit", FlakyFactory.class.getName(), new FlakyConfig(null, null, null));
+        try (var fcf = new FilterChainFactory(pfr, List.of(auditDef))) {
+
+            // When
+            var filters = fcf.createFilters(new NettyFilterContext(eventLoop, pfr));
+
+            // Then
+            var context = ((FlakyFactory.Filter) filters.get(0).filter()).getInitializationContext();
+            assertThat(context.filterName()).isEqualTo("audit");
+            assertThatThrownBy(context::virtualClusterName)
+                    .isInstanceOf(IllegalStateException.class);
+        }
+    }
+
     @Test
     void nullPluginFactoryRegistryIsRejected() {
         List<NamedFilterDefinition> emptyFilterChain = List.of();
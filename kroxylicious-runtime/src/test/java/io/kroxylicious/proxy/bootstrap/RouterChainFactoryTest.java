@@ -5,6 +5,8 @@
  */
 package io.kroxylicious.proxy.bootstrap;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -24,11 +26,13 @@ import io.kroxylicious.proxy.config.RouteTarget;
 import io.kroxylicious.proxy.config.RouterDefinition;
 import io.kroxylicious.proxy.config.VirtualCluster;
 import io.kroxylicious.proxy.config.VirtualClusterGateway;
+import io.kroxylicious.proxy.internal.routing.ConnectionTopology;
 import io.kroxylicious.proxy.plugin.PluginConfigurationException;
 import io.kroxylicious.proxy.router.Router;
 import io.kroxylicious.proxy.router.RouterFactory;
 import io.kroxylicious.proxy.router.RouterFactoryContext;
 import io.kroxylicious.proxy.service.HostPort;
+import io.kroxylicious.proxy.topology.TopologyService;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -248,6 +252,54 @@ class RouterChainFactoryTest {
         }
     }
 
+    @Test
+    void topologyServiceFromInitializeShouldNotDiscover() {
+        var initTopology = new AtomicReference<TopologyService>();
+        var pfr = testPfrWith(new TestRouterFactory() {
+            @Override
+            public Object initialize(RouterFactoryContext context, Object config) {
+                initTopology.set(context.topologyService());
+                return super.initialize(context, config);
+            }
+        });
+        var rd = new RouterDefinition("myRouter", TestRouterFactory.class.getName(), null, DUMMY_ROUTES);
+        var vc = testVc(VC_NAME, "myRouter");
+        try (var factory = new RouterChainFactory(pfr, List.of(vc), List.of(rd))) {
+            // When
+            var leaders = initTopology.get().leaders(Map.of("route1", Set.of("topic")));
+
+            // Then
+            assertThat(leaders).failsWithin(Duration.ZERO)
+                    .withThrowableThat()
+                    .withCauseInstanceOf(IllegalStateException.class);
+        }
+    }
+
+    @Test
+    void topologyServiceFromCreateRouterShouldBePerConnection() {
+        var routerTopologies = new ArrayList<TopologyService>();
+        var pfr = testPfrWith(new TestRouterFactory() {
+            @Override
+            public Router createRouter(RouterFactoryContext context, Object initializationData) {
+                routerTopologies.add(context.topologyService());
+                routerTopologies.add(context.topologyService());
+                return super.createRouter(context, initializationData);
+            }
+        });
+        var rd = new RouterDefinition("myRouter", TestRouterFactory.class.getName(), null, DUMMY_ROUTES);
+        var vc = testVc(VC_NAME, "myRouter");
+        try (var factory = new RouterChainFactory(pfr, List.of(vc), List.of(rd))) {
+            // When
+            factory.createRouter("myRouter", VC_NAME, new ConnectionTopology());
+            factory.createRouter("myRouter", VC_NAME, new ConnectionTopology());
+
+            // Then
+            assertThat(routerTopologies).hasSize(4);
+            assertThat(routerTopologies.get(1)).isSameAs(routerTopologies.get(0));
+            assertThat(routerTopologies.get(2)).isNotSameAs(routerTopologies.get(0));
+        }
+    }
+
     @Test
     void shouldInitialiseSameRouterSeparatelyPerVirtualCluster() {
         var initCount = new AtomicInteger(0);
@@ -85,6 +85,8 @@ class ConfigParserTest {
                               maxSize: 10000
                               expireAfterWrite: 10h
                               expireAfterAccess: 58m
+                              refreshAfterWrite: 30m
+                              negativeExpireAfterWrite: 30s
                             targetCluster:
                               bootstrapServers: kafka.example:1234
                             gateways:
@@ -223,7 +223,7 @@ class VirtualClusterTest {
     @Test
     void topicNameCacheConfigReturnsExplicitValue() {
         var gateways = List.of(new VirtualClusterGateway("mygateway1", portIdentifiesNode1, null, Optional.empty()));
-        var cacheConfig = new CacheConfiguration(1000, null, null);
+        var cacheConfig = new CacheConfiguration(1000, null, null, null, null);
         var vc = new VirtualCluster("mycluster", targetCluster, null, gateways, false, false, NO_FILTERS, null, cacheConfig, null);
 
         assertThat(vc.topicNameCacheConfig()).isSameAs(cacheConfig);
@@ -5,6 +5,7 @@
  */
 package io.kroxylicious.proxy.internal;
 
+import java.nio.ByteBuffer;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -13,6 +14,7 @@ import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
@@ -56,6 +58,10 @@ import io.kroxylicious.proxy.filter.ApiVersionsResponseFilter;
 import io.kroxylicious.proxy.filter.FetchRequestFilter;
 import io.kroxylicious.proxy.filter.FetchResponseFilter;
 import io.kroxylicious.proxy.filter.FilterContext;
+import io.kroxylicious.proxy.filter.FrameAction;
+import io.kroxylicious.proxy.filter.FrameFilter;
+import io.kroxylicious.proxy.filter.FrameFilterContext;
+import io.kroxylicious.proxy.filter.FrameView;
 import io.kroxylicious.proxy.filter.ProduceRequestFilter;
 import io.kroxylicious.proxy.filter.RequestFilter;
 import io.kroxylicious.proxy.filter.RequestFilterResult;
@@ -1333,4 +1339,201 @@ class FilterHandlerTest extends FilterHarness {
         assertThat(clientConnectionStateMachine.clientSaslContext())
                 .isEmpty();
     }
+
+    @Test
+    void frameFilterSeesOpaqueRequestBuffer() {
+        // Given
+        var seen = new ArrayList<ByteBuffer>();
+        buildChannel(new FrameFilter() {
+            @Override
+            public FrameAction onRequestFrame(FrameView frame, FrameFilterContext context) {
+                assertThat(frame.apiKey()).isEqualTo(ApiKeys.PRODUCE);
+                assertThat(frame.correlationId()).isEqualTo(55);
+                frame.buffer().ifPresent(seen::add);
+                return FrameAction.FORWARD;
+            }
+        });
+
+        // When
+        var frame = writeArbitraryOpaqueRequest(Unpooled.copiedBuffer("opaque", UTF_8));
+
+        // Then
+        var propagated = channel.readInbound();
+        assertThat(propagated).isSameAs(frame);
+        assertThat(seen).singleElement()
+                .satisfies(buffer -> {
+                    assertThat(buffer.isReadOnly()).isTrue();
+                    assertThat(buffer.remaining()).isEqualTo("opaque".length());
+                });
+        frame.releaseBuffer();
+    }
+
+    @Test
+    void frameFilterSeesDecodedRequestWithoutBuffer() {
+        // Given
+        var seen = new ArrayList<FrameView>();
+        buildChannel(new FrameFilter() {
+            @Override
+            public FrameAction onRequestFrame(FrameView frame, FrameFilterContext context) {
+                assertThat(frame.buffer()).isEmpty();
+                seen.add(frame);
+                return FrameAction.FORWARD;
+            }
+        });
+
+        // When
+        var frame = writeRequest(new ApiVersionsRequestData());
+
+        // Then
+        var propagated = channel.readInbound();
+        assertThat(propagated).isSameAs(frame);
+        assertThat(seen).singleElement()
+                .satisfies(view -> {
+                    assertThat(view.apiKey()).isEqualTo(ApiKeys.API_VERSIONS);
+                    assertThat(view.apiVersion()).isEqualTo(frame.apiVersion());
+                    assertThat(view.correlationId()).isEqualTo(frame.correlationId());
+                });
+    }
+
+    @Test
+    void frameFilterCanDropOpaqueRequest() {
+        // Given
+        buildChannel(new FrameFilter() {
+            @Override
+            public FrameAction onRequestFrame(FrameView frame, FrameFilterContext context) {
+                return FrameAction.DROP;
+            }
+        });
+        var opaqueBuf = spy(Unpooled.buffer());
+
+        // When
+        writeArbitraryOpaqueRequest(opaqueBuf);
+
+        // Then
+        assertThat((Object) channel.readInbound()).isNull();
+        assertThat(channel.isOpen()).isTrue();
+        verify(opaqueBuf).release();
+    }
+
+    @Test
+    void frameFilterCanCloseConnectionOnOpaqueRequest() {
+        // Given
+        buildChannel(new FrameFilter() {
+            @Override
+            public FrameAction onRequestFrame(FrameView frame, FrameFilterContext context) {
+                return FrameAction.CLOSE;
+            }
+        });
+        var opaqueBuf = spy(Unpooled.buffer());
+
+        // When
+        writeArbitraryOpaqueRequest(opaqueBuf);
+
+        // Then
+        assertThat((Object) channel.readInbound()).isNull();
+        assertThat(channel.isOpen()).isFalse();
+        verify(opaqueBuf).release();
+    }
+
+    @Test
+    void frameFilterCanForwardResponseAndCloseConnection() {
+        // Given
+        buildChannel(new FrameFilter() {
+            @Override
+            public FrameAction onResponseFrame(FrameView frame, FrameFilterContext context) {
+                return FrameAction.FORWARD_AND_CLOSE;
+            }
+        });
+
+        // When
+        var frame = writeArbitraryOpaqueResponse();
+
+        // Then
+        var propagated = channel.readOutbound();
+        assertThat(propagated).isSameAs(frame);
+        assertThat(channel.isOpen()).isFalse();
+    }
+
+    @Test
+    void frameFilterCanDropDecodedResponse() {
+        // Given
+        buildChannel(new FrameFilter() {
+            @Override
+            public FrameAction onResponseFrame(FrameView frame, FrameFilterContext context) {
+                return FrameAction.DROP;
+            }
+        });
+
+        // When
+        writeResponse(new ApiVersionsResponseData());
+
+        // Then
+        assertThat((Object) channel.readOutbound()).isNull();
+        assertThat(channel.isOpen()).isTrue();
+    }
+
+    @Test
+    void frameFilterExceptionClosesConnection() {
+        // Given
+        buildChannel(new FrameFilter() {
+            @Override
+            public FrameAction onRequestFrame(FrameView frame, FrameFilterContext context) {
+                throw new IllegalStateException("boom");
+            }
+        });
+        var opaqueBuf = spy(Unpooled.buffer());
+
+        // When
+        writeArbitraryOpaqueRequest(opaqueBuf);
+
+        // Then
+        assertThat(channel.isOpen()).isFalse();
+        verify(opaqueBuf).release();
+    }
+
+    @Test
+    void frameWithUnknownApiKeyIsForwardedWithoutInvokingFrameFilter() {
+        // Given
+        var invocations = new AtomicInteger();
+        buildChannel(new FrameFilter() {
+            @Override
+            public FrameAction onRequestFrame(FrameView frame, FrameFilterContext context) {
+                invocations.incrementAndGet();
+                return FrameAction.CLOSE;
+            }
+        });
+        var buffer = Unpooled.buffer();
+        var frame = new OpaqueRequestFrame(buffer, Short.MAX_VALUE, (short) 0, 55, false, buffer.readableBytes(), false);
+
+        // When
+        channel.writeOneInbound(frame);
+
+        // Then
+        var propagated = channel.readInbound();
+        assertThat(propagated).isSameAs(frame);
+        assertThat(channel.isOpen()).isTrue();
+        assertThat(invocations).hasValue(0);
+        frame.releaseBuffer();
+    }
+
+    @Test
+    void frameFilterContextExposesSession() {
+        // Given
+        var sessionIds = new ArrayList<String>();
+        buildChannel(new FrameFilter() {
+            @Override
+            public FrameAction onRequestFrame(FrameView frame, FrameFilterContext context) {
+                sessionIds.add(context.sessionId());
+                assertThat(context.getVirtualClusterName()).isEqualTo("TestVirtualCluster");
+                return FrameAction.FORWARD;
+            }
+        });
+
+        // When
+        writeRequest(new ApiVersionsRequestData());
+
+        // Then
+        assertThat((Object) channel.readInbound()).isNotNull();
+        assertThat(sessionIds).containsExactly(clientConnectionStateMachine.sessionId());
+    }
 }
@@ -0,0 +1,147 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.proxy.internal;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.kafka.common.Uuid;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+
+@ExtendWith(MockitoExtension.class)
+class TopicNameLookupsTest {
+
+    private static final Uuid TOPIC_1 = new Uuid(1L, 1L);
+    private static final Uuid TOPIC_2 = new Uuid(2L, 2L);
+    private static final Duration WINDOW = Duration.ofMillis(5);
+
+    @Mock
+    private ScheduledExecutorService scheduler;
+
+    private final Set<Uuid> cached = new HashSet<>();
+    private final Counter coalesced = Counter.builder("cache.coalesced").register(new SimpleMeterRegistry());
+    private final List<Set<Uuid>> sent = new ArrayList<>();
+    private final List<CompletableFuture<Void>> responses = new ArrayList<>();
+
+    private CompletionStage<?> lookup(Set<Uuid> topicIds) {
+        sent.add(topicIds);
+        var response = new CompletableFuture<Void>();
+        responses.add(response);
+        return response;
+    }
+
+    private Runnable scheduledSend() {
+        ArgumentCaptor<Runnable> captor = ArgumentCaptor.captor();
+        verify(scheduler).schedule(captor.capture(), eq(WINDOW.toNanos()), eq(TimeUnit.NANOSECONDS));
+        return captor.getValue();
+    }
+
+    @Test
+    void shouldNotLookUpCachedTopics() {
+        // Given
+        cached.add(TOPIC_1);
+        var lookups = new TopicNameLookups(cached::contains, WINDOW, coalesced);
+
+        // When
+        var result = lookups.awaitLookups(List.of(TOPIC_1), scheduler, this::lookup);
+
+        // Then
+        assertThat(result).isCompleted();
+        assertThat(sent).isEmpty();
+        verifyNoInteractions(scheduler);
+    }
+
+    @Test
+    void shouldBatchColdMissesOverTheWindow() {
+        // Given
+        var lookups = new TopicNameLookups(cached::contains, WINDOW, coalesced);
+        var first = lookups.awaitLookups(List.of(TOPIC_1), scheduler, this::lookup);
+        var second = lookups.awaitLookups(List.of(TOPIC_2), scheduler, this::lookup);
+
+        // When
+        scheduledSend().run();
+
+        // Then
+        assertThat(sent).containsExactly(Set.of(TOPIC_1, TOPIC_2));
+        assertThat(first).isNotDone();
+        assertThat(second).isNotDone();
+        assertThat(coalesced.count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void shouldJoinLookupInFlight() {
+        // Given
+        var lookups = new TopicNameLookups(cached::contains, Duration.ZERO, coalesced);
+        var first = lookups.awaitLookups(List.of(TOPIC_1), scheduler, this::lookup);
+
+        // When
+        var second = lookups.awaitLookups(List.of(TOPIC_1), scheduler, this::lookup);
+
+        // Then
+        assertThat(sent).containsExactly(Set.of(TOPIC_1));
+        assertThat(second).isNotDone();
+        assertThat(coalesced.count()).isEqualTo(1.0);
+        responses.get(0).complete(null);
+        assertThat(first).isCompleted();
+        assertThat(second).isCompleted();
+        assertThat(lookups.isInFlight(TOPIC_1)).isFalse();
+    }
+
+    @Test
+    void shouldCompleteWhenLookupFails() {
+        // Given
+        var lookups = new TopicNameLookups(cached::contains, Duration.ZERO, coalesced);
+        var result = lookups.awaitLookups(List.of(TOPIC_1, TOPIC_2), scheduler, this::lookup);
+
+        // When
+        responses.get(0).completeExceptionally(new IllegalStateException("boom"));
+
+        // Then
+        assertThat(result).isCompleted();
+        assertThat(lookups.isInFlight(TOPIC_1)).isFalse();
+        assertThat(lookups.isInFlight(TOPIC_2)).isFalse();
+    }
+
+    @Test
+    void shouldOpenNewBatchOnceTheWindowHasClosed() {
+        // Given
+        var lookups = new TopicNameLookups(cached::contains, WINDOW, coalesced);
+        var first = lookups.awaitLookups(List.of(TOPIC_1), scheduler, this::lookup);
+        scheduledSend().run();
+
+        // When
+        var second = lookups.awaitLookups(List.of(TOPIC_2), scheduler, this::lookup);
+
+        // Then
+        assertThat(first).isNotDone();
+        assertThat(second).isNotDone();
+        verify(scheduler, times(2)).schedule(any(Runnable.class), anyLong(), any());
+        assertThat(coalesced.count()).isZero();
+    }
+}
@@ -24,6 +24,8 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import io.netty.channel.EventLoop;
 
 import io.kroxylicious.proxy.filter.FilterContext;
@@ -38,6 +40,7 @@ import static java.util.concurrent.CompletableFuture.failedFuture;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.entry;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -77,6 +80,30 @@ class TopicNameRetrieverTest {
                 });
     }
 
+    @Test
+    void retrieveTopicNamesShouldWaitForLookupInFlight() {
+        // given
+        var lookups = new TopicNameLookups(topicId -> false, Duration.ZERO, Counter.builder("cache.coalesced").register(new SimpleMeterRegistry()));
+        var inFlight = new CompletableFuture<Void>();
+        var lookedUp = lookups.awaitLookups(Set.of(UUID), eventExecutor, topicIds -> inFlight);
+        var coalescingRetriever = new TopicNameRetriever(filterContext, eventExecutor, lookups);
+        CompletionStage<TopicNameMapping> topicNames = coalescingRetriever.topicNames(Set.of(UUID));
+        verify(filterContext, never()).sendRequest(any(), any());
+        MetadataResponseData response = new MetadataResponseData();
+        response.topics().add(getResponseTopic(UUID, TOPIC_NAME));
+        givenSendRequestResponse(completedFuture(response));
+        doAnswer(invocation -> {
+            invocation.<Runnable> getArgument(0).run();
+            return null;
+        }).when(eventExecutor).execute(any());
+        // when
+        inFlight.complete(null);
+        // then
+        assertThat(lookedUp).isCompleted();
+        assertThat(topicNames.toCompletableFuture()).succeedsWithin(Duration.ZERO)
+                .satisfies(topicNamesMapping -> assertThat(topicNamesMapping.topicNames()).containsExactly(entry(UUID, TOPIC_NAME)));
+    }
+
     @Test
     void retrieveTopicNamesRequestHeaderContainsTag() {
         // given
@@ -16,6 +16,7 @@ import org.apache.kafka.common.message.ResponseHeaderData;
 import org.apache.kafka.common.protocol.ApiKeys;
 import org.apache.kafka.common.protocol.ApiMessage;
 import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.MethodSource;
 
@@ -23,6 +24,7 @@ import io.kroxylicious.proxy.filter.ApiVersionsRequestFilter;
 import io.kroxylicious.proxy.filter.ApiVersionsResponseFilter;
 import io.kroxylicious.proxy.filter.Filter;
 import io.kroxylicious.proxy.filter.FilterContext;
+import io.kroxylicious.proxy.filter.FrameFilter;
 import io.kroxylicious.proxy.filter.RequestFilter;
 import io.kroxylicious.proxy.filter.RequestFilterResult;
 import io.kroxylicious.proxy.filter.ResponseFilter;
@@ -50,7 +52,9 @@ class FilterInvokersTest {
         };
         return Stream.of(noFilterSubinterfacesImplemented,
                 new SpecificRequestAndGenericRequestFilter(),
-                new SpecificResponseAndGenericResponseFilter());
+                new SpecificResponseAndGenericResponseFilter(),
+                new FrameAndGenericRequestFilter(),
+                new FrameAndSpecificResponseFilter());
     }
 
     public static Stream<Filter> validFilters() {
@@ -74,7 +78,29 @@ class FilterInvokersTest {
                 responseFilter,
                 new GenericRequestGenericResponseFilter(),
                 new SpecificRequestAndGenericResponseFilter(),
-                new GenericRequestSpecificResponseFilter());
+                new GenericRequestSpecificResponseFilter(),
+                new FrameFilter() {
+                });
+    }
+
+    @Test
+    void frameFilterInvokerNeverRequiresDecoding() {
+        // Given
+        FrameFilter frameFilter = new FrameFilter() {
+        };
+
+        // When
+        var invokers = FilterInvokers.from("frame", frameFilter);
+
+        // Then
+        assertThat(invokers).singleElement()
+                .satisfies(filterAndInvoker -> {
+                    assertThat(filterAndInvoker.filter()).isSameAs(frameFilter);
+                    for (ApiKeys apiKey : ApiKeys.values()) {
+                        assertThat(filterAndInvoker.invoker().shouldHandleRequest(apiKey, apiKey.latestVersion())).isFalse();
+                        assertThat(filterAndInvoker.invoker().shouldHandleResponse(apiKey, apiKey.latestVersion())).isFalse();
+                    }
+                });
     }
 
     static class GenericRequestGenericResponseFilter implements RequestFilter, ResponseFilter {
@@ -171,4 +197,23 @@ class FilterInvokersTest {
         }
     }
 
+    static class FrameAndGenericRequestFilter implements FrameFilter, RequestFilter {
+
+        @Override
+        public CompletionStage<RequestFilterResult> onRequest(ApiKeys apiKey, short apiVersion, RequestHeaderData header, ApiMessage request, FilterContext context) {
+
+            return null;
+        }
+    }
+
+    static class FrameAndSpecificResponseFilter implements FrameFilter, ApiVersionsResponseFilter {
+
+        @Override
+        public CompletionStage<ResponseFilterResult> onApiVersionsResponse(short apiVersion, ResponseHeaderData header, ApiVersionsResponseData response,
+                                                                           FilterContext context) {
+
+            return null;
+        }
+    }
+
 }
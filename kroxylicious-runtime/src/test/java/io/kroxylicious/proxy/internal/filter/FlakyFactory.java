@@ -24,12 +24,14 @@ import io.kroxylicious.proxy.plugin.Plugin;
 public class FlakyFactory implements FilterFactory<FlakyConfig, FlakyConfig> {
 
     private FlakyConfig config;
+    private FilterFactoryContext initializationContext;
 
     @Override
     public FlakyConfig initialize(FilterFactoryContext context, FlakyConfig config) {
         Objects.requireNonNull(context);
         Objects.requireNonNull(config);
         this.config = config;
+        this.initializationContext = context;
         if (config.initializeExceptionMsg() != null) {
             throw new RuntimeException(config.initializeExceptionMsg());
         }
@@ -43,7 +45,7 @@ public class FlakyFactory implements FilterFactory<FlakyConfig, FlakyConfig> {
         if (config.createExceptionMsg() != null) {
             throw new RuntimeException(config.createExceptionMsg());
         }
-        return new Filter(context, this.getClass());
+        return new Filter(context, initializationContext, this.getClass());
     }
 
     @Override
@@ -57,10 +59,12 @@ public class FlakyFactory implements FilterFactory<FlakyConfig, FlakyConfig> {
 
     public static class Filter implements RequestFilter, TestFilter {
         private final FilterFactoryContext context;
+        private final FilterFactoryContext initializationContext;
         private final Class<? extends FilterFactory> contributorClass;
 
-        public Filter(FilterFactoryContext context, Class<? extends FilterFactory> contributorClass) {
+        public Filter(FilterFactoryContext context, FilterFactoryContext initializationContext, Class<? extends FilterFactory> contributorClass) {
             this.context = context;
+            this.initializationContext = initializationContext;
             this.contributorClass = contributorClass;
         }
 
@@ -74,6 +78,10 @@ public class FlakyFactory implements FilterFactory<FlakyConfig, FlakyConfig> {
             return context;
         }
 
+        public FilterFactoryContext getInitializationContext() {
+            return initializationContext;
+        }
+
         @Override
         public ExampleConfig getExampleConfig() {
             return null;
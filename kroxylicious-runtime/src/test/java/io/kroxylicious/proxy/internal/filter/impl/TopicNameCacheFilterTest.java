@@ -11,6 +11,7 @@ import java.time.temporal.ChronoUnit;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.CompletionStage;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.stream.Stream;
 
 import org.apache.kafka.common.Uuid;
@@ -23,6 +24,7 @@ import org.apache.kafka.common.message.RequestHeaderData;
 import org.apache.kafka.common.message.ResponseHeaderData;
 import org.apache.kafka.common.protocol.ApiKeys;
 import org.apache.kafka.common.protocol.ApiMessage;
+import org.apache.kafka.common.protocol.Errors;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -33,6 +35,9 @@ import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+
 import io.kroxylicious.proxy.config.CacheConfiguration;
 import io.kroxylicious.proxy.filter.FilterContext;
 import io.kroxylicious.proxy.filter.RequestFilterResult;
@@ -44,7 +49,9 @@ import io.kroxylicious.proxy.internal.util.RequestHeaderTagger;
 import edu.umd.cs.findbugs.annotations.Nullable;
 
 import static io.kroxylicious.proxy.config.CacheConfiguration.DEFAULT;
+import static io.kroxylicious.proxy.internal.util.Metrics.VIRTUAL_CLUSTER_LABEL;
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -291,7 +298,7 @@ class TopicNameCacheFilterTest {
     @Test
     void expiryConfig() {
         // given
-        CacheConfiguration cacheConfig = new CacheConfiguration(null, Duration.of(10L, ChronoUnit.SECONDS), Duration.of(10L, ChronoUnit.SECONDS));
+        CacheConfiguration cacheConfig = new CacheConfiguration(null, Duration.of(10L, ChronoUnit.SECONDS), Duration.of(10L, ChronoUnit.SECONDS), null, null);
         // when
         TopicNameCacheFilter filter = new TopicNameCacheFilter(cacheConfig, CLUSTER_NAME);
         // then
@@ -306,7 +313,7 @@ class TopicNameCacheFilterTest {
     @Test
     void maxSizeConfig() {
         // given
-        CacheConfiguration cacheConfig = new CacheConfiguration(5, null, null);
+        CacheConfiguration cacheConfig = new CacheConfiguration(5, null, null, null, null);
         // when
         TopicNameCacheFilter filter = new TopicNameCacheFilter(cacheConfig, CLUSTER_NAME);
         // then
@@ -314,4 +321,197 @@ class TopicNameCacheFilterTest {
             assertThat(eviction.getMaximum()).isEqualTo(5L);
         });
     }
+
+    private static MetadataRequestData taggedRequest(RequestHeaderData header, Uuid topicId) {
+        RequestHeaderTagger.tag(header, RequestHeaderTagger.Tag.LEARN_TOPIC_NAMES);
+        MetadataRequestData request = new MetadataRequestData();
+        request.topics().add(new MetadataRequestTopic().setTopicId(topicId));
+        return request;
+    }
+
+    private static MetadataResponseData unknownTopicIdResponse(Uuid topicId) {
+        MetadataResponseData response = new MetadataResponseData();
+        response.topics().add(new MetadataResponseData.MetadataResponseTopic().setTopicId(topicId).setErrorCode(Errors.UNKNOWN_TOPIC_ID.code()));
+        return response;
+    }
+
+    private MetadataResponseData shortCircuitResponse() {
+        ArgumentCaptor<ApiMessage> captor = ArgumentCaptor.forClass(ApiMessage.class);
+        Mockito.verify(requestFilterResultBuilder).shortCircuitResponse(captor.capture());
+        return (MetadataResponseData) captor.getValue();
+    }
+
+    private void givenShortCircuitResponse() {
+        when(filterContext.requestFilterResultBuilder()).thenReturn(requestFilterResultBuilder);
+        when(requestFilterResultBuilder.shortCircuitResponse(Mockito.any())).thenReturn(closeOrTerminalStage);
+        when(closeOrTerminalStage.completed()).thenReturn(CompletableFuture.completedFuture(null));
+    }
+
+    @Test
+    void onMetadataResponseWithUnknownTopicIdInvalidatesName() {
+        // given
+        TopicNameCacheFilter topicNameCacheFilter = new TopicNameCacheFilter(DEFAULT, Map.of(TOPIC_ID, TOPIC_NAME), CLUSTER_NAME);
+        ResponseHeaderData header = new ResponseHeaderData();
+        MetadataResponseData response = unknownTopicIdResponse(TOPIC_ID);
+        // when
+        topicNameCacheFilter.onMetadataResponse(ApiKeys.METADATA.latestVersion(), header, response, filterContext);
+        // then
+        assertThat(topicNameCacheFilter.topicName(TOPIC_ID)).isEmpty();
+        // absences are not cached by default
+        assertThat(topicNameCacheFilter.unknownTopicIdCache).isNull();
+    }
+
+    @Test
+    void onMetadataRequestWithTagAndTopicIdKnownToBeUnknown() {
+        // given
+        CacheConfiguration cacheConfig = new CacheConfiguration(null, null, null, null, Duration.ofSeconds(30));
+        TopicNameCacheFilter topicNameCacheFilter = new TopicNameCacheFilter(cacheConfig, Map.of(TOPIC_ID, TOPIC_NAME), CLUSTER_NAME);
+        Uuid unknownTopicId = Uuid.randomUuid();
+        topicNameCacheFilter.onMetadataResponse(ApiKeys.METADATA.latestVersion(), new ResponseHeaderData(), unknownTopicIdResponse(unknownTopicId), filterContext);
+        RequestHeaderData header = new RequestHeaderData();
+        MetadataRequestData request = taggedRequest(header, TOPIC_ID);
+        request.topics().add(new MetadataRequestTopic().setTopicId(unknownTopicId));
+        givenShortCircuitResponse();
+        // when
+        topicNameCacheFilter.onMetadataRequest(ApiKeys.METADATA.latestVersion(), header, request, filterContext);
+        // then
+        assertThat(shortCircuitResponse().topics()).satisfiesExactly(
+                known -> assertThat(known.name()).isEqualTo(TOPIC_NAME),
+                unknown -> {
+                    assertThat(unknown.topicId()).isEqualTo(unknownTopicId);
+                    assertThat(unknown.errorCode()).isEqualTo(Errors.UNKNOWN_TOPIC_ID.code());
+                });
+        Mockito.verify(filterContext, Mockito.never()).forwardRequest(Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    void unknownTopicIdExpiresAfterNegativeExpireAfterWrite() {
+        // given
+        AtomicLong nanos = new AtomicLong();
+        CacheConfiguration cacheConfig = new CacheConfiguration(null, null, null, null, Duration.ofSeconds(30));
+        TopicNameCacheFilter topicNameCacheFilter = new TopicNameCacheFilter(cacheConfig, Map.of(), CLUSTER_NAME, nanos::get);
+        topicNameCacheFilter.onMetadataResponse(ApiKeys.METADATA.latestVersion(), new ResponseHeaderData(), unknownTopicIdResponse(TOPIC_ID), filterContext);
+        assertThat(topicNameCacheFilter.unknownTopicIdCache.getIfPresent(TOPIC_ID)).isEqualTo(Errors.UNKNOWN_TOPIC_ID);
+        // when
+        nanos.addAndGet(Duration.ofSeconds(30).toNanos());
+        // then
+        assertThat(topicNameCacheFilter.unknownTopicIdCache.getIfPresent(TOPIC_ID)).isNull();
+    }
+
+    @Test
+    void learningTopicNameClearsUnknownTopicId() {
+        // given
+        CacheConfiguration cacheConfig = new CacheConfiguration(null, null, null, null, Duration.ofSeconds(30));
+        TopicNameCacheFilter topicNameCacheFilter = new TopicNameCacheFilter(cacheConfig, CLUSTER_NAME);
+        topicNameCacheFilter.onMetadataResponse(ApiKeys.METADATA.latestVersion(), new ResponseHeaderData(), unknownTopicIdResponse(TOPIC_ID), filterContext);
+        MetadataResponseData response = new MetadataResponseData();
+        response.topics().add(new MetadataResponseData.MetadataResponseTopic().setTopicId(TOPIC_ID).setName(TOPIC_NAME));
+        // when
+        topicNameCacheFilter.onMetadataResponse(ApiKeys.METADATA.latestVersion(), new ResponseHeaderData(), response, filterContext);
+        // then
+        assertThat(topicNameCacheFilter.topicName(TOPIC_ID)).contains(TOPIC_NAME);
+        assertThat(topicNameCacheFilter.unknownTopicIdCache.getIfPresent(TOPIC_ID)).isNull();
+    }
+
+    @Test
+    void onMetadataResponseDoesNotCacheAuthorizationFailures() {
+        // given
+        CacheConfiguration cacheConfig = new CacheConfiguration(null, null, null, null, Duration.ofSeconds(30));
+        TopicNameCacheFilter topicNameCacheFilter = new TopicNameCacheFilter(cacheConfig, Map.of(TOPIC_ID, TOPIC_NAME), CLUSTER_NAME);
+        MetadataResponseData response = new MetadataResponseData();
+        response.topics().add(new MetadataResponseData.MetadataResponseTopic().setTopicId(TOPIC_ID).setErrorCode(Errors.TOPIC_AUTHORIZATION_FAILED.code()));
+        // when
+        topicNameCacheFilter.onMetadataResponse(ApiKeys.METADATA.latestVersion(), new ResponseHeaderData(), response, filterContext);
+        // then
+        assertThat(topicNameCacheFilter.topicName(TOPIC_ID)).contains(TOPIC_NAME);
+        assertThat(topicNameCacheFilter.unknownTopicIdCache.asMap()).isEmpty();
+    }
+
+    @Test
+    void onMetadataRequestWithTagRefreshesStaleNameInBackground() {
+        // given
+        AtomicLong nanos = new AtomicLong();
+        CacheConfiguration cacheConfig = new CacheConfiguration(null, null, null, Duration.ofMinutes(1), null);
+        TopicNameCacheFilter topicNameCacheFilter = new TopicNameCacheFilter(cacheConfig, Map.of(TOPIC_ID, TOPIC_NAME), CLUSTER_NAME, nanos::get);
+        nanos.addAndGet(Duration.ofMinutes(1).toNanos());
+        CompletableFuture<ApiMessage> refresh = new CompletableFuture<>();
+        when(filterContext.sendRequest(Mockito.any(), Mockito.any())).thenReturn(refresh);
+        givenShortCircuitResponse();
+        RequestHeaderData header = new RequestHeaderData();
+        MetadataRequestData request = taggedRequest(header, TOPIC_ID);
+        // when
+        topicNameCacheFilter.onMetadataRequest(ApiKeys.METADATA.latestVersion(), header, request, filterContext);
+        topicNameCacheFilter.onMetadataRequest(ApiKeys.METADATA.latestVersion(), header, request, filterContext);
+        // then
+        // answered from the cache, and refreshed only once while the refresh is in flight
+        Mockito.verify(requestFilterResultBuilder, Mockito.times(2)).shortCircuitResponse(Mockito.any());
+        ArgumentCaptor<ApiMessage> captor = ArgumentCaptor.forClass(ApiMessage.class);
+        Mockito.verify(filterContext).sendRequest(Mockito.any(), captor.capture());
+        assertThat(captor.getValue()).isInstanceOfSatisfying(MetadataRequestData.class,
+                refreshRequest -> assertThat(refreshRequest.topics()).singleElement().extracting(MetadataRequestTopic::topicId).isEqualTo(TOPIC_ID));
+        MetadataResponseData response = new MetadataResponseData();
+        response.topics().add(new MetadataResponseData.MetadataResponseTopic().setTopicId(TOPIC_ID).setName("renamed"));
+        refresh.complete(response);
+        assertThat(topicNameCacheFilter.topicName(TOPIC_ID)).contains("renamed");
+    }
+
+    @Test
+    void onMetadataRequestWithTagRetriesRefreshAfterFailure() {
+        // given
+        AtomicLong nanos = new AtomicLong();
+        CacheConfiguration cacheConfig = new CacheConfiguration(null, null, null, Duration.ofMinutes(1), null);
+        TopicNameCacheFilter topicNameCacheFilter = new TopicNameCacheFilter(cacheConfig, Map.of(TOPIC_ID, TOPIC_NAME), CLUSTER_NAME, nanos::get);
+        nanos.addAndGet(Duration.ofMinutes(1).toNanos());
+        when(filterContext.sendRequest(Mockito.any(), Mockito.any())).thenReturn(CompletableFuture.failedFuture(new IllegalStateException("upstream gone")));
+        givenShortCircuitResponse();
+        RequestHeaderData header = new RequestHeaderData();
+        MetadataRequestData request = taggedRequest(header, TOPIC_ID);
+        // when
+        topicNameCacheFilter.onMetadataRequest(ApiKeys.METADATA.latestVersion(), header, request, filterContext);
+        topicNameCacheFilter.onMetadataRequest(ApiKeys.METADATA.latestVersion(), header, request, filterContext);
+        // then
+        // still answered from the cache, and the failed refresh does not prevent the next one
+        Mockito.verify(requestFilterResultBuilder, Mockito.times(2)).shortCircuitResponse(Mockito.any());
+        Mockito.verify(filterContext, Mockito.times(2)).sendRequest(Mockito.any(), Mockito.any());
+        assertThat(topicNameCacheFilter.topicName(TOPIC_ID)).contains(TOPIC_NAME);
+    }
+
+    @Test
+    void onMetadataRequestWithTagDoesNotRefreshFreshName() {
+        // given
+        AtomicLong nanos = new AtomicLong();
+        CacheConfiguration cacheConfig = new CacheConfiguration(null, null, null, Duration.ofMinutes(1), null);
+        TopicNameCacheFilter topicNameCacheFilter = new TopicNameCacheFilter(cacheConfig, Map.of(TOPIC_ID, TOPIC_NAME), CLUSTER_NAME, nanos::get);
+        givenShortCircuitResponse();
+        RequestHeaderData header = new RequestHeaderData();
+        MetadataRequestData request = taggedRequest(header, TOPIC_ID);
+        // when
+        topicNameCacheFilter.onMetadataRequest(ApiKeys.METADATA.latestVersion(), header, request, filterContext);
+        // then
+        Mockito.verify(filterContext, Mockito.never()).sendRequest(Mockito.any(), Mockito.any());
+    }
+
+    @Test
+    void closeRemovesCoalescedCounter() {
+        // given
+        String clusterName = "closeRemovesCoalescedCounter";
+        TopicNameCacheFilter topicNameCacheFilter = new TopicNameCacheFilter(DEFAULT, clusterName);
+        assertThat(coalescedCounter(clusterName)).isNotNull();
+        // when
+        topicNameCacheFilter.close();
+        // then
+        assertThat(coalescedCounter(clusterName)).isNull();
+    }
+
+    @Nullable
+    private static Counter coalescedCounter(String clusterName) {
+        return Metrics.globalRegistry.find("cache.coalesced").tag(VIRTUAL_CLUSTER_LABEL, clusterName).counter();
+    }
+
+    @Test
+    void nonPositiveRefreshAfterWriteRejected() {
+        assertThatThrownBy(() -> new CacheConfiguration(null, null, null, Duration.ZERO, null))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("refreshAfterWrite");
+    }
 }
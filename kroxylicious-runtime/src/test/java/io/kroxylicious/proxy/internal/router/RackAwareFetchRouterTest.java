@@ -0,0 +1,352 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.proxy.internal.router;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+
+import org.apache.kafka.common.Uuid;
+import org.apache.kafka.common.message.FetchRequestData;
+import org.apache.kafka.common.message.FetchResponseData;
+import org.apache.kafka.common.message.RequestHeaderData;
+import org.apache.kafka.common.protocol.ApiKeys;
+import org.apache.kafka.common.protocol.ApiMessage;
+import org.apache.kafka.common.protocol.Errors;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+import io.kroxylicious.proxy.plugin.PluginConfigurationException;
+import io.kroxylicious.proxy.router.CloseOrTerminalStage;
+import io.kroxylicious.proxy.router.RouterContext;
+import io.kroxylicious.proxy.router.RouterFactoryContext;
+import io.kroxylicious.proxy.router.RouterResponse;
+import io.kroxylicious.proxy.topology.BrokerInfo;
+import io.kroxylicious.proxy.topology.PartitionInfo;
+import io.kroxylicious.proxy.topology.TopologyService;
+import io.kroxylicious.proxy.topology.VirtualNode;
+
+import static io.micrometer.core.instrument.Metrics.globalRegistry;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class RackAwareFetchRouterTest {
+
+    private static final String ROUTE = "route";
+    private static final short FETCH_VERSION = 12;
+
+    private record Node(int id) implements VirtualNode {}
+
+    private static final Node LEADER = new Node(1);
+    private static final Node FOLLOWER_B = new Node(2);
+    private static final Node FOLLOWER_C = new Node(3);
+
+    @Mock
+    private TopologyService topology;
+
+    @Mock
+    private RouterContext context;
+
+    private SimpleMeterRegistry meterRegistry;
+    private RackAwareFetchRouter router;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        globalRegistry.add(meterRegistry);
+        router = new RackAwareFetchRouter(ROUTE, "rack-c", topology, new RackAwareFetchMetrics("vc", "router", "rack-c"));
+        lenient().when(context.virtualNode()).thenReturn(Optional.of(LEADER));
+        lenient().when(context.sessionId()).thenReturn("session");
+        lenient().when(context.respondWith(any(ApiMessage.class))).thenAnswer(invocation -> {
+            CloseOrTerminalStage stage = mock(CloseOrTerminalStage.class);
+            RouterResponse response = mock(RouterResponse.class);
+            when(stage.completed()).thenReturn(CompletableFuture.completedFuture(response));
+            return stage;
+        });
+        lenient().when(topology.brokerInfo(LEADER)).thenReturn(Optional.of(new BrokerInfo("h1", 9092, "rack-a")));
+        lenient().when(topology.brokerInfo(FOLLOWER_B)).thenReturn(Optional.of(new BrokerInfo("h2", 9092, "rack-b")));
+        lenient().when(topology.brokerInfo(FOLLOWER_C)).thenReturn(Optional.of(new BrokerInfo("h3", 9092, "rack-c")));
+        lenient().when(topology.partitionInfo(ROUTE, "topic", 0))
+                .thenReturn(Optional.of(new PartitionInfo(LEADER, List.of(LEADER, FOLLOWER_B, FOLLOWER_C), List.of(LEADER, FOLLOWER_B, FOLLOWER_C))));
+    }
+
+    @AfterEach
+    void tearDown() {
+        meterRegistry.getMeters().forEach(globalRegistry::remove);
+        globalRegistry.remove(meterRegistry);
+    }
+
+    private static FetchRequestData fetch(String rackId, int sessionEpoch) {
+        var fetch = new FetchRequestData().setRackId(rackId).setSessionEpoch(sessionEpoch);
+        fetch.topics().add(new FetchRequestData.FetchTopic().setTopic("topic")
+                .setPartitions(List.of(new FetchRequestData.FetchPartition().setPartition(0))));
+        return fetch;
+    }
+
+    private CompletionStage<RouterResponse> onRequest(short apiVersion, FetchRequestData fetch) {
+        return router.onRequest(ApiKeys.FETCH, apiVersion, new RequestHeaderData(), fetch, context);
+    }
+
+    private static FetchResponseData response(Errors error) {
+        var response = new FetchResponseData();
+        response.responses().add(new FetchResponseData.FetchableTopicResponse().setTopic("topic")
+                .setPartitions(List.of(new FetchResponseData.PartitionData().setPartitionIndex(0).setErrorCode(error.code()))));
+        return response;
+    }
+
+    private void givenReply(VirtualNode node, FetchResponseData response) {
+        when(context.sendRequest(eq(node), any(), any())).thenReturn(CompletableFuture.completedFuture(response));
+    }
+
+    private double count(String clientRack, String outcome) {
+        var counter = meterRegistry.find("kroxylicious_router_rack_aware_fetches_total").tags("client_rack", clientRack, "outcome", outcome).counter();
+        return counter == null ? 0 : counter.count();
+    }
+
+    @Test
+    void shouldRouteAllOtherApiKeysStatically() {
+        assertThat(router.staticRoutes())
+                .doesNotContainKey(ApiKeys.FETCH)
+                .containsEntry(ApiKeys.METADATA, ROUTE)
+                .containsEntry(ApiKeys.PRODUCE, ROUTE);
+    }
+
+    @Test
+    void shouldSendFullFetchToReplicaInClientRack() {
+        // Given
+        var response = response(Errors.NONE);
+        givenReply(FOLLOWER_B, response);
+
+        // When
+        var result = onRequest(FETCH_VERSION, fetch("rack-b", 0));
+
+        // Then
+        assertThat(result).isCompleted();
+        verify(context).respondWith(response);
+        verify(context, never()).sendRequest(eq(LEADER), any(), any());
+        assertThat(count("unmatched", "hit")).isEqualTo(1);
+    }
+
+    @Test
+    void shouldUseProxyRackWhenClientDeclaresNone() {
+        // Given
+        givenReply(FOLLOWER_C, response(Errors.NONE));
+
+        // When
+        var result = onRequest(FETCH_VERSION, fetch("", 0));
+
+        // Then
+        assertThat(result).isCompleted();
+        verify(context).sendRequest(eq(FOLLOWER_C), any(), any());
+        assertThat(count("absent", "hit")).isEqualTo(1);
+    }
+
+    @Test
+    void shouldCountClientDeclaringProxyRackAsMatched() {
+        // Given
+        givenReply(FOLLOWER_C, response(Errors.NONE));
+
+        // When
+        onRequest(FETCH_VERSION, fetch("rack-c", 0));
+
+        // Then
+        assertThat(count("matched", "hit")).isEqualTo(1);
+    }
+
+    @Test
+    void shouldNotCreateMeterPerClientRack() {
+        // Given
+        givenReply(LEADER, response(Errors.NONE));
+
+        // When
+        for (int i = 0; i < 100; i++) {
+            onRequest(FETCH_VERSION, fetch("rack-" + i + "-of-many", 0));
+        }
+
+        // Then
+        assertThat(meterRegistry.find("kroxylicious_router_rack_aware_fetches_total").counters()).hasSize(1);
+        assertThat(count("unmatched", "miss")).isEqualTo(100);
+    }
+
+    @Test
+    void shouldSendToAddressedNodeBeforeFollowerFetchVersion() {
+        // Given
+        givenReply(LEADER, response(Errors.NONE));
+
+        // When
+        var result = onRequest((short) 10, fetch("rack-b", 0));
+
+        // Then
+        assertThat(result).isCompleted();
+        verify(context).sendRequest(eq(LEADER), any(), any());
+        assertThat(count("unmatched", "hit")).isZero();
+        assertThat(count("unmatched", "miss")).isZero();
+    }
+
+    @Test
+    void shouldSendToAddressedNodeWhenNoReplicaInRack() {
+        // Given
+        givenReply(LEADER, response(Errors.NONE));
+
+        // When
+        var result = onRequest(FETCH_VERSION, fetch("rack-z", 0));
+
+        // Then
+        assertThat(result).isCompleted();
+        verify(context).sendRequest(eq(LEADER), any(), any());
+        assertThat(count("unmatched", "miss")).isEqualTo(1);
+    }
+
+    @Test
+    void shouldSendToAddressedNodeWhenPartitionUnknown() {
+        // Given
+        when(topology.partitionInfo(ROUTE, "topic", 0)).thenReturn(Optional.empty());
+        givenReply(LEADER, response(Errors.NONE));
+
+        // When
+        var result = onRequest(FETCH_VERSION, fetch("rack-b", 0));
+
+        // Then
+        assertThat(result).isCompleted();
+        verify(context).sendRequest(eq(LEADER), any(), any());
+        assertThat(count("unmatched", "miss")).isEqualTo(1);
+    }
+
+    @Test
+    void shouldResolveTopicIds() {
+        // Given
+        var topicId = Uuid.randomUuid();
+        when(topology.topicNames(ROUTE, Set.of(topicId))).thenReturn(CompletableFuture.completedFuture(Map.of(topicId, "topic")));
+        var fetch = fetch("rack-b", 0);
+        fetch.topics().iterator().next().setTopic("").setTopicId(topicId);
+        givenReply(FOLLOWER_B, response(Errors.NONE));
+
+        // When
+        var result = onRequest((short) 13, fetch);
+
+        // Then
+        assertThat(result).isCompleted();
+        verify(context).sendRequest(eq(FOLLOWER_B), any(), any());
+    }
+
+    @Test
+    void incrementalFetchShouldStayWithSessionReplica() {
+        // Given
+        givenReply(FOLLOWER_B, response(Errors.NONE));
+        onRequest(FETCH_VERSION, fetch("rack-b", 0));
+        var incremental = new FetchRequestData().setRackId("rack-b").setSessionId(7).setSessionEpoch(1);
+
+        // When
+        var result = onRequest(FETCH_VERSION, incremental);
+
+        // Then
+        assertThat(result).isCompleted();
+        verify(context, never()).sendRequest(eq(LEADER), any(), any());
+        assertThat(count("unmatched", "hit")).isEqualTo(2);
+    }
+
+    @Test
+    void fullFetchShouldFallBackToAddressedNodeOnNotLeaderOrFollower() {
+        // Given
+        givenReply(FOLLOWER_B, response(Errors.NOT_LEADER_OR_FOLLOWER));
+        var leaderResponse = response(Errors.NONE);
+        givenReply(LEADER, leaderResponse);
+
+        // When
+        var result = onRequest(FETCH_VERSION, fetch("rack-b", 0));
+
+        // Then
+        assertThat(result).isCompleted();
+        verify(context).respondWith(leaderResponse);
+        verify(topology).invalidateRoute(ROUTE);
+        assertThat(count("unmatched", "fallback")).isEqualTo(1);
+    }
+
+    @Test
+    void incrementalFetchShouldPassOnNotLeaderOrFollowerAndFallBackAfterwards() {
+        // Given
+        givenReply(FOLLOWER_B, response(Errors.NONE));
+        onRequest(FETCH_VERSION, fetch("rack-b", 0));
+        var rejected = response(Errors.NOT_LEADER_OR_FOLLOWER);
+        givenReply(FOLLOWER_B, rejected);
+        var incremental = new FetchRequestData().setRackId("rack-b").setSessionId(7).setSessionEpoch(1);
+
+        // When
+        var result = onRequest(FETCH_VERSION, incremental);
+
+        // Then
+        assertThat(result).isCompleted();
+        verify(context).respondWith(rejected);
+        verify(context, never()).sendRequest(eq(LEADER), any(), any());
+
+        // And: the next incremental fetch goes to the addressed node
+        givenReply(LEADER, response(Errors.NONE));
+        onRequest(FETCH_VERSION, incremental.setSessionEpoch(2));
+        verify(context).sendRequest(eq(LEADER), any(), any());
+    }
+
+    @Test
+    void shouldRetryOnAddressedNodeWhenReplicaCannotBeReached() {
+        // Given
+        when(context.sendRequest(eq(FOLLOWER_B), any(), any())).thenReturn(CompletableFuture.failedFuture(new IllegalStateException("unknown address")));
+        var leaderResponse = response(Errors.NONE);
+        givenReply(LEADER, leaderResponse);
+
+        // When
+        var result = onRequest(FETCH_VERSION, fetch("rack-b", 0));
+
+        // Then
+        assertThat(result).isCompleted();
+        verify(context).respondWith(leaderResponse);
+    }
+
+    @Test
+    void factoryShouldRejectUnknownRoute() {
+        // Given
+        var factoryContext = mock(RouterFactoryContext.class);
+        when(factoryContext.routeNames()).thenReturn(Set.of("other"));
+        var config = new RackAwareFetchConfig(ROUTE, null);
+        var factory = new RackAwareFetch();
+
+        // When/Then
+        assertThatThrownBy(() -> factory.initialize(factoryContext, config))
+                .isInstanceOf(PluginConfigurationException.class)
+                .hasMessageContaining(ROUTE);
+    }
+
+    @Test
+    void factoryShouldOptInToTopologyService() {
+        // Given
+        var factoryContext = mock(RouterFactoryContext.class);
+        when(factoryContext.routeNames()).thenReturn(Set.of(ROUTE));
+        when(factoryContext.virtualClusterName()).thenReturn("vc");
+        when(factoryContext.routerName()).thenReturn("router");
+
+        // When
+        new RackAwareFetch().initialize(factoryContext, new RackAwareFetchConfig(ROUTE, "rack-a"));
+
+        // Then
+        verify(factoryContext).topologyService();
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.kroxylicious.proxy.internal.routing;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class LatencyHistogramTest {
+
+    private static final long WINDOW_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void emptyHistogramHasNoPercentile() {
+        var histogram = new LatencyHistogram(WINDOW_NANOS, clock::get);
+        assertThat(histogram.sampleCount()).isZero();
+        assertThat(histogram.percentileNanos(0.9)).isEqualTo(-1);
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = { 1, 1023, 1024, 1500, 4096, 1_000_000, 123_456_789, 10_000_000_000L, Long.MAX_VALUE })
+    void upperBoundShouldBoundValueWithinQuarterOctave(long nanos) {
+        int bucket = LatencyHistogram.bucketFor(nanos);
+        long upper = LatencyHistogram.upperBoundNanos(bucket);
+        assertThat(bucket).isBetween(0, LatencyHistogram.BUCKET_COUNT - 1);
+        if (bucket < LatencyHistogram.BUCKET_COUNT - 1) {
+            assertThat(upper).isGreaterThan(nanos);
+            if (bucket > 0) {
+                assertThat(upper).isLessThanOrEqualTo(nanos + nanos / 4 + 1);
+            }
+        }
+    }
+
+    @Test
+    void shouldReportPercentileUpperBound() {
+        var histogram = new LatencyHistogram(WINDOW_NANOS, clock::get);
+        for (int i = 0; i < 94; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        for (int i = 0; i < 6; i++) {
+            histogram.record(TimeUnit.MILLISECONDS.toNanos(100));
+        }
+
+        assertThat(histogram.sampleCount()).isEqualTo(100);
+        assertThat(histogram.percentileNanos(0.9))
+                .isGreaterThan(TimeUnit.MILLISECONDS.toNanos(1))
+                .isLessThan(TimeUnit.MICROSECONDS.toNanos(1250));
+        assertThat(histogram.percentileNanos(0.99))
+                .isGreaterThan(TimeUnit.MILLISECONDS.toNanos(100))
+                .isLessThan(TimeUnit.MILLISECONDS.toNanos(125));
+    }
+
+    @Test
+    void shouldRetainPreviousWindow() {
+        var histogram = new LatencyHistogram(WINDOW_NANOS, clock::get);
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(5));
+
+        clock.addAndGet(WINDOW_NANOS);
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(5));
+
+        assertThat(histogram.sampleCount()).isEqualTo(2);
+    }
+
+    @Test
+    void shouldForgetSamplesOlderThanTwoWindows() {
+        var histogram = new LatencyHistogram(WINDOW_NANOS, clock::get);
+        histogram.record(TimeUnit.MILLISECONDS.toNanos(5));
+
+        clock.addAndGet(WINDOW_NANOS);
+        assertThat(histogram.sampleCount()).isEqualTo(1);
+
+        clock.addAndGet(WINDOW_NANOS);
+        assertThat(histogram.sampleCount()).isZero();
+        assertThat(histogram.percentileNanos(0.5)).isEqualTo(-1);
+    }
+}
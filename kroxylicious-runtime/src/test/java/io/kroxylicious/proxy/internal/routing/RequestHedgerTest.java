@@ -0,0 +1,95 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.kroxylicious.proxy.internal.routing;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.kafka.common.protocol.ApiKeys;
+import org.junit.jupiter.api.Test;
+
+import io.kroxylicious.proxy.router.HedgingPolicy;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestHedgerTest {
+
+    private static final String ROUTE = "route";
+    private final AtomicLong clock = new AtomicLong();
+
+    private RequestHedger hedger(double ratio, Duration minimumDelay, long minimumSamples) {
+        var policy = new HedgingPolicy(0.9, ratio, minimumDelay, Set.of(ApiKeys.METADATA));
+        return new RequestHedger("vc", "router", policy, Duration.ofSeconds(30), minimumSamples, clock::get);
+    }
+
+    @Test
+    void shouldOnlyApplyToPolicyApiKeys() {
+        var hedger = hedger(0.05, Duration.ZERO, 0);
+        assertThat(hedger.appliesTo(ApiKeys.METADATA)).isTrue();
+        assertThat(hedger.appliesTo(ApiKeys.LIST_OFFSETS)).isFalse();
+    }
+
+    @Test
+    void shouldNotHedgeUntilEnoughSamples() {
+        var hedger = hedger(1.0, Duration.ZERO, 3);
+        assertThat(hedger.onHedgeableRequest(ROUTE, ApiKeys.METADATA)).isEmpty();
+
+        for (int i = 0; i < 3; i++) {
+            hedger.recordReply(ROUTE, ApiKeys.METADATA, TimeUnit.MILLISECONDS.toNanos(2), false);
+        }
+
+        assertThat(hedger.onHedgeableRequest(ROUTE, ApiKeys.METADATA)).isPresent();
+        assertThat(hedger.onHedgeableRequest("other-route", ApiKeys.METADATA)).isEmpty();
+    }
+
+    @Test
+    void hedgeDelayShouldTrackLatencyPercentile() {
+        var hedger = hedger(1.0, Duration.ZERO, 10);
+        for (int i = 0; i < 10; i++) {
+            hedger.recordReply(ROUTE, ApiKeys.METADATA, TimeUnit.MILLISECONDS.toNanos(20), false);
+        }
+
+        var delay = hedger.onHedgeableRequest(ROUTE, ApiKeys.METADATA);
+        assertThat(delay).isPresent();
+        assertThat(delay.getAsLong()).isBetween(TimeUnit.MILLISECONDS.toNanos(20), TimeUnit.MILLISECONDS.toNanos(25));
+    }
+
+    @Test
+    void hedgeDelayShouldNotBeLessThanMinimumDelay() {
+        var hedger = hedger(1.0, Duration.ofSeconds(1), 1);
+        hedger.recordReply(ROUTE, ApiKeys.METADATA, TimeUnit.MILLISECONDS.toNanos(20), false);
+
+        assertThat(hedger.onHedgeableRequest(ROUTE, ApiKeys.METADATA)).hasValue(TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    void budgetShouldLimitHedgesToRatioOfRequests() {
+        var hedger = hedger(0.05, Duration.ZERO, 0);
+        int hedges = 0;
+        for (int i = 0; i < 1000; i++) {
+            hedger.onHedgeableRequest(ROUTE, ApiKeys.METADATA);
+            if (hedger.tryAcquireHedge()) {
+                hedges++;
+            }
+        }
+        assertThat(hedges).isEqualTo(50);
+    }
+
+    @Test
+    void budgetShouldBeCappedAfterQuietPeriod() {
+        var hedger = hedger(1.0, Duration.ZERO, 0);
+        for (int i = 0; i < 1000; i++) {
+            hedger.onHedgeableRequest(ROUTE, ApiKeys.METADATA);
+        }
+        int hedges = 0;
+        while (hedger.tryAcquireHedge()) {
+            hedges++;
+        }
+        assertThat(hedges).isEqualTo(10);
+    }
+}
@@ -5,12 +5,19 @@
  */
 package io.kroxylicious.proxy.internal.routing;
 
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.kafka.common.errors.UnknownServerException;
 import org.apache.kafka.common.message.FetchRequestData;
+import org.apache.kafka.common.message.FindCoordinatorRequestData;
+import org.apache.kafka.common.message.FindCoordinatorResponseData;
 import org.apache.kafka.common.message.MetadataRequestData;
 import org.apache.kafka.common.message.MetadataResponseData;
 import org.apache.kafka.common.message.ProduceRequestData;
@@ -18,8 +25,10 @@ import org.apache.kafka.common.message.ProduceResponseData;
 import org.apache.kafka.common.message.RequestHeaderData;
 import org.apache.kafka.common.message.ResponseHeaderData;
 import org.apache.kafka.common.protocol.ApiKeys;
+import org.apache.kafka.common.requests.FindCoordinatorRequest.CoordinatorType;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
@@ -32,7 +41,9 @@ import io.kroxylicious.proxy.frame.DecodedRequestFrame;
 import io.kroxylicious.proxy.frame.DecodedResponseFrame;
 import io.kroxylicious.proxy.frame.OpaqueRequestFrame;
 import io.kroxylicious.proxy.internal.ClientConnectionStateMachine;
+import io.kroxylicious.proxy.router.HedgingPolicy;
 import io.kroxylicious.proxy.router.Router;
+import io.kroxylicious.proxy.service.HostPort;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
@@ -41,7 +52,9 @@ import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyShort;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -650,4 +663,388 @@ class RouterDispatchHandlerTest {
                 .hasCauseInstanceOf(RuntimeException.class)
                 .cause().hasMessage("forward failed");
     }
+
+    // Hedging
+
+    private static final Duration HEDGE_DELAY = Duration.ofMillis(10);
+
+    private RouterDispatchHandler handlerWithHedging() {
+        var rd = new RouteDescriptor(DEFAULT_ROUTE, 0, new TargetCluster("localhost:9092", null), null, List.of());
+        var policy = new HedgingPolicy(0.95, 1.0, HEDGE_DELAY, Set.of(ApiKeys.METADATA));
+        var hedger = new RequestHedger("test-cluster", "test-router", policy, Duration.ofSeconds(30), 0, System::nanoTime);
+        return new RouterDispatchHandler(
+                router, Map.of(DEFAULT_ROUTE, rd), Map.of(), ccsm, "test-cluster", new IdentityNodeIdMapping(DEFAULT_ROUTE), null, hedger);
+    }
+
+    private static RequestHeaderData metadataHeader() {
+        return new RequestHeaderData()
+                .setRequestApiKey(ApiKeys.METADATA.id)
+                .setRequestApiVersion((short) 12);
+    }
+
+    private int forwardedCorrelationId(int targetNodeId) {
+        ArgumentCaptor<DecodedRequestFrame<?>> captor = ArgumentCaptor.captor();
+        verify(ccsm).forwardToNode(eq(targetNodeId), eq(DEFAULT_ROUTE), captor.capture());
+        return captor.getValue().correlationId();
+    }
+
+    private void respond(int routingCorrelationId, MetadataResponseData body) {
+        channel.writeOutbound(new DecodedResponseFrame<>((short) 12, routingCorrelationId, new ResponseHeaderData(), body));
+    }
+
+    @Test
+    void sendHedgedShouldSendDuplicateToAlternateWhenPrimaryIsSlow() {
+        // Given
+        var handler = handlerWithHedging();
+        channel = new EmbeddedChannel(handler);
+        var future = handler.sendHedged(new VirtualNodeImpl(DEFAULT_ROUTE, 1), new VirtualNodeImpl(DEFAULT_ROUTE, 2),
+                metadataHeader(), new MetadataRequestData(), "test-session", 100);
+        int primaryId = forwardedCorrelationId(1);
+        verify(ccsm, never()).forwardToNode(eq(2), anyString(), any());
+
+        // When: the primary has not replied within the hedge delay
+        channel.advanceTimeBy(HEDGE_DELAY.toNanos(), TimeUnit.NANOSECONDS);
+        channel.runScheduledPendingTasks();
+
+        // Then: the request is hedged to the alternate, whose reply wins
+        int hedgeId = forwardedCorrelationId(2);
+        assertThat(hedgeId).isNotEqualTo(primaryId);
+        var hedgeResponse = new MetadataResponseData().setClusterId("hedge");
+        respond(hedgeId, hedgeResponse);
+        assertThat(future.toCompletableFuture()).isCompletedWithValue(hedgeResponse);
+
+        // And: the late primary reply is discarded without closing the connection
+        respond(primaryId, new MetadataResponseData().setClusterId("primary"));
+        assertThat(channel.isOpen()).isTrue();
+        assertThat(handler.pendingResponses).isEmpty();
+        assertThat(handler.abandonedResponses).isEmpty();
+        assertThat((Object) channel.readOutbound()).isNull();
+    }
+
+    @Test
+    void sendHedgedShouldNotHedgeWhenPrimaryRepliesInTime() {
+        // Given
+        var handler = handlerWithHedging();
+        channel = new EmbeddedChannel(handler);
+        var future = handler.sendHedged(new VirtualNodeImpl(DEFAULT_ROUTE, 1), new VirtualNodeImpl(DEFAULT_ROUTE, 2),
+                metadataHeader(), new MetadataRequestData(), "test-session", 100);
+        var primaryResponse = new MetadataResponseData().setClusterId("primary");
+
+        // When
+        respond(forwardedCorrelationId(1), primaryResponse);
+        channel.advanceTimeBy(HEDGE_DELAY.toNanos(), TimeUnit.NANOSECONDS);
+        channel.runScheduledPendingTasks();
+
+        // Then
+        assertThat(future.toCompletableFuture()).isCompletedWithValue(primaryResponse);
+        verify(ccsm, never()).forwardToNode(eq(2), anyString(), any());
+    }
+
+    @Test
+    void sendHedgedShouldOnlySendToPrimaryForNonHedgeableApiKey() {
+        // Given
+        var handler = handlerWithHedging();
+        channel = new EmbeddedChannel(handler);
+        var header = new RequestHeaderData()
+                .setRequestApiKey(ApiKeys.FETCH.id)
+                .setRequestApiVersion((short) 12);
+
+        // When
+        handler.sendHedged(new VirtualNodeImpl(DEFAULT_ROUTE, 1), new VirtualNodeImpl(DEFAULT_ROUTE, 2),
+                header, new FetchRequestData(), "test-session", 100);
+        channel.advanceTimeBy(HEDGE_DELAY.toNanos(), TimeUnit.NANOSECONDS);
+        channel.runScheduledPendingTasks();
+
+        // Then
+        verify(ccsm).forwardToNode(eq(1), eq(DEFAULT_ROUTE), any());
+        verify(ccsm, never()).forwardToNode(eq(2), anyString(), any());
+    }
+
+    @Test
+    void sendHedgedShouldOnlySendToPrimaryWhenHedgingNotEnabled() {
+        // Given
+        var handler = handlerWithRouteForSendTests(DEFAULT_ROUTE);
+        channel = new EmbeddedChannel(handler);
+
+        // When
+        handler.sendHedged(new VirtualNodeImpl(DEFAULT_ROUTE, 1), new VirtualNodeImpl(DEFAULT_ROUTE, 2),
+                metadataHeader(), new MetadataRequestData(), "test-session", 100);
+        channel.advanceTimeBy(HEDGE_DELAY.toNanos(), TimeUnit.NANOSECONDS);
+        channel.runScheduledPendingTasks();
+
+        // Then
+        verify(ccsm).forwardToNode(eq(1), eq(DEFAULT_ROUTE), any());
+        verify(ccsm, never()).forwardToNode(eq(2), anyString(), any());
+    }
+
+    @Test
+    void sendHedgedShouldFailWhenPrimaryFailsBeforeHedge() {
+        // Given
+        doThrow(new RuntimeException("forward failed")).when(ccsm).forwardToNode(eq(1), anyString(), any());
+        var handler = handlerWithHedging();
+        channel = new EmbeddedChannel(handler);
+
+        // When
+        var future = handler.sendHedged(new VirtualNodeImpl(DEFAULT_ROUTE, 1), new VirtualNodeImpl(DEFAULT_ROUTE, 2),
+                metadataHeader(), new MetadataRequestData(), "test-session", 100);
+        channel.advanceTimeBy(HEDGE_DELAY.toNanos(), TimeUnit.NANOSECONDS);
+        channel.runScheduledPendingTasks();
+
+        // Then
+        assertThat(future.toCompletableFuture()).isCompletedExceptionally();
+        verify(ccsm, never()).forwardToNode(eq(2), anyString(), any());
+    }
+
+    @Test
+    void sendHedgedShouldSendRequestAsItWasBeforePrimaryWasModified() {
+        // Given: a per-route filter modifies the primary request in place
+        doAnswer(invocation -> {
+            DecodedRequestFrame<?> frame = invocation.getArgument(2);
+            ((MetadataRequestData) frame.body()).setAllowAutoTopicCreation(false);
+            return null;
+        }).when(ccsm).forwardToNode(eq(1), eq(DEFAULT_ROUTE), any());
+        var handler = handlerWithHedging();
+        channel = new EmbeddedChannel(handler);
+        handler.sendHedged(new VirtualNodeImpl(DEFAULT_ROUTE, 1), new VirtualNodeImpl(DEFAULT_ROUTE, 2),
+                metadataHeader(), new MetadataRequestData().setAllowAutoTopicCreation(true), "test-session", 100);
+
+        // When
+        channel.advanceTimeBy(HEDGE_DELAY.toNanos(), TimeUnit.NANOSECONDS);
+        channel.runScheduledPendingTasks();
+
+        // Then
+        ArgumentCaptor<DecodedRequestFrame<?>> captor = ArgumentCaptor.captor();
+        verify(ccsm).forwardToNode(eq(2), eq(DEFAULT_ROUTE), captor.capture());
+        assertThat(((MetadataRequestData) captor.getValue().body()).allowAutoTopicCreation()).isTrue();
+    }
+
+    @Test
+    void sendHedgedShouldRecordLatencyOfWinningReply() {
+        // Given
+        var alternateRoute = "alternate";
+        var clock = new AtomicLong();
+        var policy = new HedgingPolicy(0.95, 1.0, HEDGE_DELAY, Set.of(ApiKeys.METADATA));
+        var hedger = new RequestHedger("test-cluster", "test-router", policy, Duration.ofSeconds(30), 0, clock::get);
+        var handler = new RouterDispatchHandler(router,
+                Map.of(DEFAULT_ROUTE, new RouteDescriptor(DEFAULT_ROUTE, 0, new TargetCluster("localhost:9092", null), null, List.of()),
+                        alternateRoute, new RouteDescriptor(alternateRoute, 1, new TargetCluster("localhost:9093", null), null, List.of())),
+                Map.of(), ccsm, "test-cluster", new IdentityNodeIdMapping(DEFAULT_ROUTE), null, hedger);
+        channel = new EmbeddedChannel(handler);
+        var future = handler.sendHedged(new VirtualNodeImpl(DEFAULT_ROUTE, 1), new VirtualNodeImpl(alternateRoute, 2),
+                metadataHeader(), new MetadataRequestData(), "test-session", 100);
+        clock.addAndGet(HEDGE_DELAY.toNanos());
+        channel.advanceTimeBy(HEDGE_DELAY.toNanos(), TimeUnit.NANOSECONDS);
+        channel.runScheduledPendingTasks();
+        ArgumentCaptor<DecodedRequestFrame<?>> captor = ArgumentCaptor.captor();
+        verify(ccsm).forwardToNode(eq(2), eq(alternateRoute), captor.capture());
+
+        // When: the hedge wins
+        clock.addAndGet(Duration.ofMillis(1).toNanos());
+        respond(captor.getValue().correlationId(), new MetadataResponseData());
+
+        // Then: the hedge's latency is recorded against its own route
+        assertThat(future.toCompletableFuture()).isCompleted();
+        assertThat(hedger.histogram(alternateRoute, ApiKeys.METADATA).sampleCount()).isEqualTo(1);
+        assertThat(hedger.histogram(alternateRoute, ApiKeys.METADATA).percentileNanos(1.0)).isLessThan(HEDGE_DELAY.toNanos());
+        assertThat(hedger.histogram(DEFAULT_ROUTE, ApiKeys.METADATA).sampleCount()).isZero();
+    }
+
+    @Test
+    void sendHedgedShouldRecordLatencyOfLosingPrimaryReply() {
+        // Given: the hedge won the race
+        var alternateRoute = "alternate";
+        var clock = new AtomicLong();
+        var policy = new HedgingPolicy(0.95, 1.0, HEDGE_DELAY, Set.of(ApiKeys.METADATA));
+        var hedger = new RequestHedger("test-cluster", "test-router", policy, Duration.ofSeconds(30), 0, clock::get);
+        var handler = new RouterDispatchHandler(router,
+                Map.of(DEFAULT_ROUTE, new RouteDescriptor(DEFAULT_ROUTE, 0, new TargetCluster("localhost:9092", null), null, List.of()),
+                        alternateRoute, new RouteDescriptor(alternateRoute, 1, new TargetCluster("localhost:9093", null), null, List.of())),
+                Map.of(), ccsm, "test-cluster", new IdentityNodeIdMapping(DEFAULT_ROUTE), null, hedger);
+        channel = new EmbeddedChannel(handler);
+        handler.sendHedged(new VirtualNodeImpl(DEFAULT_ROUTE, 1), new VirtualNodeImpl(alternateRoute, 2),
+                metadataHeader(), new MetadataRequestData(), "test-session", 100);
+        int primaryId = forwardedCorrelationId(1);
+        clock.addAndGet(HEDGE_DELAY.toNanos());
+        channel.advanceTimeBy(HEDGE_DELAY.toNanos(), TimeUnit.NANOSECONDS);
+        channel.runScheduledPendingTasks();
+        ArgumentCaptor<DecodedRequestFrame<?>> captor = ArgumentCaptor.captor();
+        verify(ccsm).forwardToNode(eq(2), eq(alternateRoute), captor.capture());
+        respond(captor.getValue().correlationId(), new MetadataResponseData());
+        assertThat(hedger.histogram(DEFAULT_ROUTE, ApiKeys.METADATA).sampleCount()).isZero();
+
+        // When: the primary's reply arrives late
+        clock.addAndGet(HEDGE_DELAY.toNanos());
+        respond(primaryId, new MetadataResponseData());
+
+        // Then: its latency, from when the primary was sent, is recorded against the primary's route
+        assertThat(hedger.histogram(DEFAULT_ROUTE, ApiKeys.METADATA).sampleCount()).isEqualTo(1);
+        assertThat(hedger.histogram(DEFAULT_ROUTE, ApiKeys.METADATA).percentileNanos(1.0)).isGreaterThanOrEqualTo(2 * HEDGE_DELAY.toNanos());
+        assertThat(handler.abandonedResponses).isEmpty();
+    }
+
+    @Test
+    void abandonedResponsesShouldBeForgottenWhenChannelCloses() {
+        // Given: the hedge won, and the primary's reply is still outstanding
+        var handler = handlerWithHedging();
+        channel = new EmbeddedChannel(handler);
+        handler.sendHedged(new VirtualNodeImpl(DEFAULT_ROUTE, 1), new VirtualNodeImpl(DEFAULT_ROUTE, 2),
+                metadataHeader(), new MetadataRequestData(), "test-session", 100);
+        channel.advanceTimeBy(HEDGE_DELAY.toNanos(), TimeUnit.NANOSECONDS);
+        channel.runScheduledPendingTasks();
+        respond(forwardedCorrelationId(2), new MetadataResponseData());
+        assertThat(handler.abandonedResponses).containsOnlyKeys(forwardedCorrelationId(1));
+
+        // When
+        channel.close();
+
+        // Then
+        assertThat(handler.abandonedResponses).isEmpty();
+    }
+
+    // Topology
+
+    private static MetadataResponseData topologyMetadata() {
+        var md = new MetadataResponseData();
+        md.brokers().add(new MetadataResponseData.MetadataResponseBroker().setNodeId(1).setHost("h1").setPort(9092).setRack("rack-a"));
+        md.brokers().add(new MetadataResponseData.MetadataResponseBroker().setNodeId(2).setHost("h2").setPort(9092).setRack("rack-b"));
+        var topic = new MetadataResponseData.MetadataResponseTopic().setName("topic");
+        topic.partitions().add(new MetadataResponseData.MetadataResponsePartition()
+                .setPartitionIndex(0).setLeaderId(1).setReplicaNodes(new ArrayList<>(List.of(1, 2))).setIsrNodes(new ArrayList<>(List.of(1, 2))));
+        md.topics().add(topic);
+        return md;
+    }
+
+    @Test
+    void staticallyRoutedMetadataResponseShouldPopulateTopologyCache() {
+        // Given
+        var cache = new TopologyCache();
+        var connectionTopology = new ConnectionTopology();
+        connectionTopology.attach(cache);
+        var handler = new RouterDispatchHandler(
+                router, Map.of(), Map.of(ApiKeys.METADATA, DEFAULT_ROUTE), ccsm, "test-cluster", new IdentityNodeIdMapping(DEFAULT_ROUTE), null, null,
+                connectionTopology);
+        channel = new EmbeddedChannel(handler);
+        channel.writeInbound(new DecodedRequestFrame<>((short) 12, CORRELATION_ID, true, new RequestHeaderData(), new MetadataRequestData()));
+
+        // When
+        channel.writeOutbound(new DecodedResponseFrame<>((short) 12, CORRELATION_ID, new ResponseHeaderData(), topologyMetadata()));
+
+        // Then
+        assertThat(cache.partitionInfo(DEFAULT_ROUTE, "topic", 0)).hasValueSatisfying(info -> {
+            assertThat(info.leader()).isEqualTo(new VirtualNodeImpl(DEFAULT_ROUTE, 1));
+            assertThat(info.isr()).containsExactly(new VirtualNodeImpl(DEFAULT_ROUTE, 1), new VirtualNodeImpl(DEFAULT_ROUTE, 2));
+        });
+        assertThat(cache.brokerInfo(new VirtualNodeImpl(DEFAULT_ROUTE, 2))).hasValueSatisfying(info -> assertThat(info.rack()).isEqualTo("rack-b"));
+        assertThat(handler.resolveRouterNodeAddress(2)).contains(new HostPort("h2", 9092));
+    }
+
+    @Test
+    void topologyServiceShouldDiscoverLeadersOnTheConnection() {
+        // Given
+        when(ccsm.sessionId()).thenReturn("test-session");
+        var connectionTopology = new ConnectionTopology();
+        var topology = connectionTopology.service(new TopologyCache());
+        var rd = new RouteDescriptor(DEFAULT_ROUTE, 0, new TargetCluster("localhost:9092", null), null, List.of());
+        var handler = new RouterDispatchHandler(
+                router, Map.of(DEFAULT_ROUTE, rd), Map.of(), ccsm, "test-cluster", new IdentityNodeIdMapping(DEFAULT_ROUTE), null, null, connectionTopology);
+        channel = new EmbeddedChannel(handler);
+
+        // When
+        var leaders = topology.leaders(Map.of(DEFAULT_ROUTE, Set.of("topic"))).toCompletableFuture();
+        ArgumentCaptor<DecodedRequestFrame<?>> captor = ArgumentCaptor.captor();
+        verify(ccsm).forwardToRoute(eq(DEFAULT_ROUTE), captor.capture());
+        assertThat(captor.getValue().apiKey()).isEqualTo(ApiKeys.METADATA);
+        respond(captor.getValue().correlationId(), topologyMetadata());
+
+        // Then
+        assertThat(leaders).isCompleted();
+        assertThat(leaders.join().leaderOf("topic", 0)).contains(new VirtualNodeImpl(DEFAULT_ROUTE, 1));
+        assertThat(leaders.join().leaderOf("topic", 1)).isEmpty();
+        assertThat(topology.partitionInfo(DEFAULT_ROUTE, "topic", 0)).isPresent();
+    }
+
+    @Test
+    void topologyServiceShouldNotDiscoverCachedTopics() {
+        // Given
+        var cache = new TopologyCache();
+        cache.onResponse(DEFAULT_ROUTE, topologyMetadata());
+        var connectionTopology = new ConnectionTopology();
+        var topology = connectionTopology.service(cache);
+        var handler = new RouterDispatchHandler(
+                router, Map.of(), Map.of(), ccsm, "test-cluster", new IdentityNodeIdMapping(DEFAULT_ROUTE), null, null, connectionTopology);
+        channel = new EmbeddedChannel(handler);
+
+        // When
+        var leaders = topology.leaders(Map.of(DEFAULT_ROUTE, Set.of("topic"))).toCompletableFuture();
+
+        // Then
+        assertThat(leaders).isCompleted();
+        assertThat(leaders.join().leaderOf("topic", 0)).contains(new VirtualNodeImpl(DEFAULT_ROUTE, 1));
+        verify(ccsm, never()).forwardToRoute(anyString(), any());
+    }
+
+    @Test
+    void staticallyRoutedFindCoordinatorResponseShouldPopulateTopologyCache() {
+        // Given
+        var cache = new TopologyCache();
+        var connectionTopology = new ConnectionTopology();
+        connectionTopology.attach(cache);
+        var handler = new RouterDispatchHandler(
+                router, Map.of(), Map.of(ApiKeys.FIND_COORDINATOR, DEFAULT_ROUTE), ccsm, "test-cluster", new IdentityNodeIdMapping(DEFAULT_ROUTE), null, null,
+                connectionTopology);
+        channel = new EmbeddedChannel(handler);
+        var request = new FindCoordinatorRequestData().setKeyType(CoordinatorType.GROUP.id()).setKey("group");
+        channel.writeInbound(new DecodedRequestFrame<>((short) 3, CORRELATION_ID, true, new RequestHeaderData(), request));
+
+        // When
+        channel.writeOutbound(new DecodedResponseFrame<>((short) 3, CORRELATION_ID, new ResponseHeaderData(), new FindCoordinatorResponseData().setNodeId(2)));
+
+        // Then
+        assertThat(cache.coordinator(DEFAULT_ROUTE, CoordinatorType.GROUP.id(), "group")).contains(new VirtualNodeImpl(DEFAULT_ROUTE, 2));
+    }
+
+    @Test
+    void topologyServiceShouldOnlyDiscoverUncachedCoordinators() {
+        // Given
+        when(ccsm.sessionId()).thenReturn("test-session");
+        var cache = new TopologyCache();
+        cache.onResponse(DEFAULT_ROUTE, new TopologyCache.CoordinatorRequest(CoordinatorType.GROUP.id(), "cached"), new FindCoordinatorResponseData().setNodeId(1));
+        var connectionTopology = new ConnectionTopology();
+        var topology = connectionTopology.service(cache);
+        var rd = new RouteDescriptor(DEFAULT_ROUTE, 0, new TargetCluster("localhost:9092", null), null, List.of());
+        var handler = new RouterDispatchHandler(
+                router, Map.of(DEFAULT_ROUTE, rd), Map.of(), ccsm, "test-cluster", new IdentityNodeIdMapping(DEFAULT_ROUTE), null, null, connectionTopology);
+        channel = new EmbeddedChannel(handler);
+
+        // When
+        var coordinators = topology.coordinators(DEFAULT_ROUTE, CoordinatorType.GROUP.id(), Set.of("cached", "uncached")).toCompletableFuture();
+        ArgumentCaptor<DecodedRequestFrame<?>> captor = ArgumentCaptor.captor();
+        verify(ccsm).forwardToRoute(eq(DEFAULT_ROUTE), captor.capture());
+        assertThat(captor.getValue().body()).isInstanceOfSatisfying(FindCoordinatorRequestData.class,
+                request -> assertThat(request.coordinatorKeys()).containsExactly("uncached"));
+        var response = new FindCoordinatorResponseData();
+        response.coordinators().add(new FindCoordinatorResponseData.Coordinator().setKey("uncached").setNodeId(2).setHost("h2").setPort(9092));
+        channel.writeOutbound(new DecodedResponseFrame<>((short) 4, captor.getValue().correlationId(), new ResponseHeaderData(), response));
+
+        // Then
+        assertThat(coordinators).isCompleted();
+        assertThat(coordinators.join().coordinatorFor("cached")).contains(new VirtualNodeImpl(DEFAULT_ROUTE, 1));
+        assertThat(coordinators.join().coordinatorFor("uncached")).contains(new VirtualNodeImpl(DEFAULT_ROUTE, 2));
+    }
+
+    @Test
+    void topologyServiceShouldNotDiscoverCachedCoordinators() {
+        // Given
+        var cache = new TopologyCache();
+        cache.onResponse(DEFAULT_ROUTE, new TopologyCache.CoordinatorRequest(CoordinatorType.GROUP.id(), "cached"), new FindCoordinatorResponseData().setNodeId(1));
+        var topology = new ConnectionTopology().service(cache);
+
+        // When
+        var coordinators = topology.coordinators(DEFAULT_ROUTE, CoordinatorType.GROUP.id(), Set.of("cached")).toCompletableFuture();
+
+        // Then
+        assertThat(coordinators).isCompleted();
+        assertThat(coordinators.join().coordinatorFor("cached")).contains(new VirtualNodeImpl(DEFAULT_ROUTE, 1));
+        verify(ccsm, never()).forwardToRoute(anyString(), any());
+    }
 }
@@ -0,0 +1,270 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+package io.kroxylicious.proxy.internal.routing;
+
+import java.util.List;
+
+import org.apache.kafka.common.Uuid;
+import org.apache.kafka.common.message.FindCoordinatorRequestData;
+import org.apache.kafka.common.message.FindCoordinatorResponseData;
+import org.apache.kafka.common.message.HeartbeatRequestData;
+import org.apache.kafka.common.message.HeartbeatResponseData;
+import org.apache.kafka.common.message.MetadataResponseData;
+import org.apache.kafka.common.message.OffsetCommitRequestData;
+import org.apache.kafka.common.message.OffsetCommitResponseData;
+import org.apache.kafka.common.message.ProduceResponseData;
+import org.apache.kafka.common.protocol.Errors;
+import org.apache.kafka.common.requests.FindCoordinatorRequest.CoordinatorType;
+import org.junit.jupiter.api.Test;
+
+import io.kroxylicious.proxy.topology.BrokerInfo;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TopologyCacheTest {
+
+    private static final Uuid TOPIC_ID = Uuid.randomUuid();
+
+    private final TopologyCache cache = new TopologyCache();
+
+    private static MetadataResponseData metadata(String topicName, Uuid topicId, int leaderId) {
+        var md = new MetadataResponseData();
+        md.brokers().add(new MetadataResponseData.MetadataResponseBroker().setNodeId(leaderId).setHost("h" + leaderId).setPort(9092).setRack("rack"));
+        var topic = new MetadataResponseData.MetadataResponseTopic().setName(topicName).setTopicId(topicId);
+        topic.partitions().add(new MetadataResponseData.MetadataResponsePartition()
+                .setPartitionIndex(0).setLeaderId(leaderId).setReplicaNodes(List.of(leaderId)).setIsrNodes(List.of(leaderId)));
+        topic.partitions().add(new MetadataResponseData.MetadataResponsePartition()
+                .setPartitionIndex(1).setLeaderId(-1).setErrorCode(Errors.LEADER_NOT_AVAILABLE.code()));
+        md.topics().add(topic);
+        return md;
+    }
+
+    @Test
+    void shouldCacheTopologyFromMetadataResponse() {
+        // When
+        cache.onResponse("route", metadata("topic", TOPIC_ID, 1));
+
+        // Then
+        assertThat(cache.partitionInfo("route", "topic", 0)).hasValueSatisfying(info -> {
+            assertThat(info.leader()).isEqualTo(new VirtualNodeImpl("route", 1));
+            assertThat(info.replicas()).containsExactly(new VirtualNodeImpl("route", 1));
+        });
+        assertThat(cache.partitionInfo("route", "topic", 1)).isEmpty();
+        assertThat(cache.brokerInfo(new VirtualNodeImpl("route", 1))).contains(new BrokerInfo("h1", 9092, "rack"));
+        assertThat(cache.topicName("route", TOPIC_ID)).contains("topic");
+        assertThat(cache.topicName("other-route", TOPIC_ID)).isEmpty();
+    }
+
+    @Test
+    void shouldIgnoreOtherResponses() {
+        // When
+        cache.onResponse("route", new ProduceResponseData());
+
+        // Then
+        assertThat(cache.topic("route", "topic")).isNull();
+    }
+
+    @Test
+    void shouldIgnoreTopicsWithErrors() {
+        // Given
+        var md = metadata("topic", TOPIC_ID, 1);
+        md.topics().iterator().next().setErrorCode(Errors.UNKNOWN_TOPIC_ID.code());
+
+        // When
+        cache.onResponse("route", md);
+
+        // Then
+        assertThat(cache.topic("route", "topic")).isNull();
+        assertThat(cache.topicName("route", TOPIC_ID)).isEmpty();
+    }
+
+    @Test
+    void laterResponseShouldReplaceTopicAndKeepOthers() {
+        // Given
+        cache.onResponse("route", metadata("topic", TOPIC_ID, 1));
+        cache.onResponse("route", metadata("other", Uuid.randomUuid(), 1));
+
+        // When
+        cache.onResponse("route", metadata("topic", TOPIC_ID, 2));
+
+        // Then
+        assertThat(cache.partitionInfo("route", "topic", 0)).hasValueSatisfying(info -> assertThat(info.leader()).isEqualTo(new VirtualNodeImpl("route", 2)));
+        assertThat(cache.partitionInfo("route", "other", 0)).isPresent();
+    }
+
+    @Test
+    void invalidateRouteShouldOnlyClearThatRoute() {
+        // Given
+        var otherTopicId = Uuid.randomUuid();
+        cache.onResponse("route", metadata("topic", TOPIC_ID, 1));
+        cache.onResponse("other-route", metadata("other", otherTopicId, 1));
+
+        // When
+        cache.invalidateRoute("route");
+
+        // Then
+        assertThat(cache.partitionInfo("route", "topic", 0)).isEmpty();
+        assertThat(cache.brokerInfo(new VirtualNodeImpl("route", 1))).isEmpty();
+        assertThat(cache.topicName("route", TOPIC_ID)).isEmpty();
+        assertThat(cache.partitionInfo("other-route", "other", 0)).isPresent();
+        assertThat(cache.brokerInfo(new VirtualNodeImpl("other-route", 1))).isPresent();
+        assertThat(cache.topicName("other-route", otherTopicId)).contains("other");
+    }
+
+    @Test
+    void shouldKeepSameTopicNameOnDifferentRoutesApart() {
+        // Given
+        cache.onResponse("route", metadata("topic", TOPIC_ID, 1));
+
+        // When
+        cache.onResponse("other-route", metadata("topic", Uuid.randomUuid(), 2));
+
+        // Then
+        assertThat(cache.partitionInfo("route", "topic", 0)).hasValueSatisfying(info -> assertThat(info.leader()).isEqualTo(new VirtualNodeImpl("route", 1)));
+        assertThat(cache.partitionInfo("other-route", "topic", 0))
+                .hasValueSatisfying(info -> assertThat(info.leader()).isEqualTo(new VirtualNodeImpl("other-route", 2)));
+        assertThat(cache.partitionInfo("third-route", "topic", 0)).isEmpty();
+    }
+
+    @Test
+    void shouldFindPartitionInfoWithoutRouteWhenTopicNameIsUnique() {
+        // Given
+        cache.onResponse("route", metadata("topic", TOPIC_ID, 1));
+
+        // When
+        var info = cache.partitionInfo("topic", 0);
+
+        // Then
+        assertThat(info).hasValueSatisfying(i -> assertThat(i.leader()).isEqualTo(new VirtualNodeImpl("route", 1)));
+        assertThat(cache.partitionInfo("topic", 1)).isEmpty();
+        assertThat(cache.partitionInfo("other", 0)).isEmpty();
+    }
+
+    @Test
+    void shouldNotFindPartitionInfoWithoutRouteWhenTopicNameIsOnManyRoutes() {
+        // Given
+        cache.onResponse("route", metadata("topic", TOPIC_ID, 1));
+        cache.onResponse("other-route", metadata("topic", Uuid.randomUuid(), 2));
+
+        // When
+        var info = cache.partitionInfo("topic", 0);
+
+        // Then
+        assertThat(info).isEmpty();
+    }
+
+    @Test
+    void invalidateRouteShouldKeepSameTopicNameOnOtherRoutes() {
+        // Given
+        cache.onResponse("route", metadata("topic", TOPIC_ID, 1));
+        cache.onResponse("other-route", metadata("topic", Uuid.randomUuid(), 2));
+
+        // When
+        cache.invalidateRoute("route");
+
+        // Then
+        assertThat(cache.topic("route", "topic")).isNull();
+        assertThat(cache.partitionInfo("other-route", "topic", 0)).isPresent();
+    }
+
+    private static final byte GROUP = CoordinatorType.GROUP.id();
+
+    private static FindCoordinatorResponseData batchedCoordinators(String key, short errorCode, int nodeId) {
+        var response = new FindCoordinatorResponseData();
+        response.coordinators().add(new FindCoordinatorResponseData.Coordinator().setKey(key).setErrorCode(errorCode).setNodeId(nodeId));
+        return response;
+    }
+
+    @Test
+    void shouldCacheCoordinatorsFromBatchedFindCoordinatorResponse() {
+        // Given
+        var request = TopologyCache.coordinatorRequest(new FindCoordinatorRequestData().setKeyType(GROUP).setCoordinatorKeys(List.of("group")));
+
+        // When
+        cache.onResponse("route", request, batchedCoordinators("group", Errors.NONE.code(), 3));
+
+        // Then
+        assertThat(request).isEqualTo(new TopologyCache.CoordinatorRequest(GROUP, null));
+        assertThat(cache.coordinator("route", GROUP, "group")).contains(new VirtualNodeImpl("route", 3));
+        assertThat(cache.coordinator("route", CoordinatorType.TRANSACTION.id(), "group")).isEmpty();
+        assertThat(cache.coordinator("other-route", GROUP, "group")).isEmpty();
+    }
+
+    @Test
+    void shouldCacheCoordinatorFromSingleKeyFindCoordinatorResponse() {
+        // Given
+        var request = TopologyCache.coordinatorRequest(new FindCoordinatorRequestData().setKeyType(GROUP).setKey("group"));
+
+        // When
+        cache.onResponse("route", request, new FindCoordinatorResponseData().setNodeId(2));
+
+        // Then
+        assertThat(cache.coordinator("route", GROUP, "group")).contains(new VirtualNodeImpl("route", 2));
+    }
+
+    @Test
+    void findCoordinatorErrorShouldForgetCoordinator() {
+        // Given
+        var request = TopologyCache.coordinatorRequest(new FindCoordinatorRequestData().setKeyType(GROUP).setCoordinatorKeys(List.of("group")));
+        cache.onResponse("route", request, batchedCoordinators("group", Errors.NONE.code(), 3));
+
+        // When
+        cache.onResponse("route", request, batchedCoordinators("group", Errors.COORDINATOR_NOT_AVAILABLE.code(), -1));
+
+        // Then
+        assertThat(cache.coordinator("route", GROUP, "group")).isEmpty();
+    }
+
+    @Test
+    void notCoordinatorShouldForgetCoordinator() {
+        // Given
+        cache.onResponse("route", TopologyCache.coordinatorRequest(new FindCoordinatorRequestData().setKeyType(GROUP).setKey("group")),
+                new FindCoordinatorResponseData().setNodeId(2));
+        cache.onResponse("route", TopologyCache.coordinatorRequest(new FindCoordinatorRequestData().setKeyType(GROUP).setKey("other")),
+                new FindCoordinatorResponseData().setNodeId(2));
+
+        // When
+        cache.onResponse("route", TopologyCache.coordinatorRequest(new HeartbeatRequestData().setGroupId("group")),
+                new HeartbeatResponseData().setErrorCode(Errors.NOT_COORDINATOR.code()));
+
+        // Then
+        assertThat(cache.coordinator("route", GROUP, "group")).isEmpty();
+        assertThat(cache.coordinator("route", GROUP, "other")).isPresent();
+    }
+
+    @Test
+    void partitionLevelNotCoordinatorShouldForgetCoordinator() {
+        // Given
+        cache.onResponse("route", TopologyCache.coordinatorRequest(new FindCoordinatorRequestData().setKeyType(GROUP).setKey("group")),
+                new FindCoordinatorResponseData().setNodeId(2));
+        var response = new OffsetCommitResponseData();
+        var topic = new OffsetCommitResponseData.OffsetCommitResponseTopic().setName("topic");
+        topic.partitions().add(new OffsetCommitResponseData.OffsetCommitResponsePartition().setPartitionIndex(0).setErrorCode(Errors.NONE.code()));
+        topic.partitions().add(new OffsetCommitResponseData.OffsetCommitResponsePartition().setPartitionIndex(1).setErrorCode(Errors.NOT_COORDINATOR.code()));
+        response.topics().add(topic);
+
+        // When
+        cache.onResponse("route", TopologyCache.coordinatorRequest(new OffsetCommitRequestData().setGroupId("group")), response);
+
+        // Then
+        assertThat(cache.coordinator("route", GROUP, "group")).isEmpty();
+    }
+
+    @Test
+    void invalidateRouteShouldClearCoordinators() {
+        // Given
+        var request = TopologyCache.coordinatorRequest(new FindCoordinatorRequestData().setKeyType(GROUP).setCoordinatorKeys(List.of("group")));
+        cache.onResponse("route", request, batchedCoordinators("group", Errors.NONE.code(), 3));
+        cache.onResponse("other-route", request, batchedCoordinators("group", Errors.NONE.code(), 3));
+
+        // When
+        cache.invalidateRoute("route");
+
+        // Then
+        assertThat(cache.coordinator("route", GROUP, "group")).isEmpty();
+        assertThat(cache.coordinator("other-route", GROUP, "group")).isPresent();
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright Kroxylicious Authors.
+ *
+ * Licensed under the Apache Software License version 2.0, available at http://www.apache.org/licenses/LICENSE-2.0
+ */
+
+package io.kroxylicious.proxy.internal.subject;
+
+import java.security.cert.X509Certificate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import io.kroxylicious.proxy.authentication.ClientSaslContext;
+import io.kroxylicious.proxy.authentication.SaslSubjectBuilder;
+import io.kroxylicious.proxy.authentication.Subject;
+import io.kroxylicious.proxy.authentication.TransportSubjectBuilder;
+import io.kroxylicious.proxy.authentication.User;
+import io.kroxylicious.proxy.authentication.UserFactory;
+import io.kroxylicious.proxy.tls.ClientTlsContext;
+
+import edu.umd.cs.findbugs.annotations.Nullable;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DefaultSubjectBuilderTest {
+
+    private final AtomicInteger extractions = new AtomicInteger();
+
+    private PrincipalAdder countingAdder(Function<Object, String> name) {
+        return new PrincipalAdder(context -> {
+            extractions.incrementAndGet();
+            return Stream.of(name.apply(context));
+        },
+                List.of(new IdentityMappingRule()),
+                new UserFactory());
+    }
+
+    private static TransportSubjectBuilder.Context transportContext(@Nullable X509Certificate certificate) {
+        return () -> Optional.of(new ClientTlsContext() {
+            @Override
+            public X509Certificate proxyServerCertificate() {
+                throw new AssertionError();
+            }
+
+            @Override
+            public Optional<X509Certificate> clientCertificate() {
+                return Optional.ofNullable(certificate);
+            }
+        });
+    }
+
+    private static SaslSubjectBuilder.Context saslContext(String authorizationId) {
+        return new SaslSubjectBuilder.Context() {
+            @Override
+            public Optional<ClientTlsContext> clientTlsContext() {
+                return Optional.empty();
+            }
+
+            @Override
+            public ClientSaslContext clientSaslContext() {
+                return new ClientSaslContext() {
+                    @Override
+                    public String mechanismName() {
+                        return "PLAIN";
+                    }
+
+                    @Override
+                    public String authorizationId() {
+                        return authorizationId;
+                    }
+                };
+            }
+        };
+    }
+
+    private static String authorizationId(Object context) {
+        return ((SaslSubjectBuilder.Context) context).clientSaslContext().authorizationId();
+    }
+
+    @Test
+    void shouldReuseSubjectBuiltForSameCertificate() {
+        // Given
+        var certificate = Mockito.mock(X509Certificate.class);
+        var builder = new DefaultSubjectBuilder(List.of(countingAdder(context -> "alice")));
+
+        // When
+        var first = builder.buildTransportSubject(transportContext(certificate)).toCompletableFuture().join();
+        var second = builder.buildTransportSubject(transportContext(certificate)).toCompletableFuture().join();
+
+        // Then
+        assertThat(first).isEqualTo(new Subject(new User("alice")));
+        assertThat(second).isSameAs(first);
+        assertThat(extractions).hasValue(1);
+    }
+
+    @Test
+    void shouldBuildSubjectForEachDifferentCertificate() {
+        // Given
+        var builder = new DefaultSubjectBuilder(List.of(countingAdder(context -> "alice")));
+
+        // When
+        builder.buildTransportSubject(transportContext(Mockito.mock(X509Certificate.class))).toCompletableFuture().join();
+        builder.buildTransportSubject(transportContext(Mockito.mock(X509Certificate.class))).toCompletableFuture().join();
+
+        // Then
+        assertThat(extractions).hasValue(2);
+    }
+
+    @Test
+    void shouldNotCacheSubjectWithoutClientCertificate() {
+        // Given
+        var builder = new DefaultSubjectBuilder(List.of(countingAdder(context -> "alice")));
+
+        // When
+        builder.buildTransportSubject(transportContext(null)).toCompletableFuture().join();
+        builder.buildTransportSubject(transportContext(null)).toCompletableFuture().join();
+
+        // Then
+        assertThat(extractions).hasValue(2);
+        assertThat(builder.cachedSubjects()).isZero();
+    }
+
+    @Test
+    void shouldReuseSubjectBuiltForSameAuthorizationId() {
+        // Given
+        var builder = new DefaultSubjectBuilder(List.of(countingAdder(DefaultSubjectBuilderTest::authorizationId)));
+
+        // When
+        var alice = builder.buildSaslSubject(saslContext("alice")).toCompletableFuture().join();
+        var aliceAgain = builder.buildSaslSubject(saslContext("alice")).toCompletableFuture().join();
+        var bob = builder.buildSaslSubject(saslContext("bob")).toCompletableFuture().join();
+
+        // Then
+        assertThat(aliceAgain).isSameAs(alice);
+        assertThat(bob).isEqualTo(new Subject(new User("bob")));
+        assertThat(extractions).hasValue(2);
+    }
+
+    @Test
+    void shouldBoundCachedSubjects() {
+        // Given
+        var builder = new DefaultSubjectBuilder(List.of(countingAdder(DefaultSubjectBuilderTest::authorizationId)), 10);
+
+        // When
+        for (int i = 0; i < 100; i++) {
+            builder.buildSaslSubject(saslContext("user" + i)).toCompletableFuture().join();
+        }
+
+        // Then
+        assertThat(builder.cachedSubjects()).isLessThanOrEqualTo(10);
+    }
+
+    @Test
+    void shouldNotCacheFailure() {
+        // Given
+        var builder = new DefaultSubjectBuilder(List.of(countingAdder(context -> {
+            throw new IllegalStateException("boom");
+        })));
+
+        // When
+        var first = builder.buildSaslSubject(saslContext("alice"));
+        var second = builder.buildSaslSubject(saslContext("alice"));
+
+        // Then
+        assertThat(first).isCompletedExceptionally();
+        assertThat(second).isCompletedExceptionally();
+        assertThat(extractions).hasValue(2);
+    }
+}
@@ -15,6 +15,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 import org.junit.jupiter.api.Test;
 
+import io.kroxylicious.proxy.authentication.TransportSubjectBuilderService;
 import io.kroxylicious.proxy.bootstrap.RouterChainFactory;
 import io.kroxylicious.proxy.bootstrap.TlsCredentialSupplierManager;
 import io.kroxylicious.proxy.config.CacheConfiguration;
@@ -33,6 +34,7 @@ import io.kroxylicious.proxy.internal.routing.DynamicRouting;
 import io.kroxylicious.proxy.internal.routing.NoUpstreamClusterForRouteException;
 import io.kroxylicious.proxy.internal.routing.RouteDescriptor;
 import io.kroxylicious.proxy.internal.routing.UpstreamClusterModel;
+import io.kroxylicious.proxy.internal.subject.DefaultTransportSubjectBuilderService;
 import io.kroxylicious.proxy.plugin.Plugin;
 import io.kroxylicious.proxy.plugin.PluginConfigurationException;
 import io.kroxylicious.proxy.tls.ServerTlsCredentialSupplier;
@@ -45,6 +47,7 @@ import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 class VirtualClusterModelTest {
 
@@ -250,6 +253,31 @@ class VirtualClusterModelTest {
         assertThat(onFilterClose.get()).as("FilterChainFactory close should fire despite RCF failure").isEqualTo(1);
     }
 
+    @Test
+    void subjectBuilderIsSharedByAllConnections() {
+        // Given
+        var model = new VirtualClusterModel("wibble", new TargetCluster("bootstrap:9092", Optional.empty()), false, false, EMPTY_FILTERS);
+        var pfr = subjectBuilderPluginFactoryRegistry();
+
+        // When
+        var first = model.subjectBuilder(pfr);
+        var second = model.subjectBuilder(pfr);
+
+        // Then
+        assertThat(second).isSameAs(first);
+        verify(pfr).pluginFactory(TransportSubjectBuilderService.class);
+    }
+
+    @SuppressWarnings({ "rawtypes", "unchecked" })
+    private static PluginFactoryRegistry subjectBuilderPluginFactoryRegistry() {
+        PluginFactory pf = mock(PluginFactory.class);
+        when(pf.configType(DefaultTransportSubjectBuilderService.class.getName())).thenReturn(DefaultTransportSubjectBuilderService.Config.class);
+        when(pf.pluginInstance(DefaultTransportSubjectBuilderService.class.getName())).thenReturn(new DefaultTransportSubjectBuilderService());
+        var pfr = mock(PluginFactoryRegistry.class);
+        when(pfr.pluginFactory(TransportSubjectBuilderService.class)).thenReturn(pf);
+        return pfr;
+    }
+
     /**
      * PFR that dispatches on plugin class — FilterFactory routes to FlakyFactory; everything else
      * (in practice, ServerTlsCredentialSupplierFactory) routes to TestSupplierFactory. Used by tests